@@ -0,0 +1,65 @@
+package jline.benchmarks;
+
+import jline.examples.GettingStarted;
+import jline.lang.ClosedClass;
+import jline.lang.Network;
+import jline.lang.constant.SchedStrategy;
+import jline.lang.distributions.Exp;
+import jline.lang.nodes.Delay;
+import jline.lang.nodes.Node;
+import jline.lang.nodes.Queue;
+
+public class BenchmarkNetworks {
+    /*
+        BenchmarkNetworks -
+            Models shared by the benchmarks, named by a @Param string:
+
+                ex1 ... ex11, matlabExample3     the GettingStarted examples
+                cycle:<sched>:<queues>:<jobs>    a delay and <queues> queues with scheduling <sched> in a closed
+                                                 cycle, holding <jobs> jobs of one class
+
+            The cycle is there to time the same hot path at several scales: the event count per station grows
+            with <queues>, the state space with both <queues> and <jobs>.
+     */
+    private BenchmarkNetworks() {
+    }
+
+    public static Network build(String spec) {
+        String[] fields = spec.split(":");
+        if (fields[0].equals("cycle")) {
+            return closedCycle(SchedStrategy.valueOf(fields[1]), Integer.parseInt(fields[2]), Integer.parseInt(fields[3]));
+        }
+        switch (spec) {
+            case "ex1": return GettingStarted.ex1();
+            case "ex2": return GettingStarted.ex2();
+            case "ex3": return GettingStarted.ex3();
+            case "ex4": return GettingStarted.ex4();
+            case "ex5": return GettingStarted.ex5();
+            case "ex6": return GettingStarted.ex6();
+            case "ex7": return GettingStarted.ex7();
+            case "ex8": return GettingStarted.ex8();
+            case "ex9": return GettingStarted.ex9();
+            case "ex10": return GettingStarted.ex10();
+            case "ex11": return GettingStarted.ex11();
+            case "matlabExample3": return GettingStarted.matlabExample3();
+            default: throw new RuntimeException("Unknown benchmark network " + spec);
+        }
+    }
+
+    public static Network closedCycle(SchedStrategy schedStrategy, int nQueues, int population) {
+        Network model = new Network("Cycle " + schedStrategy + " " + nQueues + "x" + population);
+        Delay delay = new Delay(model, "Think");
+        Node[] nodes = new Node[nQueues+1];
+        nodes[0] = delay;
+        ClosedClass closedClass = new ClosedClass(model, "Closed Class", population, delay);
+        delay.setService(closedClass, new Exp(1));
+        for (int i = 1; i <= nQueues; i++) {
+            Queue queue = new Queue(model, "Queue" + i, schedStrategy);
+            // unbalanced rates, so the cycle has a bottleneck
+            queue.setService(closedClass, new Exp(population*(1.0 + 0.5*i)/nQueues));
+            nodes[i] = queue;
+        }
+        model.link(model.serialRouting(nodes));
+        return model;
+    }
+}
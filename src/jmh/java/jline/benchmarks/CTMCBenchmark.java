@@ -0,0 +1,46 @@
+package jline.benchmarks;
+
+import jline.api.CTMC;
+import jline.lang.JLineMatrix;
+import jline.lang.constant.SolverType;
+import jline.solvers.SolverOptions;
+import jline.solvers.ctmc.SolverCTMC;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CTMCBenchmark {
+    /*
+        CTMC.ctmc_solve on the generator of each network, per steady-state method. The generator is built once
+            per trial, so only the solve is timed. The cycles have 66, 1771 and 3876 states.
+     */
+
+    @Param({"matlabExample3", "cycle:FCFS:2:10", "cycle:FCFS:3:20", "cycle:FCFS:4:15"})
+    public String network;
+
+    @Param({"direct", "power", "gs", "sor", "bicgstab"})
+    public String method;
+
+    protected JLineMatrix generator;
+    protected SolverOptions options;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SolverCTMC solver = new SolverCTMC();
+        solver.compile(BenchmarkNetworks.build(this.network));
+        this.generator = solver.getGenerator();
+        this.options = new SolverOptions(SolverType.CTMC);
+        this.options.method = this.method;
+    }
+
+    @Benchmark
+    public JLineMatrix solve() {
+        return CTMC.ctmc_solve(this.generator, this.options);
+    }
+}
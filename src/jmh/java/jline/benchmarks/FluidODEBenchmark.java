@@ -0,0 +1,48 @@
+package jline.benchmarks;
+
+import jline.lang.NetworkStruct;
+import jline.solvers.fluid.SolverFluid;
+import jline.solvers.fluid.odes.ClosingAndStateDepMethodsODE;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FluidODEBenchmark {
+    /*
+        One derivative evaluation of the SolverFluid closing/state-dependent ODE, the call the integrator repeats
+            at every step. The ODE is built as ClosingAndStateDepMethodsAnalyzer builds it, and evaluated at a fixed
+            interior point (one job in every phase).
+     */
+
+    @Param({"ex5", "matlabExample3", "cycle:PS:5:20", "cycle:PS:50:500"})
+    public String network;
+
+    protected ClosingAndStateDepMethodsODE ode;
+    protected double[] x;
+    protected double[] dxdt;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        NetworkStruct sn = BenchmarkNetworks.build(this.network).getStruct(false);
+        int nDimensions = (int) sn.phases.elementSum();
+        this.ode = new ClosingAndStateDepMethodsODE(sn, sn.mu, sn.phi, sn.proc, sn.rt, sn.nservers.clone(),
+                SolverFluid.defaultOptions(), nDimensions);
+        this.x = new double[nDimensions];
+        Arrays.fill(this.x, 1.0);
+        this.dxdt = new double[nDimensions];
+    }
+
+    @Benchmark
+    public void derivatives(Blackhole blackhole) {
+        this.ode.computeDerivatives(0, this.x, this.dxdt);
+        blackhole.consume(this.dxdt);
+    }
+}
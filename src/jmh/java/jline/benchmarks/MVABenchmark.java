@@ -0,0 +1,37 @@
+package jline.benchmarks;
+
+import jline.lang.NetworkStruct;
+import jline.lang.constant.SolverType;
+import jline.solvers.SolverOptions;
+import jline.solvers.SolverResult;
+import jline.solvers.mva.AMVARunner;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MVABenchmark {
+    // one AMVARunner.run() on a struct built once per trial
+
+    @Param({"ex1", "ex3", "ex5", "matlabExample3", "cycle:FCFS:5:20", "cycle:PS:20:200", "cycle:FCFS:100:1000"})
+    public String network;
+
+    protected NetworkStruct sn;
+    protected SolverOptions options;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        this.sn = BenchmarkNetworks.build(this.network).getStruct(false);
+        this.options = new SolverOptions(SolverType.MVA);
+    }
+
+    @Benchmark
+    public SolverResult run() {
+        return new AMVARunner(this.sn, this.options).run();
+    }
+}
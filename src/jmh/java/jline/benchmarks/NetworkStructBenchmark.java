@@ -0,0 +1,32 @@
+package jline.benchmarks;
+
+import jline.lang.Network;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class NetworkStructBenchmark {
+    // a hard Network.refreshStruct(), i.e. rebuilding the NetworkStruct every solver starts from
+
+    @Param({"ex1", "ex4", "ex5", "ex9", "cycle:FCFS:5:20", "cycle:PS:50:500"})
+    public String network;
+
+    protected Network model;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        this.model = BenchmarkNetworks.build(this.network);
+    }
+
+    @Benchmark
+    public Network refreshStruct() {
+        this.model.refreshStruct(true);
+        return this.model;
+    }
+}
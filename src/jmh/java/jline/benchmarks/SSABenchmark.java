@@ -0,0 +1,47 @@
+package jline.benchmarks;
+
+import jline.solvers.ssa.SolverSSA;
+import jline.solvers.ssa.Timeline;
+import jline.solvers.ssa.strategies.EventSelectionStrategy;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SSABenchmark {
+    /*
+        Exact SSA throughput, in events per second, per scheduling strategy and event selection strategy.
+            Metrics are streamed and the transient state is not kept, so the score is the event loop itself.
+     */
+    protected static final int EVENTS = 20000;
+
+    @Param({"cycle:FCFS:5:20", "cycle:PS:5:20", "cycle:LCFS:5:20", "cycle:LCFSPR:5:20", "cycle:SIRO:5:20",
+            "cycle:INF:5:20", "cycle:FCFS:50:500", "ex3", "ex4"})
+    public String network;
+
+    @Param({"Linear", "RateTree", "NextReaction"})
+    public String selection;
+
+    protected SolverSSA solver;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        this.solver = new SolverSSA();
+        this.solver.compile(BenchmarkNetworks.build(this.network));
+        this.solver.setOptions().samples(EVENTS).seed(1)
+                .eventSelection(EventSelectionStrategy.valueOf(this.selection))
+                .streamingMetrics()
+                .disableTransientState();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(EVENTS)
+    public Timeline events() {
+        return this.solver.solve();
+    }
+}
@@ -0,0 +1,60 @@
+package jline.benchmarks;
+
+import jline.solvers.ssa.SolverSSA;
+import jline.solvers.ssa.TauLeapingType;
+import jline.solvers.ssa.TauLeapingVarType;
+import jline.solvers.ssa.Timeline;
+import jline.solvers.ssa.strategies.TauLeapingOrderStrategy;
+import jline.solvers.ssa.strategies.TauLeapingStateStrategy;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TauLeapBenchmark {
+    /*
+        Time to simulate a fixed horizon with tau leaping. Configurations are <var>:<order>:<state>:<tau>, or
+            adaptive:<epsilon> for the adaptive step selection.
+     */
+    protected static final double HORIZON = 100;
+
+    @Param({"cycle:FCFS:5:20", "cycle:PS:20:200"})
+    public String network;
+
+    @Param({"Poisson:RandomEvent:Cutoff:0.1", "Binomial:RandomEvent:Cutoff:0.1", "Poisson:DirectedCycle:TimeWarp:0.1",
+            "Poisson:RandomEvent:Cutoff:0.01", "adaptive:0.03"})
+    public String configuration;
+
+    protected SolverSSA solver;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        TauLeapingType tauLeapingType;
+        String[] fields = this.configuration.split(":");
+        if (fields[0].equals("adaptive")) {
+            tauLeapingType = new TauLeapingType(TauLeapingVarType.Binomial, TauLeapingOrderStrategy.RandomEvent,
+                    TauLeapingStateStrategy.Cutoff, 0.1).adaptive(Double.parseDouble(fields[1]));
+        } else {
+            tauLeapingType = new TauLeapingType(TauLeapingVarType.valueOf(fields[0]),
+                    TauLeapingOrderStrategy.valueOf(fields[1]), TauLeapingStateStrategy.valueOf(fields[2]),
+                    Double.parseDouble(fields[3]));
+        }
+
+        this.solver = new SolverSSA();
+        this.solver.compile(BenchmarkNetworks.build(this.network));
+        this.solver.setOptions().samples(Integer.MAX_VALUE).seed(1).setEndTime(HORIZON)
+                .streamingMetrics()
+                .disableTransientState();
+        this.solver.setOptions().configureTauLeap(tauLeapingType);
+    }
+
+    @Benchmark
+    public Timeline horizon() {
+        return this.solver.solve();
+    }
+}
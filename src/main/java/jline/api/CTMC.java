@@ -9,8 +9,13 @@ import java.util.stream.IntStream;
 
 
 import jline.lang.JLineMatrix;
+import jline.solvers.SolverOptions;
 
 public class CTMC {
+
+	// above this many states ctmc_solve(Q, options) switches from the direct solver to an iterative one
+	public static final int ITERATIVE_SIZE_THRESHOLD = 2000;
+	public static final double SOR_RELAXATION = 1.1;
 	
     public static JLineMatrix dtmc_stochcomp(JLineMatrix P, List<Integer> I) {
     	//Note that in this function, List is used instead of JLineMatrix for performance consideration
@@ -259,6 +264,351 @@ public class CTMC {
     	return p;
     }
     
+    public static JLineMatrix ctmc_solve(JLineMatrix Q, SolverOptions options) {
+    	/*
+    	 Steady state of Q using options.method:
+    	 	"direct" - ctmc_solve(Q)
+    	 	"power" - power method on the uniformized chain
+    	 	"gs", "sor" - Gauss-Seidel, successive over-relaxation
+    	 	"bicgstab" - BiCGSTAB preconditioned with ILU(0)
+    	 	"default" - direct up to ITERATIVE_SIZE_THRESHOLD states, BiCGSTAB (falling back to Gauss-Seidel) above
+    	 The iterative methods stop at options.iter_tol or after options.iter_max iterations and work on the CSC arrays
+    	 of Q. They assume an irreducible generator, so generators with absorbing states go to the direct solver.
+    	 */
+    	int n = Q.numRows;
+    	String method = options.method;
+    	if (method.equals("default"))
+    		method = (n > ITERATIVE_SIZE_THRESHOLD) ? "bicgstab" : "direct";
+    	if (method.equals("direct") || (n <= 1))
+    		return ctmc_solve(Q);
+
+    	SparseGenerator generator = new SparseGenerator(Q);
+    	if (generator.hasAbsorbingState())
+    		return ctmc_solve(Q);
+
+    	double[] x;
+    	switch (method) {
+    		case "power":
+    			x = generator.power(options);
+    			break;
+    		case "gs":
+    			x = generator.sor(1.0, options);
+    			break;
+    		case "sor":
+    			x = generator.sor(SOR_RELAXATION, options);
+    			break;
+    		case "bicgstab":
+    			x = generator.bicgstab(options);
+    			if (x == null)
+    				x = generator.sor(1.0, options);
+    			break;
+    		default:
+    			throw new RuntimeException("Unknown ctmc_solve method: " + method);
+    	}
+
+    	JLineMatrix p = new JLineMatrix(1, n, n);
+    	int nz = 0;
+    	for(int i = 0; i < n; i++) {
+    		p.col_idx[i] = nz;
+    		if (x[i] > 0) {
+    			p.nz_rows[nz] = 0;
+    			p.nz_values[nz] = x[i];
+    			nz++;
+    		}
+    	}
+    	p.col_idx[n] = nz;
+    	p.nz_length = nz;
+    	p.indicesSorted = true;
+    	return p;
+    }
+
+    private static class SparseGenerator {
+    	/*
+    	 Off-diagonal part of a generator in the CSC layout of Q (column j holds Q(i,j) for i != j), which is also
+    	 the CSR layout of Q', plus the diagonal recomputed as minus the row sums, as ctmc_makeinfgen would.
+    	 */
+    	int n;
+    	int[] colPtr;
+    	int[] rows;
+    	double[] values;
+    	double[] diag;
+
+    	SparseGenerator(JLineMatrix Q) {
+    		this.n = Q.numRows;
+    		this.colPtr = new int[n+1];
+    		this.rows = new int[Q.nz_length];
+    		this.values = new double[Q.nz_length];
+    		this.diag = new double[n];
+    		int nz = 0;
+    		for(int colIdx = 0; colIdx < n; colIdx++) {
+    			colPtr[colIdx] = nz;
+    			for(int i = Q.col_idx[colIdx]; i < Q.col_idx[colIdx+1]; i++) {
+    				int rowIdx = Q.nz_rows[i];
+    				if ((rowIdx != colIdx) && (Q.nz_values[i] != 0)) {
+    					rows[nz] = rowIdx;
+    					values[nz] = Q.nz_values[i];
+    					diag[rowIdx] -= Q.nz_values[i];
+    					nz++;
+    				}
+    			}
+    		}
+    		colPtr[n] = nz;
+    	}
+
+    	boolean hasAbsorbingState() {
+    		for(int i = 0; i < n; i++) {
+    			if (diag[i] == 0)
+    				return true;
+    		}
+    		return false;
+    	}
+
+    	double[] uniform() {
+    		double[] x = new double[n];
+    		Arrays.fill(x, 1.0/n);
+    		return x;
+    	}
+
+    	static double normalize(double[] x) {
+    		double sum = 0;
+    		for(int i = 0; i < x.length; i++) {
+    			if (x[i] < 0)
+    				x[i] = 0;
+    			sum += x[i];
+    		}
+    		for(int i = 0; i < x.length; i++)
+    			x[i] /= sum;
+    		return sum;
+    	}
+
+    	static void notConverged(String method, SolverOptions options) {
+    		if (options.verbose != SolverOptions.VerboseLevel.SILENT)
+    			System.out.println("Warning: ctmc_solve " + method + " did not converge in " + options.iter_max + " iterations.");
+    	}
+
+    	double[] power(SolverOptions options) {
+    		// x <- x P with P = I + Q/q, q above the largest exit rate so that P is aperiodic
+    		double q = 0;
+    		for(int i = 0; i < n; i++)
+    			q = Math.max(q, -diag[i]);
+    		q *= 1.02;
+
+    		double[] x = uniform();
+    		double[] y = new double[n];
+    		for(int it = 0; it < options.iter_max; it++) {
+    			for(int j = 0; j < n; j++) {
+    				double flow = x[j]*diag[j];
+    				for(int k = colPtr[j]; k < colPtr[j+1]; k++)
+    					flow += x[rows[k]]*values[k];
+    				y[j] = x[j] + flow/q;
+    			}
+    			normalize(y);
+    			double delta = 0;
+    			for(int j = 0; j < n; j++)
+    				delta += Math.abs(y[j]-x[j]);
+    			double[] tmp = x;
+    			x = y;
+    			y = tmp;
+    			if (delta < options.iter_tol)
+    				return x;
+    		}
+    		notConverged("power", options);
+    		return x;
+    	}
+
+    	double sweep(double[] x, double omega) {
+    		// in-place sweep of x_j = -sum_{i!=j} x_i Q(i,j) / Q(j,j), relaxed by omega; returns the relative change
+    		double delta = 0;
+    		for(int j = 0; j < n; j++) {
+    			double inflow = 0;
+    			for(int k = colPtr[j]; k < colPtr[j+1]; k++)
+    				inflow += x[rows[k]]*values[k];
+    			double xj = (1-omega)*x[j] - omega*inflow/diag[j];
+    			if (xj < 0)
+    				xj = 0;
+    			delta += Math.abs(xj-x[j]);
+    			x[j] = xj;
+    		}
+    		return delta/normalize(x);
+    	}
+
+    	double[] sor(double omega, SolverOptions options) {
+    		double[] x = uniform();
+    		for(int it = 0; it < options.iter_max; it++) {
+    			if (sweep(x, omega) < options.iter_tol)
+    				return x;
+    		}
+    		notConverged(omega == 1.0 ? "gs" : "sor", options);
+    		return x;
+    	}
+
+    	double[] bicgstab(SolverOptions options) {
+    		/*
+    		 Solves A x = e_pin, A = Q' with row pin replaced by e_pin', i.e. x_pin = 1, and normalises afterwards.
+    		 Pinning a state keeps A as sparse as Q; a row of ones for the normalisation makes ILU(0) unstable. A few
+    		 Gauss-Seidel sweeps pick the most likely state as pin and give the initial guess. A is built in CSR with
+    		 sorted columns and factorised with ILU(0). Returns null on breakdown or if it does not converge, so that
+    		 the caller can fall back to another method.
+    		 */
+    		double[] x = uniform();
+    		for(int it = 0; it < Math.min(10, options.iter_max); it++)
+    			sweep(x, 1.0);
+    		int pin = 0;
+    		for(int i = 1; i < n; i++) {
+    			if (x[i] > x[pin])
+    				pin = i;
+    		}
+    		double scale = x[pin];
+    		for(int i = 0; i < n; i++)
+    			x[i] /= scale;
+
+    		int[] aPtr = new int[n+1];
+    		int[] aCols = new int[colPtr[n] + n];
+    		double[] aVals = new double[aCols.length];
+    		int[] aDiag = new int[n];
+    		int nz = 0;
+    		for(int j = 0; j < n; j++) {
+    			aPtr[j] = nz;
+    			if (j != pin) {
+    				for(int k = colPtr[j]; k < colPtr[j+1]; k++) {
+    					aCols[nz] = rows[k];
+    					aVals[nz] = values[k];
+    					nz++;
+    				}
+    			}
+    			aCols[nz] = j;
+    			aVals[nz] = (j == pin) ? 1.0 : diag[j];
+    			nz++;
+    			sortRow(aCols, aVals, aPtr[j], nz);
+    		}
+    		aPtr[n] = nz;
+    		for(int i = 0; i < n; i++) {
+    			for(int k = aPtr[i]; k < aPtr[i+1]; k++) {
+    				if (aCols[k] == i)
+    					aDiag[i] = k;
+    			}
+    		}
+
+    		// ILU(0), same sparsity as A
+    		double[] lu = Arrays.copyOf(aVals, nz);
+    		int[] pos = new int[n];
+    		Arrays.fill(pos, -1);
+    		for(int i = 0; i < n; i++) {
+    			for(int k = aPtr[i]; k < aPtr[i+1]; k++)
+    				pos[aCols[k]] = k;
+    			for(int k = aPtr[i]; (k < aPtr[i+1]) && (aCols[k] < i); k++) {
+    				int row = aCols[k];
+    				lu[k] /= lu[aDiag[row]];
+    				for(int l = aDiag[row]+1; l < aPtr[row+1]; l++) {
+    					if (pos[aCols[l]] >= 0)
+    						lu[pos[aCols[l]]] -= lu[k]*lu[l];
+    				}
+    			}
+    			for(int k = aPtr[i]; k < aPtr[i+1]; k++)
+    				pos[aCols[k]] = -1;
+    			if (lu[aDiag[i]] == 0)
+    				return null;
+    		}
+
+    		double[] b = new double[n];
+    		b[pin] = 1.0;
+    		double[] r = new double[n];
+    		multiply(aPtr, aCols, aVals, x, r);
+    		for(int i = 0; i < n; i++)
+    			r[i] = b[i]-r[i];
+    		double[] r0 = r.clone();
+    		double[] p = new double[n];
+    		double[] v = new double[n];
+    		double[] s = new double[n];
+    		double[] t = new double[n];
+    		double[] pHat = new double[n];
+    		double[] sHat = new double[n];
+    		double rho = 1, alpha = 1, omega = 1;
+    		for(int it = 0; it < options.iter_max; it++) {
+    			double rhoNext = dot(r0, r);
+    			if (rhoNext == 0)
+    				return null;
+    			double beta = (rhoNext/rho)*(alpha/omega);
+    			for(int i = 0; i < n; i++)
+    				p[i] = r[i] + beta*(p[i] - omega*v[i]);
+    			precondition(aPtr, aCols, aDiag, lu, p, pHat);
+    			multiply(aPtr, aCols, aVals, pHat, v);
+    			alpha = rhoNext/dot(r0, v);
+    			for(int i = 0; i < n; i++)
+    				s[i] = r[i] - alpha*v[i];
+    			if (Math.sqrt(dot(s, s)) < options.iter_tol) {
+    				for(int i = 0; i < n; i++)
+    					x[i] += alpha*pHat[i];
+    				normalize(x);
+    				return x;
+    			}
+    			precondition(aPtr, aCols, aDiag, lu, s, sHat);
+    			multiply(aPtr, aCols, aVals, sHat, t);
+    			omega = dot(t, s)/dot(t, t);
+    			for(int i = 0; i < n; i++) {
+    				x[i] += alpha*pHat[i] + omega*sHat[i];
+    				r[i] = s[i] - omega*t[i];
+    			}
+    			if (Math.sqrt(dot(r, r)) < options.iter_tol) {
+    				normalize(x);
+    				return x;
+    			}
+    			if ((omega == 0) || Double.isNaN(omega))
+    				return null;
+    			rho = rhoNext;
+    		}
+    		return null;
+    	}
+
+    	static void sortRow(int[] cols, double[] vals, int start, int end) {
+    		for(int i = start+1; i < end; i++) {
+    			int col = cols[i];
+    			double val = vals[i];
+    			int j = i-1;
+    			while ((j >= start) && (cols[j] > col)) {
+    				cols[j+1] = cols[j];
+    				vals[j+1] = vals[j];
+    				j--;
+    			}
+    			cols[j+1] = col;
+    			vals[j+1] = val;
+    		}
+    	}
+
+    	static void multiply(int[] ptr, int[] cols, double[] vals, double[] x, double[] y) {
+    		for(int i = 0; i < y.length; i++) {
+    			double sum = 0;
+    			for(int k = ptr[i]; k < ptr[i+1]; k++)
+    				sum += vals[k]*x[cols[k]];
+    			y[i] = sum;
+    		}
+    	}
+
+    	static void precondition(int[] ptr, int[] cols, int[] diagPos, double[] lu, double[] r, double[] z) {
+    		// z = U \ (L \ r), L unit lower triangular
+    		int n = r.length;
+    		for(int i = 0; i < n; i++) {
+    			double sum = r[i];
+    			for(int k = ptr[i]; k < diagPos[i]; k++)
+    				sum -= lu[k]*z[cols[k]];
+    			z[i] = sum;
+    		}
+    		for(int i = n-1; i >= 0; i--) {
+    			double sum = z[i];
+    			for(int k = diagPos[i]+1; k < ptr[i+1]; k++)
+    				sum -= lu[k]*z[cols[k]];
+    			z[i] = sum/lu[diagPos[i]];
+    		}
+    	}
+
+    	static double dot(double[] a, double[] b) {
+    		double sum = 0;
+    		for(int i = 0; i < a.length; i++)
+    			sum += a[i]*b[i];
+    		return sum;
+    	}
+    }
+
     public static JLineMatrix ctmc_makeinfgen(JLineMatrix Q) {
     	double[] val = new double[Q.length()];
     	for(int i = 0; i < Q.length(); i++) 
@@ -51,7 +51,7 @@ public class Network extends Model implements Serializable {
     private List<Station> stations;
 
     private boolean hasStruct;
-    private NetworkStruct sn;
+    private transient NetworkStruct sn; // holds lambdas, rebuilt after deserialization
     private JLineMatrix csMatrix;
     private JLineMatrix connections;
 
@@ -326,6 +326,12 @@ public class Network extends Model implements Serializable {
                 routing: row: source, column: dest
          */
 
+        // routing tables compiled by a solver describe the old routing
+        for (Node node : this.nodes) {
+            if (node.getOutput() != null) {
+                node.getOutput().dropCompiledRouting();
+            }
+        }
         routing.setRouting(this);
     }
 
@@ -669,6 +675,11 @@ public class Network extends Model implements Serializable {
     	this.hasStruct = hasStruct;
     }
 
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+    	in.defaultReadObject();
+    	this.hasStruct = false;
+    }
+
     public void setStruct(NetworkStruct sn) {
     	this.sn = sn;
     }
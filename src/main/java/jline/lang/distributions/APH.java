@@ -3,12 +3,16 @@ package jline.lang.distributions;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
 
 import jline.lang.JLineMatrix;
 
 @SuppressWarnings("unchecked")
 public class APH extends MarkovianDistribution{
 
+	// built on first use; volatile as replications sample from parallel threads
+	protected volatile PhaseTypeSampler sampler;
+
 	public APH(List<Double> p, JLineMatrix generator) {
         super("APH", 1);
 		
@@ -24,7 +28,28 @@ public class APH extends MarkovianDistribution{
 
 	@Override
 	public List<Double> sample(int n) {
-		throw new RuntimeException("Not implemented");
+		return this.sampleList(n, new Random());
+	}
+
+	@Override
+	public void sample(double[] outArr, int offset, int length, Random random) {
+		PhaseTypeSampler sampler = this.sampler;
+		if (sampler == null) {
+			// racing threads may each build one, they are all equal
+			List<Double> p = (List<Double>) this.getParam(1).getValue();
+			JLineMatrix T = this.getSubgenerator();
+			double[] alpha = new double[p.size()];
+			double[][] subgenerator = new double[T.numRows][T.numCols];
+			for (int i = 0; i < alpha.length; i++) {
+				alpha[i] = p.get(i);
+				for (int j = 0; j < alpha.length; j++) {
+					subgenerator[i][j] = T.get(i, j);
+				}
+			}
+			sampler = new PhaseTypeSampler(alpha, subgenerator);
+			this.sampler = sampler;
+		}
+		sampler.sample(outArr, offset, length, random);
 	}
 
 	@Override
@@ -7,6 +7,7 @@ import jline.lang.*;
 import jline.lang.distributions.*;
 import jline.lang.nodes.*;
 import jline.lang.sections.*;
+import jline.util.DiscreteSampler;
 import jline.util.Interval;
 
 public class BinomialDistribution extends DiscreteDistribution implements Serializable {
@@ -19,15 +20,9 @@ public class BinomialDistribution extends DiscreteDistribution implements Serial
     }
 
     public int getRealization(Random random) {
-        int acc = 0;
         double p = (double)this.getParam(1).getValue();
         int n = (int)this.getParam(2).getValue();
-        for (int i = 0; i < n; i++) {
-            if (random.nextDouble() >= p) {
-                acc++;
-            }
-        }
-        return acc;
+        return DiscreteSampler.binomial(n, p, random);
     }
 
     public List<Double> sample(int n) {
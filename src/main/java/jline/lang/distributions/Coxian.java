@@ -34,7 +34,35 @@ public class Coxian extends MarkovianDistribution{
 
 	@Override
 	public List<Double> sample(int n) {
-		throw new RuntimeException("Not implemented");
+		return this.sampleList(n, new Random());
+	}
+
+	@Override
+	public void sample(double[] outArr, int offset, int length, Random random) {
+		// phase i lasts Exp(mu_i), then the job leaves with probability phi_i or moves to phase i+1
+		List<Double> muList = (List<Double>) this.getParam(1).getValue();
+		List<Double> phiList = (List<Double>) this.getParam(2).getValue();
+		int nPhases = muList.size();
+		double[] mu = new double[nPhases];
+		double[] phi = new double[nPhases];
+		for (int i = 0; i < nPhases; i++) {
+			mu[i] = muList.get(i);
+			phi[i] = (i < phiList.size()) ? phiList.get(i) : 1.0;
+		}
+		phi[nPhases-1] = 1.0;
+
+		for (int i = offset; i < offset+length; i++) {
+			double t = 0;
+			int phase = 0;
+			while (true) {
+				t -= Math.log(1-random.nextDouble())/mu[phase];
+				if ((phi[phase] >= 1) || (random.nextDouble() < phi[phase])) {
+					break;
+				}
+				phase++;
+			}
+			outArr[i] = t;
+		}
 	}
 
 	@Override
@@ -3,6 +3,7 @@ package jline.lang.distributions;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Random;
 import jline.lang.*;
 import jline.lang.distributions.*;
 import jline.lang.nodes.*;
@@ -34,6 +35,29 @@ abstract public class Distribution  implements Serializable  {
     public abstract double evalCDF(double t);
     public abstract double evalLST(double s);
 
+    public void sample(double[] outArr, int offset, int length, Random random) {
+        /*
+            Fills outArr[offset..offset+length) with variates drawn with random, without boxing. Distributions that
+                support bulk sampling override this.
+         */
+        throw new RuntimeException("Not Implemented!");
+    }
+
+    public void sample(double[] outArr, Random random) {
+        this.sample(outArr, 0, outArr.length, random);
+    }
+
+    protected List<Double> sampleList(int n, Random random) {
+        // boxed view of sample(double[], ...), for sample(int)
+        double[] samples = new double[n];
+        this.sample(samples, 0, n, random);
+        List<Double> outList = new ArrayList<Double>(n);
+        for (double sample : samples) {
+            outList.add(sample);
+        }
+        return outList;
+    }
+
     public Distribution(String name, int numParam, Interval support) {
         this.params = new ArrayList<Param>();
 
@@ -4,6 +4,7 @@ import java.io.Serializable;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
 
 import org.ejml.data.DMatrixRMaj;
 import org.ejml.ops.DConvertMatrixStruct;
@@ -19,10 +20,44 @@ public class Erlang extends MarkovianDistribution implements Serializable {
     }
 
     public List<Double> sample(int n)  {
+        return this.sampleList(n, new Random());
+    }
+
+    public void sample(double[] outArr, int offset, int length, Random random) {
+        /*
+            Up to 16 phases, minus the log of a product of uniforms (one log per sample, and the product cannot
+                underflow). Above that, a Gamma(r) variate by Marsaglia and Tsang's method, O(1) in r.
+         */
         double alpha = (double)this.getParam(1).getValue();
         long r = (long) this.getParam(2).getValue();
-        //return exprnd(1/lambda, n, 1);
-        throw new RuntimeException("Not Implemented!");
+        if (r <= 16) {
+            for (int i = offset; i < offset+length; i++) {
+                double prod = 1;
+                for (long k = 0; k < r; k++) {
+                    prod *= 1-random.nextDouble();
+                }
+                outArr[i] = -Math.log(prod)/alpha;
+            }
+            return;
+        }
+
+        double d = r - 1.0/3;
+        double c = 1/Math.sqrt(9*d);
+        for (int i = offset; i < offset+length; i++) {
+            while (true) {
+                double x = random.nextGaussian();
+                double v = 1 + c*x;
+                if (v <= 0) {
+                    continue;
+                }
+                v = v*v*v;
+                double u = random.nextDouble();
+                if ((u < 1 - 0.0331*x*x*x*x) || (Math.log(u) < 0.5*x*x + d*(1 - v + Math.log(v)))) {
+                    outArr[i] = d*v/alpha;
+                    break;
+                }
+            }
+        }
     }
 
     public long getNumberOfPhases() {
@@ -10,6 +10,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
 
 import static java.lang.Math.exp;
 import static java.lang.Math.log;
@@ -21,9 +22,14 @@ public class Exp extends MarkovianDistribution  implements Serializable {
     }
 
     public List<Double> sample(int n)  {
+        return this.sampleList(n, new Random());
+    }
+
+    public void sample(double[] outArr, int offset, int length, Random random) {
         double lambda = (double)this.getParam(1).getValue();
-        //return exprnd(1/lambda, n, 1);
-        throw new RuntimeException("Not Implemented!");
+        for (int i = offset; i < offset+length; i++) {
+            outArr[i] = -log(1-random.nextDouble())/lambda;
+        }
     }
 
     public long getNumberOfPhases() {
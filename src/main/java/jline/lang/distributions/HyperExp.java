@@ -6,6 +6,7 @@ import java.io.Serializable;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
 
 
 @SuppressWarnings("unchecked")
@@ -28,7 +29,17 @@ public class HyperExp extends MarkovianDistribution  implements Serializable {
     }
 
     public List<Double> sample(int n)  {
-        throw new RuntimeException("Not Implemented!");
+        return this.sampleList(n, new Random());
+    }
+
+    public void sample(double[] outArr, int offset, int length, Random random) {
+        double p = (double) this.getParam(1).getValue();
+        double mu1 = (double) this.getParam(2).getValue();
+        double mu2 = (double) this.getParam(3).getValue();
+        for (int i = offset; i < offset+length; i++) {
+            double rate = (random.nextDouble() < p) ? mu1 : mu2;
+            outArr[i] = -Math.log(1-random.nextDouble())/rate;
+        }
     }
 
 	public long getNumberOfPhases() {
@@ -6,10 +6,13 @@ import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
 
 public class PH extends  MarkovianDistribution  implements Serializable  {
     private int nPhases;
     List<Double> totalPhaseRate;
+    // built on first use; volatile as replications sample from parallel threads
+    protected volatile PhaseTypeSampler sampler;
 
     public PH(int nPhases, List<Double> startingPhaseProbability, List<List<Double>> phMatrix) {
         super("jline.PHDistribution", 1);
@@ -45,8 +48,27 @@ public class PH extends  MarkovianDistribution  implements Serializable  {
     }
 
     public List<Double> sample(int n)  {
-        //return exprnd(1/lambda, n, 1);
-        throw new RuntimeException("Not Implemented!");
+        return this.sampleList(n, new Random());
+    }
+
+    public void sample(double[] outArr, int offset, int length, Random random) {
+        PhaseTypeSampler sampler = this.sampler;
+        if (sampler == null) {
+            // racing threads may each build one, they are all equal
+            List<Double> startingPhaseProbability = (List<Double>) this.getParam(2).getValue();
+            List<List<Double>> phMatrix = (List<List<Double>>) this.getParam(3).getValue();
+            double[] alpha = new double[this.nPhases];
+            double[][] T = new double[this.nPhases][this.nPhases];
+            for (int i = 0; i < this.nPhases; i++) {
+                alpha[i] = startingPhaseProbability.get(i);
+                for (int j = 0; j < this.nPhases; j++) {
+                    T[i][j] = phMatrix.get(i).get(j);
+                }
+            }
+            sampler = new PhaseTypeSampler(alpha, T);
+            this.sampler = sampler;
+        }
+        sampler.sample(outArr, offset, length, random);
     }
 
     public double getVar() {
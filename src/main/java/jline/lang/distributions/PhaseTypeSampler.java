@@ -0,0 +1,101 @@
+package jline.lang.distributions;
+
+import jline.util.AliasTable;
+
+import java.io.Serializable;
+import java.util.Random;
+
+public class PhaseTypeSampler implements Serializable {
+    /*
+        PhaseTypeSampler -
+            Draws inter-event times of a MAP (D0, D1) by walking its phases: hold an exponential time in the current
+            phase, then move with a hidden (D0) or visible (D1) transition. A visible transition ends the sample and
+            the walk resumes from the phase it leads to, so consecutive samples keep the MAP correlation.
+
+            A PH distribution (alpha, T) is the same walk on T, except that every sample starts from a phase drawn
+            from alpha and any exit ends it.
+
+            Each phase has one alias table over its outcomes, so a step costs two uniforms and no allocation.
+
+            In PH mode sample() reads and writes no state but the Random, so one sampler can serve several threads.
+                A MAP sampler carries its phase from one sample to the next and must not be shared.
+     */
+    protected int nPhases;
+    protected double[] holdingRates;
+    protected AliasTable[] transitions; // [phase] -> outcome j < nPhases (hidden to j) or nPhases+j (visible to j)
+    protected AliasTable initialPhases; // PH only: starting phase of every sample
+    protected int phase;
+
+    public PhaseTypeSampler(double[][] D0, double[][] D1, int initialPhase) {
+        this.nPhases = D0.length;
+        this.holdingRates = new double[this.nPhases];
+        this.transitions = new AliasTable[this.nPhases];
+        for (int i = 0; i < this.nPhases; i++) {
+            double[] weights = new double[2*this.nPhases];
+            for (int j = 0; j < this.nPhases; j++) {
+                weights[j] = (i == j) ? 0 : Math.max(D0[i][j], 0);
+                weights[this.nPhases+j] = Math.max(D1[i][j], 0);
+            }
+            this.setPhase(i, -D0[i][i], weights);
+        }
+        this.initialPhases = null;
+        this.phase = initialPhase;
+    }
+
+    public PhaseTypeSampler(double[] alpha, double[][] T) {
+        this.nPhases = T.length;
+        this.holdingRates = new double[this.nPhases];
+        this.transitions = new AliasTable[this.nPhases];
+        for (int i = 0; i < this.nPhases; i++) {
+            // hidden to j, or exit (outcome nPhases) at rate -sum_j T(i,j)
+            double[] weights = new double[this.nPhases+1];
+            double exitRate = 0;
+            for (int j = 0; j < this.nPhases; j++) {
+                weights[j] = (i == j) ? 0 : Math.max(T[i][j], 0);
+                exitRate -= T[i][j];
+            }
+            weights[this.nPhases] = Math.max(exitRate, 0);
+            this.setPhase(i, -T[i][i], weights);
+        }
+        this.initialPhases = new AliasTable(alpha);
+        this.phase = 0;
+    }
+
+    private void setPhase(int i, double holdingRate, double[] weights) {
+        if (!(holdingRate > 0)) {
+            throw new RuntimeException("Phase " + i + " has no outgoing transitions");
+        }
+        this.holdingRates[i] = holdingRate;
+        this.transitions[i] = new AliasTable(weights);
+    }
+
+    public int getPhase() {
+        return this.phase;
+    }
+
+    public void setPhase(int phase) {
+        this.phase = phase;
+    }
+
+    public double sample(Random random) {
+        double t = 0;
+        int curPhase = (this.initialPhases != null) ? this.initialPhases.sample(random) : this.phase;
+        while (true) {
+            t -= Math.log(1-random.nextDouble())/this.holdingRates[curPhase];
+            int outcome = this.transitions[curPhase].sample(random);
+            if (outcome >= this.nPhases) {
+                if (this.initialPhases == null) {
+                    this.phase = outcome - this.nPhases;
+                }
+                return t;
+            }
+            curPhase = outcome;
+        }
+    }
+
+    public void sample(double[] outArr, int offset, int length, Random random) {
+        for (int i = offset; i < offset+length; i++) {
+            outArr[i] = this.sample(random);
+        }
+    }
+}
@@ -4,6 +4,7 @@ import java.io.Serializable;
 import java.util.List;
 import java.util.Random;
 
+import jline.util.DiscreteSampler;
 import jline.util.Interval;
 
 public class PoissonDistribution extends DiscreteDistribution implements Serializable {
@@ -12,35 +13,16 @@ public class PoissonDistribution extends DiscreteDistribution implements Seriali
         this.setParam(1, "lambda", rate);
     }
 
-    private int factorial(int n) {
-        if (n == 0) {
-            return 1;
-        }
-
-        int acc = 1;
-
-        for (int i = n; i > 0; i--) {
-            acc *= i;
-        }
-
-        return acc;
-    }
-
     public double evalPDF(int n) {
         double lambda = this.getRate();
-        double num = Math.pow(lambda, n)*Math.exp(-lambda);
-        return num/((double) factorial(n));
+        if (n == 0) {
+            return Math.exp(-lambda);
+        }
+        return Math.exp(n*Math.log(lambda) - lambda - DiscreteSampler.logFactorial(n));
     }
 
     public int getRealization(Random random) {
-        int curN = 0;
-        double cdfVal = evalPDF(curN);
-        double cdfProb = random.nextDouble();
-        while (cdfVal < cdfProb) {
-            curN++;
-            cdfVal += evalPDF(curN);
-        }
-        return curN;
+        return DiscreteSampler.poisson(this.getRate(), random);
     }
 
     public List<Double> sample(int n) {
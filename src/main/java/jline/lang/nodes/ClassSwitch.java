@@ -42,6 +42,10 @@ public class ClassSwitch extends Node implements Serializable {
         this.setRouting(jobClass, RoutingStrategy.PROB, destination, probability);
     }
 
+    public Map<JobClass, Map<JobClass, Double>> getClassSwitchMatrix() {
+        return this.csMatrix;
+    }
+
     @Override
     public ArrivalEvent getArrivalEvent(JobClass jobClass) {
         if (!this.arrivalEvents.containsKey(jobClass)) {
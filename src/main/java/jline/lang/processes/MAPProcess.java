@@ -2,6 +2,7 @@ package jline.lang.processes;
 
 import jline.lang.JLineMatrix;
 import jline.lang.distributions.MarkovianDistribution;
+import jline.util.AliasTable;
 import jline.util.Cdf;
 import jline.util.Interval;
 import jline.util.Pair;
@@ -21,6 +22,10 @@ public class MAPProcess extends MarkovianDistribution implements Serializable {
     List<Double> totalDepartureRate;
     List<Double> totalPhaseRate;
     private int nPhases;
+
+    // per-phase alias tables for the next phase, built by compileAliasTables()
+    protected AliasTable[] hiddenTables;
+    protected AliasTable[] visibleTables;
     public MAPProcess(int nPhases, List<List<Double>> hiddenTransitions, List<List<Double>> visibleTransitions) {
         super("jline.MAPProcess", 1);
         this.setParam(1, "n", (long)nPhases);
@@ -57,7 +62,8 @@ public class MAPProcess extends MarkovianDistribution implements Serializable {
     }
 
     public List<Double> sample(int n)  {
-        //return exprnd(1/lambda, n, 1);
+        // unreachable while the constructor throws; a sampler for (D0, D1) is PhaseTypeSampler's MAP mode, one
+        // per sampling thread as it carries the phase between samples
         throw new RuntimeException("Not Implemented!");
     }
 
@@ -83,7 +89,36 @@ public class MAPProcess extends MarkovianDistribution implements Serializable {
         return this.totalPhaseRate.get(phase);
     }
 
+    public void compileAliasTables() {
+        /*
+            The transition probabilities are fixed, so precompute a table per phase for getNextPhase and
+                getNextPhaseAfterDeparture. Rows without any transition keep the Cdf path.
+         */
+        List<List<Double>> hiddenTransitions = (List<List<Double>>)this.getParam(2).getValue();
+        List<List<Double>> visibleTransitions = (List<List<Double>>)this.getParam(3).getValue();
+        this.hiddenTables = new AliasTable[this.nPhases];
+        this.visibleTables = new AliasTable[this.nPhases];
+
+        for (int i = 0; i < this.nPhases; i++) {
+            double[] hiddenWeights = new double[this.nPhases];
+            double[] visibleWeights = new double[this.nPhases];
+            for (int j = 0; j < this.nPhases; j++) {
+                hiddenWeights[j] = (i == j) ? 0 : hiddenTransitions.get(i).get(j);
+                visibleWeights[j] = visibleTransitions.get(i).get(j);
+            }
+            if (this.totalPhaseRate.get(i) > 0) {
+                this.hiddenTables[i] = new AliasTable(hiddenWeights);
+            }
+            if (this.totalDepartureRate.get(i) > 0) {
+                this.visibleTables[i] = new AliasTable(visibleWeights);
+            }
+        }
+    }
+
     public int getNextPhaseAfterDeparture(int curPhase, Random random) {
+        if ((this.visibleTables != null) && (this.visibleTables[curPhase] != null)) {
+            return this.visibleTables[curPhase].sample(random);
+        }
         List<List<Double>> phaseRates = (List<List<Double>>)this.getParam(3).getValue();
         List<Double> phaseTransitions = phaseRates.get(curPhase);
         double tdr = this.totalDepartureRate.get(curPhase);
@@ -98,6 +133,9 @@ public class MAPProcess extends MarkovianDistribution implements Serializable {
     }
 
     public int getNextPhase(int curPhase, Random random) {
+        if ((this.hiddenTables != null) && (this.hiddenTables[curPhase] != null)) {
+            return this.hiddenTables[curPhase].sample(random);
+        }
         List<List<Double>> phaseRates = (List<List<Double>>)this.getParam(2).getValue();
         List<Double> phaseTransitions = phaseRates.get(curPhase);
 
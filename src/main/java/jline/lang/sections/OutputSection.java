@@ -3,6 +3,7 @@ package jline.lang.sections;
 import java.io.Serializable;
 import java.util.*;
 
+import jline.util.AliasTable;
 import jline.util.Cdf;
 import jline.lang.*;
 import jline.lang.constant.RoutingStrategy;
@@ -20,7 +21,13 @@ public class OutputSection extends Section implements Serializable {
     protected Map<OutputStrategy, OutputEvent> outputEvents;
     protected boolean isClassSwitch;
 
+    // routing alias tables, built by compileRouting() and dropped whenever the routing changes or is relinked
+    protected Map<JobClass, AliasTable> routingTables;
+    protected Map<JobClass, OutputEvent[]> routingTableEvents;
+
     protected void probabilityUpdate() {
+        this.dropCompiledRouting();
+
         Map<JobClass, Double> totalNonRandProbability = new HashMap<JobClass, Double>();
         Map<JobClass, Integer> totalProbServers = new HashMap<JobClass, Integer>();
         for (OutputStrategy outputStrategy : this.outputStrategies) {
@@ -88,6 +95,53 @@ public class OutputSection extends Section implements Serializable {
             }
         }
         this.outputStrategies = newOutputStrategies;
+        this.dropCompiledRouting();
+    }
+
+    public void dropCompiledRouting() {
+        // back to drawing from the routing probabilities, until the next compileRouting()
+        this.routingTables = null;
+        this.routingTableEvents = null;
+    }
+
+    public boolean isRoutingCompiled() {
+        return this.routingTables != null;
+    }
+
+    public void compileRouting() {
+        /*
+            Snapshot the routing probabilities of every class into alias tables, so that getOutputEvent is O(1).
+         */
+        this.routingTables = new HashMap<JobClass, AliasTable>();
+        this.routingTableEvents = new HashMap<JobClass, OutputEvent[]>();
+
+        Map<JobClass, List<OutputStrategy>> classStrategies = new HashMap<JobClass, List<OutputStrategy>>();
+        for (OutputStrategy outputStrategy : this.outputStrategies) {
+            if (outputStrategy.getDestination() == null) {
+                continue;
+            }
+            if (!classStrategies.containsKey(outputStrategy.getJobClass())) {
+                classStrategies.put(outputStrategy.getJobClass(), new ArrayList<OutputStrategy>());
+            }
+            classStrategies.get(outputStrategy.getJobClass()).add(outputStrategy);
+        }
+
+        for (Map.Entry<JobClass, List<OutputStrategy>> entry : classStrategies.entrySet()) {
+            List<OutputStrategy> strategies = entry.getValue();
+            double[] weights = new double[strategies.size()];
+            OutputEvent[] events = new OutputEvent[strategies.size()];
+            double total = 0;
+            for (int i = 0; i < strategies.size(); i++) {
+                weights[i] = strategies.get(i).getProbability();
+                events[i] = this.outputEvents.get(strategies.get(i));
+                total += weights[i];
+            }
+            if (!(total > 0)) {
+                continue;
+            }
+            this.routingTables.put(entry.getKey(), new AliasTable(weights));
+            this.routingTableEvents.put(entry.getKey(), events);
+        }
     }
 
     public void printSummary() {
@@ -105,6 +159,13 @@ public class OutputSection extends Section implements Serializable {
     }
 
     public OutputEvent getOutputEvent(JobClass jobClass, Random random) {
+        if (this.routingTables != null) {
+            AliasTable routingTable = this.routingTables.get(jobClass);
+            if (routingTable != null) {
+                return this.routingTableEvents.get(jobClass)[routingTable.sample(random)];
+            }
+        }
+
         Cdf<OutputStrategy> outputStrategyCdf = new Cdf<OutputStrategy>(random);
 
         if (this.outputStrategies.size() == 0) {
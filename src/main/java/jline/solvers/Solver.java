@@ -6,6 +6,9 @@ package jline.solvers;
 import jline.lang.Model;
 import jline.lang.constant.SolverType;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
 // Abstract class for model solution algorithms and tools
 public abstract class Solver {
 
@@ -28,6 +31,33 @@ public abstract class Solver {
   // Generic method to run the solver
   protected abstract void runAnalyzer() throws IllegalAccessException;
 
+  // Run the analyzer on executor, under control: the solver polls it for cancellation, deadline and
+  // progress (see SolverControl). Completes with the result of the run.
+  public CompletableFuture<SolverResult> runAnalyzerAsync(SolverControl control, Executor executor) {
+    return control.submit(
+        () -> {
+          SolverControl previous = this.options.control;
+          this.options.control = control;
+          try {
+            this.runAnalyzer();
+          } catch (IllegalAccessException e) {
+            throw new RuntimeException(e);
+          } finally {
+            this.options.control = previous;
+          }
+          return this.result;
+        },
+        executor);
+  }
+
+  public CompletableFuture<SolverResult> runAnalyzerAsync(SolverControl control) {
+    return this.runAnalyzerAsync(control, SolverControl.defaultExecutor());
+  }
+
+  public CompletableFuture<SolverResult> runAnalyzerAsync() {
+    return this.runAnalyzerAsync(new SolverControl());
+  }
+
   protected void setChecks(boolean bool) {
     enableChecks = bool;
   }
@@ -0,0 +1,145 @@
+// Copyright (c) 2012-2022, Imperial College London
+// All rights reserved.
+
+package jline.solvers;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+// Cooperative cancellation, deadline and progress reporting for a solver run.
+//
+// Solvers poll the control at their natural checkpoints: every SSAOptions.timeoutCheckEvery events (SSA),
+// every outer iteration (MVA), every ODE step (Fluid). The clock is only read there. A cancelled
+// or expired SSA run stops and returns the metrics collected so far; the iterative solvers abort with a
+// CancellationException. Progress is reported from the same checkpoints, at most once per
+// progressInterval().
+//
+// One control belongs to one run: it is cancelled for good, and its deadline counts from start().
+public class SolverControl {
+
+  private static Executor defaultExecutor;
+
+  protected volatile boolean cancelled;
+  protected long timeoutNanos; // 0 -> no deadline
+  protected long deadlineNanos;
+  protected long progressIntervalNanos;
+  protected SolverProgressListener listener; // null -> no progress reports
+  protected long startNanos;
+  protected long lastReportNanos;
+
+  public SolverControl() {
+    this.cancelled = false;
+    this.timeoutNanos = 0;
+    this.progressIntervalNanos = TimeUnit.SECONDS.toNanos(1);
+    this.listener = null;
+    this.start();
+  }
+
+  public SolverControl deadline(long timeout, TimeUnit unit) {
+    this.timeoutNanos = unit.toNanos(timeout);
+    this.deadlineNanos = this.startNanos + this.timeoutNanos;
+    return this;
+  }
+
+  public SolverControl progressInterval(long interval, TimeUnit unit) {
+    this.progressIntervalNanos = unit.toNanos(interval);
+    return this;
+  }
+
+  public SolverControl onProgress(SolverProgressListener listener) {
+    this.listener = listener;
+    return this;
+  }
+
+  // Restart the deadline and progress clocks, called when the solver starts running
+  public void start() {
+    this.startNanos = System.nanoTime();
+    this.lastReportNanos = this.startNanos;
+    this.deadlineNanos = this.startNanos + this.timeoutNanos;
+  }
+
+  public void cancel() {
+    this.cancelled = true;
+  }
+
+  public boolean isCancelled() {
+    return this.cancelled;
+  }
+
+  public boolean isExpired() {
+    return (this.timeoutNanos > 0) && (System.nanoTime() - this.deadlineNanos >= 0);
+  }
+
+  public boolean shouldStop() {
+    return this.cancelled || this.isExpired();
+  }
+
+  // Throw if the run should stop, for solvers that have no partial result to return
+  public void checkpoint() {
+    if (this.cancelled) {
+      throw new CancellationException("Solver cancelled");
+    } else if (this.isExpired()) {
+      throw new CancellationException("Solver deadline exceeded");
+    }
+  }
+
+  public boolean progressDue() {
+    return (this.listener != null)
+        && (System.nanoTime() - this.lastReportNanos >= this.progressIntervalNanos);
+  }
+
+  public void report(String solver, long steps, double time, double[][] queueLengths) {
+    if (this.listener == null) {
+      return;
+    }
+    long now = System.nanoTime();
+    this.lastReportNanos = now;
+    this.listener.onProgress(
+        new SolverProgress(solver, steps, time, (now - this.startNanos) / 1e9, queueLengths));
+  }
+
+  // Run task on executor under this control. Cancelling the future also cancels the control, so the
+  // solver stops at its next checkpoint.
+  public <T> CompletableFuture<T> submit(Supplier<T> task, Executor executor) {
+    CompletableFuture<T> future =
+        new CompletableFuture<T>() {
+          @Override
+          public boolean cancel(boolean mayInterruptIfRunning) {
+            SolverControl.this.cancel();
+            return super.cancel(mayInterruptIfRunning);
+          }
+        };
+    executor.execute(
+        () -> {
+          if (future.isDone()) {
+            return;
+          }
+          try {
+            this.start();
+            future.complete(task.get());
+          } catch (Throwable e) {
+            future.completeExceptionally(e);
+          }
+        });
+    return future;
+  }
+
+  // One virtual thread per task on runtimes that have them (Java 21+), the common pool otherwise
+  public static synchronized Executor defaultExecutor() {
+    if (defaultExecutor == null) {
+      try {
+        Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        defaultExecutor = (Executor) factory.invoke(null);
+      } catch (ReflectiveOperationException e) {
+        defaultExecutor = ForkJoinPool.commonPool();
+      }
+    }
+    return defaultExecutor;
+  }
+}
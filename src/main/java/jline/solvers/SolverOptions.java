@@ -58,6 +58,9 @@ public class SolverOptions {
   public boolean stiff;
   public double[] timespan;
   public VerboseLevel verbose;
+  // Cancellation, deadline and progress of the current run, null if none. Set by
+  // Solver.runAnalyzerAsync(); like odeSolvers, it belongs to one run at a time.
+  public SolverControl control;
 
   public SolverOptions() {
 
@@ -94,6 +97,7 @@ public class SolverOptions {
     this.timespan[0] = POSITIVE_INFINITY;
     this.timespan[1] = POSITIVE_INFINITY;
     this.verbose = VerboseLevel.STD;
+    this.control = null;
   }
 
   public SolverOptions(SolverType solverType) {
@@ -102,6 +106,11 @@ public class SolverOptions {
 
     // Solver-specific Defaults
     switch (solverType) {
+      case CTMC:
+        // iterative steady-state solvers, see CTMC.ctmc_solve(Q, options)
+        this.iter_max = 10000;
+        this.iter_tol = 1e-10;
+        break;
       case ENV:
         this.iter_max = 100;
         this.verbose = VerboseLevel.SILENT;
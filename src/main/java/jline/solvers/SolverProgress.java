@@ -0,0 +1,29 @@
+// Copyright (c) 2012-2022, Imperial College London
+// All rights reserved.
+
+package jline.solvers;
+
+// Snapshot of a running solver, passed to SolverProgressListener
+public class SolverProgress {
+
+  public final String solver; // Solver name
+  public final long steps; // Events (SSA), iterations (MVA) or ODE steps (Fluid) so far
+  public final double time; // Simulated or ODE time reached, NaN for iterative solvers
+  public final double elapsedSeconds; // Wall clock time since the solver started
+  public final double[][] queueLengths; // Current mean queue lengths [station][class] ([station][chain] for MVA), or null
+
+  public SolverProgress(
+      String solver, long steps, double time, double elapsedSeconds, double[][] queueLengths) {
+    this.solver = solver;
+    this.steps = steps;
+    this.time = time;
+    this.elapsedSeconds = elapsedSeconds;
+    this.queueLengths = queueLengths;
+  }
+
+  @Override
+  public String toString() {
+    return String.format(
+        "%s: %d steps, t=%f, %.3fs elapsed", this.solver, this.steps, this.time, this.elapsedSeconds);
+  }
+}
@@ -0,0 +1,10 @@
+// Copyright (c) 2012-2022, Imperial College London
+// All rights reserved.
+
+package jline.solvers;
+
+// Periodic progress callback of a SolverControl, invoked on the thread running the solver
+public interface SolverProgressListener {
+
+  void onProgress(SolverProgress progress);
+}
@@ -2,6 +2,8 @@ package jline.solvers.ctmc;
 
 import jline.api.CTMC;
 import jline.lang.*;
+import jline.lang.constant.SolverType;
+import jline.solvers.SolverOptions;
 import jline.solvers.ssa.SSAData;
 import jline.solvers.ssa.SSAOptions;
 import jline.solvers.ssa.SSAStruct;
@@ -9,8 +11,10 @@ import jline.solvers.ssa.Timeline;
 import jline.solvers.ssa.events.Event;
 import jline.solvers.ssa.events.OutputEvent;
 import jline.solvers.ssa.state.StateMatrix;
+import jline.solvers.ssa.state.StateSpace;
 import jline.solvers.ssa.strategies.TauLeapingStateStrategy;
 
+import jline.util.GeneratorBuilder;
 import jline.util.Pair;
 import org.javatuples.Quartet;
 
@@ -19,15 +23,21 @@ import java.util.*;
 public class SolverCTMC {
 
     protected SSAOptions simOptions;
+    protected SolverOptions ctmcOptions;
     protected Network network;
     protected SSAStruct simStruct;
     protected SSAData simCache;
     protected Random random;
+    protected StateSpace stateSpace;
+    protected JLineMatrix steadyState; // of the last getAllEvents(), over getExploredStateSpace()
+    protected double[] utilization; // [stateful node]
+    protected double[] queueLength; // [stateful node]
 
     public SolverCTMC() {
         this.network = null;
         this.simStruct = null;
         this.simOptions = new SSAOptions();
+        this.ctmcOptions = new SolverOptions(SolverType.CTMC);
         this.random = new Random();
     }
 
@@ -35,6 +45,11 @@ public class SolverCTMC {
         return this.simOptions;
     }
 
+    public SolverOptions setCTMCOptions() {
+        // steady-state solver: method (direct, power, gs, sor, bicgstab; default picks by size), iter_tol, iter_max
+        return this.ctmcOptions;
+    }
+
     public void compile(Network network) {
         this.network = network;
         this.simCache = new SSAData(this.network);
@@ -137,100 +152,42 @@ public class SolverCTMC {
         return timeline;
     }
 
-    public ArrayList<StateMatrix> getStateSpace(){
-        if (this.simCache == null) {
-            if (this.simStruct == null) {
-                this.compile(this.simStruct);
-            } else if (this.network == null) {
-                this.compile(this.network);
-            } else {
-                throw new RuntimeException("Network data not provided!");
-            }
-        }
-
-        this.random = new Random(this.simOptions.seed);
-        double curTime = simOptions.timeInterval.getLeft();
-        double maxTime = simOptions.timeInterval.getRight();
-
-        // Add ClosedClass instances to the reference station
-        StateMatrix stateMatrix = new StateMatrix(this.simCache.simStruct,this.random);
-        ArrayList<StateMatrix> stateSpace = new ArrayList<>();
-        for (JobClass jobClass : this.network.getClasses()) {
-            if (jobClass instanceof ClosedClass) {
-                int classIdx = this.network.getJobClassIndex(jobClass);
-                ClosedClass cClass = (ClosedClass) jobClass;
-                int stationIdx = this.network.getStatefulNodeIndex(cClass.getRefstat());
-                stateMatrix.setState(stationIdx, classIdx, (int)cClass.getPopulation());
-                for (int i = 0; i < cClass.getPopulation(); i++) {
-                    stateMatrix.addToBuffer(stationIdx, classIdx);
-                }
-            }
-        }
-
-        Timeline timeline = new Timeline(this.simCache.simStruct);
-
-        if (simOptions.disableResTime) {
-            timeline.disableResidenceTime();
-        }
-
-        if (simOptions.useMSER5) {
-            timeline.useMSER5();
-        } else if (simOptions.useR5) {
-            timeline.useR5(simOptions.r5value);
-        }
-
-        if (!simOptions.recordMetricTimeline) {
-            timeline.setMetricRecord(false);
-        }
-
-        if (simOptions.useTauLeap) {
-            this.simCache.eventStack.configureTauLeap(simOptions.tauLeapingType);
-            if ((simOptions.tauLeapingType.getStateStrategy() == TauLeapingStateStrategy.TimeWarp) ||
-                    (simOptions.tauLeapingType.getStateStrategy() == TauLeapingStateStrategy.TauTimeWarp)) {
-                timeline.cacheRecordings();
-            }
-        }
-//        JLineMatrix jLineMatrix = new JLineMatrix(stateMatrix.state.length, stateMatrix.state[0].length);
-        stateSpace.add(stateMatrix);
-        stateMatrix.printStateVector();
-//        jLineMatrix.array2DtoJLineMatrix(stateMatrix.state);
-//        jLineMatrix.print();
-
-        double sysTime = 0;
-        double startTime = System.currentTimeMillis();
-
-        boolean beforeSState = false;
-
-        Queue<StateMatrix> queue = new LinkedList<>();
-        queue.add(stateMatrix);
-
-        while (!queue.isEmpty() && (curTime < maxTime) && (sysTime < this.simOptions.timeout)) {
-            beforeSState = curTime < this.simOptions.steadyStateTime;
-
-            if (simOptions.useTauLeap) {
-
-                curTime = this.simCache.eventStack.tauLeapUpdate(stateMatrix, timeline, curTime, random);
-            } else {
-                curTime = this.simCache.eventStack.updateStateSpace(timeline, curTime, random,stateSpace,queue);
-
-            }
+    public StateSpace getStateSpace(){
+        return this.exploreStateSpace(null, null);
+    }
 
-            if (beforeSState && (curTime > this.simOptions.steadyStateTime)) {
-                timeline.resetHistory();
-            }
+    public JLineMatrix getGenerator() {
+        /*
+            Infinitesimal generator of the model, in sparse (CSC) form, assembled from the transitions found while
+                exploring the state space. Row/column i is state i of getExploredStateSpace().
+         */
+        GeneratorBuilder generator = new GeneratorBuilder();
+        StateSpace stateSpace = this.exploreStateSpace(generator, null);
+        return generator.build(stateSpace.size());
+    }
 
-            sysTime = (System.currentTimeMillis() - startTime)/1000.0;
+    public JLineMatrix getSteadyState() {
+        return this.steadyState;
+    }
 
-        }
-        //System.out.format("Solver finished. %d samples in %f time\n", samplesCollected, curTime);
+    public double[] getUtilization() {
+        // probability that each stateful node is busy, from the last getAllEvents()
+        return this.utilization;
+    }
 
-        timeline.taper(curTime);
-        //timeline.printSummary(this.network);
+    public double[] getQueueLength() {
+        // mean number of jobs at each stateful node, from the last getAllEvents()
+        return this.queueLength;
+    }
 
-        return stateSpace;
+    public StateSpace getExploredStateSpace() {
+        // state space of the last call to getStateSpace()/getGenerator()/getAllEvents()
+        return this.stateSpace;
     }
 
-    public ArrayList<Quartet<Event, Pair<OutputEvent,Double>,StateMatrix,StateMatrix>> getAllEvents(){
+    protected StateSpace exploreStateSpace(GeneratorBuilder generator,
+                                           List<Quartet<Event, Pair<OutputEvent,Double>,StateMatrix,StateMatrix>> events) {
+        // generator and events, if not null, collect the transitions found
         if (this.simCache == null) {
             if (this.simStruct == null) {
                 this.compile(this.simStruct);
@@ -243,11 +200,12 @@ public class SolverCTMC {
 
         this.random = new Random(this.simOptions.seed);
         double curTime = simOptions.timeInterval.getLeft();
-        double maxTime = simOptions.timeInterval.getRight();
 
         // Add ClosedClass instances to the reference station
         StateMatrix stateMatrix = new StateMatrix(this.simCache.simStruct,this.random);
-        ArrayList<Quartet<Event, Pair<OutputEvent,Double>,StateMatrix,StateMatrix>>  eventSpace = new ArrayList<>();
+        StateSpace stateSpace = new StateSpace();
+        stateSpace.recordTransitions(generator);
+        stateSpace.recordEvents(events);
         for (JobClass jobClass : this.network.getClasses()) {
             if (jobClass instanceof ClosedClass) {
                 int classIdx = this.network.getJobClassIndex(jobClass);
@@ -283,103 +241,41 @@ public class SolverCTMC {
                 timeline.cacheRecordings();
             }
         }
-        JLineMatrix jLineMatrix = new JLineMatrix(stateMatrix.state.length, stateMatrix.state[0].length);
-        eventSpace.add(Quartet.with(null,null,stateMatrix,null));
+//        JLineMatrix jLineMatrix = new JLineMatrix(stateMatrix.state.length, stateMatrix.state[0].length);
+        stateSpace.add(stateMatrix);
 //        jLineMatrix.array2DtoJLineMatrix(stateMatrix.state);
 //        jLineMatrix.print();
 
-        double sysTime = 0;
-        double startTime = System.currentTimeMillis();
-
-        boolean beforeSState = false;
-
-        Queue<StateMatrix> queue = new LinkedList<>();
-        queue.add(stateMatrix);
-
-        while (!queue.isEmpty() && (curTime < maxTime) && (sysTime < this.simOptions.timeout)) {
-            beforeSState = curTime < this.simOptions.steadyStateTime;
-
-            if (simOptions.useTauLeap) {
-                curTime = this.simCache.eventStack.tauLeapUpdate(stateMatrix, timeline, curTime, random);
-            } else {
-                curTime = this.simCache.eventStack.updateEventSpace(timeline, curTime, random,eventSpace,queue);
-
-            }
-
-            if (beforeSState && (curTime > this.simOptions.steadyStateTime)) {
-                timeline.resetHistory();
-            }
-
-            sysTime = (System.currentTimeMillis() - startTime)/1000.0;
-
-        }
-
-
-
-        //System.out.format("Solver finished. %d samples in %f time\n", samplesCollected, curTime);
+        // breadth-first search over packed, hash-indexed states
+        this.simCache.eventStack.exploreStateSpace(timeline, stateSpace, this.simOptions.timeout);
 
         timeline.taper(curTime);
         //timeline.printSummary(this.network);
 
-        eventSpace.remove(0);
+        this.stateSpace = stateSpace;
+        return stateSpace;
+    }
 
-        ArrayList<StateMatrix> stateMatrices = getStateSpace();
+    public ArrayList<Quartet<Event, Pair<OutputEvent,Double>,StateMatrix,StateMatrix>> getAllEvents(){
+        /*
+            Transitions of the model as (event, output event and its probability, source, target), listed by the
+                same breadth-first search that assembles the generator for getGenerator(). The generator is then
+                solved for the steady state, see getSteadyState(), getUtilization() and getQueueLength().
+         */
+        ArrayList<Quartet<Event, Pair<OutputEvent,Double>,StateMatrix,StateMatrix>> eventSpace = new ArrayList<>();
+        GeneratorBuilder generator = new GeneratorBuilder();
+        StateSpace stateMatrices = this.exploreStateSpace(generator, eventSpace);
         int size = stateMatrices.size();
 
-        Map<StateMatrix,Integer> indexMap = new HashMap<>();
-        for(int i =0;i< stateMatrices.size();i++){
-            indexMap.put(stateMatrices.get(i),i);
-        }
+        JLineMatrix piVector = CTMC.ctmc_solve(generator.build(size), this.ctmcOptions);
+        this.steadyState = piVector;
 
-        double[][] rateMatrix = new double[size][size];
-        for(int i =0;i<size;i++){
-            for(int j=0;j<size;j++){
-                rateMatrix[i][j]=0.0;
-            }
-        }
-
-//        for(int i=0;i<eventSpace.size();i++){
-//            for(int j=i+1;j< eventSpace.size();j++){
-//                if(StateMatrix.multipleEventSameState(eventSpace.get(i),eventSpace.get(j))){
-//                    System.out.println(true);
-//                }
-//            }
-//        }
-
-        for(Quartet<Event, Pair<OutputEvent, Double>, StateMatrix, StateMatrix> quartet : eventSpace){
-            double rate = quartet.getValue0().getRate(quartet.getValue2())*quartet.getValue1().getRight();
-            rateMatrix[indexMap.get(quartet.getValue2())][indexMap.get(quartet.getValue3())] = rate;
-        }
-
-        for(int i = 0; i<size;i++){
-            double sum = 0;
-            for(int j=0;j<size;j++){
-                if(j!=i){
-                    sum+=rateMatrix[i][j];
-                }
-            }
-            rateMatrix[i][i]= -sum;
-        }
-
-        for(int i = 0; i<size;i++){
-            for(int j=0;j<size;j++){
-                System.out.print(rateMatrix[i][j]+"  ");
-            }
-            System.out.println();
-        }
-
-        JLineMatrix rateLineMatrix = new JLineMatrix(size,size);
-        rateLineMatrix.array2DtoJLineMatrix(rateMatrix);
-
-        JLineMatrix piVector = CTMC.ctmc_solve(rateLineMatrix);
-
-        piVector.print();
-
-        double[][] U = piVector.toArray2D();
-        double[] utilisation = new double[stateMatrix.state.length];
-        double[] qLength = new double[stateMatrix.state.length];
+        int nStateful = stateMatrices.get(0).state.length;
+        double[] utilisation = new double[nStateful];
+        double[] qLength = new double[nStateful];
         for (int i=0;i<size;i++){
-            if(U[0][i]>0){
+            double p = piVector.get(0, i);
+            if(p>0){
                 int[][] state = stateMatrices.get(i).state;
                 for(int j = 0;j<state.length;j++){
                     int tempSum =0;
@@ -387,15 +283,14 @@ public class SolverCTMC {
                         tempSum+=state[j][k];
                     }
                     if(tempSum>0){
-                        utilisation[j]+=U[0][i];
-                        qLength[j]+=U[0][i]*tempSum;
+                        utilisation[j]+=p;
+                        qLength[j]+=p*tempSum;
                     }
                 }
             }
         }
-        for(int i=0;i<utilisation.length;i++){
-            System.out.println(utilisation[i]+" "+qLength[i]);
-        }
+        this.utilization = utilisation;
+        this.queueLength = qLength;
 
         return eventSpace;
     }
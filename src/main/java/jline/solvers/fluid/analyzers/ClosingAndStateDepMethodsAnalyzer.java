@@ -11,6 +11,7 @@ import jline.lang.nodes.Station;
 import jline.solvers.SolverOptions;
 import jline.solvers.SolverResult;
 import jline.solvers.fluid.odes.ClosingAndStateDepMethodsODE;
+import jline.solvers.fluid.odes.ControlStepHandler;
 import jline.solvers.fluid.odes.TransientDataHandler;
 import org.apache.commons.math3.ode.FirstOrderDifferentialEquations;
 import org.apache.commons.math3.ode.FirstOrderIntegrator;
@@ -18,6 +19,7 @@ import org.ejml.data.DMatrixRMaj;
 import org.qore.KPC.MAP;
 
 import java.util.*;
+import java.util.concurrent.CancellationException;
 
 import static java.lang.Double.POSITIVE_INFINITY;
 import static java.lang.Math.*;
@@ -101,11 +103,16 @@ public class ClosingAndStateDepMethodsAnalyzer implements MethodAnalyzer {
       odeSolver.clearStepHandlers();
       TransientDataHandler stepHandler = new TransientDataHandler(initialState.length);
       odeSolver.addStepHandler(stepHandler);
+      if (options.control != null) {
+        odeSolver.addStepHandler(new ControlStepHandler(options.control));
+      }
 
       try {
         //System.out.print("Start ODE integration cycle...");
         odeSolver.integrate(ode, tRange[0], initialState, tRange[1], nextState);
 	//System.out.println("done.");
+      } catch (CancellationException e) {
+        throw e;
       } catch (RuntimeException e) {
         if (options.verbose != SolverOptions.VerboseLevel.SILENT) {
           System.out.println(
@@ -12,6 +12,7 @@ import jline.lang.distributions.Distribution;
 import jline.lang.nodes.Station;
 import jline.solvers.SolverOptions;
 import jline.solvers.SolverResult;
+import jline.solvers.fluid.odes.ControlStepHandler;
 import jline.solvers.fluid.odes.MatrixMethodODE;
 import jline.solvers.fluid.odes.TransientDataHandler;
 import org.apache.commons.math3.ode.FirstOrderDifferentialEquations;
@@ -168,6 +169,9 @@ public class MatrixMethodAnalyzer implements MethodAnalyzer {
     odeSolver.clearStepHandlers();
     TransientDataHandler stepHandler = new TransientDataHandler(initSolLength);
     odeSolver.addStepHandler(stepHandler);
+    if (options.control != null) {
+      odeSolver.addStepHandler(new ControlStepHandler(options.control));
+    }
 
     // Choose between original compact matrix form representation, and p-norm smoothed
     // representation as per Ruuskanen et al., PEVA 151 (2021).
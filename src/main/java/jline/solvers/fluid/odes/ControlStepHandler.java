@@ -0,0 +1,34 @@
+// Copyright (c) 2012-2022, Imperial College London
+// All rights reserved.
+
+package jline.solvers.fluid.odes;
+
+import jline.solvers.SolverControl;
+import org.apache.commons.math3.ode.sampling.StepHandler;
+import org.apache.commons.math3.ode.sampling.StepInterpolator;
+
+// Polls a SolverControl after every ODE step: a cancelled or expired run aborts the integration with a
+// CancellationException, and progress is reported with the ODE time reached
+public class ControlStepHandler implements StepHandler {
+
+  private final SolverControl control;
+  private long stepCount;
+
+  public ControlStepHandler(SolverControl control) {
+    this.control = control;
+    this.stepCount = 0;
+  }
+
+  @Override
+  public void init(double t0, double[] x0, double t) {}
+
+  @Override
+  public void handleStep(StepInterpolator interpolator, boolean isLast) {
+
+    stepCount++;
+    control.checkpoint();
+    if (control.progressDue()) {
+      control.report("Fluid", stepCount, interpolator.getCurrentTime(), null);
+    }
+  }
+}
@@ -125,6 +125,12 @@ public class AMVARunner {
 		JLineMatrix STeff = null;
 		while ((outer_iter < 2 || Qchain.sub(1, QchainOuter_1).elementMaxAbs() > tol) && (outer_iter < options.iter_max)) {
 			outer_iter++;
+			if (options.control != null) {
+				// cancellation, deadline and progress, once per outer iteration
+				options.control.checkpoint();
+				if (options.control.progressDue())
+					options.control.report("MVA", (long) outer_iter, Double.NaN, Qchain.toArray2D());
+			}
 			
 			QchainOuter_1 = Qchain.clone();
 			XchainOuter_1 = Xchain.clone();
@@ -0,0 +1,20 @@
+package jline.solvers.ssa;
+
+import jline.solvers.ssa.state.StateMatrix;
+
+public interface ImportanceFunction {
+    /*
+        Importance of a state for ImportanceSplitting: how close it is to the rare event. Larger is closer; the rare
+            event is the importance reaching the last splitting level.
+     */
+    double importance(StateMatrix stateMatrix);
+
+    static ImportanceFunction jobsAt(int nodeIdx) {
+        // number of jobs at a stateful node, e.g. to reach its capacity
+        return stateMatrix -> stateMatrix.totalStateAtNode(nodeIdx);
+    }
+
+    static ImportanceFunction jobsAt(int nodeIdx, int classIdx) {
+        return stateMatrix -> stateMatrix.getState(nodeIdx, classIdx);
+    }
+}
@@ -0,0 +1,174 @@
+package jline.solvers.ssa;
+
+import jline.solvers.ssa.events.EventStack;
+import jline.solvers.ssa.state.StateMatrix;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public class ImportanceSplitting {
+    /*
+        Fixed-effort multilevel splitting, for the probability of a rare event such as a finite capacity station
+            filling up: the probability that an ImportanceFunction reaches the last of an increasing sequence of
+            levels before the time horizon, or, with a return level, before falling back to it.
+
+        Stage k runs effort trajectories, each from a copy (StateMatrix copy constructor) of a state in which
+            stage k-1 reached level k-1, spread evenly over those states, until it reaches level k (a hit, whose
+            state seeds stage k+1) or fails. The estimate is the product of the hit fractions of the stages, so
+            a probability of 1e-6 over six levels costs six stages of a few hundred trajectories each, instead of
+            millions of runs that almost all miss.
+
+        Every trajectory of a stage continues from a hit of the one before, so the stages are not independent:
+            getRelativeHalfWidth() treats them as if they were and is only a guide. Repeating the estimate with
+            different seeds gives honest intervals.
+     */
+    protected static final int MAX_STALLED_STEPS = 10000; // immediate firings in a row without time advancing
+
+    protected ImportanceFunction importanceFunction;
+    protected double[] levels;
+    protected int effort;
+    protected double horizon;
+    protected double returnLevel; // NEGATIVE_INFINITY -> trajectories only fail at the horizon
+
+    protected int nStages; // stages run, fewer than levels.length if one had no hits
+    protected int[] hits; // [level]
+    protected long nEvents;
+    protected long nTrajectories;
+
+    public ImportanceSplitting(ImportanceFunction importanceFunction, double[] levels, int effort, double horizon,
+                               double returnLevel) {
+        if ((levels == null) || (levels.length == 0)) {
+            throw new RuntimeException("No splitting levels set");
+        }
+        for (int k = 1; k < levels.length; k++) {
+            if (levels[k] <= levels[k-1]) {
+                throw new RuntimeException("Splitting levels must be increasing");
+            }
+        }
+        if (effort < 1) {
+            throw new RuntimeException("Splitting effort must be positive");
+        }
+        if ((horizon == Double.POSITIVE_INFINITY) && (returnLevel == Double.NEGATIVE_INFINITY)) {
+            throw new RuntimeException("Splitting needs a time horizon or a return level");
+        }
+        this.importanceFunction = importanceFunction;
+        this.levels = levels.clone();
+        this.effort = effort;
+        this.horizon = horizon;
+        this.returnLevel = returnLevel;
+        this.hits = new int[levels.length];
+    }
+
+    public void run(EventStack eventStack, Timeline timeline, StateMatrix initialState, double startTime,
+                    Random random) {
+        this.nStages = 0;
+        this.nEvents = 0;
+        this.nTrajectories = 0;
+        List<StateMatrix> entrances = new ArrayList<StateMatrix>();
+        List<Double> entranceTimes = new ArrayList<Double>();
+        entrances.add(initialState);
+        entranceTimes.add(startTime);
+
+        for (int k = 0; k < this.levels.length; k++) {
+            List<StateMatrix> nextEntrances = new ArrayList<StateMatrix>();
+            List<Double> nextTimes = new ArrayList<Double>();
+            this.hits[k] = 0;
+            for (int n = 0; n < this.effort; n++) {
+                int m = n % entrances.size();
+                StateMatrix stateMatrix = new StateMatrix(entrances.get(m));
+                double t = this.runToLevel(eventStack, timeline, stateMatrix, entranceTimes.get(m), this.levels[k],
+                        random);
+                this.nTrajectories++;
+                if (t >= 0) {
+                    this.hits[k]++;
+                    nextEntrances.add(stateMatrix);
+                    nextTimes.add(t);
+                }
+            }
+            this.nStages++;
+            if (this.hits[k] == 0) {
+                break;
+            }
+            entrances = nextEntrances;
+            entranceTimes = nextTimes;
+        }
+    }
+
+    protected double runToLevel(EventStack eventStack, Timeline timeline, StateMatrix stateMatrix, double t,
+                                double level, Random random) {
+        // time at which the trajectory reaches level, -1 if it fails first
+        double importance = this.importanceFunction.importance(stateMatrix);
+        boolean leftReturnSet = importance > this.returnLevel;
+        int stalled = 0;
+        timeline.setTime(t);
+        while (importance < level) {
+            if (importance > this.returnLevel) {
+                leftReturnSet = true;
+            } else if (leftReturnSet) {
+                return -1;
+            }
+
+            double nextT = eventStack.updateState(stateMatrix, timeline, t, random);
+            this.nEvents++;
+            if ((nextT > this.horizon) || (nextT == Double.POSITIVE_INFINITY)) {
+                return -1;
+            }
+            if (nextT > t) {
+                stalled = 0;
+            } else if (!(eventStack.getTotalRate(stateMatrix) > 0)) {
+                // no event can fire, the trajectory would never move again
+                return -1;
+            } else {
+                stalled++;
+            }
+            if (stalled > MAX_STALLED_STEPS) {
+                return -1;
+            }
+            t = nextT;
+            importance = this.importanceFunction.importance(stateMatrix);
+        }
+        return t;
+    }
+
+    public int getNumberOfLevels() {
+        return this.levels.length;
+    }
+
+    public double getLevelProbability(int k) {
+        // fraction of the stage k trajectories that reached level k, 0 for stages not run
+        if (k >= this.nStages) {
+            return 0;
+        }
+        return ((double) this.hits[k])/this.effort;
+    }
+
+    public double getProbability() {
+        double probability = 1;
+        for (int k = 0; k < this.levels.length; k++) {
+            probability *= this.getLevelProbability(k);
+        }
+        return probability;
+    }
+
+    public double getRelativeHalfWidth() {
+        // 95% relative half-width, assuming independent stages
+        if (this.getProbability() == 0) {
+            return Double.POSITIVE_INFINITY;
+        }
+        double relativeVariance = 0;
+        for (int k = 0; k < this.levels.length; k++) {
+            double p = this.getLevelProbability(k);
+            relativeVariance += (1 - p)/(this.effort*p);
+        }
+        return 1.96*Math.sqrt(relativeVariance);
+    }
+
+    public long getNumberOfEvents() {
+        return this.nEvents;
+    }
+
+    public long getNumberOfTrajectories() {
+        return this.nTrajectories;
+    }
+}
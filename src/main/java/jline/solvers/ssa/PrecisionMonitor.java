@@ -0,0 +1,166 @@
+package jline.solvers.ssa;
+
+import jline.solvers.ssa.metrics.StreamingAccumulator;
+import jline.solvers.ssa.state.StateMatrix;
+
+public class PrecisionMonitor {
+    /*
+        Sequential stopping rule for SolverSSA. Keeps batch means of the total queue length and throughput of every
+            station, fed by the Timeline, and tells the solver to stop once the 95% confidence interval of every
+            monitored metric is within a relative half-width of its mean.
+
+        Batches come from StreamingAccumulator: memory stays fixed however long the run, and the warm-up found by
+            MSER-5 is left out of both the means and the intervals. Metrics still at zero (stations no job has
+            visited yet) are not monitored.
+     */
+    protected int nStateful;
+    protected int nClasses;
+    protected double targetPrecision;
+    protected int nBatches;
+    protected StreamingAccumulator[] queueLengths; // null -> not monitored
+    protected StreamingAccumulator[] throughputs; // null -> not monitored
+    protected double precision;
+    protected int nChecks;
+
+    public PrecisionMonitor(SSAStruct networkStruct, double targetPrecision, int nBatches,
+                            boolean queueLength, boolean throughput) {
+        if (!queueLength && !throughput) {
+            throw new RuntimeException("No metrics selected for the precision target");
+        }
+        this.nStateful = networkStruct.nStateful;
+        this.nClasses = networkStruct.nClasses;
+        this.targetPrecision = targetPrecision;
+        this.nBatches = nBatches;
+        this.precision = Double.POSITIVE_INFINITY;
+        this.nChecks = 0;
+
+        if (queueLength) {
+            this.queueLengths = new StreamingAccumulator[this.nStateful];
+        }
+        if (throughput) {
+            this.throughputs = new StreamingAccumulator[this.nStateful];
+        }
+        for (int i = 0; i < this.nStateful; i++) {
+            if (queueLength) {
+                this.queueLengths[i] = new StreamingAccumulator(true);
+            }
+            if (throughput) {
+                this.throughputs[i] = new StreamingAccumulator(false);
+            }
+        }
+    }
+
+    protected int stationQueueLength(int nodeIdx, StateMatrix stateMatrix) {
+        // same count as QueueLengthMetric, summed over the classes
+        int acc = 0;
+        for (int j = 0; j < this.nClasses; j++) {
+            acc += Math.min(stateMatrix.getState(nodeIdx, j), stateMatrix.getCapacity(nodeIdx, j));
+        }
+        return acc;
+    }
+
+    public void start(double t, StateMatrix stateMatrix) {
+        // start observing at time t, from the current state
+        for (int i = 0; i < this.nStateful; i++) {
+            if (this.queueLengths != null) {
+                this.queueLengths[i].restart(t, this.stationQueueLength(i, stateMatrix));
+            }
+            if (this.throughputs != null) {
+                this.throughputs[i].restart(t, 0);
+            }
+        }
+        this.precision = Double.POSITIVE_INFINITY;
+    }
+
+    public void level(double t, int nodeIdx, StateMatrix stateMatrix) {
+        if (this.queueLengths != null) {
+            this.queueLengths[nodeIdx].level(t, this.stationQueueLength(nodeIdx, stateMatrix));
+        }
+    }
+
+    public void departure(double t, int nodeIdx, int n) {
+        if (this.throughputs != null) {
+            this.throughputs[nodeIdx].count(t, n);
+        }
+    }
+
+    public void reset() {
+        // end of the steady state warm-up, the current levels carry over
+        for (int i = 0; i < this.nStateful; i++) {
+            if (this.queueLengths != null) {
+                this.queueLengths[i].reset();
+            }
+            if (this.throughputs != null) {
+                this.throughputs[i].reset();
+            }
+        }
+        this.precision = Double.POSITIVE_INFINITY;
+    }
+
+    public void taper(double t) {
+        if (this.queueLengths != null) {
+            for (int i = 0; i < this.nStateful; i++) {
+                this.queueLengths[i].taper(t);
+            }
+        }
+    }
+
+    protected double relativeHalfWidth(StreamingAccumulator accumulator) {
+        double mean = accumulator.getTruncatedMean();
+        if (mean == 0) {
+            return 0;
+        }
+        return accumulator.getBatchMeansHalfWidth(this.nBatches)/Math.abs(mean);
+    }
+
+    public boolean check() {
+        /*
+            Recompute the worst relative half-width over the monitored metrics. True once it is within the target,
+                and at least one metric is nonzero.
+         */
+        this.nChecks++;
+        double worst = 0;
+        boolean observed = false;
+        for (int i = 0; i < this.nStateful; i++) {
+            if (this.queueLengths != null) {
+                observed |= this.queueLengths[i].getTruncatedMean() != 0;
+                worst = Math.max(worst, this.relativeHalfWidth(this.queueLengths[i]));
+            }
+            if (this.throughputs != null) {
+                observed |= this.throughputs[i].getTruncatedMean() != 0;
+                worst = Math.max(worst, this.relativeHalfWidth(this.throughputs[i]));
+            }
+        }
+        this.precision = observed ? worst : Double.POSITIVE_INFINITY;
+        return this.isConverged();
+    }
+
+    public boolean isConverged() {
+        return this.precision <= this.targetPrecision;
+    }
+
+    public double getPrecision() {
+        // worst relative half-width at the last check
+        return this.precision;
+    }
+
+    public int getNumberOfChecks() {
+        return this.nChecks;
+    }
+
+    public double getQueueLength(int nodeIdx) {
+        return this.queueLengths[nodeIdx].getTruncatedMean();
+    }
+
+    public double getQueueLengthHalfWidth(int nodeIdx) {
+        return this.queueLengths[nodeIdx].getBatchMeansHalfWidth(this.nBatches);
+    }
+
+    public double getThroughput(int nodeIdx) {
+        return this.throughputs[nodeIdx].getTruncatedMean();
+    }
+
+    public double getThroughputHalfWidth(int nodeIdx) {
+        return this.throughputs[nodeIdx].getBatchMeansHalfWidth(this.nBatches);
+    }
+}
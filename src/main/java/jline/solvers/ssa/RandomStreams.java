@@ -0,0 +1,79 @@
+package jline.solvers.ssa;
+
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.SplittableRandom;
+
+public class RandomStreams implements Serializable {
+    /*
+        RandomStreams -
+            One random stream per purpose, for common random numbers. Streams are named (e.g. the service clock of
+            a station and class, or its routing draws) and seeded from the run seed and the name only, so two runs
+            of different configurations with the same seed draw the same numbers for the same purpose, whatever
+            else the models do and in whatever order the streams are consumed.
+
+            With antithetic set every stream returns the complement of its draws (1-U for uniforms), so a run and
+            its antithetic twin are negatively correlated.
+     */
+    protected long seed;
+    protected boolean antithetic;
+    protected Random main;
+    protected Map<String, Random> streams;
+
+    public RandomStreams(long seed, boolean antithetic) {
+        this.seed = seed;
+        this.antithetic = antithetic;
+        // the stream the solver used before streams, so plain runs are unchanged
+        this.main = newRandom(seed, antithetic);
+        this.streams = new HashMap<String, Random>();
+    }
+
+    public static Random newRandom(long seed, boolean antithetic) {
+        return antithetic ? new AntitheticRandom(seed) : new Random(seed);
+    }
+
+    public Random main() {
+        return this.main;
+    }
+
+    public Random stream(String name) {
+        Random stream = this.streams.get(name);
+        if (stream == null) {
+            stream = newRandom(streamSeed(this.seed, name), this.antithetic);
+            this.streams.put(name, stream);
+        }
+        return stream;
+    }
+
+    public boolean isAntithetic() {
+        return this.antithetic;
+    }
+
+    protected static long streamSeed(long seed, String name) {
+        // 64-bit FNV-1a of the name, mixed with the run seed
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : name.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        return new SplittableRandom(seed ^ hash).nextLong();
+    }
+
+    public static class AntitheticRandom extends Random {
+        /*
+            Complements every block of bits drawn, so nextDouble() returns (almost exactly) 1-U and nextInt(n)
+                returns n-1-k for powers of two, for the U and k the same seed gives in a plain Random.
+         */
+        public AntitheticRandom(long seed) {
+            super(seed);
+        }
+
+        @Override
+        protected int next(int bits) {
+            return (int) (~super.next(bits) & ((1L << bits) - 1));
+        }
+    }
+}
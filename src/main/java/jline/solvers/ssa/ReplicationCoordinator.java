@@ -0,0 +1,313 @@
+package jline.solvers.ssa;
+
+import jline.solvers.SolverControl;
+
+import java.io.*;
+import java.math.BigInteger;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+public class ReplicationCoordinator {
+    /*
+        Coordinator of SolverSSA.solveDistributed(). Listens on a socket, starts localWorkers ReplicationWorker JVMs
+            on this host and accepts any number of workers started elsewhere with the same token. Every connection
+            is sent the ReplicationJob once, then one replication at a time (its index and RandomStreams), so faster
+            workers take more of them.
+
+        Results are merged as they arrive: the metrics of replication r become timeline r, whichever worker ran it.
+            A worker that disconnects has its replication handed to the next free one, so the merged result only
+            depends on the seeds, not on how the replications were spread.
+
+        Workers authenticate with the token before anything they send is deserialized, as Java serialization must
+            not be exposed to untrusted peers. Without a coordinator host the socket only listens on the loopback
+            interface, and the token is a random one known to the local workers only.
+     */
+    protected static final int POLL_MILLIS = 200;
+
+    protected ReplicationJob job;
+    protected SSAStruct networkStruct;
+    protected int localWorkers;
+    protected String host; // null -> loopback only
+    protected int port; // 0 -> any free port
+    protected String token;
+    protected long workerTimeoutMillis;
+
+    // state of the current run, shared with the connection threads
+    protected List<RandomStreams> replicas;
+    protected BlockingDeque<Integer> pending;
+    protected Timeline[] timelines;
+    protected int nDone;
+    protected int nConnected;
+    protected RuntimeException failure;
+    protected volatile boolean finished;
+    protected List<Socket> sockets;
+
+    public ReplicationCoordinator(ReplicationJob job, SSAStruct networkStruct, SSAOptions ssaOptions) {
+        this.job = job;
+        this.networkStruct = networkStruct;
+        this.localWorkers = ssaOptions.localWorkers;
+        this.host = ssaOptions.coordinatorHost;
+        this.port = ssaOptions.coordinatorPort;
+        this.token = ssaOptions.workerToken;
+        this.workerTimeoutMillis = (long) (1000*ssaOptions.workerTimeout);
+        if (this.token == null) {
+            if (this.host != null) {
+                throw new RuntimeException("Workers on other hosts need a worker token");
+            }
+            this.token = new BigInteger(130, new SecureRandom()).toString(32);
+        }
+        if ((this.localWorkers < 1) && (this.host == null)) {
+            throw new RuntimeException("No replication workers: set local workers or a coordinator host");
+        }
+    }
+
+    public Timeline[] run(List<RandomStreams> replicas, SolverControl control) {
+        /*
+            Run the replications on the workers. Returns timeline r for replication r, or null for replications not
+                finished when control stopped the run.
+         */
+        int nReplications = replicas.size();
+        this.replicas = replicas;
+        this.pending = new LinkedBlockingDeque<Integer>();
+        for (int r = 0; r < nReplications; r++) {
+            this.pending.add(r);
+        }
+        this.timelines = new Timeline[nReplications];
+        this.nDone = 0;
+        this.nConnected = 0;
+        this.failure = null;
+        this.finished = false;
+        this.sockets = new ArrayList<Socket>();
+
+        ServerSocket server;
+        InetAddress address;
+        try {
+            address = (this.host == null) ? InetAddress.getLoopbackAddress() : InetAddress.getByName(this.host);
+            server = new ServerSocket();
+            server.bind(new InetSocketAddress(address, this.port));
+            server.setSoTimeout(POLL_MILLIS);
+        } catch (IOException e) {
+            throw new RuntimeException("Cannot listen for replication workers on " + this.host + ":" + this.port, e);
+        }
+
+        ExecutorService connections = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "ssa-coordinator");
+            thread.setDaemon(true);
+            return thread;
+        });
+        List<Process> processes = new ArrayList<Process>();
+        try {
+            String workerHost = address.isAnyLocalAddress() ? InetAddress.getLoopbackAddress().getHostAddress() :
+                    address.getHostAddress();
+            for (int w = 0; w < this.localWorkers; w++) {
+                processes.add(this.spawn(workerHost, server.getLocalPort()));
+            }
+            connections.submit(() -> this.accept(server, connections));
+            this.await(control, processes);
+        } finally {
+            synchronized (this) {
+                this.finished = true;
+                for (Socket socket : this.sockets) {
+                    closeQuietly(socket);
+                }
+            }
+            closeQuietly(server);
+            connections.shutdownNow();
+            for (Process process : processes) {
+                try {
+                    if (!process.waitFor(POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                        process.destroy();
+                    }
+                } catch (InterruptedException e) {
+                    process.destroy();
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+        return this.timelines;
+    }
+
+    public String getToken() {
+        return this.token;
+    }
+
+    protected Process spawn(String workerHost, int workerPort) {
+        // a worker JVM on this host, on the class path of this one
+        String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+        ProcessBuilder builder = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                ReplicationWorker.class.getName(), workerHost, Integer.toString(workerPort));
+        // not on the command line, where other users of the host could read it
+        builder.environment().put(ReplicationWorker.TOKEN_VARIABLE, this.token);
+        builder.inheritIO();
+        try {
+            return builder.start();
+        } catch (IOException e) {
+            throw new RuntimeException("Cannot start a replication worker", e);
+        }
+    }
+
+    protected void await(SolverControl control, List<Process> processes) {
+        int nReplications = this.timelines.length;
+        long idleSince = System.currentTimeMillis();
+        while (true) {
+            int done;
+            int connected;
+            synchronized (this) {
+                if (this.failure != null) {
+                    throw this.failure;
+                }
+                if (this.nDone == nReplications) {
+                    return;
+                }
+                if (this.nConnected > 0) {
+                    idleSince = System.currentTimeMillis();
+                } else if (System.currentTimeMillis() - idleSince > this.workerTimeoutMillis) {
+                    throw new RuntimeException("No replication worker connected for " +
+                            this.workerTimeoutMillis/1000.0 + "s, " + this.nDone + " of " + nReplications + " done");
+                }
+                try {
+                    this.wait(POLL_MILLIS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException(e);
+                }
+                done = this.nDone;
+                connected = this.nConnected;
+            }
+
+            if ((this.host == null) && !processes.isEmpty() && (connected == 0)) {
+                // local workers only: once they have all exited nobody else can connect
+                boolean alive = false;
+                for (Process process : processes) {
+                    alive |= process.isAlive();
+                }
+                if (!alive) {
+                    throw new RuntimeException("Replication workers exited, " + done + " of " + nReplications +
+                            " done");
+                }
+            }
+            if (control != null) {
+                if (control.shouldStop()) {
+                    return;
+                }
+                if (control.progressDue()) {
+                    control.report("SSA", done, Double.NaN, null);
+                }
+            }
+        }
+    }
+
+    protected void accept(ServerSocket server, ExecutorService connections) {
+        while (!this.finished) {
+            try {
+                Socket socket = server.accept();
+                synchronized (this) {
+                    if (this.finished) {
+                        closeQuietly(socket);
+                        return;
+                    }
+                    this.sockets.add(socket);
+                }
+                connections.submit(() -> this.serve(socket));
+            } catch (SocketTimeoutException e) {
+                // poll finished
+            } catch (IOException | RejectedExecutionException e) {
+                return;
+            }
+        }
+    }
+
+    protected void serve(Socket socket) {
+        // one worker connection: handshake, the job, then replications until none are left
+        Integer index = null;
+        boolean connected = false;
+        try {
+            socket.setTcpNoDelay(true);
+            socket.setSoTimeout((int) Math.min(Integer.MAX_VALUE, Math.max(1, this.workerTimeoutMillis)));
+            DataInputStream handshake = new DataInputStream(socket.getInputStream());
+            byte[] presented = handshake.readUTF().getBytes(StandardCharsets.UTF_8);
+            if (!MessageDigest.isEqual(presented, this.token.getBytes(StandardCharsets.UTF_8))) {
+                return;
+            }
+            // replications may take any time
+            socket.setSoTimeout(0);
+
+            ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            out.writeObject(this.job);
+            out.reset();
+            out.flush();
+            ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(socket.getInputStream()));
+            synchronized (this) {
+                this.nConnected++;
+                connected = true;
+            }
+
+            while (!this.finished) {
+                index = this.pending.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (index == null) {
+                    continue;
+                }
+                out.writeInt(index);
+                out.writeObject(this.replicas.get(index));
+                out.reset();
+                out.flush();
+
+                Object reply = in.readObject();
+                if (reply instanceof Throwable) {
+                    synchronized (this) {
+                        this.failure = new RuntimeException("Replication " + index + " failed on a worker",
+                                (Throwable) reply);
+                        this.notifyAll();
+                    }
+                    index = null;
+                    return;
+                }
+                Timeline timeline = ((ReplicationResult) reply).toTimeline(this.networkStruct);
+                synchronized (this) {
+                    if (this.timelines[index] == null) {
+                        this.timelines[index] = timeline;
+                        this.nDone++;
+                    }
+                    this.notifyAll();
+                }
+                index = null;
+            }
+            out.writeInt(ReplicationWorker.SHUTDOWN);
+            out.flush();
+        } catch (IOException | ClassNotFoundException e) {
+            // the worker is gone, or the run is over and its socket closed
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            if (index != null) {
+                // hand the unfinished replication to another worker
+                this.pending.addFirst(index);
+            }
+            synchronized (this) {
+                if (connected) {
+                    this.nConnected--;
+                }
+                this.notifyAll();
+            }
+            closeQuietly(socket);
+        }
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            // nothing left to release
+        }
+    }
+}
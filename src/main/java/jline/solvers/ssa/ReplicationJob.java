@@ -0,0 +1,39 @@
+package jline.solvers.ssa;
+
+import jline.lang.Network;
+import jline.solvers.ssa.events.EventStack;
+
+import java.io.Serializable;
+
+public class ReplicationJob implements Serializable {
+    /*
+        What a worker JVM needs to run replications of a model: the network, the solver options and the warm start
+            snapshot, if any. Each worker compiles the network once, on its first replication; compilation is
+            deterministic, so a worker runs the same event stack as the coordinator and a replication returns the
+            same metrics wherever it runs.
+     */
+    protected Network network;
+    protected SSAOptions ssaOptions;
+    protected SSASnapshot warmStart;
+    protected transient SolverSSA solver;
+
+    public ReplicationJob(Network network, SSAOptions ssaOptions, SSASnapshot warmStart) {
+        this.network = network;
+        this.ssaOptions = ssaOptions;
+        this.warmStart = warmStart;
+    }
+
+    public ReplicationResult run(int index, RandomStreams randomStreams) {
+        if (this.solver == null) {
+            this.solver = new SolverSSA();
+            this.solver.ssaOptions = this.ssaOptions;
+            this.solver.compile(this.network);
+            this.solver.warmStart(this.warmStart);
+        }
+        EventStack eventStack = new EventStack(this.solver.simCache.eventStack);
+        Timeline timeline = this.solver.runTrajectory(eventStack, randomStreams);
+        // the transient state is not sent back
+        timeline.close();
+        return new ReplicationResult(index, timeline);
+    }
+}
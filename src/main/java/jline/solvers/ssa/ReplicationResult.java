@@ -0,0 +1,41 @@
+package jline.solvers.ssa;
+
+import jline.solvers.ssa.metrics.Metric;
+import jline.solvers.ssa.metrics.TotalClassMetric;
+
+import java.io.Serializable;
+
+public class ReplicationResult implements Serializable {
+    /*
+        The metric accumulators of one finished replication, as a worker JVM returns them to the
+            ReplicationCoordinator. Metrics and class totals travel as one object graph, so residence time metrics
+            still point at their class totals on the other side. The transient state is not sent.
+     */
+    protected int index;
+    protected double time;
+    protected Metric[][][] metrics;
+    protected TotalClassMetric[] totalClassMetrics;
+
+    public ReplicationResult(int index, Timeline timeline) {
+        this.index = index;
+        this.time = timeline.currentTime;
+        this.metrics = timeline.metrics;
+        this.totalClassMetrics = timeline.totalClassMetrics;
+    }
+
+    public int getIndex() {
+        return this.index;
+    }
+
+    public Timeline toTimeline(SSAStruct networkStruct) {
+        // a Timeline holding the returned metrics, for ReplicationSummary
+        Timeline timeline = new Timeline(networkStruct);
+        timeline.disableTransientState();
+        timeline.metrics = this.metrics;
+        timeline.totalClassMetrics = this.totalClassMetrics;
+        timeline.metricStateMatrix = null;
+        timeline.currentTime = this.time;
+        timeline.maxTime = this.time;
+        return timeline;
+    }
+}
@@ -0,0 +1,140 @@
+package jline.solvers.ssa;
+
+import jline.lang.Network;
+import jline.util.ConfidenceIntervals;
+
+import java.util.List;
+
+public class ReplicationSummary implements AutoCloseable {
+    /*
+        Merges the metrics of independent SolverSSA replications into point estimates (the mean over
+            replications) and 95% confidence interval half-widths.
+
+        Antithetic replications come in pairs that are not independent: with a group size of 2 each pair is
+            averaged first, and the intervals are computed over the pair means.
+     */
+    protected List<Timeline> timelines;
+    protected int nStateful;
+    protected int nClasses;
+    protected int nMetrics;
+    protected int groupSize;
+    protected double[][][] means; // [node][class][metric]
+    protected double[][][] halfWidths;
+
+    public ReplicationSummary(List<Timeline> timelines, int nStateful, int nClasses) {
+        this(timelines, nStateful, nClasses, 1);
+    }
+
+    public ReplicationSummary(List<Timeline> timelines, int nStateful, int nClasses, int groupSize) {
+        if ((groupSize < 1) || ((timelines.size() % groupSize) != 0)) {
+            throw new RuntimeException("Replications do not divide into groups of " + groupSize);
+        }
+        this.timelines = timelines;
+        this.nStateful = nStateful;
+        this.nClasses = nClasses;
+        this.nMetrics = timelines.get(0).getNumberOfMetrics();
+        this.groupSize = groupSize;
+
+        int nGroups = this.getNumberOfGroups();
+        this.means = new double[nStateful][nClasses][this.nMetrics];
+        this.halfWidths = new double[nStateful][nClasses][this.nMetrics];
+        double[] samples = new double[nGroups];
+
+        for (int i = 0; i < nStateful; i++) {
+            for (int j = 0; j < nClasses; j++) {
+                for (int k = 0; k < this.nMetrics; k++) {
+                    for (int g = 0; g < nGroups; g++) {
+                        samples[g] = this.getGroupValue(g, i, j, k);
+                    }
+                    this.means[i][j][k] = ConfidenceIntervals.mean(samples, nGroups);
+                    this.halfWidths[i][j][k] = ConfidenceIntervals.halfWidth95(samples, nGroups);
+                }
+            }
+        }
+    }
+
+    protected int getNumberOfGroups() {
+        return this.timelines.size()/this.groupSize;
+    }
+
+    protected double getGroupValue(int g, int nodeIdx, int classIdx, int metricIdx) {
+        double acc = 0;
+        for (int r = g*this.groupSize; r < (g+1)*this.groupSize; r++) {
+            acc += this.timelines.get(r).getMetricValue(nodeIdx, classIdx, metricIdx);
+        }
+        return acc/this.groupSize;
+    }
+
+    protected double[] getDifferences(ReplicationSummary other, int nodeIdx, int classIdx, int metricIdx) {
+        // per replication (or group) differences, this minus other
+        int nGroups = this.getNumberOfGroups();
+        if ((other.getNumberOfGroups() != nGroups) || (other.groupSize != this.groupSize)) {
+            throw new RuntimeException("Paired summaries need the same replications");
+        }
+        double[] differences = new double[nGroups];
+        for (int g = 0; g < nGroups; g++) {
+            differences[g] = this.getGroupValue(g, nodeIdx, classIdx, metricIdx) -
+                    other.getGroupValue(g, nodeIdx, classIdx, metricIdx);
+        }
+        return differences;
+    }
+
+    public double getDifference(ReplicationSummary other, int nodeIdx, int classIdx, int metricIdx) {
+        /*
+            Mean difference of a metric between two configurations run with the same seed and replications.
+                With common random numbers replication r of both shares its randomness, and the paired half-width
+                below is much narrower than the two intervals combined.
+         */
+        double[] differences = this.getDifferences(other, nodeIdx, classIdx, metricIdx);
+        return ConfidenceIntervals.mean(differences, differences.length);
+    }
+
+    public double getDifferenceHalfWidth(ReplicationSummary other, int nodeIdx, int classIdx, int metricIdx) {
+        double[] differences = this.getDifferences(other, nodeIdx, classIdx, metricIdx);
+        return ConfidenceIntervals.halfWidth95(differences, differences.length);
+    }
+
+    public int getNumberOfReplications() {
+        return this.timelines.size();
+    }
+
+    public List<Timeline> getTimelines() {
+        return this.timelines;
+    }
+
+    public void close() {
+        // releases the spill files of the replications' transient states; the summary itself stays valid
+        for (Timeline timeline : this.timelines) {
+            timeline.close();
+        }
+    }
+
+    public double getMean(int nodeIdx, int classIdx, int metricIdx) {
+        return this.means[nodeIdx][classIdx][metricIdx];
+    }
+
+    public double getHalfWidth(int nodeIdx, int classIdx, int metricIdx) {
+        return this.halfWidths[nodeIdx][classIdx][metricIdx];
+    }
+
+    public void printSummary(Network network) {
+        System.out.format("Metrics Summary (%d replications, 95%% CI)\n", this.timelines.size());
+        System.out.println("------------------------------------");
+        System.out.format("%-10s\t%-10s", "Node", "Class");
+        for (int k = 0; k < this.nMetrics; k++) {
+            System.out.format("\t%-20s", this.timelines.get(0).getMetricShortName(k));
+        }
+        System.out.format("\n");
+
+        for (int i = 0; i < this.nStateful; i++) {
+            for (int j = 0; j < this.nClasses; j++) {
+                System.out.format("%-10s\t%-10s", network.getNodeByStatefulIndex(i).getName(),
+                        network.getClassByIndex(j).getName());
+                for (int k = 0; k < this.nMetrics; k++) {
+                    System.out.format("\t%-20s", String.format("%,.5f+-%,.5f", this.means[i][j][k], this.halfWidths[i][j][k]));
+                }
+                System.out.format("\n");
+            }
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package jline.solvers.ssa;
+
+import java.io.*;
+import java.net.Socket;
+
+public class ReplicationWorker {
+    /*
+        Worker JVM of SolverSSA.solveDistributed(). Connects to the ReplicationCoordinator, presents the token of
+            the run, receives the ReplicationJob, then runs the replications it is sent one at a time and returns
+            their metrics, until the coordinator ends the connection.
+
+        The coordinator starts local workers itself. On another host, with the token the coordinator was given:
+            LINE_SSA_WORKER_TOKEN=<token> java -cp <classpath> jline.solvers.ssa.ReplicationWorker <host> <port> [n]
+            n > 1 opens n connections, each running its own compiled copy of the model, to use n cores.
+     */
+    public static final String TOKEN_VARIABLE = "LINE_SSA_WORKER_TOKEN";
+    protected static final int SHUTDOWN = -1; // sent instead of a replication index
+
+    public static void main(String[] args) throws InterruptedException {
+        if (args.length < 2) {
+            System.err.println("Usage: ReplicationWorker <coordinator host> <port> [connections]");
+            System.exit(2);
+        }
+        String host = args[0];
+        int port = Integer.parseInt(args[1]);
+        int nConnections = (args.length > 2) ? Integer.parseInt(args[2]) : 1;
+        String token = System.getenv(TOKEN_VARIABLE);
+        String presented = (token == null) ? "" : token;
+
+        Thread[] threads = new Thread[nConnections];
+        for (int i = 0; i < nConnections; i++) {
+            threads[i] = new Thread(() -> serve(host, port, presented));
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+    }
+
+    public static int serve(String host, int port, String token) {
+        // one connection to the coordinator, returns the number of replications run
+        try (Socket socket = new Socket(host, port)) {
+            socket.setTcpNoDelay(true);
+            // the token goes first, as plain bytes: the coordinator deserializes nothing before checking it
+            DataOutputStream handshake = new DataOutputStream(socket.getOutputStream());
+            handshake.writeUTF(token);
+            handshake.flush();
+
+            ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            out.flush();
+            ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(socket.getInputStream()));
+            ReplicationJob job = (ReplicationJob) in.readObject();
+
+            int nRun = 0;
+            while (true) {
+                int index;
+                try {
+                    index = in.readInt();
+                } catch (EOFException e) {
+                    // the coordinator closed the connection, e.g. once all replications were in
+                    break;
+                }
+                if (index == SHUTDOWN) {
+                    break;
+                }
+                RandomStreams randomStreams = (RandomStreams) in.readObject();
+                Object reply;
+                try {
+                    reply = job.run(index, randomStreams);
+                    nRun++;
+                } catch (RuntimeException e) {
+                    // a failing model fails on every worker, let the coordinator stop the run
+                    reply = e;
+                }
+                out.writeObject(reply);
+                // results share nothing, keep them out of the stream's handle table
+                out.reset();
+                out.flush();
+            }
+            return nRun;
+        } catch (IOException | ClassNotFoundException e) {
+            throw new RuntimeException("Replication worker lost the coordinator at " + host + ":" + port, e);
+        }
+    }
+}
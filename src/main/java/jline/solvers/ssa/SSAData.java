@@ -3,10 +3,13 @@ package jline.solvers.ssa;
 import jline.lang.HasSchedStrategy;
 import jline.lang.JobClass;
 import jline.lang.Network;
+import jline.lang.OutputStrategy;
 import jline.lang.constant.DropStrategy;
 import jline.lang.constant.SchedStrategy;
 import jline.lang.distributions.*;
 import jline.lang.nodes.Delay;
+import jline.lang.nodes.Fork;
+import jline.lang.nodes.Join;
 import jline.lang.nodes.Node;
 import jline.lang.nodes.StatefulNode;
 import jline.lang.nodes.Station;
@@ -14,6 +17,8 @@ import jline.lang.processes.MAPProcess;
 import jline.solvers.ssa.events.DepartureEvent;
 import jline.solvers.ssa.events.Event;
 import jline.solvers.ssa.events.EventStack;
+import jline.solvers.ssa.events.ImmediateClosure;
+import jline.util.AliasTable;
 
 import java.util.*;
 
@@ -26,6 +31,12 @@ public class SSAData {
     public EventStack eventStack;
     public SSAStruct simStruct;
 
+    // event dependency graph, for the next reaction method: [event] -> events whose rates may change when it fires
+    public int[][] eventDependencies;
+
+    // true if some events keep state of their own (e.g. joins), so trajectories cannot run concurrently
+    public boolean hasSharedEventState;
+
     public SSAData(Network network) {
         if (this.simStruct == null) {
             this.simStruct = new SSAStruct();
@@ -46,6 +57,24 @@ public class SSAData {
 
         this.simStruct.nPhases = new int[this.simStruct.nStateful][this.simStruct.nClasses];
         this.simStruct.startingPhaseProbabilities = new Map[this.simStruct.nStateful];
+        this.simStruct.startingPhaseTables = new AliasTable[this.simStruct.nStateful][this.simStruct.nClasses];
+
+        List<Integer> eventStations = new ArrayList<Integer>();
+
+        // routing probabilities are fixed for the run, precompute their alias tables. Arrival events are created
+        //   lazily by each node, so create them all here, before any trajectory runs.
+        this.hasSharedEventState = false;
+        for (Node node : network.getNodes()) {
+            if (node.getOutput() != null) {
+                node.getOutput().compileRouting();
+            }
+            for (JobClass jobClass : classes) {
+                node.getArrivalEvent(jobClass);
+            }
+            if ((node instanceof Join) || (node instanceof Fork)) {
+                this.hasSharedEventState = true;
+            }
+        }
 
         // loop through each node and add active events to the eventStack
         ListIterator<Node> nodeIter = network.getNodes().listIterator();
@@ -83,9 +112,11 @@ public class SSAData {
                 }
                 Event dEvent = DepartureEvent.fromNodeAndClass((StatefulNode) node, jobClass);
                 this.eventStack.addEvent(dEvent);
+                eventStations.add(nodeIdx);
                 if (dEvent instanceof DepartureEvent) {
                     if (((DepartureEvent) dEvent).getPhaseEvent() != null) {
                         this.eventStack.addEvent(((DepartureEvent) dEvent).getPhaseEvent());
+                        eventStations.add(nodeIdx);
                     }
                 }
                 if (node instanceof HasSchedStrategy) {
@@ -97,12 +128,14 @@ public class SSAData {
                         this.networkStruct.nPhases[nodeIdx][jobClassIdx] = ((List<Double>) dist.getParam(1).getValue()).size();*/
                     } else if (dist instanceof MAPProcess) {
                         this.simStruct.nPhases[nodeIdx][jobClassIdx] = (int) dist.getParam(1).getValue();
+                        ((MAPProcess) dist).compileAliasTables();
                     } else if (dist instanceof PH) {
                         this.simStruct.nPhases[nodeIdx][jobClassIdx] = (int) dist.getParam(1).getValue();
                         if (this.simStruct.startingPhaseProbabilities[nodeIdx] == null) {
                             this.simStruct.startingPhaseProbabilities[nodeIdx] = new HashMap<Integer, List<Double>>();
                         }
                         this.simStruct.startingPhaseProbabilities[nodeIdx].put(jobClassIdx, (List<Double>)dist.getParam(2).getValue());
+                        this.simStruct.startingPhaseTables[nodeIdx][jobClassIdx] = new AliasTable((List<Double>)dist.getParam(2).getValue());
                     } else if (dist instanceof Exp) {
                         this.simStruct.nPhases[nodeIdx][jobClassIdx] = 1;
                     }
@@ -134,6 +167,85 @@ public class SSAData {
                 simStruct.schedStrategies[i] = SchedStrategy.FCFS;
             }
         }
+
+        // jobs left at routers and immediate delays move on within the step that brought them, see ImmediateClosure
+        this.eventStack.compileImmediateClosure(network, this.simStruct);
+
+        this.buildDependencyGraph(network, eventStations);
+        this.eventStack.setDependencies(this.eventDependencies);
+
+        // lower the exponential and Erlang service events to flat arrays, see RateKernel
+        this.eventStack.compileRateKernel(this.simStruct);
+    }
+
+    private void buildDependencyGraph(Network network, List<Integer> eventStations) {
+        /*
+            An event at a stateful node can only change the state of that node, and of the stateful nodes a job can
+                reach from it without passing through another stateful node (class switches, forks and other
+                stateless nodes are walked through, and so are the immediate stations the event stack eliminates).
+                Every event at those nodes is a dependency.
+         */
+        int nStateful = this.simStruct.nStateful;
+        List<List<Integer>> stationEvents = new ArrayList<List<Integer>>(nStateful);
+        for (int i = 0; i < nStateful; i++) {
+            stationEvents.add(new ArrayList<Integer>());
+        }
+        for (int i = 0; i < eventStations.size(); i++) {
+            stationEvents.get(eventStations.get(i)).add(i);
+        }
+
+        ImmediateClosure immediateClosure = this.eventStack.getImmediateClosure();
+        int[][] stationDependencies = new int[nStateful][];
+        for (int i = 0; i < nStateful; i++) {
+            Node node = network.getNodeByStatefulIndex(i);
+            Set<Integer> reachable = new TreeSet<Integer>();
+            reachable.add(i);
+
+            Set<Node> visited = new HashSet<Node>();
+            Deque<Node> toVisit = new ArrayDeque<Node>();
+            toVisit.add(node);
+            visited.add(node);
+            while (!toVisit.isEmpty()) {
+                Node nodeIter = toVisit.remove();
+                if (nodeIter.getOutput() == null) {
+                    continue;
+                }
+                for (OutputStrategy outputStrategy : nodeIter.getOutputStrategies()) {
+                    Node dest = outputStrategy.getDestination();
+                    if ((dest == null) || visited.contains(dest)) {
+                        continue;
+                    }
+                    visited.add(dest);
+                    if (dest instanceof StatefulNode) {
+                        int destIdx = network.getStatefulNodeIndex(dest);
+                        reachable.add(destIdx);
+                        if ((immediateClosure != null) && immediateClosure.isEliminatedStation(destIdx)) {
+                            toVisit.add(dest);
+                        }
+                    } else {
+                        toVisit.add(dest);
+                    }
+                }
+            }
+
+            int nDeps = 0;
+            for (int station : reachable) {
+                nDeps += stationEvents.get(station).size();
+            }
+            stationDependencies[i] = new int[nDeps];
+            nDeps = 0;
+            for (int station : reachable) {
+                for (int eventIdx : stationEvents.get(station)) {
+                    stationDependencies[i][nDeps++] = eventIdx;
+                }
+            }
+        }
+
+        // events at the same node share their dependency array
+        this.eventDependencies = new int[eventStations.size()][];
+        for (int i = 0; i < eventStations.size(); i++) {
+            this.eventDependencies[i] = stationDependencies[eventStations.get(i)];
+        }
     }
 
     public void applyCutoff(SSAOptions ssaOptions, Network network) {
@@ -0,0 +1,265 @@
+package jline.solvers.ssa;
+
+import jline.solvers.ssa.events.Event;
+import jline.solvers.ssa.trace.EventTraceSink;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+public class SSAInstrumentation implements SSAInstrumentationMBean {
+    /*
+        SSAInstrumentation -
+            Counters and timers for the hot path of a SolverSSA trajectory, attached with
+            SSAOptions.instrument(). When nothing is attached, EventStack and Timeline only pay a null check.
+
+            - events recorded by the Timeline, per kind (see EventTraceSink), with their repetitions under tau
+              leaping
+            - immediate firings, and steps where EventStack found no event to fire
+            - phase timers: one step in every timerSampleEvery() is timed with System.nanoTime(), split into rate
+              evaluation, state update (the firing, without the Timeline) and Timeline.record. Rate and update
+              times cover the exact methods; tau leaping only reports the record time.
+            - every reportEvery() steps, and at the end of the run: events per second since the previous report
+              (over the whole run for the last one), and the listeners
+
+            Fields are written by the simulation thread only and read without synchronization, so JMX readers
+            see values that may be a step behind.
+     */
+    protected static final int DEFAULT_TIMER_SAMPLE_EVERY = 64;
+    protected static final int DEFAULT_REPORT_EVERY = 100000;
+
+    protected int timerSampleEvery;
+    protected int reportEvery;
+    protected List<SSAListener> listeners;
+    protected ObjectName objectName;
+
+    protected long steps;
+    protected long[] eventCounts; // [event kind]
+    protected long immediateFirings;
+    protected long noEventSteps;
+    protected double simulatedTime;
+
+    protected boolean timing; // true while the current step is timed
+    protected long timedSteps;
+    protected long rateNanos;
+    protected long updateNanos;
+    protected long recordNanos;
+
+    protected long runNanoTime;
+    protected long runEvents;
+    protected long reportNanoTime;
+    protected long reportEvents;
+    protected volatile double eventsPerSecond;
+
+    public SSAInstrumentation() {
+        this.timerSampleEvery = DEFAULT_TIMER_SAMPLE_EVERY;
+        this.reportEvery = DEFAULT_REPORT_EVERY;
+        this.listeners = new ArrayList<SSAListener>();
+        this.objectName = null;
+        this.reset();
+    }
+
+    public SSAInstrumentation timerSampleEvery(int k) {
+        this.timerSampleEvery = Math.max(1, k);
+        return this;
+    }
+
+    public SSAInstrumentation reportEvery(int nSteps) {
+        this.reportEvery = Math.max(1, nSteps);
+        return this;
+    }
+
+    public SSAInstrumentation addListener(SSAListener listener) {
+        this.listeners.add(listener);
+        return this;
+    }
+
+    public static SSAListener consoleReporter() {
+        return (instrumentation, t) -> System.out.format("t=%.4g: %d events, %.0f events/s\n",
+                t, instrumentation.getEvents(), instrumentation.getEventsPerSecond());
+    }
+
+    public void reset() {
+        this.steps = 0;
+        this.eventCounts = new long[EventTraceSink.OTHER+1];
+        this.immediateFirings = 0;
+        this.noEventSteps = 0;
+        this.simulatedTime = 0;
+        this.timing = false;
+        this.timedSteps = 0;
+        this.rateNanos = 0;
+        this.updateNanos = 0;
+        this.recordNanos = 0;
+        this.runNanoTime = System.nanoTime();
+        this.runEvents = 0;
+        this.reportNanoTime = this.runNanoTime;
+        this.reportEvents = 0;
+        this.eventsPerSecond = 0;
+    }
+
+    public void registerMBean(String name) {
+        // exports this instance to the platform MBean server as jline.solvers.ssa:type=SSAInstrumentation,name=<name>
+        try {
+            this.objectName = new ObjectName("jline.solvers.ssa:type=SSAInstrumentation,name=" + ObjectName.quote(name));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, this.objectName);
+        } catch (JMException e) {
+            throw new RuntimeException("Cannot register SSAInstrumentation MBean " + name, e);
+        }
+    }
+
+    public void unregisterMBean() {
+        if (this.objectName == null) {
+            return;
+        }
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(this.objectName);
+        } catch (JMException e) {
+            throw new RuntimeException("Cannot unregister SSAInstrumentation MBean " + this.objectName, e);
+        }
+        this.objectName = null;
+    }
+
+    // hooks, called from SolverSSA, EventStack and Timeline
+
+    public void startRun(double t) {
+        this.simulatedTime = t;
+        this.runNanoTime = System.nanoTime();
+        this.runEvents = this.getEvents();
+        this.reportNanoTime = this.runNanoTime;
+        this.reportEvents = this.runEvents;
+        this.timing = false;
+    }
+
+    public void step(double t) {
+        // end of a step of the trajectory; decides whether the next one is timed
+        this.steps++;
+        this.simulatedTime = t;
+        if (this.timing) {
+            this.timedSteps++;
+        }
+        this.timing = (this.steps % this.timerSampleEvery) == 0;
+        if ((this.steps % this.reportEvery) == 0) {
+            this.report(t);
+        }
+    }
+
+    public void finishRun(double t) {
+        // the last report gives the average rate of the whole run
+        this.simulatedTime = t;
+        this.timing = false;
+        this.reportNanoTime = this.runNanoTime;
+        this.reportEvents = this.runEvents;
+        this.report(t);
+    }
+
+    protected void report(double t) {
+        // events per second since the previous report
+        long now = System.nanoTime();
+        long events = this.getEvents();
+        if (now > this.reportNanoTime) {
+            this.eventsPerSecond = (events - this.reportEvents)*1e9/(now - this.reportNanoTime);
+        }
+        this.reportNanoTime = now;
+        this.reportEvents = events;
+        for (SSAListener listener : this.listeners) {
+            listener.onProgress(this, t);
+        }
+    }
+
+    public boolean isTiming() {
+        return this.timing;
+    }
+
+    public void countEvent(Event e, int n) {
+        this.eventCounts[EventTraceSink.eventKind(e)] += n;
+    }
+
+    public void countImmediate() {
+        this.immediateFirings++;
+    }
+
+    public void countNoEvent() {
+        this.noEventSteps++;
+    }
+
+    public void addRateNanos(long nanos) {
+        this.rateNanos += nanos;
+    }
+
+    public void addUpdateNanos(long nanos) {
+        this.updateNanos += nanos;
+    }
+
+    public void addRecordNanos(long nanos) {
+        this.recordNanos += nanos;
+    }
+
+    // readings
+
+    public long getSteps() {
+        return this.steps;
+    }
+
+    public long getEvents() {
+        long total = 0;
+        for (long count : this.eventCounts) {
+            total += count;
+        }
+        return total;
+    }
+
+    public long getEvents(int kind) {
+        return this.eventCounts[kind];
+    }
+
+    public long getArrivals() {
+        return this.eventCounts[EventTraceSink.ARRIVAL];
+    }
+
+    public long getDepartures() {
+        return this.eventCounts[EventTraceSink.DEPARTURE];
+    }
+
+    public long getPhaseEvents() {
+        return this.eventCounts[EventTraceSink.PHASE];
+    }
+
+    public long getOutputEvents() {
+        return this.eventCounts[EventTraceSink.OUTPUT];
+    }
+
+    public long getOtherEvents() {
+        return this.eventCounts[EventTraceSink.OTHER];
+    }
+
+    public long getImmediateFirings() {
+        return this.immediateFirings;
+    }
+
+    public long getNoEventSteps() {
+        return this.noEventSteps;
+    }
+
+    public double getSimulatedTime() {
+        return this.simulatedTime;
+    }
+
+    public double getEventsPerSecond() {
+        return this.eventsPerSecond;
+    }
+
+    public double getRateNanosPerStep() {
+        return (this.timedSteps == 0) ? 0 : ((double) this.rateNanos)/this.timedSteps;
+    }
+
+    public double getUpdateNanosPerStep() {
+        // the firing itself, without the time spent in Timeline.record
+        return (this.timedSteps == 0) ? 0 : ((double) Math.max(this.updateNanos - this.recordNanos, 0))/this.timedSteps;
+    }
+
+    public double getRecordNanosPerStep() {
+        return (this.timedSteps == 0) ? 0 : ((double) this.recordNanos)/this.timedSteps;
+    }
+}
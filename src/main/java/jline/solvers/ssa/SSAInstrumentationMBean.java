@@ -0,0 +1,21 @@
+package jline.solvers.ssa;
+
+public interface SSAInstrumentationMBean {
+    // JMX view of SSAInstrumentation
+
+    long getSteps();
+    long getEvents();
+    long getArrivals();
+    long getDepartures();
+    long getPhaseEvents();
+    long getOutputEvents();
+    long getOtherEvents();
+    long getImmediateFirings();
+    long getNoEventSteps();
+    double getSimulatedTime();
+    double getEventsPerSecond();
+    double getRateNanosPerStep();
+    double getUpdateNanosPerStep();
+    double getRecordNanosPerStep();
+    void reset();
+}
@@ -0,0 +1,9 @@
+package jline.solvers.ssa;
+
+public interface SSAListener {
+    /*
+        Called by SSAInstrumentation every reportEvery() steps of the solve() trajectory, on the simulation thread,
+            with the simulated time t. Keep it short, the trajectory waits for it.
+     */
+    void onProgress(SSAInstrumentation instrumentation, double t);
+}
@@ -2,14 +2,19 @@ package jline.solvers.ssa;
 
 import jline.lang.JobClass;
 import jline.lang.nodes.Node;
+import jline.solvers.ssa.strategies.EventSelectionStrategy;
+import jline.solvers.ssa.trace.EventTraceSink;
 import jline.util.Interval;
 
+import java.io.Serializable;
+import java.nio.file.Path;
 import java.util.HashMap;
 import java.util.Map;
 
-public class SSAOptions {
+public class SSAOptions implements Serializable {
     /*
-        Internal class for setting the configuration of SolverSSA.
+        Internal class for setting the configuration of SolverSSA. Options are sent to the worker JVMs of
+            SolverSSA.solveDistributed(); those that only apply to the solve() trajectory are not.
      */
 
     // simulation parameters
@@ -20,37 +25,113 @@ public class SSAOptions {
     public Map<Node, Double> nodeCutoffMatrix;
     public Double cutoff;
     public double timeout;
+    public int timeoutCheckEvery;
+
+    // sequential stopping on a precision target, 0 -> off
+    public double targetPrecision;
+    public int precisionCheckEvery;
+    public int precisionBatches;
+    public boolean precisionQueueLength;
+    public boolean precisionThroughput;
+
+    // importance splitting for rare events, see SolverSSA.solveSplitting()
+    public double[] splittingLevels;
+    public int splittingEffort;
+    public double splittingReturnLevel;
+
+    // independent replications
+    public int replications;
+    public int parallelism;
+
+    // common random numbers (a stream per station and purpose) and antithetic replication pairs
+    public boolean commonRandomNumbers;
+    public boolean antitheticPairs;
+
+    // replications on worker JVMs, see SolverSSA.solveDistributed()
+    public int localWorkers;
+    public String coordinatorHost; // null -> loopback only
+    public int coordinatorPort; // 0 -> any free port
+    public String workerToken; // null -> random, local workers only
+    public double workerTimeout;
 
     // tau leaping configuration
     public TauLeapingType tauLeapingType;
     public boolean useTauLeap;
 
+    // event selection for the exact (non tau leaping) solver
+    public EventSelectionStrategy selectionStrategy;
+
+    // run-length encoded primitive buffers at FCFS, LCFS, LCFS-PR and SIRO nodes
+    public boolean runLengthBuffers;
+
     // metrics configurations
     public boolean useMSER5;
     public boolean useR5;
     public int r5value;
     public boolean recordMetricTimeline;
+    public boolean streamingMetrics;
     public double steadyStateTime;
     public boolean disableResTime;
     public boolean disableTransientState;
+    public int transientSampleEvery;
+    public double transientSampleStep;
+    public boolean spillTransientState;
+
+    // checkpointing
+    public double checkpointTime;
+    public transient Path checkpointFile;
+
+    // event trace of the solve() trajectory, null -> no trace
+    public transient EventTraceSink traceSink;
+
+    // hot path counters and timers of the solve() trajectory, null -> not instrumented
+    public transient SSAInstrumentation instrumentation;
 
     public SSAOptions() {
         this.disableResTime = false;
         this.samples = 10000;
         this.seed = 1;
         this.timeout = Double.POSITIVE_INFINITY;
+        this.timeoutCheckEvery = 1024;
+        this.targetPrecision = 0;
+        this.precisionCheckEvery = 10000;
+        this.precisionBatches = 30;
+        this.precisionQueueLength = true;
+        this.precisionThroughput = true;
+        this.splittingLevels = null;
+        this.splittingEffort = 1000;
+        this.splittingReturnLevel = Double.NEGATIVE_INFINITY;
+        this.replications = 1;
+        this.commonRandomNumbers = false;
+        this.antitheticPairs = false;
+        this.localWorkers = 0;
+        this.coordinatorHost = null;
+        this.coordinatorPort = 0;
+        this.workerToken = null;
+        this.workerTimeout = 60;
+        this.parallelism = Runtime.getRuntime().availableProcessors();
         this.timeInterval = new Interval(0, Double.POSITIVE_INFINITY);
         cutoff = Double.POSITIVE_INFINITY;
         cutoffMatrix = new HashMap<Node, Map<JobClass, Double>>();
 
         this.tauLeapingType = null;
         this.useTauLeap = false;
+        this.selectionStrategy = EventSelectionStrategy.Linear;
+        this.runLengthBuffers = false;
         this.useMSER5 = false;
         this.useR5 = false;
         this.recordMetricTimeline = true;
+        this.streamingMetrics = false;
         this.r5value = 19;
         this.steadyStateTime = -1;
         this.disableTransientState = false;
+        this.transientSampleEvery = 1;
+        this.transientSampleStep = 0;
+        this.spillTransientState = false;
+        this.checkpointTime = -1;
+        this.checkpointFile = null;
+        this.traceSink = null;
+        this.instrumentation = null;
     }
 
     public SSAOptions samples(int samples) {
@@ -63,6 +144,77 @@ public class SSAOptions {
         return this;
     }
 
+    public SSAOptions replications(int replications) {
+        this.replications = replications;
+        return this;
+    }
+
+    public SSAOptions parallelism(int parallelism) {
+        this.parallelism = parallelism;
+        return this;
+    }
+
+    public SSAOptions commonRandomNumbers(boolean commonRandomNumbers) {
+        // synchronized streams for paired comparisons of configurations run with the same seed;
+        // events are selected by the next reaction method, which gives each event its own stream.
+        // The streams are seeded from the run seed even after a warm start, not from the snapshot
+        this.commonRandomNumbers = commonRandomNumbers;
+        return this;
+    }
+
+    public SSAOptions antitheticPairs(boolean antitheticPairs) {
+        // replications in pairs, the second drawing the complements of the first
+        this.antitheticPairs = antitheticPairs;
+        return this;
+    }
+
+    public SSAOptions localWorkers(int nWorkers) {
+        // worker JVMs solveDistributed() starts on this host
+        this.localWorkers = nWorkers;
+        return this;
+    }
+
+    public SSAOptions coordinator(String host, int port, String token) {
+        /*
+            Listen on host:port for workers started on other hosts with token, see ReplicationWorker. The token
+                is all that keeps other peers out: use a long random one, on a trusted network.
+         */
+        this.coordinatorHost = host;
+        this.coordinatorPort = port;
+        this.workerToken = token;
+        return this;
+    }
+
+    public SSAOptions workerTimeout(double seconds) {
+        // give up when no worker has been connected for this long
+        this.workerTimeout = seconds;
+        return this;
+    }
+
+    public SSAOptions splitting(double[] levels, int effort) {
+        // increasing importance levels, the last one being the rare event, and trajectories run per level
+        this.splittingLevels = levels;
+        this.splittingEffort = effort;
+        return this;
+    }
+
+    public SSAOptions splittingReturnLevel(double level) {
+        // splitting trajectories also fail when the importance falls back to level
+        this.splittingReturnLevel = level;
+        return this;
+    }
+
+    public SSAOptions eventSelection(EventSelectionStrategy selectionStrategy) {
+        this.selectionStrategy = selectionStrategy;
+        return this;
+    }
+
+    public SSAOptions runLengthBuffers(boolean runLengthBuffers) {
+        // O(1) bulk moves and service counts for large populations, same semantics as the default buffers
+        this.runLengthBuffers = runLengthBuffers;
+        return this;
+    }
+
     public SSAOptions MSER5() {
         this.useMSER5 = true;
         this.useR5 = false;
@@ -82,6 +234,13 @@ public class SSAOptions {
         return this;
     }
 
+    public SSAOptions streamingMetrics() {
+        // constant-memory metric accumulators, no metric timeline is kept
+        this.streamingMetrics = true;
+        this.recordMetricTimeline = false;
+        return this;
+    }
+
     public SSAOptions setTimeInterval(Interval timeInterval) {
         this.timeInterval = timeInterval;
         return this;
@@ -92,6 +251,40 @@ public class SSAOptions {
         return this;
     }
 
+    public SSAOptions timeoutCheckEvery(int k) {
+        // read the clock (timeout, and the SolverControl of solveAsync()) once every k events
+        this.timeoutCheckEvery = k;
+        return this;
+    }
+
+    public SSAOptions targetPrecision(double relativeHalfWidth) {
+        /*
+            Stop once the 95% batch means interval of every monitored station metric is within relativeHalfWidth of
+                its mean, e.g. 0.05 for +-5%. samples, the end time and the timeout still cap the run.
+         */
+        this.targetPrecision = relativeHalfWidth;
+        return this;
+    }
+
+    public SSAOptions precisionMetrics(boolean queueLength, boolean throughput) {
+        // station metrics the precision target applies to, both by default
+        this.precisionQueueLength = queueLength;
+        this.precisionThroughput = throughput;
+        return this;
+    }
+
+    public SSAOptions precisionCheckEvery(int k) {
+        // recompute the intervals once every k events
+        this.precisionCheckEvery = k;
+        return this;
+    }
+
+    public SSAOptions precisionBatches(int nBatches) {
+        // number of batch means each interval is computed from
+        this.precisionBatches = nBatches;
+        return this;
+    }
+
     public SSAOptions setStartTime(double startTime) {
         this.timeInterval.setLeft(startTime);
         return this;
@@ -112,6 +305,48 @@ public class SSAOptions {
         return this;
     }
 
+    public SSAOptions transientSampleEvery(int k) {
+        // keep the transient state of one event in every k
+        this.transientSampleEvery = k;
+        this.transientSampleStep = 0;
+        return this;
+    }
+
+    public SSAOptions transientSampleStep(double step) {
+        // keep the transient state at the first event on or after each multiple of step
+        this.transientSampleStep = step;
+        return this;
+    }
+
+    public SSAOptions spillTransientState() {
+        // move recorded transient state to a memory-mapped temporary file instead of the heap
+        this.spillTransientState = true;
+        return this;
+    }
+
+    public SSAOptions checkpointTime(double t) {
+        // snapshot the trajectory at the first event on or after t, see SolverSSA.getCheckpoint()
+        this.checkpointTime = t;
+        return this;
+    }
+
+    public SSAOptions checkpointFile(Path file) {
+        // also write the checkpoint to file
+        this.checkpointFile = file;
+        return this;
+    }
+
+    public SSAOptions eventTrace(EventTraceSink traceSink) {
+        // stream the fired events to traceSink, which is flushed but left open at the end of every solve()
+        this.traceSink = traceSink;
+        return this;
+    }
+
+    public SSAOptions instrument(SSAInstrumentation instrumentation) {
+        this.instrumentation = instrumentation;
+        return this;
+    }
+
     public void setCutoff(Node node, JobClass jobClass, Double cutoff) {
         if (!this.cutoffMatrix.containsKey(node)) {
             this.cutoffMatrix.put(node, new HashMap<JobClass, Double>());
@@ -0,0 +1,217 @@
+package jline.solvers.ssa;
+
+import jline.solvers.ssa.metrics.Metric;
+import jline.solvers.ssa.metrics.TotalClassMetric;
+import jline.solvers.ssa.state.StateMatrix;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+public class SSASnapshot implements Serializable {
+    /*
+        SSASnapshot -
+            Checkpoint of a running SSA trajectory: simulated time, samples collected, the StateMatrix (job counts,
+            every StateCell buffer and PhaseList, and the Random they all draw from) and the metric accumulators.
+
+            The snapshot is one serialized object graph, so shared references survive the round trip: every cell
+            still draws from a single Random, restored exactly where it stopped, and residence time metrics still
+            point at their class totals. capture() and every restore work on deep copies, so one snapshot can seed
+            any number of runs.
+
+            Bookkeeping kept inside events (forked jobs waiting at a JoinOutputEvent) is not part of the snapshot.
+
+            On disk, a gzipped header (magic, format version, station and class counts, time, samples collected)
+            precedes the object graph. load() checks the header and resolves only the classes a snapshot is made of,
+            so a foreign or tampered file fails before any of its objects are built. Recorded metric timelines are
+            folded on the way out, see Metric.foldHistory().
+     */
+    private static final long serialVersionUID = 1L;
+    private static final int MAGIC = 0x53534153; // "SSAS"
+    private static final int FORMAT_VERSION = 1;
+
+    // java.* classes a snapshot graph holds; everything else must come from the packages below
+    private static final Set<String> ALLOWED_CLASSES = new HashSet<String>(Arrays.asList(
+            "java.util.Random", "java.util.ArrayList", "java.util.ArrayDeque", "java.util.LinkedList",
+            "java.lang.Number", "java.lang.Double", "java.lang.Integer", "java.lang.Long", "java.lang.Boolean",
+            "java.lang.Enum"));
+    private static final String[] ALLOWED_PACKAGES = {"jline.solvers.ssa.", "jline.util.", "jline.lang.constant."};
+
+    protected double time;
+    protected int samplesCollected;
+    protected StateMatrix stateMatrix;
+    protected Metric[][][] metrics;
+    protected TotalClassMetric[] totalClassMetrics;
+
+    protected SSASnapshot(double time, int samplesCollected, StateMatrix stateMatrix, Timeline timeline) {
+        this.time = time;
+        this.samplesCollected = samplesCollected;
+        this.stateMatrix = stateMatrix;
+        this.metrics = timeline.metrics;
+        this.totalClassMetrics = timeline.totalClassMetrics;
+    }
+
+    public static SSASnapshot capture(double time, int samplesCollected, StateMatrix stateMatrix, Timeline timeline) {
+        // settle the time-weighted metrics first, so the copy holds their averages up to time
+        timeline.settleStateMetrics(time);
+        return fromBytes(new SSASnapshot(time, samplesCollected, stateMatrix, timeline).toBytes());
+    }
+
+    public double getTime() {
+        return this.time;
+    }
+
+    public int getSamplesCollected() {
+        return this.samplesCollected;
+    }
+
+    public StateMatrix getStateMatrix() {
+        // a copy, with its own Random in the captured state
+        return fromBytes(this.toBytes()).stateMatrix;
+    }
+
+    public void save(Path file) {
+        try (DataOutputStream out = new DataOutputStream(new GZIPOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(file))))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(this.stateMatrix.state.length);
+            out.writeInt(this.stateMatrix.state[0].length);
+            out.writeDouble(this.time);
+            out.writeInt(this.samplesCollected);
+            ObjectOutputStream objectOut = new ObjectOutputStream(out);
+            objectOut.writeObject(this);
+            objectOut.flush();
+        } catch (IOException e) {
+            throw new RuntimeException("Cannot write snapshot to " + file, e);
+        }
+    }
+
+    public static SSASnapshot load(Path file) {
+        try (DataInputStream in = new DataInputStream(new GZIPInputStream(
+                new BufferedInputStream(Files.newInputStream(file))))) {
+            if (in.readInt() != MAGIC) {
+                throw new RuntimeException(file + " is not an SSA snapshot");
+            }
+            int version = in.readInt();
+            if (version != FORMAT_VERSION) {
+                throw new RuntimeException("Unsupported snapshot format version " + version + " in " + file);
+            }
+            int nStateful = in.readInt();
+            int nClasses = in.readInt();
+            double time = in.readDouble();
+            int samplesCollected = in.readInt();
+
+            SSASnapshot snapshot = (SSASnapshot) new SnapshotInputStream(in).readObject();
+            if ((snapshot.stateMatrix.state.length != nStateful) || (snapshot.stateMatrix.state[0].length != nClasses) ||
+                    (snapshot.time != time) || (snapshot.samplesCollected != samplesCollected)) {
+                throw new RuntimeException("Snapshot header does not match its contents in " + file);
+            }
+            return snapshot;
+        } catch (IOException | ClassNotFoundException | ClassCastException e) {
+            throw new RuntimeException("Cannot read snapshot from " + file, e);
+        }
+    }
+
+    protected StateMatrix resume(Timeline timeline) {
+        /*
+            Continue the captured trajectory: returns a copy of its StateMatrix and hands its metrics to timeline.
+                Running from here with stateMatrix.getRandom() reproduces the uninterrupted run, except under the
+                next reaction selection, which redraws its pending firing times.
+         */
+        SSASnapshot copy = fromBytes(this.toBytes());
+        copy.restoreMetrics(timeline);
+        return copy.stateMatrix;
+    }
+
+    protected StateMatrix fork(Timeline timeline, long seed) {
+        /*
+            Start a new replica from the captured state: same jobs and phases, a random stream reseeded with seed,
+                and metrics reset as at the end of the warm-up, so replicas share no observations.
+         */
+        SSASnapshot copy = fromBytes(this.toBytes());
+        copy.stateMatrix.getRandom().setSeed(seed);
+        copy.restoreMetrics(timeline);
+        timeline.resetHistory();
+        return copy.stateMatrix;
+    }
+
+    protected void checkCompatible(SSAStruct networkStruct) {
+        if ((this.stateMatrix.state.length != networkStruct.nStateful) ||
+                (this.stateMatrix.state[0].length != networkStruct.nClasses)) {
+            throw new RuntimeException("Snapshot does not match the compiled network");
+        }
+    }
+
+    private void restoreMetrics(Timeline timeline) {
+        timeline.metrics = this.metrics;
+        timeline.totalClassMetrics = this.totalClassMetrics;
+        timeline.metricStateMatrix = null;
+        timeline.currentTime = this.time;
+        timeline.maxTime = this.time;
+    }
+
+    private byte[] toBytes() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(this);
+        } catch (IOException e) {
+            throw new RuntimeException("Cannot serialize snapshot", e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static SSASnapshot fromBytes(byte[] bytes) {
+        try (ObjectInputStream in = new SnapshotInputStream(new ByteArrayInputStream(bytes))) {
+            return (SSASnapshot) in.readObject();
+        } catch (IOException | ClassNotFoundException e) {
+            throw new RuntimeException("Cannot deserialize snapshot", e);
+        }
+    }
+
+    private static class SnapshotInputStream extends ObjectInputStream {
+        /*
+            Resolves only the classes of a snapshot graph (and arrays of them), by name, before loading any of them.
+                ObjectInputFilter does the same from Java 9 on; this works on the Java 8 target too.
+         */
+        SnapshotInputStream(InputStream in) throws IOException {
+            super(in);
+        }
+
+        @Override
+        protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+            if (!isAllowed(desc.getName())) {
+                throw new InvalidClassException(desc.getName(), "not part of an SSA snapshot");
+            }
+            return super.resolveClass(desc);
+        }
+
+        private static boolean isAllowed(String name) {
+            String elementName = name;
+            while (elementName.startsWith("[")) {
+                elementName = elementName.substring(1);
+            }
+            if (elementName.length() == 1) {
+                // array of a primitive type
+                return name.length() > 1;
+            }
+            if (elementName.startsWith("L") && elementName.endsWith(";") && (elementName.length() != name.length())) {
+                elementName = elementName.substring(1, elementName.length()-1);
+            }
+            if (ALLOWED_CLASSES.contains(elementName)) {
+                return true;
+            }
+            for (String allowedPackage : ALLOWED_PACKAGES) {
+                if (elementName.startsWith(allowedPackage)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
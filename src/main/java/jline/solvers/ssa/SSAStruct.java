@@ -4,6 +4,7 @@ import java.io.Serializable;
 import java.util.List;
 import java.util.Map;
 import jline.lang.constant.SchedStrategy;
+import jline.util.AliasTable;
 
 public class SSAStruct  implements Serializable {
         public int nStateful;
@@ -15,4 +16,5 @@ public class SSAStruct  implements Serializable {
         public boolean[] isDelay;
         public int[][] nPhases;
         public Map<Integer, List<Double>>[] startingPhaseProbabilities;
+        public AliasTable[][] startingPhaseTables; // [node][class], built from startingPhaseProbabilities
 }
@@ -1,11 +1,15 @@
 package jline.solvers.ssa;
 
 import jline.lang.*;
+import jline.solvers.SolverControl;
+import jline.solvers.ssa.events.EventStack;
 import jline.solvers.ssa.state.StateMatrix;
+import jline.solvers.ssa.strategies.EventSelectionStrategy;
 import jline.solvers.ssa.strategies.TauLeapingStateStrategy;
 //import jline.util.JLineAPI;
 
 import java.util.*;
+import java.util.concurrent.*;
 
 public class SolverSSA {
 
@@ -14,18 +18,35 @@ public class SolverSSA {
     protected SSAStruct simStruct;
     protected SSAData simCache;
     protected Random random;
+    protected SSASnapshot warmStart; // state every trajectory starts from, null -> initial placement
+    protected SSASnapshot checkpoint; // captured by the last solve() at ssaOptions.checkpointTime
 
     public SolverSSA() {
         this.network = null;
         this.simStruct = null;
         this.ssaOptions = new SSAOptions();
         this.random = new Random();
+        this.warmStart = null;
+        this.checkpoint = null;
     }
 
     public SSAOptions setOptions() {
         return this.ssaOptions;
     }
 
+    public void warmStart(SSASnapshot snapshot) {
+        /*
+            Start later runs from snapshot instead of the initial placement of the closed classes. solve() resumes
+                the captured trajectory, random stream included; each replication of solveReplications() forks it
+                with its own stream and fresh metrics. Warm-up is paid once, by the run that took the snapshot.
+         */
+        this.warmStart = snapshot;
+    }
+
+    public SSASnapshot getCheckpoint() {
+        return this.checkpoint;
+    }
+
     public void compile(Network network) {
         this.network = network;
         this.simCache = new SSAData(this.network);
@@ -38,6 +59,14 @@ public class SolverSSA {
     }
 
     public Timeline solve() {
+        return this.solve(null);
+    }
+
+    public Timeline solve(SolverControl control) {
+        /*
+            solve(), polled by control every ssaOptions.timeoutCheckEvery events: the run stops early if it is
+                cancelled or past its deadline, and returns the metrics collected so far.
+         */
         if (this.simCache == null) {
             if (this.simStruct == null) {
                 this.compile(this.simStruct);
@@ -48,27 +77,270 @@ public class SolverSSA {
             }
         }
 
-        this.random = new Random(this.ssaOptions.seed);
-        int samplesCollected = 1;
-        int maxSamples = ssaOptions.samples;
-        double curTime = ssaOptions.timeInterval.getLeft();
-        double maxTime = ssaOptions.timeInterval.getRight();
+        RandomStreams randomStreams = new RandomStreams(this.ssaOptions.seed, false);
+        this.random = randomStreams.main();
+        return this.runTrajectory(this.simCache.eventStack, randomStreams, control);
+    }
+
+    public CompletableFuture<Timeline> solveAsync(SolverControl control, Executor executor) {
+        /*
+            solve(control) on executor. Cancelling the future cancels control, and the run stops at its next poll.
+                A run past the deadline of control completes normally, with the metrics up to the deadline.
+                One solver runs one trajectory at a time: concurrent evaluations need one SolverSSA each.
+         */
+        return control.submit(() -> this.solve(control), executor);
+    }
+
+    public CompletableFuture<Timeline> solveAsync(SolverControl control) {
+        return this.solveAsync(control, SolverControl.defaultExecutor());
+    }
+
+    public CompletableFuture<Timeline> solveAsync() {
+        return this.solveAsync(new SolverControl());
+    }
+
+    public ReplicationSummary solveReplications() {
+        /*
+            Run ssaOptions.replications independent trajectories, in parallel where the model allows it, and merge
+                their metrics into means with 95% confidence intervals.
+
+            Each replication gets its own copy of the event stack and its own random stream. Streams are seeded
+                from a SplittableRandom built on ssaOptions.seed, so results are reproducible for a given seed
+                regardless of the number of threads.
+
+            With ssaOptions.antitheticPairs replications come in pairs sharing a seed, the second antithetic, and
+                the intervals are computed over pair means. Two configurations run with the same seed and
+                ssaOptions.commonRandomNumbers can be compared with ReplicationSummary.getDifference().
+         */
+        if (this.simCache == null) {
+            if (this.network == null) {
+                throw new RuntimeException("Network data not provided!");
+            }
+            this.compile(this.network);
+        }
+
+        int nReplications = Math.max(1, this.ssaOptions.replications);
+        int groupSize = this.ssaOptions.antitheticPairs ? 2 : 1;
+        nReplications = groupSize*((nReplications + groupSize - 1)/groupSize);
+        int nThreads = Math.max(1, Math.min(this.ssaOptions.parallelism, nReplications));
+        if (this.simCache.hasSharedEventState) {
+            // join events keep their own bookkeeping of forked jobs, trajectories must not overlap
+            nThreads = 1;
+        }
+
+        List<Callable<Timeline>> tasks = new ArrayList<Callable<Timeline>>(nReplications);
+        for (RandomStreams randomStreams : this.replicationStreams(nReplications, groupSize)) {
+            tasks.add(() -> this.runTrajectory(new EventStack(this.simCache.eventStack), randomStreams));
+        }
+
+        List<Timeline> timelines = new ArrayList<Timeline>(nReplications);
+        if (nThreads == 1) {
+            for (Callable<Timeline> task : tasks) {
+                try {
+                    timelines.add(task.call());
+                } catch (Exception e) {
+                    closeAll(timelines);
+                    throw new RuntimeException(e);
+                }
+            }
+        } else {
+            ExecutorService executor = Executors.newFixedThreadPool(nThreads);
+            try {
+                // invokeAll() returns once every replication is done, failed or not
+                RuntimeException failure = null;
+                for (Future<Timeline> future : executor.invokeAll(tasks)) {
+                    try {
+                        timelines.add(future.get());
+                    } catch (ExecutionException e) {
+                        if (failure == null) {
+                            failure = new RuntimeException(e.getCause());
+                        }
+                    }
+                }
+                if (failure != null) {
+                    closeAll(timelines);
+                    throw failure;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                closeAll(timelines);
+                throw new RuntimeException(e);
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+
+        return new ReplicationSummary(timelines, this.simCache.simStruct.nStateful, this.simCache.simStruct.nClasses,
+                groupSize);
+    }
+
+    public ReplicationSummary solveDistributed() {
+        return this.solveDistributed(null);
+    }
+
+    public ReplicationSummary solveDistributed(SolverControl control) {
+        /*
+            solveReplications() on worker JVMs: ssaOptions.localWorkers started on this host, and any started on
+                other hosts against ssaOptions.coordinator(), see ReplicationCoordinator. Replication r gets the
+                same random streams as in solveReplications(), so for a given seed both give the same summary.
+
+            If control stops the run early, the summary covers the replications (or antithetic pairs) finished
+                by then.
+         */
+        if (this.simCache == null) {
+            if (this.network == null) {
+                throw new RuntimeException("Network data not provided!");
+            }
+            this.compile(this.network);
+        }
+
+        int nReplications = Math.max(1, this.ssaOptions.replications);
+        int groupSize = this.ssaOptions.antitheticPairs ? 2 : 1;
+        nReplications = groupSize*((nReplications + groupSize - 1)/groupSize);
+
+        ReplicationJob job = new ReplicationJob(this.network, this.ssaOptions, this.warmStart);
+        ReplicationCoordinator coordinator = new ReplicationCoordinator(job, this.simCache.simStruct,
+                this.ssaOptions);
+        Timeline[] results = coordinator.run(this.replicationStreams(nReplications, groupSize), control);
+
+        // whole groups only
+        List<Timeline> timelines = new ArrayList<Timeline>(nReplications);
+        for (int g = 0; g < nReplications/groupSize; g++) {
+            boolean complete = true;
+            for (int r = g*groupSize; r < (g+1)*groupSize; r++) {
+                complete &= results[r] != null;
+            }
+            if (complete) {
+                for (int r = g*groupSize; r < (g+1)*groupSize; r++) {
+                    timelines.add(results[r]);
+                }
+            }
+        }
+        if (timelines.isEmpty()) {
+            throw new RuntimeException("Stopped before any replication finished");
+        }
+
+        return new ReplicationSummary(timelines, this.simCache.simStruct.nStateful, this.simCache.simStruct.nClasses,
+                groupSize);
+    }
+
+    protected List<RandomStreams> replicationStreams(int nReplications, int groupSize) {
+        /*
+            Streams of the replications, seeded from a SplittableRandom built on ssaOptions.seed. With a group size
+                of 2 replications come in pairs sharing a seed, the second antithetic.
+         */
+        SplittableRandom seedSource = new SplittableRandom(this.ssaOptions.seed);
+        List<RandomStreams> streams = new ArrayList<RandomStreams>(nReplications);
+        long replicationSeed = 0;
+        for (int r = 0; r < nReplications; r++) {
+            if ((r % groupSize) == 0) {
+                replicationSeed = seedSource.split().nextLong();
+            }
+            streams.add(new RandomStreams(replicationSeed, (r % groupSize) == 1));
+        }
+        return streams;
+    }
+
+    public ImportanceSplitting solveSplitting(ImportanceFunction importanceFunction) {
+        /*
+            Estimate the probability that importanceFunction reaches the last of ssaOptions.splittingLevels before
+                the end of ssaOptions.timeInterval (or, with ssaOptions.splittingReturnLevel, before falling back to
+                it), by fixed-effort multilevel splitting. See ImportanceSplitting.
+
+            Trajectories start from the warm start snapshot if there is one, and run the exact selection strategy:
+                tau leaps could jump past a level, so tau leaping is not used here.
+         */
+        if (this.simCache == null) {
+            if (this.network == null) {
+                throw new RuntimeException("Network data not provided!");
+            }
+            this.compile(this.network);
+        }
+        if (this.simCache.hasSharedEventState) {
+            // join events keep their own bookkeeping of forked jobs, which copies of the StateMatrix do not carry
+            throw new RuntimeException("Splitting is not supported for models with join events");
+        }
+
+        ImportanceSplitting splitting = new ImportanceSplitting(importanceFunction, this.ssaOptions.splittingLevels,
+                this.ssaOptions.splittingEffort, this.ssaOptions.timeInterval.getRight(),
+                this.ssaOptions.splittingReturnLevel);
+
+        Random random = new Random(this.ssaOptions.seed);
+        StateMatrix stateMatrix;
+        double startTime = this.ssaOptions.timeInterval.getLeft();
+        if (this.warmStart != null) {
+            this.warmStart.checkCompatible(this.simCache.simStruct);
+            stateMatrix = this.warmStart.getStateMatrix();
+            stateMatrix.getRandom().setSeed(this.ssaOptions.seed);
+            random = stateMatrix.getRandom();
+            startTime = this.warmStart.getTime();
+        } else {
+            stateMatrix = this.initialStateMatrix(random);
+        }
+
+        // no metrics are kept, only the levels reached
+        Timeline timeline = new Timeline(this.simCache.simStruct);
+        timeline.disableTransientState();
+        timeline.setMetricRecord(false);
+        EventStack eventStack = new EventStack(this.simCache.eventStack);
+        eventStack.configureSelection(this.ssaOptions.selectionStrategy);
+
+        splitting.run(eventStack, timeline, stateMatrix, startTime, random);
+        return splitting;
+    }
 
+    private static void closeAll(List<Timeline> timelines) {
+        for (Timeline timeline : timelines) {
+            timeline.close();
+        }
+    }
+
+    protected StateMatrix initialStateMatrix(Random random) {
         // Add ClosedClass instances to the reference station
-        StateMatrix stateMatrix = new StateMatrix(this.simCache.simStruct, this.random);
+        StateMatrix stateMatrix = new StateMatrix(this.simCache.simStruct, random, ssaOptions.runLengthBuffers);
         for (JobClass jobClass : this.network.getClasses()) {
             if (jobClass instanceof ClosedClass) {
                 int classIdx = this.network.getJobClassIndex(jobClass);
                 ClosedClass cClass = (ClosedClass) jobClass;
                 int stationIdx = this.network.getStatefulNodeIndex(cClass.getRefstat());
                 stateMatrix.setState(stationIdx, classIdx, (int)cClass.getPopulation());
-                for (int i = 0; i < cClass.getPopulation(); i++) {
-                    stateMatrix.addToBuffer(stationIdx, classIdx);
+                if (ssaOptions.runLengthBuffers) {
+                    // one run for the whole population
+                    stateMatrix.addToBuffer(stationIdx, classIdx, (int)cClass.getPopulation());
+                } else {
+                    for (int i = 0; i < cClass.getPopulation(); i++) {
+                        stateMatrix.addToBuffer(stationIdx, classIdx);
+                    }
                 }
             }
         }
+        return stateMatrix;
+    }
 
+    protected Timeline runTrajectory(EventStack eventStack, RandomStreams randomStreams) {
+        return this.runTrajectory(eventStack, randomStreams, null);
+    }
+
+    protected Timeline runTrajectory(EventStack eventStack, RandomStreams randomStreams, SolverControl control) {
         Timeline timeline = new Timeline(this.simCache.simStruct);
+        try {
+            return this.runTrajectory(eventStack, randomStreams, control, timeline);
+        } catch (RuntimeException e) {
+            // a failed run is dropped, with its spill file
+            timeline.close();
+            throw e;
+        }
+    }
+
+    protected Timeline runTrajectory(EventStack eventStack, RandomStreams randomStreams, SolverControl control,
+                                     Timeline timeline) {
+        Random random = randomStreams.main();
+        int samplesCollected = 1;
+        int maxSamples = ssaOptions.samples;
+        double curTime = ssaOptions.timeInterval.getLeft();
+        double maxTime = ssaOptions.timeInterval.getRight();
+        // only the solve() trajectory runs on the compiled event stack, replications run on copies
+        boolean isPrimary = eventStack == this.simCache.eventStack;
 
         if (ssaOptions.disableResTime) {
             timeline.disableResidenceTime();
@@ -76,39 +348,111 @@ public class SolverSSA {
 
         if (ssaOptions.disableTransientState) {
             timeline.disableTransientState();
+        } else {
+            if (ssaOptions.transientSampleStep > 0) {
+                timeline.getTransientRecorder().sampleOnGrid(ssaOptions.transientSampleStep);
+            } else {
+                timeline.getTransientRecorder().sampleEvery(ssaOptions.transientSampleEvery);
+            }
+            if (ssaOptions.spillTransientState) {
+                timeline.getTransientRecorder().spillToTempFile();
+            }
+        }
+
+        if (isPrimary && (ssaOptions.traceSink != null)) {
+            timeline.setTraceSink(ssaOptions.traceSink);
         }
 
+        // replications run on copies of the event stack, which are never instrumented
+        SSAInstrumentation instrumentation = isPrimary ? ssaOptions.instrumentation : null;
+        eventStack.setInstrumentation(instrumentation);
+        timeline.setInstrumentation(instrumentation);
+
         if (ssaOptions.useMSER5) {
             timeline.useMSER5();
         } else if (ssaOptions.useR5) {
             timeline.useR5(ssaOptions.r5value);
         }
 
-        if (!ssaOptions.recordMetricTimeline) {
+        if (ssaOptions.streamingMetrics) {
+            timeline.useStreamingMetrics();
+        } else if (!ssaOptions.recordMetricTimeline) {
             timeline.setMetricRecord(false);
         }
 
+        StateMatrix stateMatrix;
+        if (this.warmStart != null) {
+            // restored metrics keep the configuration of the run that captured them
+            this.warmStart.checkCompatible(this.simCache.simStruct);
+            if (isPrimary) {
+                stateMatrix = this.warmStart.resume(timeline);
+                samplesCollected = this.warmStart.getSamplesCollected();
+            } else {
+                stateMatrix = this.warmStart.fork(timeline, random.nextLong());
+            }
+            // the snapshot's generator takes over the main stream only: with common random numbers the event
+            //   streams still come from randomStreams, i.e. the run seed, so warm started runs of two
+            //   configurations with the same seed stay paired
+            random = stateMatrix.getRandom();
+            curTime = this.warmStart.getTime();
+        } else {
+            stateMatrix = this.initialStateMatrix(random);
+        }
+
+        PrecisionMonitor precisionMonitor = null;
+        int precisionCheckEvery = Math.max(1, ssaOptions.precisionCheckEvery);
+        if (ssaOptions.targetPrecision > 0) {
+            precisionMonitor = new PrecisionMonitor(this.simCache.simStruct, ssaOptions.targetPrecision,
+                    ssaOptions.precisionBatches, ssaOptions.precisionQueueLength, ssaOptions.precisionThroughput);
+            precisionMonitor.start(curTime, stateMatrix);
+            timeline.setPrecisionMonitor(precisionMonitor);
+        }
+
+        if (ssaOptions.commonRandomNumbers) {
+            if (ssaOptions.useTauLeap) {
+                throw new RuntimeException("Common random numbers are not supported with tau leaping");
+            }
+            // one clock, and one stream, per event
+            eventStack.configureSelection(EventSelectionStrategy.NextReaction);
+            eventStack.setRandomStreams(randomStreams);
+        } else {
+            eventStack.configureSelection(ssaOptions.selectionStrategy);
+            eventStack.setRandomStreams(null);
+        }
+
         if (ssaOptions.useTauLeap) {
-            this.simCache.eventStack.configureTauLeap(ssaOptions.tauLeapingType);
-            if ((ssaOptions.tauLeapingType.stateStrategy == TauLeapingStateStrategy.TimeWarp) ||
-                    (ssaOptions.tauLeapingType.stateStrategy == TauLeapingStateStrategy.TauTimeWarp)) {
+            if (isPrimary) {
+                eventStack.configureTauLeap(ssaOptions.tauLeapingType);
+            } else {
+                // tau is adapted during the run, replications must not share it
+                eventStack.configureTauLeap(new TauLeapingType(ssaOptions.tauLeapingType));
+            }
+            if (!ssaOptions.tauLeapingType.isAdaptive() &&
+                    ((ssaOptions.tauLeapingType.stateStrategy == TauLeapingStateStrategy.TimeWarp) ||
+                    (ssaOptions.tauLeapingType.stateStrategy == TauLeapingStateStrategy.TauTimeWarp))) {
                 timeline.cacheRecordings();
             }
         }
 
         double sysTime = 0;
         double startTime = System.currentTimeMillis();
+        int checkEvery = Math.max(1, this.ssaOptions.timeoutCheckEvery);
 
         boolean beforeSState = false;
+        if (instrumentation != null) {
+            instrumentation.startRun(curTime);
+        }
+        boolean beforeCheckpoint = isPrimary && (this.ssaOptions.checkpointTime >= 0) &&
+                (curTime < this.ssaOptions.checkpointTime);
 
         // collect samples and update states
         while ((samplesCollected < maxSamples) && (curTime < maxTime) && (sysTime < this.ssaOptions.timeout)) {
             beforeSState = curTime < this.ssaOptions.steadyStateTime;
 
             if (ssaOptions.useTauLeap) {
-                curTime = this.simCache.eventStack.tauLeapUpdate(stateMatrix, timeline, curTime, random);
+                curTime = eventStack.tauLeapUpdate(stateMatrix, timeline, curTime, random);
             } else {
-                curTime = this.simCache.eventStack.updateState(stateMatrix, timeline, curTime, random);
+                curTime = eventStack.updateState(stateMatrix, timeline, curTime, random);
             }
 
             if (beforeSState && (curTime > this.ssaOptions.steadyStateTime)) {
@@ -116,13 +460,46 @@ public class SolverSSA {
             }
 
             samplesCollected++;
-            sysTime = (System.currentTimeMillis() - startTime)/1000.0;
 
+            if (beforeCheckpoint && (curTime >= this.ssaOptions.checkpointTime)) {
+                beforeCheckpoint = false;
+                this.checkpoint = SSASnapshot.capture(curTime, samplesCollected, stateMatrix, timeline);
+                if (this.ssaOptions.checkpointFile != null) {
+                    this.checkpoint.save(this.ssaOptions.checkpointFile);
+                }
+            }
+
+            if (instrumentation != null) {
+                instrumentation.step(curTime);
+            }
+
+            if ((precisionMonitor != null) && ((samplesCollected % precisionCheckEvery) == 0) &&
+                    !beforeSState && precisionMonitor.check()) {
+                break;
+            }
+
+            if ((samplesCollected % checkEvery) == 0) {
+                sysTime = (System.currentTimeMillis() - startTime)/1000.0;
+                if (control != null) {
+                    if (control.shouldStop()) {
+                        break;
+                    }
+                    if (control.progressDue()) {
+                        control.report("SSA", samplesCollected, curTime, timeline.queueLengths());
+                    }
+                }
+            }
         }
 
         //System.out.format("Solver finished. %d samples in %f time\n", samplesCollected, curTime);
 
         timeline.taper(curTime);
+        if (instrumentation != null) {
+            instrumentation.finishRun(curTime);
+        }
+        if (isPrimary && (ssaOptions.traceSink != null)) {
+            ssaOptions.traceSink.flush();
+        }
         //timeline.printSummary(this.network);
 
         return timeline;
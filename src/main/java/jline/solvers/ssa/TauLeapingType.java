@@ -3,12 +3,16 @@ package jline.solvers.ssa;
 import jline.solvers.ssa.strategies.TauLeapingOrderStrategy;
 import jline.solvers.ssa.strategies.TauLeapingStateStrategy;
 
-public class TauLeapingType {
+import java.io.Serializable;
+
+public class TauLeapingType implements Serializable {
     protected TauLeapingVarType varType;
     protected TauLeapingOrderStrategy orderStrategy;
     protected TauLeapingStateStrategy stateStrategy;
     protected double tau;
     protected double initialTau;
+    protected boolean adaptive;
+    protected double epsilon;
 
     public TauLeapingType(TauLeapingVarType varType,
                           TauLeapingOrderStrategy orderStrategy,
@@ -19,6 +23,36 @@ public class TauLeapingType {
         this.stateStrategy = stateStrategy;
         this.tau = tau;
         this.initialTau = tau;
+        this.adaptive = false;
+        this.epsilon = 0.03;
+    }
+
+    public TauLeapingType(TauLeapingType that) {
+        this.varType = that.varType;
+        this.orderStrategy = that.orderStrategy;
+        this.stateStrategy = that.stateStrategy;
+        this.tau = that.tau;
+        this.initialTau = that.initialTau;
+        this.adaptive = that.adaptive;
+        this.epsilon = that.epsilon;
+    }
+
+    public TauLeapingType adaptive(double epsilon) {
+        /*
+            Choose each step so that no propensity changes by more than a fraction epsilon (Cao, Gillespie and
+                Petzold), instead of using the fixed tau. See EventStack.tauLeapUpdateAdaptive.
+         */
+        this.adaptive = true;
+        this.epsilon = epsilon;
+        return this;
+    }
+
+    public boolean isAdaptive() {
+        return this.adaptive;
+    }
+
+    public double getEpsilon() {
+        return this.epsilon;
     }
 
     public TauLeapingVarType getVarType() {
@@ -46,6 +80,9 @@ public class TauLeapingType {
     }
 
     public String stringRep() {
+        if (this.adaptive) {
+            return String.format("%s_%s_%s_adaptive_%f", varType.name(), orderStrategy.name(), stateStrategy.name(), epsilon);
+        }
         return String.format("%s_%s_%s_%f", varType.name(), orderStrategy.name(), stateStrategy.name(), tau);
     }
 }
@@ -14,18 +14,18 @@ import jline.solvers.ssa.metrics.UtilizationMetric;
 import jline.solvers.ssa.state.PhaseList;
 import jline.solvers.ssa.state.StateMatrix;
 import jline.solvers.ssa.strategies.CutoffStrategy;
+import jline.solvers.ssa.trace.EventTraceSink;
 import jline.util.Pair;
 
 import java.util.*;
 
-public class Timeline {
+public class Timeline implements AutoCloseable {
     /*
         Maintains a list of all events in the simulation, acts as an interface point for Metric objects,
             handles steady-state
      */
-    protected List<List<Integer>[]> transientState;
+    protected TransientRecorder transientRecorder; // times and transient states
     protected List<Event> eventTimeline;
-    protected List<Double> timeList;
     protected int nStateful;
     protected int nClasses;
     protected int[] nServers;
@@ -48,6 +48,10 @@ public class Timeline {
     protected boolean cacheRecordings;
     protected boolean recordTransientState;
     protected boolean inferTimes;
+    protected StateMatrix metricStateMatrix; // matrix whose touched stations drive the queue length/utilization updates
+    protected EventTraceSink traceSink; // null -> no trace
+    protected SSAInstrumentation instrumentation; // null -> not instrumented
+    protected PrecisionMonitor precisionMonitor; // null -> no sequential stopping
 
     public Timeline(SSAStruct networkStruct) {
         this.nStateful = networkStruct.nStateful;
@@ -55,8 +59,7 @@ public class Timeline {
         this.nServers = networkStruct.numberOfServers;
         this.schedStrategies = networkStruct.schedStrategies;
         this.eventTimeline = new ArrayList<Event>();
-        this.transientState = new ArrayList<List<Integer>[]>();
-        this.timeList = new ArrayList<Double>();
+        this.transientRecorder = new TransientRecorder(this.nStateful);
 
         this.useMSER5 = false;
         this.useR5 = false;
@@ -111,7 +114,7 @@ public class Timeline {
                 }
             }
         }
-        this.timeList.add(0.0);
+        this.transientRecorder.recordTime(0.0);
         this.maxTime = 0;
 
         this.eventCache = new ArrayList<Pair<Event,Integer>>(this.nStateful*this.nClasses);
@@ -164,10 +167,37 @@ public class Timeline {
         }
     }
 
+    public void useStreamingMetrics() {
+        this.metricRecord = false;
+        for (int i = 0; i < this.nStateful; i++) {
+            for (int j = 0; j < this.nClasses; j++)  {
+                for (int k = 0; k < 5; k++) {
+                    this.metrics[i][j][k].configureStreaming();
+                }
+            }
+        }
+    }
+
     public void disableTransientState() {
         this.recordTransientState = false;
     }
 
+    public void setTraceSink(EventTraceSink traceSink) {
+        this.traceSink = traceSink;
+    }
+
+    public void setInstrumentation(SSAInstrumentation instrumentation) {
+        this.instrumentation = instrumentation;
+    }
+
+    public void setPrecisionMonitor(PrecisionMonitor precisionMonitor) {
+        this.precisionMonitor = precisionMonitor;
+    }
+
+    public PrecisionMonitor getPrecisionMonitor() {
+        return this.precisionMonitor;
+    }
+
     public void setTime(double t) {
         this.currentTime = t;
     }
@@ -177,8 +207,26 @@ public class Timeline {
     }
 
     public void record(double t, Event e, StateMatrix stateMatrix) {
+        if (this.instrumentation == null) {
+            this.recordEvent(t, e, stateMatrix);
+            return;
+        }
+        this.instrumentation.countEvent(e, 1);
+        if (!this.instrumentation.isTiming()) {
+            this.recordEvent(t, e, stateMatrix);
+            return;
+        }
+        long startTime = System.nanoTime();
+        this.recordEvent(t, e, stateMatrix);
+        this.instrumentation.addRecordNanos(System.nanoTime() - startTime);
+    }
+
+    protected void recordEvent(double t, Event e, StateMatrix stateMatrix) {
         //this.eventTimeline.add(e);
-        this.timeList.add(t);
+        if (this.traceSink != null) {
+            this.traceSink.record(t, e, stateMatrix, 1);
+        }
+        boolean sampled = this.transientRecorder.sample(t);
         this.maxTime = t;
 
         if (e instanceof DepartureEvent) {
@@ -192,6 +240,9 @@ public class Timeline {
                     this.metrics[ne.getNodeStatefulIdx()][ne.getClassIdx()][k].fromEvent(t, e);
                 }
             }
+            if (this.precisionMonitor != null) {
+                this.precisionMonitor.departure(t, ne.getNodeStatefulIdx(), 1);
+            }
 
             return;
         } else if (e instanceof OutputEvent) {
@@ -200,14 +251,14 @@ public class Timeline {
             }
             return;
         } else if (e instanceof PhaseEvent) {
-            if (this.recordTransientState) {
-                this.transientState.add(stateMatrix.getStateVectors());
+            if (this.recordTransientState && sampled) {
+                this.transientRecorder.recordState(stateMatrix);
             }
             return;
         }
 
-        if (this.recordTransientState) {
-            this.transientState.add(stateMatrix.getStateVectors());
+        if (this.recordTransientState && sampled) {
+            this.transientRecorder.recordState(stateMatrix);
         }
         boolean foundNode = (e instanceof NodeEvent) && ((NodeEvent) e).isStateful();
 
@@ -221,30 +272,79 @@ public class Timeline {
             }
         }
 
-        for (int i = 0; i < this.nStateful; i++) {
-            for (int j = 0; j < this.nClasses; j++) {
-                for (int k = 0; k < 2; k++) {
-                    this.metrics[i][j][k].fromStateMatrix(t, stateMatrix);
-                }
-                if (!foundNode) {
-                    if (this.inferTimes) {
-                        this.metrics[i][j][4].fromEvent(t,e);
-                    } else {
-                        for (int k = 2; k < 5; k++) {
-                            this.metrics[i][j][k].fromEvent(t, e);
-                        }
-                    }
-                }
+        // event driven metrics only react to arrivals and departures at their own station, so events without a
+        //   stateful node need not be broadcast to every cell
+        this.updateStateMetrics(t, stateMatrix);
+    }
+
+    protected void updateStateMetrics(double t, StateMatrix stateMatrix) {
+        /*
+            Queue length and utilization are piecewise constant between state changes, so only the stations changed
+                since the previous update get a new sample. Every other cell keeps its level, and its time-weighted
+                average is settled lazily, in settleStateMetrics().
+         */
+        if (stateMatrix != this.metricStateMatrix) {
+            this.metricStateMatrix = stateMatrix;
+            stateMatrix.clearRecordTouched();
+            for (int i = 0; i < this.nStateful; i++) {
+                this.updateStationMetrics(t, stateMatrix, i);
             }
+            return;
         }
+
+        int nTouched = stateMatrix.getNRecordTouched();
+        for (int i = 0; i < nTouched; i++) {
+            this.updateStationMetrics(t, stateMatrix, stateMatrix.getRecordTouched(i));
+        }
+        stateMatrix.clearRecordTouched();
+    }
+
+    private void updateStationMetrics(double t, StateMatrix stateMatrix, int nodeIdx) {
+        for (int j = 0; j < this.nClasses; j++) {
+            for (int k = 0; k < 2; k++) {
+                this.metrics[nodeIdx][j][k].fromStateMatrix(t, stateMatrix);
+            }
+        }
+        if (this.precisionMonitor != null) {
+            this.precisionMonitor.level(t, nodeIdx, stateMatrix);
+        }
+    }
+
+    protected void settleStateMetrics(double t) {
+        // bring every queue length/utilization cell up to time t
+        if (this.metricStateMatrix == null) {
+            return;
+        }
+        for (int i = 0; i < this.nStateful; i++) {
+            this.updateStationMetrics(t, this.metricStateMatrix, i);
+        }
+        this.metricStateMatrix.clearRecordTouched();
     }
 
     public void record(double t, Event e, StateMatrix stateMatrix, int n) {
+        if (this.instrumentation == null) {
+            this.recordEvent(t, e, stateMatrix, n);
+            return;
+        }
+        this.instrumentation.countEvent(e, n);
+        if (!this.instrumentation.isTiming()) {
+            this.recordEvent(t, e, stateMatrix, n);
+            return;
+        }
+        long startTime = System.nanoTime();
+        this.recordEvent(t, e, stateMatrix, n);
+        this.instrumentation.addRecordNanos(System.nanoTime() - startTime);
+    }
+
+    protected void recordEvent(double t, Event e, StateMatrix stateMatrix, int n) {
         //this.eventTimeline.add(e);
-        if (this.recordTransientState) {
-            this.transientState.add(stateMatrix.getStateVectors());
+        if (this.traceSink != null) {
+            this.traceSink.record(t, e, stateMatrix, n);
+        }
+        boolean sampled = this.transientRecorder.sample(t);
+        if (this.recordTransientState && sampled) {
+            this.transientRecorder.recordState(stateMatrix);
         }
-        this.timeList.add(t);
 
         if (e instanceof DepartureEvent) {
             if (((DepartureEvent) e).isReference()) {
@@ -257,6 +357,9 @@ public class Timeline {
                     this.metrics[ne.getNodeStatefulIdx()][ne.getClassIdx()][k].fromEvent(t, e, n);
                 }
             }
+            if (this.precisionMonitor != null) {
+                this.precisionMonitor.departure(t, ne.getNodeStatefulIdx(), n);
+            }
 
             return;
         } else if (e instanceof OutputEvent) {
@@ -317,6 +420,16 @@ public class Timeline {
     }
 
     public void recordCache() {
+        if ((this.instrumentation == null) || !this.instrumentation.isTiming()) {
+            this.recordCachedEvents();
+            return;
+        }
+        long startTime = System.nanoTime();
+        this.recordCachedEvents();
+        this.instrumentation.addRecordNanos(System.nanoTime() - startTime);
+    }
+
+    protected void recordCachedEvents() {
         this.currentTime = this.nextTime;
         this.maxTime = currentTime;
 
@@ -324,13 +437,7 @@ public class Timeline {
             if (this.stateMatrix == null) {
                 return;
             }
-            for (int i = 0; i < this.nStateful; i++) {
-                for (int j = 0; j < this.nClasses; j++) {
-                    for (int k = 0; k < 2; k++) {
-                        this.metrics[i][j][k].fromStateMatrix(this.currentTime, this.stateMatrix);
-                    }
-                }
-            }
+            this.updateStateMetrics(this.currentTime, this.stateMatrix);
             return;
         } else if (this.eventCache.isEmpty()) {
             return;
@@ -340,17 +447,26 @@ public class Timeline {
             Event e = ePair.getLeft();
             int n = ePair.getRight();
             double t = this.currentTime;
-            if (this.recordTransientState) {
-                this.transientState.add(stateMatrix.getStateVectors());
+            if (this.traceSink != null) {
+                this.traceSink.record(t, e, this.stateMatrix, n);
+            }
+            if (this.instrumentation != null) {
+                this.instrumentation.countEvent(e, n);
+            }
+            boolean sampled = this.transientRecorder.sample(t);
+            if (this.recordTransientState && sampled) {
+                this.transientRecorder.recordState(stateMatrix);
             }
 
             //this.eventTimeline.add(e);
-            this.timeList.add(t);
 
             if (e instanceof DepartureEvent) {
                 if (((DepartureEvent) e).isReference()) {
                     this.totalClassMetrics[((DepartureEvent) e).getClassIdx()].increment(n);
                 }
+                if (this.precisionMonitor != null) {
+                    this.precisionMonitor.departure(t, ((DepartureEvent) e).getNodeStatefulIdx(), n);
+                }
             } else if (e instanceof OutputEvent) {
                 if (((OutputEvent) e).isClassSwitched()) {
                     this.totalClassMetrics[((OutputEvent) e).getClassIdx()].increment(n);
@@ -371,13 +487,7 @@ public class Timeline {
             }
         }
 
-        for (int i = 0; i < this.nStateful; i++) {
-            for (int j = 0; j < this.nClasses; j++) {
-                for (int k = 0; k < 2; k++) {
-                    this.metrics[i][j][k].fromStateMatrix(this.currentTime, this.stateMatrix);
-                }
-            }
-        }
+        this.updateStateMetrics(this.currentTime, this.stateMatrix);
 
         this.clearCache();
     }
@@ -514,7 +624,27 @@ public class Timeline {
         //return this.metrics[nodeIdx][classIdx];
     }
 
+    public int getNumberOfMetrics() {
+        return 5;
+    }
+
+    public String getMetricShortName(int metricIdx) {
+        return this.metrics[0][0][metricIdx].getShortName();
+    }
+
+    public double getMetricValue(int nodeIdx, int classIdx, int metricIdx) {
+        Metric metric = this.metrics[nodeIdx][classIdx][metricIdx];
+        if (metric == null) {
+            return 0;
+        }
+        return metric.getMetric().doubleValue();
+    }
+
     public void taper(double t) {
+        this.settleStateMetrics(t);
+        if (this.precisionMonitor != null) {
+            this.precisionMonitor.taper(t);
+        }
         for (int i = 0; i < this.nStateful; i++) {
             for (int j = 0; j < this.nClasses; j++) {
                 for (int k = 0; k < 5; k++) {
@@ -555,6 +685,21 @@ public class Timeline {
         }
         return outList;
     }
+    public double[][] queueLengths() {
+        // current mean queue lengths, [stateful node][class]
+        double[][] outArr = new double[this.nStateful][this.nClasses];
+        for (int i = 0; i < this.nStateful; i++) {
+            for (int j = 0; j < this.nClasses; j++) {
+                for (int k = 0; k < 5; k++) {
+                    if (this.metrics[i][j][k] instanceof QueueLengthMetric) {
+                        outArr[i][j] = ((QueueLengthMetric) this.metrics[i][j][k]).getMetric();
+                    }
+                }
+            }
+        }
+        return outArr;
+    }
+
     public boolean isLikelyUnstable() {
         final double unstableThreshold = 0.98;
 
@@ -576,6 +721,12 @@ public class Timeline {
     }
 
     public void resetHistory() {
+        this.settleStateMetrics(this.maxTime);
+        // the reset levels must be re-read for every cell at the next update
+        this.metricStateMatrix = null;
+        if (this.precisionMonitor != null) {
+            this.precisionMonitor.reset();
+        }
         for (int i = 0; i < this.nStateful; i++) {
             for (int j = 0; j < this.nClasses; j++) {
                 for (int k = 0; k < 5; k++) {
@@ -591,9 +742,9 @@ public class Timeline {
         }
         for (int i = start; i < end; i++) {
             System.out.format("Iteration %d\n", i);
-            for (int j = 0; j < this.transientState.get(i).length; j++) {
+            for (int j = 0; j < this.nStateful; j++) {
                 System.out.format("Node %d", j);
-                System.out.println(Arrays.toString(this.transientState.get(i)[j].toArray()));
+                System.out.println(Arrays.toString(this.transientRecorder.getStateVector(i, j)));
             }
         }
     }
@@ -617,10 +768,20 @@ public class Timeline {
     }
 
     public List<List<Integer>[]> getTransientState() {
-        return this.transientState;
+        // materialised from the recorder, prefer getTransientRecorder() for long runs
+        return this.transientRecorder.getTransientState();
     }
 
     public List<Double> getT() {
-        return this.timeList;
+        return this.transientRecorder.getT();
+    }
+
+    public TransientRecorder getTransientRecorder() {
+        return this.transientRecorder;
+    }
+
+    public void close() {
+        // releases the spill file of the transient state, if any, see TransientRecorder.close()
+        this.transientRecorder.close();
     }
 }
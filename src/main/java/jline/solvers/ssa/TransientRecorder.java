@@ -0,0 +1,461 @@
+package jline.solvers.ssa;
+
+import jline.solvers.ssa.state.StateMatrix;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class TransientRecorder implements AutoCloseable {
+    /*
+        TransientRecorder -
+            Columnar store for the transient state of one trajectory, in primitive int/long chunks instead of
+            boxed lists.
+
+            Times go in one long column, as raw double bits. State vectors are run-length encoded per station: a new
+            run (its first row, offset and length in the value column) is only written when that station changed
+            since the previous stored row, so rows only pay for the stations the event touched. Changes are detected through
+            StateMatrix.getVersion(), so unchanged stations are never even read.
+
+            Recording can be thinned to one in every k calls, or to the first call at or after each point of a
+            fixed time grid. Optionally, full chunks are moved to a memory-mapped spill file rather than the heap.
+            The file is mapped SPILL_REGION_CHUNKS chunks at a time, and close() releases it.
+
+            getTransientState()/getT() rebuild the old list views on demand.
+     */
+    protected static final int CHUNK_SIZE = 1 << 14;
+    protected static final int INITIAL_CHUNK_SIZE = 64; // the first chunk grows up to CHUNK_SIZE, most columns stay short
+    protected static final long SPILL_REGION_CHUNKS = 64;
+
+    // sampling
+    protected int everyK;
+    protected double gridStep;
+    protected double nextGridTime;
+    protected long nCalls;
+
+    protected Spill spill;
+    protected LongColumn times; // Double.doubleToRawLongBits() of each time
+
+    // per station runs
+    protected int nStations;
+    protected int nRows;
+    protected IntColumn[] values;
+    protected IntColumn[] runRows;
+    protected LongColumn[] runOffsets;
+    protected IntColumn[] runLengths;
+    protected long[] seenVersions;
+    protected StateMatrix seenMatrix;
+    protected int[] vector; // scratch for the state vector of one station
+
+    public TransientRecorder(int nStations) {
+        this.nStations = nStations;
+        this.everyK = 1;
+        this.gridStep = 0;
+        this.nextGridTime = 0;
+        this.nCalls = 0;
+        this.spill = null;
+        this.vector = new int[INITIAL_CHUNK_SIZE];
+        this.clear();
+    }
+
+    public void clear() {
+        this.times = new LongColumn(this.spill);
+        this.nRows = 0;
+        this.values = new IntColumn[this.nStations];
+        this.runRows = new IntColumn[this.nStations];
+        this.runOffsets = new LongColumn[this.nStations];
+        this.runLengths = new IntColumn[this.nStations];
+        for (int i = 0; i < this.nStations; i++) {
+            this.values[i] = new IntColumn(this.spill);
+            this.runRows[i] = new IntColumn(this.spill);
+            this.runOffsets[i] = new LongColumn(this.spill);
+            this.runLengths[i] = new IntColumn(this.spill);
+        }
+        this.seenVersions = new long[this.nStations];
+        this.seenMatrix = null;
+    }
+
+    public void sampleEvery(int k) {
+        this.everyK = Math.max(1, k);
+        this.gridStep = 0;
+    }
+
+    public void sampleOnGrid(double step) {
+        this.gridStep = step;
+        this.nextGridTime = 0;
+    }
+
+    public void spillTo(Path file) {
+        // only chunks filled after this call are spilled
+        this.spillTo(file, false);
+    }
+
+    protected void spillTo(Path file, boolean deleteOnClose) {
+        if (this.spill != null) {
+            throw new RuntimeException("Already spilling to " + this.spill.file);
+        }
+        try {
+            this.spill = new Spill(file, deleteOnClose);
+        } catch (IOException e) {
+            throw new RuntimeException("Cannot open spill file " + file, e);
+        }
+        this.times.spill = this.spill;
+        for (int i = 0; i < this.nStations; i++) {
+            this.values[i].spill = this.spill;
+            this.runRows[i].spill = this.spill;
+            this.runOffsets[i].spill = this.spill;
+            this.runLengths[i].spill = this.spill;
+        }
+    }
+
+    public void spillToTempFile() {
+        try {
+            Path file = Files.createTempFile("ssa-transient", ".bin");
+            file.toFile().deleteOnExit();
+            this.spillTo(file, true);
+        } catch (IOException e) {
+            throw new RuntimeException("Cannot create spill file", e);
+        }
+    }
+
+    public boolean sample(double t) {
+        /*
+            Called once per recording opportunity. Records t and returns true if this call is kept under the
+                sampling policy; the caller then records the state with recordState().
+         */
+        boolean keep;
+        if (this.gridStep > 0) {
+            keep = t >= this.nextGridTime;
+            if (keep) {
+                this.nextGridTime = (Math.floor(t/this.gridStep)+1)*this.gridStep;
+            }
+        } else {
+            keep = (this.nCalls % this.everyK) == 0;
+        }
+        this.nCalls++;
+        if (keep) {
+            this.times.add(Double.doubleToRawLongBits(t));
+        }
+        return keep;
+    }
+
+    public void recordTime(double t) {
+        // unconditionally record a time point
+        this.times.add(Double.doubleToRawLongBits(t));
+    }
+
+    public void recordState(StateMatrix stateMatrix) {
+        boolean newMatrix = stateMatrix != this.seenMatrix;
+        for (int i = 0; i < this.nStations; i++) {
+            long version = stateMatrix.getVersion(i);
+            if (!newMatrix && (this.nRows > 0) && (version == this.seenVersions[i])) {
+                continue;
+            }
+            this.seenVersions[i] = version;
+
+            int length = stateMatrix.getStateVectorLength(i);
+            if (length > this.vector.length) {
+                this.vector = new int[Math.max(length, 2*this.vector.length)];
+            }
+            stateMatrix.writeStateVector(i, this.vector);
+            long offset = this.values[i].size();
+            int nRuns = (int) this.runRows[i].size();
+            if ((nRuns > 0) && this.sameAsLastRun(i, nRuns, length)) {
+                continue;
+            }
+            for (int k = 0; k < length; k++) {
+                this.values[i].add(this.vector[k]);
+            }
+            this.runRows[i].add(this.nRows);
+            this.runOffsets[i].add(offset);
+            this.runLengths[i].add(length);
+        }
+        this.seenMatrix = stateMatrix;
+        this.nRows++;
+    }
+
+    private boolean sameAsLastRun(int station, int nRuns, int length) {
+        // compares the last run with the first length entries of vector
+        if (this.runLengths[station].get(nRuns-1) != length) {
+            return false;
+        }
+        long offset = this.runOffsets[station].get(nRuns-1);
+        for (int k = 0; k < length; k++) {
+            if (this.values[station].get(offset+k) != this.vector[k]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public int getNumberOfStates() {
+        return this.nRows;
+    }
+
+    public long getNumberOfTimes() {
+        return this.times.size();
+    }
+
+    public double getTime(long i) {
+        return Double.longBitsToDouble(this.times.get(i));
+    }
+
+    public int[] getStateVector(int row, int station) {
+        // binary search for the run covering row
+        int lo = 0;
+        int hi = (int) this.runRows[station].size()-1;
+        while (lo < hi) {
+            int mid = (lo+hi+1) >>> 1;
+            if (this.runRows[station].get(mid) <= row) {
+                lo = mid;
+            } else {
+                hi = mid-1;
+            }
+        }
+        long offset = this.runOffsets[station].get(lo);
+        int[] outArr = new int[this.runLengths[station].get(lo)];
+        for (int k = 0; k < outArr.length; k++) {
+            outArr[k] = this.values[station].get(offset+k);
+        }
+        return outArr;
+    }
+
+    public List<List<Integer>[]> getTransientState() {
+        List<List<Integer>[]> outList = new ArrayList<List<Integer>[]>(this.nRows);
+        int[] run = new int[this.nStations];
+        for (int row = 0; row < this.nRows; row++) {
+            List<Integer>[] rowState = new List[this.nStations];
+            for (int i = 0; i < this.nStations; i++) {
+                while ((run[i]+1 < this.runRows[i].size()) && (this.runRows[i].get(run[i]+1) <= row)) {
+                    run[i]++;
+                }
+                long offset = this.runOffsets[i].get(run[i]);
+                int length = this.runLengths[i].get(run[i]);
+                List<Integer> vector = new ArrayList<Integer>(length);
+                for (int k = 0; k < length; k++) {
+                    vector.add(this.values[i].get(offset+k));
+                }
+                rowState[i] = vector;
+            }
+            outList.add(rowState);
+        }
+        return outList;
+    }
+
+    public List<Double> getT() {
+        List<Double> outList = new ArrayList<Double>((int) this.times.size());
+        for (long i = 0; i < this.times.size(); i++) {
+            outList.add(Double.longBitsToDouble(this.times.get(i)));
+        }
+        return outList;
+    }
+
+    public void close() {
+        /*
+            Release the spill file, deleting it if spillToTempFile() created it. The spilled chunks go with it, so
+                the recorder is cleared; later rows are kept on the heap.
+         */
+        if (this.spill == null) {
+            return;
+        }
+        Spill spill = this.spill;
+        this.spill = null;
+        this.clear();
+        spill.close();
+    }
+
+    protected static class Spill {
+        protected Path file;
+        protected boolean deleteOnClose;
+        protected RandomAccessFile randomAccessFile;
+        protected FileChannel channel;
+        protected long offset;
+        protected MappedByteBuffer region; // mapped, not yet handed out
+        protected long regionBytes;
+
+        protected Spill(Path file, boolean deleteOnClose) throws IOException {
+            this.file = file;
+            this.deleteOnClose = deleteOnClose;
+            this.randomAccessFile = new RandomAccessFile(file.toFile(), "rw");
+            this.channel = this.randomAccessFile.getChannel();
+            this.offset = 0;
+            this.region = null;
+            // room for SPILL_REGION_CHUNKS chunks of the widest column
+            this.regionBytes = 8L*CHUNK_SIZE*SPILL_REGION_CHUNKS;
+        }
+
+        protected ByteBuffer map(long bytes) {
+            // a slice of the current region, mapping the next one when it is used up
+            if ((this.region == null) || (this.region.remaining() < bytes)) {
+                try {
+                    this.region = this.channel.map(FileChannel.MapMode.READ_WRITE, this.offset,
+                            Math.max(bytes, this.regionBytes));
+                    this.offset += this.region.capacity();
+                } catch (IOException e) {
+                    throw new RuntimeException("Cannot write to spill file", e);
+                }
+            }
+            ByteBuffer buffer = this.region.slice();
+            buffer.limit((int) bytes);
+            this.region.position(this.region.position() + (int) bytes);
+            return buffer;
+        }
+
+        protected void close() {
+            this.region = null;
+            try {
+                this.channel.close();
+                this.randomAccessFile.close();
+                if (this.deleteOnClose) {
+                    Files.deleteIfExists(this.file);
+                }
+            } catch (IOException e) {
+                throw new RuntimeException("Cannot close spill file " + this.file, e);
+            }
+        }
+    }
+
+    protected abstract static class Column<A> {
+        /*
+            Chunked primitive column: the first chunk grows up to CHUNK_SIZE, full chunks are kept on the heap or
+                copied to the spill file, and indices map to (chunk, offset). Subclasses only hold the primitive
+                array type, and add/get through addSlot()/chunkOf()/offsetOf().
+         */
+        protected List<A> chunks; // [chunk], null -> spilled
+        protected List<ByteBuffer> spilled; // [chunk], null -> on the heap
+        protected A current;
+        protected int capacity; // length of current
+        protected int nCurrent;
+        protected long size;
+        protected Spill spill;
+        protected int elementBytes;
+
+        protected Column(Spill spill, int elementBytes) {
+            this.chunks = new ArrayList<A>();
+            this.spilled = new ArrayList<ByteBuffer>();
+            this.current = this.newChunk(INITIAL_CHUNK_SIZE);
+            this.capacity = INITIAL_CHUNK_SIZE;
+            this.nCurrent = 0;
+            this.size = 0;
+            this.spill = spill;
+            this.elementBytes = elementBytes;
+        }
+
+        protected abstract A newChunk(int length);
+
+        protected abstract A grow(A chunk, int length);
+
+        protected abstract void write(ByteBuffer buffer, A chunk);
+
+        protected int addSlot() {
+            // index in current of the element being added
+            if ((this.nCurrent == this.capacity) && (this.nCurrent < CHUNK_SIZE)) {
+                this.capacity = Math.min(2*this.nCurrent, CHUNK_SIZE);
+                this.current = this.grow(this.current, this.capacity);
+            } else if (this.nCurrent == CHUNK_SIZE) {
+                if (this.spill != null) {
+                    // current is copied out, and refilled
+                    ByteBuffer buffer = this.spill.map((long) this.elementBytes*CHUNK_SIZE);
+                    this.write(buffer, this.current);
+                    this.chunks.add(null);
+                    this.spilled.add(buffer);
+                } else {
+                    this.chunks.add(this.current);
+                    this.spilled.add(null);
+                    this.current = this.newChunk(CHUNK_SIZE);
+                }
+                this.nCurrent = 0;
+            }
+            this.size++;
+            return this.nCurrent++;
+        }
+
+        protected static int chunkOf(long idx) {
+            return (int) (idx / CHUNK_SIZE);
+        }
+
+        protected static int offsetOf(long idx) {
+            return (int) (idx % CHUNK_SIZE);
+        }
+
+        protected long size() {
+            return this.size;
+        }
+    }
+
+    protected static class IntColumn extends Column<int[]> {
+        protected IntColumn(Spill spill) {
+            super(spill, 4);
+        }
+
+        protected int[] newChunk(int length) {
+            return new int[length];
+        }
+
+        protected int[] grow(int[] chunk, int length) {
+            return Arrays.copyOf(chunk, length);
+        }
+
+        protected void write(ByteBuffer buffer, int[] chunk) {
+            buffer.asIntBuffer().put(chunk);
+        }
+
+        protected void add(int value) {
+            int slot = this.addSlot(); // may replace current
+            this.current[slot] = value;
+        }
+
+        protected int get(long idx) {
+            int chunk = chunkOf(idx);
+            int offset = offsetOf(idx);
+            if (chunk == this.chunks.size()) {
+                return this.current[offset];
+            } else if (this.chunks.get(chunk) != null) {
+                return this.chunks.get(chunk)[offset];
+            }
+            return this.spilled.get(chunk).getInt(4*offset);
+        }
+    }
+
+    protected static class LongColumn extends Column<long[]> {
+        // also holds the times, as Double.doubleToRawLongBits()
+        protected LongColumn(Spill spill) {
+            super(spill, 8);
+        }
+
+        protected long[] newChunk(int length) {
+            return new long[length];
+        }
+
+        protected long[] grow(long[] chunk, int length) {
+            return Arrays.copyOf(chunk, length);
+        }
+
+        protected void write(ByteBuffer buffer, long[] chunk) {
+            buffer.asLongBuffer().put(chunk);
+        }
+
+        protected void add(long value) {
+            int slot = this.addSlot(); // may replace current
+            this.current[slot] = value;
+        }
+
+        protected long get(long idx) {
+            int chunk = chunkOf(idx);
+            int offset = offsetOf(idx);
+            if (chunk == this.chunks.size()) {
+                return this.current[offset];
+            } else if (this.chunks.get(chunk) != null) {
+                return this.chunks.get(chunk)[offset];
+            }
+            return this.spilled.get(chunk).getLong(8*offset);
+        }
+    }
+}
@@ -10,6 +10,7 @@ import jline.lang.nodes.StatefulNode;
 import jline.lang.processes.MAPProcess;
 import jline.solvers.ssa.Timeline;
 import jline.solvers.ssa.state.StateMatrix;
+import jline.solvers.ssa.state.StateSpace;
 import jline.util.Pair;
 import org.javatuples.Quartet;
 import org.javatuples.Triplet;
@@ -185,7 +186,7 @@ public class DepartureEvent extends Event implements NodeEvent {
 
 
     @Override
-    public boolean updateStateSpace(StateMatrix stateMatrix, Random random, Timeline timeline, ArrayList<StateMatrix> stateSpace, Queue<StateMatrix> queue) {
+    public boolean updateStateSpace(StateMatrix stateMatrix, Random random, Timeline timeline, StateSpace stateSpace, Queue<StateMatrix> queue) {
         if (this.isMAP) {
 
             MAPProcess mapProcess = (MAPProcess)(this.serviceProcess);
@@ -198,11 +199,8 @@ public class DepartureEvent extends Event implements NodeEvent {
 
             for (Pair<OutputEvent,Double> outputEventDoublePair : eventArrayList) {
                 StateMatrix newMatrix = outputEventDoublePair.getLeft().getNextState(stateMatrix, timeline, stateSpace,queue);
-                if (newMatrix!=null && !newMatrix.checkIfVisited(stateSpace)) {
-                    JLineMatrix jLineMatrix = new JLineMatrix(stateMatrix.state.length, stateMatrix.state[0].length);
-                    stateSpace.add(newMatrix);
+                if ((newMatrix != null) && stateSpace.visit(newMatrix, outputEventDoublePair)) {
                     queue.add(newMatrix);
-                    jLineMatrix.array2DtoJLineMatrix(newMatrix.state).print();
                 }
             }
 
@@ -219,12 +217,8 @@ public class DepartureEvent extends Event implements NodeEvent {
 //        System.out.println(eventArrayList.size());
         for (Pair<OutputEvent,Double> outputEventDoublePair: eventArrayList) {
             StateMatrix newMatrix = outputEventDoublePair.getLeft().getNextState(newStateMatrix, timeline, stateSpace,queue);
-            if (!newMatrix.checkIfVisited(stateSpace)) {
-                JLineMatrix jLineMatrix = new JLineMatrix(newStateMatrix.state.length, newStateMatrix.state[0].length);
-                stateSpace.add(newMatrix);
+            if ((newMatrix != null) && stateSpace.visit(newMatrix, outputEventDoublePair)) {
                 queue.add(newMatrix);
-                jLineMatrix.array2DtoJLineMatrix(newMatrix.state).print();
-                newMatrix.printStateVector();
             }
             stateMatrix = newMatrix;
         }
@@ -234,56 +228,6 @@ public class DepartureEvent extends Event implements NodeEvent {
         return true;
     }
 
-    @Override
-    public boolean updateEventSpace(StateMatrix stateMatrix, Random random, Timeline timeline, ArrayList<Quartet<Event,Pair<OutputEvent,Double>,StateMatrix,StateMatrix>>  eventSpace,Event event, Queue<StateMatrix> queue,StateMatrix copy) {
-        if (this.isMAP) {
-
-            MAPProcess mapProcess = (MAPProcess)(this.serviceProcess);
-            int nextPhase = mapProcess.getNextPhaseAfterDeparture(stateMatrix.getGlobalPhase(this.statefulIndex, this.classIndex), random);
-            stateMatrix.updateGlobalPhase(this.statefulIndex, this.classIndex, nextPhase);
-        }
-
-        if (this.node instanceof Source) {
-            ArrayList<Pair<OutputEvent,Double>> eventArrayList = this.node.getOutputEvents(this.jobClass, random);
-
-            for (Pair<OutputEvent,Double> outputEventDoublePair : eventArrayList) {
-                StateMatrix newMatrix = outputEventDoublePair.getLeft().getNextEventState(stateMatrix, timeline, eventSpace,event,queue,copy);
-                if (newMatrix!=null && !newMatrix.checkIfVisited(eventSpace,copy,event,outputEventDoublePair.getLeft())) {
-                    JLineMatrix jLineMatrix = new JLineMatrix(stateMatrix.state.length, stateMatrix.state[0].length);
-                    eventSpace.add(Quartet.with(event, outputEventDoublePair,copy,newMatrix));
-                    queue.add(newMatrix);
-                    jLineMatrix.array2DtoJLineMatrix(newMatrix.state).print();
-                }
-            }
-
-            return true;
-        }
-        StateMatrix newStateMatrix = new StateMatrix(stateMatrix);
-        boolean res = newStateMatrix.stateDeparture(this.statefulIndex, classIndex);
-        StateMatrix copyOfOldStateMatrix = stateMatrix;
-        stateMatrix = newStateMatrix;
-        if (!res) {
-            return false;
-        }
-        ArrayList<Pair<OutputEvent, Double>> eventArrayList = this.node.getOutputEvents(this.jobClass, random);
-        for (Pair<OutputEvent, Double> outputEventDoublePair : eventArrayList) {
-
-            StateMatrix newMatrix = outputEventDoublePair.getLeft().getNextEventState(stateMatrix, timeline, eventSpace,event,queue,copy);
-            if (newMatrix!=null && !newMatrix.checkIfVisited(eventSpace,copy,event,outputEventDoublePair.getLeft())) {
-                JLineMatrix jLineMatrix = new JLineMatrix(stateMatrix.state.length, stateMatrix.state[0].length);
-                eventSpace.add(Quartet.with(event,outputEventDoublePair,copy,newMatrix));
-                queue.add(newMatrix);
-                jLineMatrix.array2DtoJLineMatrix(newMatrix.state).print();
-            }
-            stateMatrix = newMatrix;
-        }
-
-        timeline.record(this, stateMatrix);
-
-        return true;
-    }
-
-
     @Override
     public void printSummary() {
         System.out.format("Departure event for %s at %s\n", this.jobClass.getName(), this.node.getName());
@@ -342,7 +286,7 @@ public class DepartureEvent extends Event implements NodeEvent {
     }
 
     @Override
-    public StateMatrix getNextState(StateMatrix startingState, Timeline timeline, ArrayList<StateMatrix> stateSpace,Queue<StateMatrix> queue) {
+    public StateMatrix getNextState(StateMatrix startingState, Timeline timeline, StateSpace stateSpace,Queue<StateMatrix> queue) {
 
         StateMatrix endingState = new StateMatrix(startingState);
 
@@ -354,16 +298,4 @@ public class DepartureEvent extends Event implements NodeEvent {
 
     }
 
-
-    public StateMatrix getNextEventState(StateMatrix startingState, Timeline timeline, ArrayList<Quartet<Event,Pair<OutputEvent,Double>,StateMatrix,StateMatrix>>  eventSpace, Event event, Queue<StateMatrix> queue,StateMatrix copy) {
-
-        StateMatrix endingState = new StateMatrix(startingState);
-
-        if(updateEventSpace(endingState, new Random(), timeline, eventSpace,event,queue,copy)){
-            return endingState;
-        }
-
-        return null;
-    }
-
 }
@@ -17,7 +17,7 @@ public class ErlangPhaseEvent extends PhaseEvent implements NodeEvent {
     private int classIndex;
     private SchedStrategy schedStrategy;
     private boolean isSource;
-    private final Erlang serviceProcess;
+    protected final Erlang serviceProcess;
     protected Node node;
     private JobClass jobClass;
     protected boolean isProcessorSharing;
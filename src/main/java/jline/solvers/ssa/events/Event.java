@@ -8,6 +8,7 @@ import java.util.Random;
 import jline.lang.nodes.Node;
 import jline.solvers.ssa.Timeline;
 import jline.solvers.ssa.state.StateMatrix;
+import jline.solvers.ssa.state.StateSpace;
 import jline.util.Pair;
 import org.javatuples.Quartet;
 import org.javatuples.Triplet;
@@ -31,17 +32,11 @@ public class Event implements Serializable {
         return true;
     }
 
-    public boolean updateStateSpace(StateMatrix stateMatrix, Random random, Timeline timeline, ArrayList<StateMatrix> stateSpace, Queue<StateMatrix> queue) {
+    public boolean updateStateSpace(StateMatrix stateMatrix, Random random, Timeline timeline, StateSpace stateSpace, Queue<StateMatrix> queue) {
 
         return true;
     }
 
-    public boolean updateEventSpace(StateMatrix stateMatrix, Random random, Timeline timeline, ArrayList<Quartet<Event,Pair<OutputEvent,Double>,StateMatrix,StateMatrix>>  eventSpace,Event event, Queue<StateMatrix> queue,StateMatrix copy) {
-
-        return true;
-    }
-
-
     public int stateUpdateN(int n, StateMatrix stateMatrix, Random random, Timeline timeline) {
         /*
             stateUpdateN -
@@ -67,7 +62,7 @@ public class Event implements Serializable {
         return Integer.MAX_VALUE;
     }
 
-    public StateMatrix getNextState(StateMatrix startingState, Timeline timeline, ArrayList<StateMatrix> stateSpace, Queue<StateMatrix> queue) {
+    public StateMatrix getNextState(StateMatrix startingState, Timeline timeline, StateSpace stateSpace, Queue<StateMatrix> queue) {
 
         StateMatrix endingState = new StateMatrix(startingState);
 
@@ -79,15 +74,4 @@ public class Event implements Serializable {
 
     }
 
-    public StateMatrix getNextEventState(StateMatrix startingState, Timeline timeline, ArrayList<Quartet<Event,Pair<OutputEvent,Double>,StateMatrix,StateMatrix>> eventSpace,Event event, Queue<StateMatrix> queue, StateMatrix copy) {
-
-        StateMatrix endingState = new StateMatrix(startingState);
-
-        if(updateEventSpace(endingState, new Random(), timeline, eventSpace,event,queue,copy)){
-            return endingState;
-        }
-
-        return null;
-    }
-
 }
@@ -1,20 +1,27 @@
 package jline.solvers.ssa.events;
 
 import jline.lang.JLineMatrix;
-import jline.lang.distributions.BinomialDistribution;
+import jline.lang.Network;
 import jline.lang.distributions.Exp;
-import jline.lang.distributions.PoissonDistribution;
 import jline.lang.nodes.Node;
 import jline.lang.nodes.Source;
+import jline.solvers.ssa.RandomStreams;
+import jline.solvers.ssa.SSAInstrumentation;
+import jline.solvers.ssa.SSAStruct;
 import jline.solvers.ssa.TauLeapingType;
 import jline.solvers.ssa.TauLeapingVarType;
 import jline.solvers.ssa.Timeline;
 import jline.solvers.ssa.metrics.IllegalTauLeapPercentageMetric;
 import jline.solvers.ssa.state.StateMatrix;
+import jline.solvers.ssa.state.StateSpace;
+import jline.solvers.ssa.strategies.EventSelectionStrategy;
 import jline.solvers.ssa.strategies.TauLeapingOrderStrategy;
 import jline.solvers.ssa.strategies.TauLeapingStateStrategy;
 import jline.util.Cdf;
+import jline.util.DiscreteSampler;
+import jline.util.IndexedMinHeap;
 import jline.util.Pair;
+import jline.util.RateSumTree;
 import jline.lang.OutputStrategy;
 import org.javatuples.Quartet;
 import org.javatuples.Triplet;
@@ -40,6 +47,44 @@ public class EventStack {
 
     protected IllegalTauLeapPercentageMetric illegalTauLeapPercentage;
 
+    // rate tree selection
+    protected EventSelectionStrategy selectionStrategy;
+    protected RateSumTree rateTree;
+    protected boolean[] isImmediate; // [event]
+    protected int nImmediate;
+    protected int[][] stationEvents; // [stateful node][] -> indices of the events whose rate depends on the node
+    protected int[] unboundEvents; // events without a stateful node, refreshed at every step
+    protected StateMatrix treeStateMatrix; // the StateMatrix the tree (or firing time heap) currently reflects
+
+    // next reaction method
+    protected int[][] dependencies; // [event] -> events whose rate may change when it fires
+    protected IndexedMinHeap firingTimes;
+    protected double[] nrmRates; // [event] -> rate used for its current putative firing time
+
+    // adaptive tau leaping
+    protected static final int CRITICAL_REPETITIONS = 10; // events this close to emptying their queue fire exactly
+    protected static final double EXACT_STEP_THRESHOLD = 10; // leap only if tau covers this many expected events
+    protected double[] leapRates;
+    protected boolean[] isCritical;
+
+    protected SSAInstrumentation instrumentation; // null -> not instrumented
+
+    // compiled rates, for the exact selection strategies; null -> every rate comes from Event.getRate()
+    protected RateKernel rateKernel;
+    protected double[] kernelRates;
+
+    // the order the kernel, dependency graph and closure are indexed by, while tau leaping has reordered eventList;
+    //   null -> eventList is in that order
+    protected List<Event> compiledOrder;
+
+    // vanishing state elimination for the exact selection strategies; null -> one immediate step per hop
+    protected ImmediateClosure immediateClosure;
+
+    // common random numbers, next reaction method only; null -> every draw comes from the random passed in
+    protected RandomStreams randomStreams;
+    protected Random[] clockStreams; // [event] -> putative firing times
+    protected Random[] updateStreams; // [event] -> draws made when it fires (routing, phases)
+
     public EventStack() {
         this.eventList = new ArrayList<Event>();
         //this.eventList = new LinkedList<Event>();
@@ -48,18 +93,193 @@ public class EventStack {
 
         this.tauFailures = 0;
         this.illegalTauLeapPercentage = new IllegalTauLeapPercentageMetric();
+
+        this.selectionStrategy = EventSelectionStrategy.Linear;
+        this.rateTree = null;
+        this.treeStateMatrix = null;
+    }
+
+    public EventStack(EventStack that) {
+        /*
+            Copy for an independent trajectory: the (immutable) events and dependency graph are shared, everything
+                that changes while simulating is not.
+         */
+        this();
+        this.eventList = new ArrayList<Event>(that.eventList);
+        if (that.compiledOrder != null) {
+            this.compiledOrder = new ArrayList<Event>(that.compiledOrder);
+        }
+        this.dependencies = that.dependencies;
+        this.selectionStrategy = that.selectionStrategy;
+        this.rateKernel = that.rateKernel;
+        this.immediateClosure = that.immediateClosure;
+        if (that.tauLeapingType != null) {
+            this.tauLeapingType = new TauLeapingType(that.tauLeapingType);
+        }
+    }
+
+    public void configureSelection(EventSelectionStrategy selectionStrategy) {
+        this.restoreCompiledOrder();
+        this.selectionStrategy = selectionStrategy;
+        this.rateTree = null;
+        this.firingTimes = null;
+        this.treeStateMatrix = null;
+    }
+
+    public void setDependencies(int[][] dependencies) {
+        this.dependencies = dependencies;
+        this.firingTimes = null;
     }
 
     public double getIllegalTauLeapPercentage() {
         return this.illegalTauLeapPercentage.getMetric();
     }
 
+    public void setInstrumentation(SSAInstrumentation instrumentation) {
+        this.instrumentation = instrumentation;
+    }
+
+    public void compileRateKernel(SSAStruct simStruct) {
+        this.rateKernel = RateKernel.compile(this.eventList, simStruct);
+    }
+
+    public void setRateKernel(RateKernel rateKernel) {
+        this.rateKernel = rateKernel;
+    }
+
+    public RateKernel getRateKernel() {
+        return this.rateKernel;
+    }
+
+    public void compileImmediateClosure(Network network, SSAStruct simStruct) {
+        this.immediateClosure = ImmediateClosure.compile(network, this.eventList, simStruct);
+    }
+
+    public void setImmediateClosure(ImmediateClosure immediateClosure) {
+        this.immediateClosure = immediateClosure;
+    }
+
+    public ImmediateClosure getImmediateClosure() {
+        return this.immediateClosure;
+    }
+
+    public void setRandomStreams(RandomStreams randomStreams) {
+        /*
+            Draw the firing time of each event, and the draws it makes when it fires, from streams named after the
+                event, its node and its class, so that the same station draws the same numbers in every model it
+                appears in. Only the next reaction method gives each event its own clock; the other strategies
+                select events with a shared draw, and keep using the random passed in.
+         */
+        this.randomStreams = randomStreams;
+        this.clockStreams = null;
+        this.updateStreams = null;
+        this.firingTimes = null;
+        if (randomStreams == null) {
+            return;
+        }
+
+        int nEvents = this.eventList.size();
+        this.clockStreams = new Random[nEvents];
+        this.updateStreams = new Random[nEvents];
+        Map<String, Integer> occurrences = new HashMap<String, Integer>();
+        for (int i = 0; i < nEvents; i++) {
+            String name = eventName(this.eventList.get(i));
+            int occurrence = occurrences.getOrDefault(name, 0);
+            occurrences.put(name, occurrence + 1);
+            if (occurrence > 0) {
+                name += "#" + occurrence;
+            }
+            boolean isArrival = this.eventList.get(i).node instanceof Source;
+            this.clockStreams[i] = randomStreams.stream((isArrival ? "arrival:" : "service:") + name);
+            this.updateStreams[i] = randomStreams.stream("routing:" + name);
+        }
+    }
+
+    public RandomStreams getRandomStreams() {
+        return this.randomStreams;
+    }
+
+    protected static String eventName(Event event) {
+        // stable across models: event type, node name and class name
+        Node node = event.node;
+        String className = "";
+        if (event instanceof NodeEvent) {
+            node = ((NodeEvent) event).getNode();
+            int classIdx = ((NodeEvent) event).getClassIdx();
+            if ((node != null) && (classIdx >= 0)) {
+                className = node.getModel().getClasses().get(classIdx).getName();
+            }
+        }
+        return event.getClass().getSimpleName() + ":" + ((node != null) ? node.getName() : "") + ":" + className;
+    }
+
+    private Random updateRandom(int eventIdx, Random random) {
+        return (this.updateStreams != null) ? this.updateStreams[eventIdx] : random;
+    }
+
+    private void resolveImmediate(Event fired, StateMatrix stateMatrix, Timeline timeline, Random random) {
+        // move on the jobs fired left at eliminated immediate stations, see ImmediateClosure
+        if (this.immediateClosure == null) {
+            return;
+        }
+        int nFired = this.immediateClosure.resolve(fired, stateMatrix, random, timeline, this.updateStreams);
+        if (this.instrumentation != null) {
+            for (int i = 0; i < nFired; i++) {
+                this.instrumentation.countImmediate();
+            }
+        }
+    }
+
+    private boolean useKernel() {
+        // the kernel is indexed by the compiled order, it sits out while tau leaping has reordered the events
+        return (this.rateKernel != null) && (this.compiledOrder == null);
+    }
+
+    private void keepCompiledOrder() {
+        // called before tau leaping reorders eventList
+        if (this.compiledOrder == null) {
+            this.compiledOrder = new ArrayList<Event>(this.eventList);
+        }
+    }
+
+    private void restoreCompiledOrder() {
+        if (this.compiledOrder != null) {
+            this.eventList = this.compiledOrder;
+            this.compiledOrder = null;
+            this.fixedEventOrder = false;
+        }
+    }
+
+    private double eventRate(int eventIdx, StateMatrix stateMatrix) {
+        if (this.useKernel()) {
+            return this.rateKernel.getRate(eventIdx, stateMatrix);
+        }
+        return this.eventList.get(eventIdx).getRate(stateMatrix);
+    }
+
     public void configureTauLeap(TauLeapingType tauLeapingType) {
         this.tauLeapingType = tauLeapingType;
     }
 
     public void addEvent(Event event) {
+        this.restoreCompiledOrder();
         this.eventList.add(event);
+        this.rateKernel = null;
+        this.immediateClosure = null;
+        this.randomStreams = null;
+        this.clockStreams = null;
+        this.updateStreams = null;
+        this.rateTree = null;
+        this.firingTimes = null;
+        this.dependencies = null;
+    }
+
+    private void invalidateSelection() {
+        // a tau leap changed the state behind the rate tree and the firing time heap: rebuild them on the next exact
+        //   step, from the current state and time
+        this.rateTree = null;
+        this.firingTimes = null;
+        this.treeStateMatrix = null;
     }
 
     private void handleImmediate(StateMatrix stateMatrix, Timeline timeline, double t, Random random) {
@@ -79,6 +299,9 @@ public class EventStack {
         immediateCdf.normalize(totalImmediate);
 
         Event e = immediateCdf.generate();
+        if (this.instrumentation != null) {
+            this.instrumentation.countImmediate();
+        }
         e.stateUpdate(stateMatrix, random, timeline);
         if (timeline != null) {
             //timeline.record(t, e, stateMatrix);
@@ -168,11 +391,13 @@ public class EventStack {
         double tau = this.tauLeapingType.getTau();
         boolean foundEvent = false;
 
-        TauLeapingVarType varType = this.tauLeapingType.getVarType();
         TauLeapingOrderStrategy orderStrategy = this.tauLeapingType.getOrderStrategy();
         TauLeapingStateStrategy stateStrategy = this.tauLeapingType.getStateStrategy();
 
         // Handle any ordering issues
+        if (orderStrategy != TauLeapingOrderStrategy.InOrder) {
+            this.keepCompiledOrder();
+        }
         if (orderStrategy == TauLeapingOrderStrategy.RandomEventFixed) {
             if (!this.fixedEventOrder) {
                 Collections.shuffle(this.eventList, random);
@@ -202,6 +427,7 @@ public class EventStack {
             double eventRate = event.getRate(stateMatrix);
             if (eventRate == Double.POSITIVE_INFINITY) {
                 this.handleImmediate(stateMatrix, timeline, t, random);
+                this.invalidateSelection();
                 return t;
             } else if (Double.isNaN(eventRate)) {
                 continue;
@@ -209,32 +435,7 @@ public class EventStack {
 
             foundEvent = true;
 
-            int eCount = 0;
-
-            final int MAX_BINOMIAL_REPS = 1000;
-
-            TauLeapingVarType effectiveVarType = varType;
-
-            if (effectiveVarType == TauLeapingVarType.Binomial) {
-                int maxReps = event.getMaxRepetitions(stateMatrix);
-                if (maxReps > MAX_BINOMIAL_REPS) {
-                    effectiveVarType = TauLeapingVarType.Poisson;
-                }
-            }
-
-            if (effectiveVarType == TauLeapingVarType.Poisson) {
-                PoissonDistribution pDist = new PoissonDistribution(eventRate*tau);
-                eCount = pDist.getRealization(random);
-            } else if (effectiveVarType == TauLeapingVarType.Binomial) {
-                int maxJump = event.getMaxRepetitions(stateMatrix);
-                double prob = (eventRate*tau)/((double)maxJump);
-
-                prob = Math.min(prob, 1.0);
-                if (prob != 0) {
-                    BinomialDistribution bDist = new BinomialDistribution(prob, maxJump);
-                    eCount = bDist.getRealization(random);
-                }
-            }
+            int eCount = this.sampleRepetitions(event, stateMatrix, eventRate, tau, random);
 
             if (eCount == 0) {
                 continue;
@@ -244,6 +445,9 @@ public class EventStack {
         }
 
         if (!foundEvent) {
+            if (this.instrumentation != null) {
+                this.instrumentation.countNoEvent();
+            }
             System.out.println("No event found!");
             return t;
         }
@@ -293,6 +497,7 @@ public class EventStack {
         }
 
         timeline.recordCache();
+        this.invalidateSelection();
 
         return t;
     }
@@ -300,13 +505,13 @@ public class EventStack {
     public double tauLeapUpdateOnestep(StateMatrix stateMatrix, Timeline timeline, double t, Random random) {
         double tau = this.tauLeapingType.getTau();
         boolean foundEvent = false;
-        final int MAX_BINOMIAL_REPS = 1000;
-
-        TauLeapingVarType varType = this.tauLeapingType.getVarType();
         TauLeapingOrderStrategy orderStrategy = this.tauLeapingType.getOrderStrategy();
         TauLeapingStateStrategy stateStrategy = this.tauLeapingType.getStateStrategy();
 
         // apply ordering changes
+        if (orderStrategy != TauLeapingOrderStrategy.InOrder) {
+            this.keepCompiledOrder();
+        }
         if (orderStrategy == TauLeapingOrderStrategy.RandomEventFixed) {
             if (!this.fixedEventOrder) {
                 Collections.shuffle(this.eventList, random);
@@ -344,31 +549,13 @@ public class EventStack {
             double eventRate = event.getRate(stateMatrix);
             if (eventRate == Double.POSITIVE_INFINITY) {
                 this.handleImmediate(stateMatrix,timeline, t, random);
+                this.invalidateSelection();
                 return t;
             } else if (Double.isNaN(eventRate)) {
                 continue;
             }
 
-            int eCount = 0;
-
-            if (varType == TauLeapingVarType.Poisson) {
-                PoissonDistribution pDist = new PoissonDistribution(eventRate*tau);
-                eCount = pDist.getRealization(random);
-            } else if (varType == TauLeapingVarType.Binomial) {
-                int maxJump = event.getMaxRepetitions(stateMatrix);
-                if (maxJump > MAX_BINOMIAL_REPS) {
-                    PoissonDistribution pDist = new PoissonDistribution(eventRate*tau);
-                    eCount = pDist.getRealization(random);
-                } else {
-                    double prob = (eventRate * tau) / ((double) maxJump);
-
-                    prob = Math.min(prob, 1.0);
-                    if (prob != 0) {
-                        BinomialDistribution bDist = new BinomialDistribution(prob, maxJump);
-                        eCount = bDist.getRealization(random);
-                    }
-                }
-            }
+            int eCount = this.sampleRepetitions(event, stateMatrix, eventRate, tau, random);
 
             if (eCount == 0) {
                 continue;
@@ -426,24 +613,193 @@ public class EventStack {
         }*/
 
         timeline.recordCache();
+        this.invalidateSelection();
 
         return t;
     }
 
 
+    private int sampleRepetitions(Event event, StateMatrix stateMatrix, double eventRate, double tau, Random random) {
+        /*
+            Number of firings of event in a leap of length tau: Binomial(maxJump, rate*tau/maxJump) for events limited
+                to maxJump firings, Poisson(rate*tau) otherwise. Both samplers are O(1) and allocation free, so there
+                is no cap on the binomial size.
+         */
+        if (this.tauLeapingType.getVarType() == TauLeapingVarType.Binomial) {
+            int maxJump = event.getMaxRepetitions(stateMatrix);
+            if (maxJump != Integer.MAX_VALUE) {
+                double prob = Math.min((eventRate * tau) / ((double) maxJump), 1.0);
+                return DiscreteSampler.binomial(maxJump, prob, random);
+            }
+        }
+        return DiscreteSampler.poisson(eventRate*tau, random);
+    }
+
+    public double tauLeapUpdateAdaptive(StateMatrix stateMatrix, Timeline timeline, double t, Random random) {
+        /*
+            Adaptive tau leaping, after Cao, Gillespie and Petzold (2006).
+
+            An event that can fire at most x more times (its queue length) has its propensity change by about 1/x
+                per firing. The leap is the largest tau for which both the expected number of firings and its standard
+                deviation stay within max(epsilon*x, 1) for every such event, so tau grows while queues are long and
+                shrinks as they empty. Events with fewer than CRITICAL_REPETITIONS firings left are critical: at most
+                one of them fires per leap, chosen as in exact SSA, so leaps never drive a queue negative. When the
+                leap would cover fewer than EXACT_STEP_THRESHOLD events, one exact step is taken instead, so the
+                caller's time horizon, sample budget and timeout checks still apply to every event.
+
+            The state strategy is not used: since illegal leaps are rare here, their leftover firings are dropped as
+                with Cutoff, and still counted by the illegal tau leap metric.
+         */
+        int nEvents = this.eventList.size();
+        if ((this.leapRates == null) || (this.leapRates.length != nEvents)) {
+            this.leapRates = new double[nEvents];
+            this.isCritical = new boolean[nEvents];
+        }
+        double epsilon = this.tauLeapingType.getEpsilon();
+        double totalRate = 0;
+        double criticalRate = 0;
+        double tau = Double.POSITIVE_INFINITY;
+        boolean foundEvent = false;
+
+        for (int i = 0; i < nEvents; i++) {
+            Event event = this.eventList.get(i);
+            double eventRate = this.eventRate(i, stateMatrix);
+            this.leapRates[i] = 0;
+            this.isCritical[i] = false;
+            if (eventRate == Double.POSITIVE_INFINITY) {
+                this.handleImmediate(stateMatrix, timeline, t, random);
+                this.invalidateSelection();
+                return t;
+            } else if (Double.isNaN(eventRate)) {
+                continue;
+            }
+
+            foundEvent = true;
+            if (eventRate <= 0) {
+                continue;
+            }
+            this.leapRates[i] = eventRate;
+            totalRate += eventRate;
+
+            int maxReps = event.getMaxRepetitions(stateMatrix);
+            if (maxReps < CRITICAL_REPETITIONS) {
+                this.isCritical[i] = true;
+                criticalRate += eventRate;
+            } else if (maxReps != Integer.MAX_VALUE) {
+                // unit decrements: mean and variance of the change are both eventRate*tau, and bound >= 1, so the
+                //   bound on the mean is the binding one
+                double bound = Math.max(epsilon*maxReps, 1.0);
+                tau = Math.min(tau, bound/eventRate);
+            }
+        }
+
+        if (!foundEvent) {
+            if (this.instrumentation != null) {
+                this.instrumentation.countNoEvent();
+            }
+            return t;
+        }
+
+        double criticalTau = Double.POSITIVE_INFINITY;
+        if (criticalRate > 0) {
+            criticalTau = Math.log(1-random.nextDouble())/(-criticalRate);
+        }
+
+        // a critical firing cuts the leap short, so the leap that is tested is the shorter of the two
+        double leapTau = Math.min(tau, criticalTau);
+        if ((totalRate == 0) || (leapTau*totalRate < EXACT_STEP_THRESHOLD) || Double.isInfinite(leapTau)) {
+            return this.updateState(stateMatrix, timeline, t, random);
+        }
+
+        int criticalEvent = -1;
+        if (criticalTau < tau) {
+            tau = criticalTau;
+            double target = random.nextDouble()*criticalRate;
+            for (int i = 0; i < nEvents; i++) {
+                if (this.isCritical[i]) {
+                    criticalEvent = i;
+                    target -= this.leapRates[i];
+                    if (target < 0) {
+                        break;
+                    }
+                }
+            }
+        }
+
+        t += tau;
+        this.curT = t;
+        timeline.setNextTime(this.curT);
+
+        for (int i = 0; i < nEvents; i++) {
+            int eCount;
+            if (this.isCritical[i]) {
+                eCount = (i == criticalEvent) ? 1 : 0;
+            } else if (this.leapRates[i] > 0) {
+                eCount = this.sampleRepetitions(this.eventList.get(i), stateMatrix, this.leapRates[i], tau, random);
+            } else {
+                continue;
+            }
+            if (eCount == 0) {
+                continue;
+            }
+
+            int rem = Math.max(this.eventList.get(i).stateUpdateN(eCount, stateMatrix, random, timeline), 0);
+            if ((eCount-rem) == 0) {
+                continue;
+            } else if (rem != 0) {
+                this.illegalTauLeapPercentage.addIllegal();
+            } else {
+                this.illegalTauLeapPercentage.addSuccessful();
+            }
+        }
+
+        timeline.recordCache();
+        this.invalidateSelection();
+
+        return t;
+    }
+
     public double tauLeapUpdate(StateMatrix stateMatrix, Timeline timeline, double t, Random random) {
         // Wrapper function for a cleaner API
-        if (tauLeapingType.getStateStrategy() == TauLeapingStateStrategy.TwoTimes) {
+        if (tauLeapingType.isAdaptive()) {
+            return tauLeapUpdateAdaptive(stateMatrix, timeline, t, random);
+        } else if (tauLeapingType.getStateStrategy() == TauLeapingStateStrategy.TwoTimes) {
             return tauLeapUpdateMultistep(stateMatrix, timeline, t, random);
         } else {
             return tauLeapUpdateOnestep(stateMatrix, timeline, t, random);
         }
     }
 
+    public double getTotalRate(StateMatrix stateMatrix) {
+        // total rate of the enabled events in stateMatrix, POSITIVE_INFINITY if an immediate event is pending
+        double totalRate = 0;
+        for (Event event : this.eventList) {
+            double eventRate = event.getRate(stateMatrix);
+            if (Double.isNaN(eventRate)) {
+                continue;
+            }
+            totalRate += eventRate;
+        }
+        return totalRate;
+    }
+
     public double updateState(StateMatrix stateMatrix, Timeline timeline, double t, Random random) {
         /*
             This uses the generic Gillespie algorithm to determine and fire the next event
          */
+        // exact steps of a tau leaping run that reordered the events select linearly, from the event objects
+        boolean inCompiledOrder = this.compiledOrder == null;
+        if (inCompiledOrder && (this.selectionStrategy == EventSelectionStrategy.RateTree)) {
+            return this.updateStateRateTree(stateMatrix, timeline, t, random);
+        } else if (inCompiledOrder && (this.selectionStrategy == EventSelectionStrategy.NextReaction)) {
+            return this.updateStateNextReaction(stateMatrix, timeline, t, random);
+        } else if (this.useKernel()) {
+            return this.updateStateKernel(stateMatrix, timeline, t, random);
+        }
+
+        boolean timing = (this.instrumentation != null) && this.instrumentation.isTiming();
+        long startTime = timing ? System.nanoTime() : 0;
+
         Cdf<Event> eventCdf = new Cdf<Event>(random);
         double totalRate = 0;
 
@@ -465,8 +821,14 @@ public class EventStack {
         }
 
         eventCdf.normalize(totalRate);
+        if (timing) {
+            this.instrumentation.addRateNanos(System.nanoTime() - startTime);
+        }
 
         if (!foundEvent) {
+            if (this.instrumentation != null) {
+                this.instrumentation.countNoEvent();
+            }
             System.out.println("No event found!");
             return t;
         }
@@ -477,73 +839,410 @@ public class EventStack {
         timeline.setTime(this.curT);
 
         Event chosenEvent = eventCdf.generate();
-        chosenEvent.stateUpdate(stateMatrix, random, timeline);
+        if (timing) {
+            startTime = System.nanoTime();
+            chosenEvent.stateUpdate(stateMatrix, random, timeline);
+            this.resolveImmediate(chosenEvent, stateMatrix, timeline, random);
+            this.instrumentation.addUpdateNanos(System.nanoTime() - startTime);
+        } else {
+            chosenEvent.stateUpdate(stateMatrix, random, timeline);
+            this.resolveImmediate(chosenEvent, stateMatrix, timeline, random);
+        }
 
         return t;
     }
 
-    public double updateStateSpace(Timeline timeline, double t, Random random, ArrayList<StateMatrix> stateSpace, Queue<StateMatrix> queue) {
-        while (!queue.isEmpty()){
+    private double updateStateKernel(StateMatrix stateMatrix, Timeline timeline, double t, Random random) {
+        /*
+            updateState() on the compiled rates: one pass fills a flat rate array, a second one picks the event.
+                The selection draws the same uniform and walks the same normalized cumulative rates as the Cdf, so
+                both paths follow the same trajectory.
+         */
+        boolean timing = (this.instrumentation != null) && this.instrumentation.isTiming();
+        long startTime = timing ? System.nanoTime() : 0;
 
-            StateMatrix stateMatrix1 = new StateMatrix(queue.remove());
+        int nEvents = this.rateKernel.size();
+        if ((this.kernelRates == null) || (this.kernelRates.length != nEvents)) {
+            this.kernelRates = new double[nEvents];
+        }
+        double[] rates = this.kernelRates;
+        this.rateKernel.getRates(stateMatrix, rates);
 
-            Cdf<Event> eventCdf = new Cdf<Event>(random);
-            double totalRate = 0;
+        double totalRate = 0;
+        boolean foundEvent = false;
+        for (int i = 0; i < nEvents; i++) {
+            double eventRate = rates[i];
+            if (eventRate == Double.POSITIVE_INFINITY) {
+                this.handleImmediate(stateMatrix, timeline, t, random);
+                return t;
+            } else if (Double.isNaN(eventRate)) {
+                continue;
+            }
+            foundEvent = true;
+            totalRate += eventRate;
+        }
+        if (timing) {
+            this.instrumentation.addRateNanos(System.nanoTime() - startTime);
+        }
 
-            boolean foundEvent = false;
+        if (!foundEvent) {
+            if (this.instrumentation != null) {
+                this.instrumentation.countNoEvent();
+            }
+            return t;
+        }
 
-            for (Event event : this.eventList) {
-                double eventRate = event.getRate(stateMatrix1);
-                if (eventRate == Double.POSITIVE_INFINITY) {
-                    this.handleImmediate(stateMatrix1, timeline, t, random);
-                    return t;
-                } else if (Double.isNaN(eventRate)) {
-                    continue;
-                }
+        double timeDelta = Math.log(1-random.nextDouble())/(-totalRate);
+        t += timeDelta;
+        this.curT = t;
+        timeline.setTime(this.curT);
 
-                foundEvent = true;
+        double serialProb = random.nextDouble();
+        double cumProb = 0;
+        int chosenIdx = -1;
+        for (int i = 0; i < nEvents; i++) {
+            if (Double.isNaN(rates[i])) {
+                continue;
+            }
+            chosenIdx = i;
+            cumProb += rates[i]/totalRate;
+            if (cumProb >= serialProb) {
+                break;
+            }
+        }
 
-                totalRate += eventRate;
+        Event chosenEvent = this.eventList.get(chosenIdx);
+        if (timing) {
+            startTime = System.nanoTime();
+            chosenEvent.stateUpdate(stateMatrix, random, timeline);
+            this.resolveImmediate(chosenEvent, stateMatrix, timeline, random);
+            this.instrumentation.addUpdateNanos(System.nanoTime() - startTime);
+        } else {
+            chosenEvent.stateUpdate(stateMatrix, random, timeline);
+            this.resolveImmediate(chosenEvent, stateMatrix, timeline, random);
+        }
 
-                eventCdf.addElement(event, eventRate);
+        return t;
+    }
+
+    private void buildRateTree(StateMatrix stateMatrix) {
+        /*
+            Index the events by the stateful node their rate depends on, and evaluate every rate once.
+         */
+        int nEvents = this.eventList.size();
+        this.rateTree = new RateSumTree(nEvents);
+        this.isImmediate = new boolean[nEvents];
+        this.nImmediate = 0;
+
+        int nStateful = 0;
+        int[] eventStation = new int[nEvents];
+        for (int i = 0; i < nEvents; i++) {
+            Event event = this.eventList.get(i);
+            eventStation[i] = -1;
+            if ((event instanceof NodeEvent) && ((NodeEvent) event).isStateful()) {
+                eventStation[i] = ((NodeEvent) event).getNodeStatefulIdx();
+                nStateful = Math.max(nStateful, eventStation[i]+1);
             }
+        }
 
-            eventCdf.normalize(totalRate);
+        int[] stationCounts = new int[nStateful];
+        int nUnbound = 0;
+        for (int i = 0; i < nEvents; i++) {
+            if (eventStation[i] == -1) {
+                nUnbound++;
+            } else {
+                stationCounts[eventStation[i]]++;
+            }
+        }
 
-            if (!foundEvent) {
-//            System.out.println("No event found!");
-                return t;
+        this.stationEvents = new int[nStateful][];
+        for (int i = 0; i < nStateful; i++) {
+            this.stationEvents[i] = new int[stationCounts[i]];
+            stationCounts[i] = 0;
+        }
+        this.unboundEvents = new int[nUnbound];
+        nUnbound = 0;
+        for (int i = 0; i < nEvents; i++) {
+            int station = eventStation[i];
+            if (station == -1) {
+                this.unboundEvents[nUnbound++] = i;
+            } else {
+                this.stationEvents[station][stationCounts[station]++] = i;
             }
+        }
 
-            double timeDelta = Math.log(1 - random.nextDouble()) / (-totalRate);
-            t += timeDelta;
-            this.curT = t;
-            timeline.setTime(this.curT);
+        for (int i = 0; i < nEvents; i++) {
+            this.refreshRate(i, stateMatrix);
+        }
+        stateMatrix.clearTouched();
+        this.treeStateMatrix = stateMatrix;
+    }
 
+    private void refreshRate(int eventIdx, StateMatrix stateMatrix) {
+        double eventRate = this.eventRate(eventIdx, stateMatrix);
+        boolean immediate = eventRate == Double.POSITIVE_INFINITY;
 
-            ArrayList<Event> eventArrayList = eventCdf.getPossibleEvents();
-//            System.out.println(eventArrayList.size());
-            for (Event event : eventArrayList) {
-//                System.out.println(event);
-                StateMatrix newMatrix = event.getNextState(stateMatrix1, timeline, stateSpace,queue);
-//                JLineMatrix jLineMatrix1 = new JLineMatrix(stateMatrix1.state.length, stateMatrix1.state[0].length);
-//                jLineMatrix1.array2DtoJLineMatrix(newMatrix.state).print();
-//                if (newMatrix != null && !newMatrix.checkIfVisited(stateSpace)) {
-//                    JLineMatrix jLineMatrix = new JLineMatrix(stateMatrix1.state.length, stateMatrix1.state[0].length);
-//                    stateSpace.add(newMatrix);
-//                    queue.add(newMatrix);
-//                    jLineMatrix.array2DtoJLineMatrix(newMatrix.state).print();
-//                    stateMatrix1.printStateVector();
-//                    newMatrix.printStateVector();
-//                }
+        if (immediate != this.isImmediate[eventIdx]) {
+            this.isImmediate[eventIdx] = immediate;
+            this.nImmediate += immediate ? 1 : -1;
+        }
+
+        if (immediate || Double.isNaN(eventRate)) {
+            eventRate = 0;
+        }
+        this.rateTree.update(eventIdx, eventRate);
+    }
+
+    private void refreshTouchedRates(StateMatrix stateMatrix) {
+        /*
+            Re-evaluate only the events at stations changed since the previous step (plus events without a station).
+         */
+        if ((this.rateTree == null) || (this.treeStateMatrix != stateMatrix)) {
+            this.buildRateTree(stateMatrix);
+            return;
+        }
+
+        int nTouched = stateMatrix.getNTouched();
+        for (int i = 0; i < nTouched; i++) {
+            int station = stateMatrix.getTouched(i);
+            if (station >= this.stationEvents.length) {
+                continue;
+            }
+            for (int eventIdx : this.stationEvents[station]) {
+                this.refreshRate(eventIdx, stateMatrix);
             }
         }
+        for (int eventIdx : this.unboundEvents) {
+            this.refreshRate(eventIdx, stateMatrix);
+        }
+        stateMatrix.clearTouched();
+    }
+
+    public double updateStateRateTree(StateMatrix stateMatrix, Timeline timeline, double t, Random random) {
+        /*
+            Gillespie direct method, with the event rates kept in a RateSumTree. Only events at stations touched by
+                the previous firing are re-evaluated, and the next event is drawn in O(log n).
+         */
+        boolean timing = (this.instrumentation != null) && this.instrumentation.isTiming();
+        long startTime = timing ? System.nanoTime() : 0;
+        this.refreshTouchedRates(stateMatrix);
+        if (timing) {
+            this.instrumentation.addRateNanos(System.nanoTime() - startTime);
+        }
+
+        if (this.nImmediate > 0) {
+            this.handleImmediate(stateMatrix, timeline, t, random);
+            return t;
+        }
+
+        double totalRate = this.rateTree.getTotal();
+        if (totalRate <= 0) {
+            if (this.instrumentation != null) {
+                this.instrumentation.countNoEvent();
+            }
+            return t;
+        }
+
+        double timeDelta = Math.log(1-random.nextDouble())/(-totalRate);
+        t += timeDelta;
+        this.curT = t;
+        timeline.setTime(this.curT);
+
+        Event chosenEvent = this.eventList.get(this.rateTree.sample(random.nextDouble()));
+        if (timing) {
+            startTime = System.nanoTime();
+            chosenEvent.stateUpdate(stateMatrix, random, timeline);
+            this.resolveImmediate(chosenEvent, stateMatrix, timeline, random);
+            this.instrumentation.addUpdateNanos(System.nanoTime() - startTime);
+        } else {
+            chosenEvent.stateUpdate(stateMatrix, random, timeline);
+            this.resolveImmediate(chosenEvent, stateMatrix, timeline, random);
+        }
+
+        return t;
+    }
+
+    private void buildFiringTimes(StateMatrix stateMatrix, double t, Random random) {
+        int nEvents = this.eventList.size();
+        if (this.dependencies == null) {
+            // no dependency graph was compiled for this stack, so every event depends on every other
+            int[] allEvents = new int[nEvents];
+            for (int i = 0; i < nEvents; i++) {
+                allEvents[i] = i;
+            }
+            this.dependencies = new int[nEvents][];
+            for (int i = 0; i < nEvents; i++) {
+                this.dependencies[i] = allEvents;
+            }
+        }
+
+        this.firingTimes = new IndexedMinHeap(nEvents);
+        this.nrmRates = new double[nEvents];
+        this.isImmediate = new boolean[nEvents];
+        this.nImmediate = 0;
+
+        for (int i = 0; i < nEvents; i++) {
+            this.redrawFiringTime(i, stateMatrix, t, random);
+        }
+        this.treeStateMatrix = stateMatrix;
+    }
+
+    private double nrmRate(int eventIdx, StateMatrix stateMatrix) {
+        double eventRate = this.eventRate(eventIdx, stateMatrix);
+        boolean immediate = eventRate == Double.POSITIVE_INFINITY;
+
+        if (immediate != this.isImmediate[eventIdx]) {
+            this.isImmediate[eventIdx] = immediate;
+            this.nImmediate += immediate ? 1 : -1;
+        }
+
+        if (immediate || Double.isNaN(eventRate) || (eventRate < 0)) {
+            return 0;
+        }
+        return eventRate;
+    }
+
+    private void redrawFiringTime(int eventIdx, StateMatrix stateMatrix, double t, Random random) {
+        double eventRate = this.nrmRate(eventIdx, stateMatrix);
+        this.nrmRates[eventIdx] = eventRate;
+        if (eventRate == 0) {
+            this.firingTimes.update(eventIdx, Double.POSITIVE_INFINITY);
+        } else {
+            Random clock = (this.clockStreams != null) ? this.clockStreams[eventIdx] : random;
+            this.firingTimes.update(eventIdx, t + Math.log(1-clock.nextDouble())/(-eventRate));
+        }
+    }
+
+    private void rescaleFiringTime(int eventIdx, StateMatrix stateMatrix, double t, Random random) {
+        /*
+            Gibson-Bruck update: reuse the remaining time to fire, scaled by old rate/new rate.
+         */
+        double oldRate = this.nrmRates[eventIdx];
+        double newRate = this.nrmRate(eventIdx, stateMatrix);
+        if (newRate == oldRate) {
+            return;
+        } else if ((oldRate == 0) || (newRate == 0)) {
+            this.redrawFiringTime(eventIdx, stateMatrix, t, random);
+            return;
+        }
+
+        double remaining = this.firingTimes.getKey(eventIdx) - t;
+        this.nrmRates[eventIdx] = newRate;
+        this.firingTimes.update(eventIdx, t + remaining*(oldRate/newRate));
+    }
+
+    private void updateDependents(int firedIdx, StateMatrix stateMatrix, double t, Random random) {
+        for (int eventIdx : this.dependencies[firedIdx]) {
+            if (eventIdx == firedIdx) {
+                continue;
+            }
+            this.rescaleFiringTime(eventIdx, stateMatrix, t, random);
+        }
+        this.redrawFiringTime(firedIdx, stateMatrix, t, random);
+    }
+
+    private void fireImmediateNextReaction(StateMatrix stateMatrix, Timeline timeline, double t, Random random) {
+        /*
+            Fire one of the immediate events, uniformly, as handleImmediate does.
+         */
+        int selected = random.nextInt(this.nImmediate);
+        int firedIdx = -1;
+        for (int i = 0; i < this.isImmediate.length; i++) {
+            if (this.isImmediate[i]) {
+                if (selected == 0) {
+                    firedIdx = i;
+                    break;
+                }
+                selected--;
+            }
+        }
+
+        if (this.instrumentation != null) {
+            this.instrumentation.countImmediate();
+        }
+        this.eventList.get(firedIdx).stateUpdate(stateMatrix, this.updateRandom(firedIdx, random), timeline);
+        this.resolveImmediate(this.eventList.get(firedIdx), stateMatrix, timeline, random);
+        this.updateDependents(firedIdx, stateMatrix, t, random);
+    }
+
+    public double updateStateNextReaction(StateMatrix stateMatrix, Timeline timeline, double t, Random random) {
+        /*
+            Next reaction method (Gibson & Bruck, 2000). Each event keeps a putative absolute firing time in an
+                indexed heap; after a firing only the events in the fired event's dependency set are updated.
+         */
+        if ((this.firingTimes == null) || (this.treeStateMatrix != stateMatrix)) {
+            this.buildFiringTimes(stateMatrix, t, random);
+        }
+
+        if (this.nImmediate > 0) {
+            this.fireImmediateNextReaction(stateMatrix, timeline, t, random);
+            return t;
+        }
+
+        int firedIdx = this.firingTimes.peek();
+        double nextT = this.firingTimes.peekKey();
+        if ((firedIdx == -1) || (nextT == Double.POSITIVE_INFINITY)) {
+            if (this.instrumentation != null) {
+                this.instrumentation.countNoEvent();
+            }
+            return t;
+        }
+
+        t = nextT;
+        this.curT = t;
+        timeline.setTime(this.curT);
+
+        if ((this.instrumentation == null) || !this.instrumentation.isTiming()) {
+            this.eventList.get(firedIdx).stateUpdate(stateMatrix, this.updateRandom(firedIdx, random), timeline);
+            this.resolveImmediate(this.eventList.get(firedIdx), stateMatrix, timeline, random);
+            this.updateDependents(firedIdx, stateMatrix, t, random);
+            return t;
+        }
+
+        // the rates of the dependents are refreshed after the firing
+        long startTime = System.nanoTime();
+        this.eventList.get(firedIdx).stateUpdate(stateMatrix, this.updateRandom(firedIdx, random), timeline);
+        this.resolveImmediate(this.eventList.get(firedIdx), stateMatrix, timeline, random);
+        long updatedTime = System.nanoTime();
+        this.updateDependents(firedIdx, stateMatrix, t, random);
+        this.instrumentation.addUpdateNanos(updatedTime - startTime);
+        this.instrumentation.addRateNanos(System.nanoTime() - updatedTime);
 
         return t;
+    }
+
+    public int exploreStateSpace(Timeline timeline, StateSpace stateSpace, double timeout) {
+        /*
+            Breadth-first generation of the reachable states. stateSpace holds the initial state(s); every state
+                found is appended to it (departure events do so through StateSpace.visit()), so it doubles as the
+                frontier: states before `explored` are expanded, the rest are still to be visited.
 
+            Returns the number of states expanded, which is less than stateSpace.size() only on timeout (seconds).
+         */
+        Queue<StateMatrix> discarded = new ArrayDeque<StateMatrix>();
+        double startTime = System.currentTimeMillis();
+        int explored = 0;
+        while (explored < stateSpace.size()) {
+            StateMatrix stateMatrix = stateSpace.get(explored);
+            for (Event event : this.eventList) {
+                double eventRate = event.getRate(stateMatrix);
+                if (Double.isNaN(eventRate) || (eventRate == 0)) {
+                    continue;
+                }
+                stateSpace.setSource(explored, event, eventRate);
+                event.getNextState(stateMatrix, timeline, stateSpace, discarded);
+                discarded.clear();
+            }
+            explored++;
+
+            if ((explored % 1024 == 0) && ((System.currentTimeMillis() - startTime)/1000.0 >= timeout)) {
+                break;
+            }
+        }
+        return explored;
     }
 
-    public double updateEventSpace(Timeline timeline, double t, Random random, ArrayList<Quartet<Event,Pair<OutputEvent,Double>,StateMatrix,StateMatrix>> eventSpace, Queue<StateMatrix> queue) {
+    public double updateStateSpace(Timeline timeline, double t, Random random, StateSpace stateSpace, Queue<StateMatrix> queue) {
         while (!queue.isEmpty()){
 
             StateMatrix stateMatrix1 = new StateMatrix(queue.remove());
@@ -558,7 +1257,7 @@ public class EventStack {
                 if (eventRate == Double.POSITIVE_INFINITY) {
                     this.handleImmediate(stateMatrix1, timeline, t, random);
                     return t;
-                } else if (Double.isNaN(eventRate) || eventRate==0) {
+                } else if (Double.isNaN(eventRate)) {
                     continue;
                 }
 
@@ -583,14 +1282,19 @@ public class EventStack {
 
 
             ArrayList<Event> eventArrayList = eventCdf.getPossibleEvents();
+//            System.out.println(eventArrayList.size());
             for (Event event : eventArrayList) {
-                StateMatrix copyOfOld = new StateMatrix(stateMatrix1);
-                StateMatrix newMatrix = event.getNextEventState(stateMatrix1, timeline, eventSpace,event,queue,stateMatrix1);
-//                if (newMatrix != null && !newMatrix.checkIfVisited(eventSpace,stateMatrix1,event)) {
+//                System.out.println(event);
+                StateMatrix newMatrix = event.getNextState(stateMatrix1, timeline, stateSpace,queue);
+//                JLineMatrix jLineMatrix1 = new JLineMatrix(stateMatrix1.state.length, stateMatrix1.state[0].length);
+//                jLineMatrix1.array2DtoJLineMatrix(newMatrix.state).print();
+//                if (newMatrix != null && !newMatrix.checkIfVisited(stateSpace)) {
 //                    JLineMatrix jLineMatrix = new JLineMatrix(stateMatrix1.state.length, stateMatrix1.state[0].length);
-//                    eventSpace.add(Triplet.with(event,stateMatrix1,newMatrix));
+//                    stateSpace.add(newMatrix);
 //                    queue.add(newMatrix);
 //                    jLineMatrix.array2DtoJLineMatrix(newMatrix.state).print();
+//                    stateMatrix1.printStateVector();
+//                    newMatrix.printStateVector();
 //                }
             }
         }
@@ -11,6 +11,7 @@ import jline.lang.nodes.Source;
 import jline.lang.nodes.StatefulNode;
 import jline.solvers.ssa.Timeline;
 import jline.solvers.ssa.state.StateMatrix;
+import jline.solvers.ssa.state.StateSpace;
 import jline.util.Pair;
 import org.javatuples.Quartet;
 import org.javatuples.Triplet;
@@ -116,7 +117,7 @@ public class ExpActiveEvent  extends PhaseEvent implements NodeEvent {
     }
 
     @Override
-    public boolean updateStateSpace(StateMatrix stateMatrix, Random random, Timeline timeline, ArrayList<StateMatrix> stateSpace, Queue<StateMatrix> queue) {
+    public boolean updateStateSpace(StateMatrix stateMatrix, Random random, Timeline timeline, StateSpace stateSpace, Queue<StateMatrix> queue) {
         if (this.node instanceof StatefulNode) {
             if (this.node instanceof Source) {
                 if (stateMatrix.incrementPhase(this.statefulIndex, this.classIndex)) {
@@ -141,32 +142,6 @@ public class ExpActiveEvent  extends PhaseEvent implements NodeEvent {
         return true;
     }
 
-    @Override
-    public boolean updateEventSpace(StateMatrix stateMatrix, Random random, Timeline timeline, ArrayList<Quartet<Event, Pair<OutputEvent,Double>,StateMatrix,StateMatrix>> eventSpace, Event event, Queue<StateMatrix> queue, StateMatrix copy) {
-        if (this.node instanceof StatefulNode) {
-            if (this.node instanceof Source) {
-                if (stateMatrix.incrementPhase(this.statefulIndex, this.classIndex)) {
-                    this.departureEvent.getNextEventState(stateMatrix,timeline, eventSpace,event, queue,copy);
-                    timeline.record(this, stateMatrix);
-                }
-
-                return true;
-            } else if (stateMatrix.getState(this.statefulIndex, this.classIndex) == 0) {
-                return true;
-            }
-        }
-
-        if (stateMatrix.incrementPhase(this.statefulIndex, this.classIndex)) {
-            this.departureEvent.getNextEventState(stateMatrix,timeline, eventSpace,event, queue,copy);
-            timeline.record(this, stateMatrix);
-            return true;
-        }
-
-        timeline.record(this, stateMatrix);
-//        System.out.println("hello");
-        return true;
-    }
-
         @Override
     public int stateUpdateN(int n, StateMatrix stateMatrix, Random random, Timeline timeline) {
         if (this.node instanceof StatefulNode) {
@@ -202,7 +177,7 @@ public class ExpActiveEvent  extends PhaseEvent implements NodeEvent {
     }
 
     @Override
-    public StateMatrix getNextState(StateMatrix startingState, Timeline timeline, ArrayList<StateMatrix> stateSpace, Queue<StateMatrix> queue) {
+    public StateMatrix getNextState(StateMatrix startingState, Timeline timeline, StateSpace stateSpace, Queue<StateMatrix> queue) {
 
         StateMatrix endingState = new StateMatrix(startingState);
 
@@ -214,14 +189,4 @@ public class ExpActiveEvent  extends PhaseEvent implements NodeEvent {
 
     }
 
-    public StateMatrix getNextEventState(StateMatrix startingState, Timeline timeline, ArrayList<Quartet<Event,Pair<OutputEvent,Double>,StateMatrix,StateMatrix>> eventSpace,Event event, Queue<StateMatrix> queue,StateMatrix copy) {
-
-        StateMatrix endingState = new StateMatrix(startingState);
-
-        if(updateEventSpace(endingState, new Random(), timeline, eventSpace,event,queue,copy)){
-            return endingState;
-        }
-
-        return null;
-    }
 }
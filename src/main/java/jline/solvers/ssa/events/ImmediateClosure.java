@@ -0,0 +1,394 @@
+package jline.solvers.ssa.events;
+
+import jline.lang.JobClass;
+import jline.lang.Network;
+import jline.lang.OutputStrategy;
+import jline.lang.distributions.Immediate;
+import jline.lang.nodes.ClassSwitch;
+import jline.lang.nodes.Fork;
+import jline.lang.nodes.Node;
+import jline.lang.nodes.Router;
+import jline.lang.nodes.Sink;
+import jline.lang.nodes.StatefulNode;
+import jline.lang.sections.Forker;
+import jline.solvers.ssa.SSAStruct;
+import jline.solvers.ssa.Timeline;
+import jline.solvers.ssa.state.StateMatrix;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+public class ImmediateClosure {
+    /*
+        ImmediateClosure -
+            Vanishing state elimination. A job that enters a router, or a delay with immediate service, leaves it
+            again at once, so every state with a job there is vanishing. Class switches and other stateless nodes
+            are already walked through within a firing, which leaves these stations as the only places a timed
+            firing can park a job for an immediate step (and a scan of every rate) of its own.
+
+            The closure is the chain of immediate transitions between these station/class pairs, built once from
+            the compiled routing. A pair whose jobs are sure to reach a timed station or leave the network is
+            eliminated: every pair it can lead to routes all of its jobs on (no path through a fork is dropped),
+            and from each of them some path leaves the chain. EventStack.resolveImmediate() moves the jobs of
+            eliminated pairs on, hop by hop, within the timed step that brought them. Each hop still fires its
+            departure event, so the metrics of the immediate stations and of the class switches on the way are
+            recorded exactly as before.
+
+            Each event is compiled to the eliminated pairs it can send jobs to, through stateless nodes and other
+            eliminated stations, so a firing that feeds none of them costs a single lookup.
+
+            Pairs on an immediate cycle that jobs may never leave, or on a path through a fork, are not eliminated
+            and keep the step-by-step treatment of EventStack.handleImmediate().
+     */
+    protected static final double ROUTING_TOLERANCE = 1e-9;
+    protected static final int MAX_DEPTH = 256; // stateless nodes walked through in one hop
+
+    protected Network network;
+    protected int nStateful;
+    protected int nClasses;
+    protected int[][] candidates; // [station][class] -> immediate pair index, -1 if timed
+
+    // eliminated pairs, in the order they are resolved
+    protected int nEliminated;
+    protected int[] stations;
+    protected int[] classes;
+    protected Event[] events;
+    protected int[] eventIndices; // position of events[k] in the event list
+    protected boolean[] eliminatedStations; // [station]
+    protected Map<Event, int[]> targets; // fired event -> eliminated pairs it can feed, ascending
+
+    protected ImmediateClosure(Network network, SSAStruct simStruct) {
+        this.network = network;
+        this.nStateful = simStruct.nStateful;
+        this.nClasses = simStruct.nClasses;
+        this.candidates = new int[this.nStateful][this.nClasses];
+        for (int i = 0; i < this.nStateful; i++) {
+            for (int j = 0; j < this.nClasses; j++) {
+                this.candidates[i][j] = -1;
+            }
+        }
+        this.eliminatedStations = new boolean[this.nStateful];
+    }
+
+    public static ImmediateClosure compile(Network network, List<Event> eventList, SSAStruct simStruct) {
+        // null if no station/class pair can be eliminated
+        ImmediateClosure closure = new ImmediateClosure(network, simStruct);
+
+        List<DepartureEvent> immediateEvents = new ArrayList<DepartureEvent>();
+        for (Event event : eventList) {
+            if (!(event instanceof DepartureEvent)) {
+                continue;
+            }
+            DepartureEvent departureEvent = (DepartureEvent) event;
+            if (!departureEvent.isStateful() || !(departureEvent.serviceProcess instanceof Immediate)) {
+                continue;
+            }
+            int i = departureEvent.getNodeStatefulIdx();
+            int j = departureEvent.getClassIdx();
+            if (!((departureEvent.getNode() instanceof Router) || simStruct.isDelay[i]) ||
+                    (simStruct.capacities[i][j] == 0) || (closure.candidates[i][j] != -1)) {
+                continue;
+            }
+            closure.candidates[i][j] = immediateEvents.size();
+            immediateEvents.add(departureEvent);
+        }
+        if (immediateEvents.isEmpty()) {
+            return null;
+        }
+
+        closure.solve(immediateEvents);
+        if (closure.nEliminated == 0) {
+            return null;
+        }
+        closure.eventIndices = new int[closure.nEliminated];
+        for (int k = 0; k < closure.nEliminated; k++) {
+            closure.eventIndices[k] = eventList.indexOf(closure.events[k]);
+        }
+        closure.compileTargets(eventList);
+        return closure;
+    }
+
+    protected void solve(List<DepartureEvent> immediateEvents) {
+        /*
+            One hop from each immediate pair reaches timed pairs or the network exit (leaving the chain), other
+                immediate pairs (via), or nothing, for the probability lost on forks. Jobs of a pair leave the
+                chain with probability 1 iff no pair reachable from it loses probability and each of those pairs
+                has a path out.
+         */
+        int nPairs = immediateEvents.size();
+        List<List<Integer>> successors = new ArrayList<List<Integer>>(nPairs);
+        List<List<Integer>> predecessors = new ArrayList<List<Integer>>(nPairs);
+        for (int c = 0; c < nPairs; c++) {
+            successors.add(new ArrayList<Integer>());
+            predecessors.add(new ArrayList<Integer>());
+        }
+        boolean[] lossy = new boolean[nPairs];
+        boolean[] canLeave = new boolean[nPairs];
+        Deque<Integer> toVisit = new ArrayDeque<Integer>();
+        for (int c = 0; c < nPairs; c++) {
+            DepartureEvent event = immediateEvents.get(c);
+            double[] via = new double[nPairs];
+            double[] leaving = new double[1];
+            this.expandOutputs(event.getNode(), event.getJobClass(), 1.0, 0, via, leaving);
+            double total = leaving[0];
+            for (int d = 0; d < nPairs; d++) {
+                if (via[d] > 0) {
+                    successors.get(c).add(d);
+                    predecessors.get(d).add(c);
+                    total += via[d];
+                }
+            }
+            lossy[c] = total < 1 - ROUTING_TOLERANCE;
+            if (leaving[0] > 0) {
+                canLeave[c] = true;
+                toVisit.add(c);
+            }
+        }
+
+        // pairs with a path out of the chain
+        while (!toVisit.isEmpty()) {
+            for (int c : predecessors.get(toVisit.remove())) {
+                if (!canLeave[c]) {
+                    canLeave[c] = true;
+                    toVisit.add(c);
+                }
+            }
+        }
+
+        List<Integer> eliminated = new ArrayList<Integer>();
+        for (int c = 0; c < nPairs; c++) {
+            boolean[] reached = new boolean[nPairs];
+            reached[c] = true;
+            toVisit.add(c);
+            boolean leaves = true;
+            while (!toVisit.isEmpty() && leaves) {
+                int d = toVisit.remove();
+                leaves = !lossy[d] && canLeave[d];
+                for (int e : successors.get(d)) {
+                    if (!reached[e]) {
+                        reached[e] = true;
+                        toVisit.add(e);
+                    }
+                }
+            }
+            toVisit.clear();
+            if (leaves) {
+                eliminated.add(c);
+            }
+        }
+
+        this.nEliminated = eliminated.size();
+        this.stations = new int[this.nEliminated];
+        this.classes = new int[this.nEliminated];
+        this.events = new Event[this.nEliminated];
+        for (int k = 0; k < this.nEliminated; k++) {
+            DepartureEvent event = immediateEvents.get(eliminated.get(k));
+            this.stations[k] = event.getNodeStatefulIdx();
+            this.classes[k] = event.getClassIdx();
+            this.events[k] = event;
+            this.eliminatedStations[this.stations[k]] = true;
+        }
+    }
+
+    protected void compileTargets(List<Event> eventList) {
+        // the eliminated stations downstream of each event's node, up to the first timed station on every path
+        this.targets = new IdentityHashMap<Event, int[]>();
+        int[] allPairs = new int[this.nEliminated];
+        for (int k = 0; k < this.nEliminated; k++) {
+            allPairs[k] = k;
+        }
+        for (Event event : eventList) {
+            Node node = (event instanceof NodeEvent) ? ((NodeEvent) event).getNode() : event.node;
+            if (node == null) {
+                // nothing to tell where its jobs go
+                this.targets.put(event, allPairs);
+                continue;
+            }
+
+            boolean[] fedStations = new boolean[this.nStateful];
+            if ((node instanceof StatefulNode) && this.eliminatedStations[this.network.getStatefulNodeIndex(node)]) {
+                fedStations[this.network.getStatefulNodeIndex(node)] = true;
+            }
+            Set<Node> visited = new HashSet<Node>();
+            Deque<Node> toVisit = new ArrayDeque<Node>();
+            visited.add(node);
+            toVisit.add(node);
+            while (!toVisit.isEmpty()) {
+                Node nodeIter = toVisit.remove();
+                if (nodeIter.getOutput() == null) {
+                    continue;
+                }
+                for (OutputStrategy outputStrategy : nodeIter.getOutputStrategies()) {
+                    Node dest = outputStrategy.getDestination();
+                    if ((dest == null) || !visited.add(dest)) {
+                        continue;
+                    }
+                    if (dest instanceof StatefulNode) {
+                        int destIdx = this.network.getStatefulNodeIndex(dest);
+                        if (this.eliminatedStations[destIdx]) {
+                            fedStations[destIdx] = true;
+                            toVisit.add(dest);
+                        }
+                    } else {
+                        toVisit.add(dest);
+                    }
+                }
+            }
+
+            int nTargets = 0;
+            for (int k = 0; k < this.nEliminated; k++) {
+                if (fedStations[this.stations[k]]) {
+                    nTargets++;
+                }
+            }
+            if (nTargets == 0) {
+                continue;
+            }
+            int[] eventTargets = new int[nTargets];
+            nTargets = 0;
+            for (int k = 0; k < this.nEliminated; k++) {
+                if (fedStations[this.stations[k]]) {
+                    eventTargets[nTargets++] = k;
+                }
+            }
+            this.targets.put(event, eventTargets);
+        }
+    }
+
+    protected void expand(Node node, JobClass jobClass, double prob, int depth, double[] via, double[] leaving) {
+        // a job of jobClass arrives at node with probability prob; paths through forks are dropped
+        if (node instanceof Sink) {
+            leaving[0] += prob;
+        } else if ((node instanceof Fork) || (node.getOutput() instanceof Forker)) {
+            return;
+        } else if (node instanceof StatefulNode) {
+            int i = this.network.getStatefulNodeIndex(node);
+            int j = this.network.getJobClassIndex(jobClass);
+            if (this.candidates[i][j] != -1) {
+                via[this.candidates[i][j]] += prob;
+            } else {
+                leaving[0] += prob;
+            }
+        } else if (depth >= MAX_DEPTH) {
+            return;
+        } else if (node instanceof ClassSwitch) {
+            Map<JobClass, Double> transitions = ((ClassSwitch) node).getClassSwitchMatrix().get(jobClass);
+            if (transitions == null) {
+                return;
+            }
+            for (Map.Entry<JobClass, Double> transition : transitions.entrySet()) {
+                if (transition.getValue() > 0) {
+                    this.expandOutputs(node, transition.getKey(), prob*transition.getValue(), depth, via, leaving);
+                }
+            }
+        } else {
+            this.expandOutputs(node, jobClass, prob, depth, via, leaving);
+        }
+    }
+
+    protected void expandOutputs(Node node, JobClass jobClass, double prob, int depth, double[] via,
+                                 double[] leaving) {
+        // routing of node for jobClass, normalised as by its alias table
+        if (node.getOutput() == null) {
+            return;
+        }
+        double total = 0;
+        for (OutputStrategy outputStrategy : node.getOutputStrategies()) {
+            if ((outputStrategy.getDestination() != null) && (outputStrategy.getJobClass() == jobClass)) {
+                total += outputStrategy.getProbability();
+            }
+        }
+        if (!(total > 0)) {
+            return;
+        }
+        for (OutputStrategy outputStrategy : node.getOutputStrategies()) {
+            if ((outputStrategy.getDestination() == null) || (outputStrategy.getJobClass() != jobClass) ||
+                    !(outputStrategy.getProbability() > 0)) {
+                continue;
+            }
+            this.expand(outputStrategy.getDestination(), jobClass, prob*outputStrategy.getProbability()/total,
+                    depth+1, via, leaving);
+        }
+    }
+
+    public int resolve(StateMatrix stateMatrix, Random random, Timeline timeline) {
+        return this.resolve(stateMatrix, random, timeline, null);
+    }
+
+    public int resolve(StateMatrix stateMatrix, Random random, Timeline timeline, Random[] eventStreams) {
+        // every eliminated pair, e.g. after a step of unknown events
+        int[] allPairs = new int[this.nEliminated];
+        for (int k = 0; k < this.nEliminated; k++) {
+            allPairs[k] = k;
+        }
+        return this.resolvePairs(allPairs, stateMatrix, random, timeline, eventStreams);
+    }
+
+    public int resolve(Event fired, StateMatrix stateMatrix, Random random, Timeline timeline,
+                       Random[] eventStreams) {
+        // the pairs fired may have sent jobs to; no scan at all if it feeds none
+        int[] pairs = this.targets.get(fired);
+        if (pairs == null) {
+            return 0;
+        }
+        return this.resolvePairs(pairs, stateMatrix, random, timeline, eventStreams);
+    }
+
+    protected int resolvePairs(int[] pairs, StateMatrix stateMatrix, Random random, Timeline timeline,
+                               Random[] eventStreams) {
+        /*
+            Fire the departures of every job parked at the given eliminated pairs, until none is left. Returns the
+                number of immediate firings. eventStreams, by position in the event list, are the streams the
+                events draw from when they fire; null -> random.
+         */
+        int nFired = 0;
+        boolean fired = true;
+        while (fired) {
+            fired = false;
+            for (int k : pairs) {
+                while (stateMatrix.getState(this.stations[k], this.classes[k]) > 0) {
+                    Random eventRandom = (eventStreams != null) ? eventStreams[this.eventIndices[k]] : random;
+                    if (!this.events[k].stateUpdate(stateMatrix, eventRandom, timeline)) {
+                        // blocked, left to handleImmediate()
+                        break;
+                    }
+                    nFired++;
+                    fired = true;
+                }
+            }
+        }
+        return nFired;
+    }
+
+    public int size() {
+        return this.nEliminated;
+    }
+
+    public int getStation(int k) {
+        return this.stations[k];
+    }
+
+    public int getClassIdx(int k) {
+        return this.classes[k];
+    }
+
+    public boolean isEliminated(int station, int classIdx) {
+        for (int k = 0; k < this.nEliminated; k++) {
+            if ((this.stations[k] == station) && (this.classes[k] == classIdx)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public boolean isEliminatedStation(int station) {
+        return this.eliminatedStations[station];
+    }
+}
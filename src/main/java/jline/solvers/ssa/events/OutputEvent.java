@@ -5,6 +5,7 @@ import jline.lang.nodes.Node;
 import jline.lang.sections.OutputSection;
 import jline.solvers.ssa.Timeline;
 import jline.solvers.ssa.state.StateMatrix;
+import jline.solvers.ssa.state.StateSpace;
 import jline.util.Pair;
 import org.javatuples.Quartet;
 import org.javatuples.Triplet;
@@ -40,18 +41,11 @@ public class OutputEvent extends Event {
     }
 
     @Override
-    public boolean updateStateSpace(StateMatrix stateMatrix, Random random, Timeline timeline, ArrayList<StateMatrix> stateSpace, Queue<StateMatrix> queue) {
+    public boolean updateStateSpace(StateMatrix stateMatrix, Random random, Timeline timeline, StateSpace stateSpace, Queue<StateMatrix> queue) {
         timeline.record(this, stateMatrix);
         return this.node.getArrivalEvent(this.jobClass).stateUpdate(stateMatrix, random, timeline);
     }
 
-    @Override
-    public boolean updateEventSpace(StateMatrix stateMatrix, Random random, Timeline timeline, ArrayList<Quartet<Event, Pair<OutputEvent,Double>,StateMatrix,StateMatrix>>  eventSpace, Event event, Queue<StateMatrix> queue, StateMatrix copy) {
-        timeline.record(this, stateMatrix);
-        return this.node.getArrivalEvent(this.jobClass).stateUpdate(stateMatrix, random, timeline);
-    }
-
-
     @Override
     public int stateUpdateN(int n, StateMatrix stateMatrix, Random random, Timeline timeline) {
         timeline.record(n, this, stateMatrix);
@@ -70,7 +64,7 @@ public class OutputEvent extends Event {
         return this.outputSection;
     }
 
-    public StateMatrix getNextState(StateMatrix startingState, Timeline timeline, ArrayList<StateMatrix> stateSpace,Queue<StateMatrix> queue) {
+    public StateMatrix getNextState(StateMatrix startingState, Timeline timeline, StateSpace stateSpace,Queue<StateMatrix> queue) {
 
         StateMatrix endingState = new StateMatrix(startingState);
 
@@ -82,15 +76,4 @@ public class OutputEvent extends Event {
 
     }
 
-    public StateMatrix getNextEventState(StateMatrix startingState, Timeline timeline, ArrayList<Quartet<Event,Pair<OutputEvent,Double>,StateMatrix,StateMatrix>>  eventSpace,Event event, Queue<StateMatrix> queue,StateMatrix copy) {
-
-        StateMatrix endingState = new StateMatrix(startingState);
-
-        if(updateEventSpace(endingState, new Random(), timeline, eventSpace,event,queue,copy)){
-            return endingState;
-        }
-
-        return null;
-    }
-
 }
@@ -10,6 +10,7 @@ import jline.lang.nodes.Source;
 import jline.lang.nodes.StatefulNode;
 import jline.solvers.ssa.Timeline;
 import jline.solvers.ssa.state.StateMatrix;
+import jline.util.AliasTable;
 import jline.util.Cdf;
 
 import java.util.List;
@@ -25,6 +26,7 @@ public class PHPhaseEvent extends PhaseEvent implements NodeEvent {
     private JobClass jobClass;
     protected boolean isProcessorSharing;
     protected List<List<Double>> phMatrix;
+    protected AliasTable[] endingPhaseTables; // [starting phase] -> next phase, or nPhases for a departure
 
     private DepartureEvent departureEvent;
 
@@ -61,6 +63,25 @@ public class PHPhaseEvent extends PhaseEvent implements NodeEvent {
         this.isProcessorSharing = this.schedStrategy == SchedStrategy.PS;
 
         this.phMatrix = (List<List<Double>>)this.serviceProcess.getParam(3).getValue();
+
+        // the phase transition probabilities are fixed, so precompute them
+        int nPhases = this.phMatrix.size();
+        this.endingPhaseTables = new AliasTable[nPhases];
+        for (int i = 0; i < nPhases; i++) {
+            double[] weights = new double[nPhases+1];
+            double departureRate = -this.phMatrix.get(i).get(i);
+            for (int j = 0; j < nPhases; j++) {
+                if (j == i) {
+                    continue;
+                }
+                weights[j] = this.phMatrix.get(i).get(j);
+                departureRate -= weights[j];
+            }
+            weights[nPhases] = departureRate;
+            if (-this.phMatrix.get(i).get(i) > 0) {
+                this.endingPhaseTables[i] = new AliasTable(weights);
+            }
+        }
     }
 
     @Override
@@ -135,22 +156,16 @@ public class PHPhaseEvent extends PhaseEvent implements NodeEvent {
 
         int startingPhase = startingPhaseCdf.generate();
 
-        Cdf<Integer> endingPhaseCdf = new Cdf<Integer>(random);
-        double departureRate = -this.phMatrix.get(startingPhase).get(startingPhase);
-        double totalRate = -this.phMatrix.get(startingPhase).get(startingPhase);
-
-        for (int i = 0; i < this.phMatrix.size(); i++) {
-            if (i == startingPhase) {
-                continue;
-            }
-
-            departureRate -= this.phMatrix.get(startingPhase).get(i);
-            endingPhaseCdf.addElement(i, this.phMatrix.get(startingPhase).get(i));
+        if (this.endingPhaseTables[startingPhase] == null) {
+            // phase without any outgoing rate
+            timeline.record(this, stateMatrix);
+            return true;
         }
-        endingPhaseCdf.addElement(-1, departureRate);
-        endingPhaseCdf.normalize(totalRate);
 
-        int endingPhase = endingPhaseCdf.generate();
+        int endingPhase = this.endingPhaseTables[startingPhase].sample(random);
+        if (endingPhase == this.phMatrix.size()) {
+            endingPhase = -1;
+        }
 
         if (endingPhase == -1) {
             stateMatrix.updatePhase(this.statefulIndex, this.classIndex,startingPhase, -1);
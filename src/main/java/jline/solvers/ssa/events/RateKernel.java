@@ -0,0 +1,170 @@
+package jline.solvers.ssa.events;
+
+import jline.lang.constant.SchedStrategy;
+import jline.lang.distributions.Distribution;
+import jline.lang.distributions.Exp;
+import jline.lang.nodes.Source;
+import jline.lang.nodes.StatefulNode;
+import jline.solvers.ssa.SSAStruct;
+import jline.solvers.ssa.state.StateMatrix;
+
+import java.util.List;
+
+public class RateKernel {
+    /*
+        RateKernel -
+            The event list of an EventStack, lowered to flat primitive arrays (station, class, server count, base
+            rate and rate kind per event), so the rates of the common events are evaluated by one monomorphic
+            switch over the job counts in StateMatrix.state, rather than by a virtual getRate() that re-checks the
+            node and the distribution type and reads the rate back from the distribution parameters.
+
+            Compiled events are the single phase and Erlang phase events of exponential and Erlang service
+            (ExpActiveEvent, ErlangPhaseEvent, and DepartureEvent on Exp):
+                CONSTANT            rate at a Source, independent of the state
+                INFINITE_SERVER     INF: every job is in service
+                SINGLE_CLASS        FCFS station visited by one class only: min(jobs, servers) in service
+                PROCESSOR_SHARING   PS: jobs/total share of min(total, servers) servers
+                IN_SERVICE          any other buffer, asked for the jobs in service
+            Every other event (PH, MAP, immediate and non-station events) keeps its object getRate().
+
+            A kernel is indexed by the event order it was compiled for; EventStack drops it when it reorders its
+            events.
+     */
+    protected static final byte OBJECT = 0;
+    protected static final byte CONSTANT = 1;
+    protected static final byte INFINITE_SERVER = 2;
+    protected static final byte SINGLE_CLASS = 3;
+    protected static final byte PROCESSOR_SHARING = 4;
+    protected static final byte IN_SERVICE = 5;
+
+    protected int nEvents;
+    protected byte[] kinds;       // [event]
+    protected int[] stations;     // [event] -> stateful node index
+    protected int[] classes;      // [event] -> class index
+    protected int[] servers;      // [event] -> servers at the station
+    protected double[] baseRates; // [event] -> rate per job in service
+    protected Event[] events;     // [event], for OBJECT events
+    protected int nCompiled;
+
+    protected RateKernel(int nEvents) {
+        this.nEvents = nEvents;
+        this.kinds = new byte[nEvents];
+        this.stations = new int[nEvents];
+        this.classes = new int[nEvents];
+        this.servers = new int[nEvents];
+        this.baseRates = new double[nEvents];
+        this.events = new Event[nEvents];
+        this.nCompiled = 0;
+    }
+
+    public static RateKernel compile(List<Event> eventList, SSAStruct simStruct) {
+        RateKernel kernel = new RateKernel(eventList.size());
+        for (int i = 0; i < kernel.nEvents; i++) {
+            kernel.compileEvent(i, eventList.get(i), simStruct);
+        }
+        return kernel;
+    }
+
+    private void compileEvent(int i, Event event, SSAStruct simStruct) {
+        this.events[i] = event;
+        this.kinds[i] = OBJECT;
+
+        Distribution serviceProcess;
+        boolean isProcessorSharing;
+        if (event instanceof ExpActiveEvent) {
+            serviceProcess = ((ExpActiveEvent) event).serviceProcess;
+            isProcessorSharing = ((ExpActiveEvent) event).isProcessorSharing;
+        } else if (event instanceof ErlangPhaseEvent) {
+            serviceProcess = ((ErlangPhaseEvent) event).serviceProcess;
+            isProcessorSharing = ((ErlangPhaseEvent) event).isProcessorSharing;
+        } else if ((event instanceof DepartureEvent) && (((DepartureEvent) event).serviceProcess instanceof Exp)) {
+            serviceProcess = ((DepartureEvent) event).serviceProcess;
+            isProcessorSharing = ((DepartureEvent) event).isProcessorSharing;
+        } else {
+            return;
+        }
+
+        NodeEvent nodeEvent = (NodeEvent) event;
+        int station = nodeEvent.getNodeStatefulIdx();
+        int classIdx = nodeEvent.getClassIdx();
+        if (!(nodeEvent.getNode() instanceof StatefulNode) || (station < 0) || (station >= simStruct.nStateful)) {
+            return;
+        }
+
+        this.stations[i] = station;
+        this.classes[i] = classIdx;
+        this.servers[i] = simStruct.numberOfServers[station];
+        this.baseRates[i] = serviceProcess.getRate();
+
+        SchedStrategy schedStrategy = simStruct.schedStrategies[station];
+        if (isProcessorSharing) {
+            this.kinds[i] = PROCESSOR_SHARING;
+        } else if (nodeEvent.getNode() instanceof Source) {
+            this.kinds[i] = CONSTANT;
+        } else if (schedStrategy == SchedStrategy.INF) {
+            this.kinds[i] = INFINITE_SERVER;
+        } else if ((schedStrategy == SchedStrategy.FCFS) && isSingleClass(simStruct, station, classIdx)) {
+            this.kinds[i] = SINGLE_CLASS;
+        } else {
+            this.kinds[i] = IN_SERVICE;
+        }
+        this.nCompiled++;
+    }
+
+    private static boolean isSingleClass(SSAStruct simStruct, int station, int classIdx) {
+        for (int j = 0; j < simStruct.nClasses; j++) {
+            if ((j != classIdx) && (simStruct.capacities[station][j] > 0)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public int size() {
+        return this.nEvents;
+    }
+
+    public int getNCompiled() {
+        return this.nCompiled;
+    }
+
+    public Event getEvent(int eventIdx) {
+        return this.events[eventIdx];
+    }
+
+    public double getRate(int eventIdx, StateMatrix stateMatrix) {
+        // same value as getEvent(eventIdx).getRate(stateMatrix), NaN if the event cannot fire
+        int[] stationState;
+        int nJobs;
+        switch (this.kinds[eventIdx]) {
+            case CONSTANT:
+                return this.baseRates[eventIdx];
+            case INFINITE_SERVER:
+                nJobs = stateMatrix.state[this.stations[eventIdx]][this.classes[eventIdx]];
+                return (nJobs == 0) ? Double.NaN : this.baseRates[eventIdx]*nJobs;
+            case SINGLE_CLASS:
+                nJobs = stateMatrix.state[this.stations[eventIdx]][this.classes[eventIdx]];
+                return (nJobs == 0) ? Double.NaN : this.baseRates[eventIdx]*Math.min(nJobs, this.servers[eventIdx]);
+            case PROCESSOR_SHARING:
+                stationState = stateMatrix.state[this.stations[eventIdx]];
+                int totalJobs = 0;
+                for (int j = 0; j < stationState.length; j++) {
+                    totalJobs += stationState[j];
+                }
+                double serviceRatio = (double) stationState[this.classes[eventIdx]]/(double) totalJobs;
+                serviceRatio *= Math.min(totalJobs, this.servers[eventIdx]);
+                return this.baseRates[eventIdx]*serviceRatio;
+            case IN_SERVICE:
+                nJobs = stateMatrix.inProcess(this.stations[eventIdx], this.classes[eventIdx]);
+                return (nJobs == 0) ? Double.NaN : this.baseRates[eventIdx]*nJobs;
+            default:
+                return this.events[eventIdx].getRate(stateMatrix);
+        }
+    }
+
+    public void getRates(StateMatrix stateMatrix, double[] outArr) {
+        for (int i = 0; i < this.nEvents; i++) {
+            outArr[i] = this.getRate(i, stateMatrix);
+        }
+    }
+}
@@ -4,6 +4,8 @@ import jline.solvers.ssa.events.Event;
 import jline.solvers.ssa.state.StateMatrix;
 
 public class DummyMetric extends Metric<Double, Double>{
+    private static final long serialVersionUID = 1L;
+
     public DummyMetric(int nodeIdx, int classIdx, int nServers) {
         super("None", Double.NaN,Double.NaN, nodeIdx, classIdx, nServers);
     }
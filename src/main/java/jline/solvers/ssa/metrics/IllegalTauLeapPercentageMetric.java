@@ -4,6 +4,8 @@ import jline.solvers.ssa.events.Event;
 import jline.solvers.ssa.state.StateMatrix;
 
 public class IllegalTauLeapPercentageMetric extends Metric<Double, Double> {
+    private static final long serialVersionUID = 1L;
+
     protected int totalCt;
     protected int totalIllegal;
 
@@ -1,18 +1,24 @@
 package jline.solvers.ssa.metrics;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
 import java.util.*;
 
 import jline.solvers.ssa.events.Event;
 import jline.solvers.ssa.state.StateMatrix;
 import jline.util.Pair;
 
-public abstract class Metric<T extends Number, U> {
+public abstract class Metric<T extends Number, U> implements Serializable {
+    private static final long serialVersionUID = 1L;
+
     protected double time;
     protected T metricValue;
     protected T currentValue;
     protected String name;
     protected String shortName;
-    protected List<Pair<Double, T>> metricHistory;
+    protected transient List<Pair<Double, T>> metricHistory; // serialized folded, see foldHistory()
     protected boolean record;
     protected int nodeIdx;
     protected int classIdx;
@@ -28,6 +34,10 @@ public abstract class Metric<T extends Number, U> {
     protected T initialMetric;
     protected T initialValue;
 
+    // constant-memory mode, replaces metricHistory
+    protected boolean streaming;
+    protected StreamingAccumulator accumulator;
+
     public Metric(String name, T initialMetric, T initialValue, boolean record, int nodeIdx, int classIdx, int nServers) {
         this.name = name;
         this.shortName = Character.toString(this.name.toUpperCase().charAt(0));
@@ -69,8 +79,31 @@ public abstract class Metric<T extends Number, U> {
         this.r5Value = k;
     }
 
+    public void configureStreaming() {
+        this.streaming = true;
+        this.record = false;
+        this.metricHistory = null;
+        this.accumulator = new StreamingAccumulator(this.isTimeAverage());
+    }
+
+    protected boolean isTimeAverage() {
+        return true;
+    }
+
+    protected void truncateAt(double t) {
+        // R5 cutoff: drop everything observed before t
+        this.cutoffTime = t;
+        if (this.streaming) {
+            this.accumulator.reset();
+        }
+    }
+
+    public StreamingAccumulator getAccumulator() {
+        return this.accumulator;
+    }
+
     public void configureMSER5() {
-        if (!this.record) {
+        if (!this.record && !this.streaming) {
             throw new RuntimeException("MSER5 requires a timeline!");
         }
         this.useMSER5 = true;
@@ -85,6 +118,9 @@ public abstract class Metric<T extends Number, U> {
 
     public void taper(double t) {
         this.time = t;
+        if (this.streaming) {
+            this.accumulator.taper(t);
+        }
     }
 
     public String getName() {
@@ -99,7 +135,11 @@ public abstract class Metric<T extends Number, U> {
     }
 
     public void resetHistory() {
-        this.metricHistory = new ArrayList<Pair<Double, T>>(5000);
+        if (this.streaming) {
+            this.accumulator.reset();
+        } else {
+            this.metricHistory = new ArrayList<Pair<Double, T>>(5000);
+        }
         this.metricValue = this.initialMetric;
         this.currentValue = this.initialValue;
         this.cutoffTime = this.time;
@@ -159,7 +199,9 @@ public abstract class Metric<T extends Number, U> {
     }
 
     public Pair<Integer, Double> cutoffMSER5() {
-        if (!this.record) {
+        if (this.streaming) {
+            return new Pair<Integer, Double>(this.accumulator.getMSERCutoff(), this.accumulator.getTruncatedMean());
+        } else if (!this.record) {
             return new Pair<Integer, Double>(0, 0.0);
         }
 
@@ -271,7 +313,52 @@ public abstract class Metric<T extends Number, U> {
         return true;
     }
 
+    protected List<Pair<Double, T>> foldHistory() {
+        /*
+            What a serialized copy keeps of the recorded timeline: nothing by default, as most metrics keep their
+                running value outside it. Metrics that average over the timeline override this.
+         */
+        return new ArrayList<Pair<Double, T>>();
+    }
+
+    protected static List<Pair<Double, Double>> foldTimeAverage(List<Pair<Double, Double>> history) {
+        // two entries with the same time integral up to the last change, so the average continues exactly
+        List<Pair<Double, Double>> folded = new ArrayList<Pair<Double, Double>>(2);
+        if (history.isEmpty()) {
+            return folded;
+        }
+        double integral = 0;
+        double prevTime = 0;
+        double prevValue = 0;
+        for (Pair<Double, Double> timelineEntry : history) {
+            integral += (timelineEntry.getLeft()-prevTime)*prevValue;
+            prevTime = timelineEntry.getLeft();
+            prevValue = timelineEntry.getRight();
+        }
+        if (prevTime > 0) {
+            folded.add(new Pair<Double, Double>(0.0, integral/prevTime));
+        }
+        folded.add(new Pair<Double, Double>(prevTime, prevValue));
+        return folded;
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        out.writeObject(this.record ? this.foldHistory() : null);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        // R5 and MSER5 truncation of a restored metric only see the folded entries and what is recorded after
+        in.defaultReadObject();
+        List<Pair<Double, T>> folded = (List<Pair<Double, T>>) in.readObject();
+        if (folded != null) {
+            this.metricHistory = new ArrayList<Pair<Double, T>>(5000);
+            this.metricHistory.addAll(folded);
+        }
+    }
+
     public void setRecord(boolean record) {
-        this.record = record;
+        this.record = record && !this.streaming;
     }
 }
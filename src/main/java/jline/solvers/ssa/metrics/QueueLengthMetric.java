@@ -4,7 +4,11 @@ import jline.solvers.ssa.events.Event;
 import jline.solvers.ssa.state.StateMatrix;
 import jline.util.Pair;
 
+import java.util.List;
+
 public class QueueLengthMetric extends Metric<Double, Double> {
+    private static final long serialVersionUID = 1L;
+
     public QueueLengthMetric(int nodeIdx, int classIdx, int nServers, boolean record) {
         super("Queue Length", 0.0, 0.0, record, nodeIdx, classIdx, nServers);
         this.useMatrix = true;
@@ -32,7 +36,9 @@ public class QueueLengthMetric extends Metric<Double, Double> {
             return this.cutoffR5().getRight();
         }
 
-        if (this.record) {
+        if (this.streaming) {
+            return this.accumulator.getMean();
+        } else if (this.record) {
             double cumulativeQT = 0;
             double prevTime = 0;
             double timeIter;
@@ -58,6 +64,9 @@ public class QueueLengthMetric extends Metric<Double, Double> {
         double Q = (double)Math.min(stateMatrix.getState(this.nodeIdx,this.classIdx),
                 stateMatrix.getCapacity(this.nodeIdx,this.classIdx));
 
+        if (this.streaming) {
+            this.accumulator.level(t, Q);
+        }
         if (Q == this.metricValue) {
             return;
         }
@@ -71,7 +80,7 @@ public class QueueLengthMetric extends Metric<Double, Double> {
                     this.belowAverage = false;
 
                     if (this.crossCount >= this.r5Value) {
-                        this.cutoffTime = t;
+                        this.truncateAt(t);
                         this.metricValue = 0.0;
                         return;
                     }
@@ -80,7 +89,7 @@ public class QueueLengthMetric extends Metric<Double, Double> {
                     this.belowAverage = true;
 
                     if (this.crossCount >= this.r5Value) {
-                        this.cutoffTime = t;
+                        this.truncateAt(t);
                         this.metricValue = 0.0;
                         return;
                     }
@@ -94,6 +103,11 @@ public class QueueLengthMetric extends Metric<Double, Double> {
         }
     }
 
+    @Override
+    protected List<Pair<Double, Double>> foldHistory() {
+        return foldTimeAverage(this.metricHistory);
+    }
+
     public void fromEvent(double t, Event e) {
 
     }
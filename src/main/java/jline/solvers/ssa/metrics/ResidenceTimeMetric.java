@@ -12,6 +12,8 @@ import java.util.Deque;
 import java.util.LinkedList;
 
 public class ResidenceTimeMetric extends Metric<Double, Double> {
+    private static final long serialVersionUID = 1L;
+
     double nDepartures;
     Deque<Double> buffer;
     SchedStrategy schedStrategy;
@@ -47,6 +49,8 @@ public class ResidenceTimeMetric extends Metric<Double, Double> {
             return this.cutoffMSER5().getRight();
         } else if (this.useR5) {
             return this.cutoffR5().getRight();
+        } else if (this.streaming) {
+            return this.accumulator.getMean() * (((double)this.nDepartures)/this.totalClassMetric.getMetric());
         }
         return this.metricValue * (((double)this.nDepartures)/this.totalClassMetric.getMetric());
     }
@@ -55,7 +59,11 @@ public class ResidenceTimeMetric extends Metric<Double, Double> {
     }
 
     public void resetHistory() {
-        this.metricHistory = new ArrayList<Pair<Double, Double>>(5000);
+        if (this.streaming) {
+            this.accumulator.reset();
+        } else {
+            this.metricHistory = new ArrayList<Pair<Double, Double>>(5000);
+        }
         this.metricValue = this.initialMetric;
         this.currentValue = this.initialValue;
         this.nDepartures = 0;
@@ -74,6 +82,9 @@ public class ResidenceTimeMetric extends Metric<Double, Double> {
                 double timePassed = t-this.buffer.pop();
                 this.metricValue = ((this.metricValue * this.nDepartures) + timePassed)/(this.nDepartures+1);
                 this.nDepartures++;
+                if (this.streaming) {
+                    this.accumulator.sample(timePassed);
+                }
 
                 if (this.record) {
                     this.metricHistory.add(new Pair(this.time, timePassed));
@@ -84,7 +95,7 @@ public class ResidenceTimeMetric extends Metric<Double, Double> {
                             this.belowAverage = false;
 
                             if (this.crossCount >= this.r5Value) {
-                                this.cutoffTime = t;
+                                this.truncateAt(t);
                                 this.metricValue = 0.0;
                                 this.nDepartures = 0;
                             }
@@ -93,7 +104,7 @@ public class ResidenceTimeMetric extends Metric<Double, Double> {
                             this.belowAverage = true;
 
                             if (this.crossCount >= this.r5Value) {
-                                this.cutoffTime = t;
+                                this.truncateAt(t);
                                 this.metricValue = 0.0;
                                 this.nDepartures = 0;
                             }
@@ -135,6 +146,9 @@ public class ResidenceTimeMetric extends Metric<Double, Double> {
                 }
                 this.metricValue = ((this.metricValue * this.nDepartures) + (timePassed*n))/(this.nDepartures+n);
                 this.nDepartures += n;
+                if (this.streaming) {
+                    this.accumulator.add(n, timePassed);
+                }
 
                 if (this.record) {
                     this.metricHistory.add(new Pair(this.time, timePassed));
@@ -145,7 +159,7 @@ public class ResidenceTimeMetric extends Metric<Double, Double> {
                             this.belowAverage = false;
 
                             if (this.crossCount >= this.r5Value) {
-                                this.cutoffTime = t;
+                                this.truncateAt(t);
                                 this.metricValue = 0.0;
                                 this.nDepartures = 0;
                             }
@@ -154,7 +168,7 @@ public class ResidenceTimeMetric extends Metric<Double, Double> {
                             this.belowAverage = true;
 
                             if (this.crossCount >= this.r5Value) {
-                                this.cutoffTime = t;
+                                this.truncateAt(t);
                                 this.metricValue = 0.0;
                                 this.nDepartures = 0;
                             }
@@ -180,6 +194,11 @@ public class ResidenceTimeMetric extends Metric<Double, Double> {
         }
     }
 
+    @Override
+    protected boolean isTimeAverage() {
+        return false;
+    }
+
     @Override
     public boolean recognizeEvent(Event e) {
         if (e instanceof DepartureEvent) {
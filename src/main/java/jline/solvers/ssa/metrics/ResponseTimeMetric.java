@@ -12,6 +12,8 @@ import java.util.Deque;
 import java.util.LinkedList;
 
 public class ResponseTimeMetric extends Metric<Double, Double> {
+    private static final long serialVersionUID = 1L;
+
     int nDepartures;
     Deque<Double> buffer;
     SchedStrategy schedStrategy;
@@ -34,6 +36,8 @@ public class ResponseTimeMetric extends Metric<Double, Double> {
             return this.cutoffMSER5().getRight();
         } else if (this.useR5) {
             return this.cutoffR5().getRight();
+        } else if (this.streaming) {
+            return this.accumulator.getMean();
         }
 
         return this.metricValue;
@@ -53,6 +57,9 @@ public class ResponseTimeMetric extends Metric<Double, Double> {
                 double timePassed = t-this.buffer.pop();
                 this.metricValue = ((this.metricValue * this.nDepartures) + timePassed)/(this.nDepartures+1);
                 this.nDepartures++;
+                if (this.streaming) {
+                    this.accumulator.sample(timePassed);
+                }
 
                 if (this.record) {
                     this.metricHistory.add(new Pair(this.time, timePassed));
@@ -63,7 +70,7 @@ public class ResponseTimeMetric extends Metric<Double, Double> {
                             this.belowAverage = false;
 
                             if (this.crossCount >= this.r5Value) {
-                                this.cutoffTime = t;
+                                this.truncateAt(t);
                                 this.metricValue = 0.0;
                                 this.nDepartures = 0;
                             }
@@ -72,7 +79,7 @@ public class ResponseTimeMetric extends Metric<Double, Double> {
                             this.belowAverage = true;
 
                             if (this.crossCount >= this.r5Value) {
-                                this.cutoffTime = t;
+                                this.truncateAt(t);
                                 this.metricValue = 0.0;
                                 this.nDepartures = 0;
                             }
@@ -97,7 +104,11 @@ public class ResponseTimeMetric extends Metric<Double, Double> {
     }
 
     public void resetHistory() {
-        this.metricHistory = new ArrayList<Pair<Double, Double>>(5000);
+        if (this.streaming) {
+            this.accumulator.reset();
+        } else {
+            this.metricHistory = new ArrayList<Pair<Double, Double>>(5000);
+        }
         this.metricValue = this.initialMetric;
         this.currentValue = this.initialValue;
         this.nDepartures = 0;
@@ -122,6 +133,9 @@ public class ResponseTimeMetric extends Metric<Double, Double> {
                 }
                 this.metricValue = ((this.metricValue * this.nDepartures) + (timePassed*n))/(this.nDepartures+n);
                 this.nDepartures += n;
+                if (this.streaming) {
+                    this.accumulator.add(n, timePassed);
+                }
 
                 if (this.record) {
                     this.metricHistory.add(new Pair(this.time, timePassed));
@@ -132,7 +146,7 @@ public class ResponseTimeMetric extends Metric<Double, Double> {
                             this.belowAverage = false;
 
                             if (this.crossCount >= this.r5Value) {
-                                this.cutoffTime = t;
+                                this.truncateAt(t);
                                 this.metricValue = 0.0;
                                 this.nDepartures = 0;
                             }
@@ -141,7 +155,7 @@ public class ResponseTimeMetric extends Metric<Double, Double> {
                             this.belowAverage = true;
 
                             if (this.crossCount >= this.r5Value) {
-                                this.cutoffTime = t;
+                                this.truncateAt(t);
                                 this.metricValue = 0.0;
                                 this.nDepartures = 0;
                             }
@@ -167,6 +181,11 @@ public class ResponseTimeMetric extends Metric<Double, Double> {
         }
     }
 
+    @Override
+    protected boolean isTimeAverage() {
+        return false;
+    }
+
     @Override
     public boolean recognizeEvent(Event e) {
         if (e instanceof DepartureEvent) {
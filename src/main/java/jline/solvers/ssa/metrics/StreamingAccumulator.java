@@ -0,0 +1,246 @@
+package jline.solvers.ssa.metrics;
+
+import jline.util.ConfidenceIntervals;
+
+import java.io.Serializable;
+
+public class StreamingAccumulator implements Serializable {
+    /*
+        StreamingAccumulator -
+            Constant-memory replacement for a metric history. Keeps weighted Welford sums for the mean and variance,
+            plus a bounded set of batch means that MSER-5 truncation can be run on at any point.
+
+            Observations carry a weight: the time a level was held for time averages (queue length, utilization),
+            the elapsed time for event counts (throughput), or 1 for per-job samples (response times).
+
+            Batches start at 5 observations each. When MAX_BATCHES batches are full, adjacent pairs are merged and
+            the batch size doubles, so memory stays fixed however long the run is.
+     */
+    private static final long serialVersionUID = 1L;
+
+    protected static final int BATCH_OBSERVATIONS = 5;
+    protected static final int MAX_BATCHES = 1024;
+
+    protected boolean timeAverage;
+
+    // weighted Welford sums
+    protected long nObservations;
+    protected double totalWeight;
+    protected double totalWeighted;
+    protected double mean;
+    protected double m2;
+
+    // batch means, MSER-5
+    protected double[] batchWeight;
+    protected double[] batchWeighted;
+    protected int nBatches;
+    protected int batchSize;
+    protected int openObservations;
+    protected double openWeight;
+    protected double openWeighted;
+
+    // current level of a piecewise-constant signal
+    protected double lastTime;
+    protected double lastLevel;
+
+    public StreamingAccumulator(boolean timeAverage) {
+        this.timeAverage = timeAverage;
+        this.batchWeight = new double[MAX_BATCHES];
+        this.batchWeighted = new double[MAX_BATCHES];
+        this.lastTime = 0;
+        this.lastLevel = 0;
+        this.reset();
+    }
+
+    public void reset() {
+        // drop everything observed so far; the current level and time carry over
+        this.nObservations = 0;
+        this.totalWeight = 0;
+        this.totalWeighted = 0;
+        this.mean = 0;
+        this.m2 = 0;
+        this.nBatches = 0;
+        this.batchSize = BATCH_OBSERVATIONS;
+        this.openObservations = 0;
+        this.openWeight = 0;
+        this.openWeighted = 0;
+    }
+
+    public void restart(double t, double value) {
+        // reset, with the signal at value from time t on
+        this.reset();
+        this.lastTime = t;
+        this.lastLevel = value;
+    }
+
+    public void add(double weight, double weightedValue) {
+        /*
+            One observation of value weightedValue/weight, held for the given weight. Zero weights are allowed
+                (e.g. simultaneous departures) and only count towards the mean.
+         */
+        this.nObservations++;
+        this.totalWeight += weight;
+        this.totalWeighted += weightedValue;
+        if (weight > 0) {
+            double x = weightedValue/weight;
+            double delta = x - this.mean;
+            this.mean += (weight/this.totalWeight)*delta;
+            this.m2 += weight*delta*(x - this.mean);
+        }
+
+        this.openWeight += weight;
+        this.openWeighted += weightedValue;
+        this.openObservations++;
+        if (this.openObservations >= this.batchSize) {
+            if (this.nBatches == MAX_BATCHES) {
+                this.compactBatches();
+                if (this.openObservations < this.batchSize) {
+                    return;
+                }
+            }
+            this.batchWeight[this.nBatches] = this.openWeight;
+            this.batchWeighted[this.nBatches] = this.openWeighted;
+            this.nBatches++;
+            this.openObservations = 0;
+            this.openWeight = 0;
+            this.openWeighted = 0;
+        }
+    }
+
+    protected void compactBatches() {
+        int half = this.nBatches/2;
+        for (int i = 0; i < half; i++) {
+            this.batchWeight[i] = this.batchWeight[2*i] + this.batchWeight[2*i+1];
+            this.batchWeighted[i] = this.batchWeighted[2*i] + this.batchWeighted[2*i+1];
+        }
+        this.nBatches = half;
+        this.batchSize *= 2;
+    }
+
+    public void level(double t, double value) {
+        // piecewise-constant signal changes to value at time t
+        if (t > this.lastTime) {
+            double dt = t - this.lastTime;
+            this.add(dt, this.lastLevel*dt);
+            this.lastTime = t;
+        }
+        this.lastLevel = value;
+    }
+
+    public void count(double t, double n) {
+        // n events at time t
+        this.add(Math.max(t - this.lastTime, 0), n);
+        this.lastTime = Math.max(t, this.lastTime);
+    }
+
+    public void sample(double value) {
+        this.add(1.0, value);
+    }
+
+    public void taper(double t) {
+        // close the level still open at the end of the run
+        if (this.timeAverage) {
+            this.level(t, this.lastLevel);
+        }
+    }
+
+    public long getNumberOfObservations() {
+        return this.nObservations;
+    }
+
+    public int getNumberOfBatches() {
+        return this.nBatches;
+    }
+
+    public double getMean() {
+        if (this.totalWeight <= 0) {
+            return 0;
+        }
+        return this.totalWeighted/this.totalWeight;
+    }
+
+    public double getVariance() {
+        // weighted variance of the observed values
+        if (this.totalWeight <= 0) {
+            return 0;
+        }
+        return this.m2/this.totalWeight;
+    }
+
+    protected int mserBatch() {
+        /*
+            MSER over the batch means: the truncation point d (in batches, at most half of them) minimising
+                sum_{i>=d} (Y_i - Ybar_d)^2 / (k-d)^2. Computed from suffix sums in one backward pass.
+         */
+        int best = 0;
+        double minStat = Double.POSITIVE_INFINITY;
+        double sumY = 0;
+        double sumY2 = 0;
+        int n = 0;
+        for (int i = this.nBatches-1; i >= 0; i--) {
+            if (this.batchWeight[i] > 0) {
+                double y = this.batchWeighted[i]/this.batchWeight[i];
+                sumY += y;
+                sumY2 += y*y;
+                n++;
+            }
+            if ((i <= this.nBatches/2) && (n > 1)) {
+                double stat = (sumY2 - (sumY*sumY)/n)/((double)n*n);
+                if (stat <= minStat) {
+                    minStat = stat;
+                    best = i;
+                }
+            }
+        }
+        return best;
+    }
+
+    public int getMSERCutoff() {
+        // number of observations discarded as warm-up
+        return this.mserBatch()*this.batchSize;
+    }
+
+    public double getTruncatedMean() {
+        int d = this.mserBatch();
+        double weight = this.openWeight;
+        double weighted = this.openWeighted;
+        for (int i = d; i < this.nBatches; i++) {
+            weight += this.batchWeight[i];
+            weighted += this.batchWeighted[i];
+        }
+        if (weight <= 0) {
+            return this.getMean();
+        }
+        return weighted/weight;
+    }
+
+    public double getBatchMeansHalfWidth(int nGroups) {
+        /*
+            Half-width of the 95% batch means interval for getTruncatedMean(). The batches past the MSER-5 cutoff
+                are merged into nGroups consecutive groups, few and long enough for their means to be nearly
+                independent. Infinite until there are nGroups full batches to merge.
+         */
+        int d = this.mserBatch();
+        int nAvailable = this.nBatches - d;
+        if ((nGroups < 2) || (nAvailable < nGroups)) {
+            return Double.POSITIVE_INFINITY;
+        }
+
+        double[] groupMeans = new double[nGroups];
+        int n = 0;
+        for (int g = 0; g < nGroups; g++) {
+            int from = d + (int) (((long) g*nAvailable)/nGroups);
+            int to = d + (int) (((long) (g+1)*nAvailable)/nGroups);
+            double weight = 0;
+            double weighted = 0;
+            for (int i = from; i < to; i++) {
+                weight += this.batchWeight[i];
+                weighted += this.batchWeighted[i];
+            }
+            if (weight > 0) {
+                groupMeans[n++] = weighted/weight;
+            }
+        }
+        return ConfidenceIntervals.halfWidth95(groupMeans, n);
+    }
+}
@@ -9,6 +9,8 @@ import jline.solvers.ssa.state.StateMatrix;
 import jline.util.Pair;
 
 public class ThroughputMetric extends Metric<Double, Double> {
+    private static final long serialVersionUID = 1L;
+
     public ThroughputMetric(int nodeIdx, int classIdx, int nServers, boolean record) {
         super("Throughput", 0.0, 0.0, record, nodeIdx, classIdx, nServers);
     }
@@ -24,6 +26,8 @@ public class ThroughputMetric extends Metric<Double, Double> {
             return this.cutoffMSER5().getRight();
         } else if (this.useR5) {
             return this.cutoffR5().getRight();
+        } else if (this.streaming) {
+            return this.accumulator.getMean();
         }
         if (Double.isNaN(this.metricValue)) {
             return 0.0;
@@ -39,7 +43,11 @@ public class ThroughputMetric extends Metric<Double, Double> {
     }
 
     public void resetHistory() {
-        this.metricHistory = new ArrayList<Pair<Double, Double>>(5000);
+        if (this.streaming) {
+            this.accumulator.reset();
+        } else {
+            this.metricHistory = new ArrayList<Pair<Double, Double>>(5000);
+        }
         this.metricValue = this.initialMetric;
         this.currentValue = this.initialValue;
         this.cutoffTime = this.time;
@@ -53,6 +61,9 @@ public class ThroughputMetric extends Metric<Double, Double> {
                 double tDelta = t - this.time;
                 double totalThroughput = this.metricValue * (this.time-this.cutoffTime);
                 totalThroughput += 1.0;
+                if (this.streaming) {
+                    this.accumulator.count(t, 1.0);
+                }
                 if (this.record) {
                     this.metricHistory.add(new Pair(this.time, 1.0/tDelta));
                 } else {
@@ -62,7 +73,7 @@ public class ThroughputMetric extends Metric<Double, Double> {
                             this.belowAverage = false;
 
                             if (this.crossCount >= this.r5Value) {
-                                this.cutoffTime = t;
+                                this.truncateAt(t);
                                 this.metricValue = 0.0;
                                 return;
                             }
@@ -71,7 +82,7 @@ public class ThroughputMetric extends Metric<Double, Double> {
                             this.belowAverage = true;
 
                             if (this.crossCount >= this.r5Value) {
-                                this.cutoffTime = t;
+                                this.truncateAt(t);
                                 this.metricValue = 0.0;
                                 return;
                             }
@@ -92,6 +103,9 @@ public class ThroughputMetric extends Metric<Double, Double> {
                 double tDelta = t - this.time;
                 double totalThroughput = this.metricValue * (this.time-this.cutoffTime);
                 totalThroughput += n;
+                if (this.streaming) {
+                    this.accumulator.count(t, n);
+                }
 
                 if (this.record) {
                     this.metricHistory.add(new Pair(this.time, n/tDelta));
@@ -102,7 +116,7 @@ public class ThroughputMetric extends Metric<Double, Double> {
                             this.belowAverage = false;
 
                             if (this.crossCount >= this.r5Value) {
-                                this.cutoffTime = t;
+                                this.truncateAt(t);
                                 this.metricValue = 0.0;
                             }
                         } else if (!this.belowAverage && ((n/tDelta) < this.metricValue)) {
@@ -110,7 +124,7 @@ public class ThroughputMetric extends Metric<Double, Double> {
                             this.belowAverage = true;
 
                             if (this.crossCount >= this.r5Value) {
-                                this.cutoffTime = t;
+                                this.truncateAt(t);
                                 this.metricValue = 0.0;
                             }
                         }
@@ -128,6 +142,8 @@ public class ThroughputMetric extends Metric<Double, Double> {
         this.metricValue = totalThroughput/this.time;
         if (this.record) {
             this.metricHistory.add(new Pair(t, 0.0));
+        } else if (this.streaming) {
+            this.accumulator.count(t, 0);
         }
         this.time = t;
     }
@@ -4,6 +4,8 @@ import jline.solvers.ssa.events.Event;
 import jline.solvers.ssa.state.StateMatrix;
 
 public class TotalClassMetric extends Metric<Double, Double>{
+    private static final long serialVersionUID = 1L;
+
     int classIdx;
     int totalCt = 0;
 
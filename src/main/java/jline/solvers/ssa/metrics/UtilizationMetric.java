@@ -4,7 +4,11 @@ import jline.solvers.ssa.events.Event;
 import jline.solvers.ssa.state.StateMatrix;
 import jline.util.Pair;
 
+import java.util.List;
+
 public class UtilizationMetric extends Metric<Double, Double> {
+    private static final long serialVersionUID = 1L;
+
     protected boolean isDelay;
 
     public UtilizationMetric(int nodeIdx, int classIdx, int nServers, boolean record, boolean isDelay) {
@@ -33,7 +37,9 @@ public class UtilizationMetric extends Metric<Double, Double> {
             return this.cutoffR5().getRight();
         }
 
-        if (this.record) {
+        if (this.streaming) {
+            return this.accumulator.getMean();
+        } else if (this.record) {
             double cumulativeUT = 0;
             double prevTime = 0;
             double timeIter;
@@ -70,6 +76,10 @@ public class UtilizationMetric extends Metric<Double, Double> {
             utilization = inProcess/nServers;
         }
 
+        if (this.streaming) {
+            this.accumulator.level(t, utilization);
+        }
+
         if (utilization == this.metricValue) {
             return;
         }
@@ -83,7 +93,7 @@ public class UtilizationMetric extends Metric<Double, Double> {
                     this.belowAverage = false;
 
                     if (this.crossCount >= this.r5Value) {
-                        this.cutoffTime = t;
+                        this.truncateAt(t);
                         this.metricValue = 0.0;
                         return;
                     }
@@ -92,7 +102,7 @@ public class UtilizationMetric extends Metric<Double, Double> {
                     this.belowAverage = true;
 
                     if (this.crossCount >= this.r5Value) {
-                        this.cutoffTime = t;
+                        this.truncateAt(t);
                         this.metricValue = 0.0;
                         return;
                     }
@@ -107,6 +117,11 @@ public class UtilizationMetric extends Metric<Double, Double> {
         }
     }
 
+    @Override
+    protected List<Pair<Double, Double>> foldHistory() {
+        return foldTimeAverage(this.metricHistory);
+    }
+
     public void fromEvent(double t, Event e) {
     }
     public void fromEvent(double t, Event e, int n) {
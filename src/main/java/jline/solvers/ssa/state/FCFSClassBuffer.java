@@ -9,6 +9,8 @@ public class FCFSClassBuffer extends StateCell {
             FCFSClassBuffer -
                 Handles the state for an individual node with a First-Come-First-Served Scheduling Policy
      */
+    private static final long serialVersionUID = 1L;
+
 	public Deque<Integer> deque; // Tracks the class of each element
     protected int nServers;
     protected int[] inQueue;
@@ -0,0 +1,147 @@
+package jline.solvers.ssa.state;
+
+import java.util.*;
+
+public class FCFSRunBuffer extends StateCell {
+    /*
+            FCFSRunBuffer -
+                Run-length encoded FCFSClassBuffer. The queue is a RunLengthDeque and the number in service of each
+                class is kept as a count, so bulk arrivals and departures of n jobs of a class, and getInService(),
+                do not depend on the number of jobs at the node.
+     */
+    private static final long serialVersionUID = 1L;
+
+    protected RunLengthDeque queue;
+    protected int nServers;
+    protected int[] inQueue;
+    protected int[] inService;
+    protected int totalInQueue;
+    protected int nClasses;
+
+    protected PhaseList phaseList;
+
+    public FCFSRunBuffer(int nClasses, int nServers, PhaseList phaseList) {
+        this.queue = new RunLengthDeque();
+        this.nServers = nServers;
+        this.nClasses = nClasses;
+        this.inQueue = new int[nClasses];
+        this.inService = new int[nClasses];
+        this.totalInQueue = 0;
+
+        this.phaseList = phaseList;
+    }
+
+    protected int serviceWindow() {
+        return Math.min(this.nServers, this.totalInQueue);
+    }
+
+    protected void addToService(int classIdx, int n) {
+        if (n > 0) {
+            this.inService[classIdx] += n;
+            this.phaseList.addToServiceN(classIdx, n);
+        }
+    }
+
+    public void addToBuffer(int classIdx) {
+        this.addNToBuffer(classIdx, 1);
+    }
+
+    public void addNToBuffer(int classIdx, int n) {
+        this.addToService(classIdx, Math.min(Math.max(this.nServers - this.totalInQueue, 0), n));
+        this.inQueue[classIdx] += n;
+        this.totalInQueue += n;
+
+        this.queue.addLast(classIdx, n);
+    }
+
+    public int getInService(int classIdx) {
+        return this.inService[classIdx];
+    }
+
+    public boolean isEmpty() {
+        return this.totalInQueue == 0;
+    }
+
+    public void removeFirstOfClass(int classIdx) {
+        this.removeNClass(1, classIdx);
+    }
+
+    public void removeNClass(int n, int classIdx) {
+        int nServing = this.serviceWindow();
+        int nRemaining = this.totalInQueue;
+        int fromService = this.queue.removeFirstN(classIdx, n, nServing);
+        int nRemoved = nRemaining - this.queue.size();
+
+        this.inService[classIdx] -= fromService;
+        this.inQueue[classIdx] -= nRemoved;
+        this.totalInQueue -= nRemoved;
+
+        // the jobs left in service are still at the front, the freed servers take the jobs that follow them
+        int stillServing = nServing - fromService;
+        int newServing = this.serviceWindow();
+        if (newServing > stillServing) {
+            int[] entering = new int[this.nClasses];
+            this.queue.countRange(stillServing, newServing, entering);
+            for (int j = 0; j < this.nClasses; j++) {
+                this.addToService(j, entering[j]);
+            }
+        }
+    }
+
+    protected void copyInto(FCFSRunBuffer copyBuffer) {
+        copyBuffer.queue = new RunLengthDeque(this.queue);
+        copyBuffer.inQueue = Arrays.copyOf(this.inQueue, this.nClasses);
+        copyBuffer.inService = Arrays.copyOf(this.inService, this.nClasses);
+        copyBuffer.totalInQueue = this.totalInQueue;
+    }
+
+    public StateCell createCopy() {
+        FCFSRunBuffer copyBuffer = new FCFSRunBuffer(this.nClasses, this.nServers, this.phaseList.createCopy());
+        this.copyInto(copyBuffer);
+        return copyBuffer;
+    }
+
+    public int getInQueue(int classIdx) {
+        return this.inQueue[classIdx];
+    }
+
+    public boolean incrementPhase(int classIdx) {
+        return this.phaseList.incrementPhase(classIdx, this.getInService(classIdx));
+    }
+
+    public boolean updatePhase(int classIdx, int startingPhase, int newPhase) {
+        return this.phaseList.updatePhase(classIdx, startingPhase, newPhase);
+    }
+
+    public boolean updateGlobalPhase(int classIdx, int newPhase) {
+        this.phaseList.updateGlobalPhase(classIdx, newPhase);
+        return true;
+    }
+
+    public int incrementPhaseN(int n, int classIdx) {
+        return this.phaseList.incrementPhaseN(n, classIdx, this.getInService(classIdx));
+    }
+
+    public int getGlobalPhase(int classIdx) {
+        return this.phaseList.getGlobalPhase(classIdx);
+    }
+
+    public PhaseList getPhaseList() {
+        return this.phaseList;
+    }
+
+    public List<Integer> stateVector() {
+        List<Integer> outList = new ArrayList<Integer>(this.totalInQueue);
+        this.queue.addTo(outList);
+        outList.addAll(this.phaseList.getArray());
+        return outList;
+    }
+
+    public int getStateVectorLength() {
+        return this.queue.size() + this.phaseList.getVectorLength();
+    }
+
+    public void writeStateVector(int[] outArr) {
+        this.phaseList.writeVector(outArr, this.queue.writeTo(outArr, 0));
+    }
+}
@@ -4,6 +4,8 @@ import java.util.*;
 import java.util.stream.Collectors;
 
 public class INFClassBuffer extends StateCell {
+    private static final long serialVersionUID = 1L;
+
     protected int nServers;
     protected int[] inQueue;
     protected int totalInQueue;
@@ -99,4 +101,12 @@ public class INFClassBuffer extends StateCell {
     public List<Integer> stateVector() {
         return Arrays.stream(this.phaseList.getVector()).collect(Collectors.toList());
     }
+
+    public int getStateVectorLength() {
+        return this.phaseList.getVectorLength();
+    }
+
+    public void writeStateVector(int[] outArr) {
+        this.phaseList.writeVector(outArr, 0);
+    }
 }
@@ -9,6 +9,8 @@ public class LCFSNonPreBuffer extends StateCell {
         Last come-first serve without preemption
      */
 
+    private static final long serialVersionUID = 1L;
+
 	public Deque<Integer> deque;
     public Deque<Integer> serverQueue;
 
@@ -0,0 +1,160 @@
+package jline.solvers.ssa.state;
+
+import java.util.*;
+
+public class LCFSNonPreRunBuffer extends StateCell {
+    /*
+        Run-length encoded LCFSNonPreBuffer. Jobs in service and waiting jobs are kept in separate RunLengthDeques,
+            the latter newest first.
+     */
+
+    private static final long serialVersionUID = 1L;
+
+    protected RunLengthDeque serverQueue;
+    protected RunLengthDeque waiting;
+
+    protected int nServers;
+    protected int nClasses;
+    protected int[] inQueue;
+    protected int[] inService;
+    protected int totalInQueue;
+
+    protected PhaseList phaseList;
+
+    public LCFSNonPreRunBuffer(int nClasses, int nServers, PhaseList phaseList) {
+        this.serverQueue = new RunLengthDeque();
+        this.waiting = new RunLengthDeque();
+
+        this.nServers = nServers;
+        this.nClasses = nClasses;
+        this.inQueue = new int[nClasses];
+        this.inService = new int[nClasses];
+        this.totalInQueue = 0;
+
+        this.phaseList = phaseList;
+    }
+
+    private void moveToService(int n) {
+        // the n newest waiting jobs take the freed servers
+        while ((n > 0) && !this.waiting.isEmpty()) {
+            int classToAdd = this.waiting.getRunClass(0);
+            int nToAdd = Math.min(n, this.waiting.getRunCount(0));
+            this.waiting.removeFromRun(0, nToAdd);
+            this.serverQueue.addLast(classToAdd, nToAdd);
+            this.inService[classToAdd] += nToAdd;
+            this.phaseList.addToServiceN(classToAdd, nToAdd);
+            n -= nToAdd;
+        }
+    }
+
+    public void addToBuffer(int classIdx) {
+        this.addNToBuffer(classIdx, 1);
+    }
+
+    public void addNToBuffer(int classIdx, int n) {
+        int nToService = Math.min(Math.max(this.nServers - this.totalInQueue, 0), n);
+        this.inQueue[classIdx] += n;
+        this.totalInQueue += n;
+
+        if (nToService > 0) {
+            this.serverQueue.addLast(classIdx, nToService);
+            this.inService[classIdx] += nToService;
+            this.phaseList.addToServiceN(classIdx, nToService);
+        }
+        this.waiting.addFirst(classIdx, n - nToService);
+    }
+
+    public int getInService(int classIdx) {
+        return this.inService[classIdx];
+    }
+
+    public boolean isEmpty() {
+        return this.totalInQueue == 0;
+    }
+
+    public void removeFirstOfClass(int classIdx) {
+        this.removeNClass(1, classIdx);
+    }
+
+    public void removeNClass(int n, int classIdx) {
+        /*
+            Same as n calls of LCFSNonPreBuffer.removeFirstOfClass(): jobs in service are removed first, each
+                replaced by the newest waiting job, which may itself be of classIdx.
+         */
+        while ((n > 0) && (this.inService[classIdx] > 0)) {
+            int nRemoved = Math.min(n, this.inService[classIdx]);
+            this.serverQueue.removeFirstN(classIdx, nRemoved, 0);
+            this.inService[classIdx] -= nRemoved;
+            this.inQueue[classIdx] -= nRemoved;
+            this.totalInQueue -= nRemoved;
+            n -= nRemoved;
+
+            this.moveToService(nRemoved);
+        }
+
+        if (n > 0) {
+            int nBefore = this.waiting.size();
+            this.waiting.removeFirstN(classIdx, n, 0);
+            int nRemoved = nBefore - this.waiting.size();
+            this.inQueue[classIdx] -= nRemoved;
+            this.totalInQueue -= nRemoved;
+        }
+    }
+
+    public StateCell createCopy() {
+        LCFSNonPreRunBuffer copyBuffer = new LCFSNonPreRunBuffer(this.nClasses, this.nServers, this.phaseList.createCopy());
+        copyBuffer.serverQueue = new RunLengthDeque(this.serverQueue);
+        copyBuffer.waiting = new RunLengthDeque(this.waiting);
+        copyBuffer.inQueue = Arrays.copyOf(this.inQueue, this.nClasses);
+        copyBuffer.inService = Arrays.copyOf(this.inService, this.nClasses);
+        copyBuffer.totalInQueue = this.totalInQueue;
+
+        return copyBuffer;
+    }
+
+    public int getInQueue(int classIdx) {
+        return this.inQueue[classIdx];
+    }
+
+    public boolean incrementPhase(int classIdx) {
+        return this.phaseList.incrementPhase(classIdx, this.getInService(classIdx));
+    }
+
+    public boolean updatePhase(int classIdx, int startingPhase, int newPhase) {
+        return this.phaseList.updatePhase(classIdx, startingPhase, newPhase);
+    }
+
+    public boolean updateGlobalPhase(int classIdx, int newPhase) {
+        this.phaseList.updateGlobalPhase(classIdx, newPhase);
+        return true;
+    }
+
+    public int incrementPhaseN(int n, int classIdx) {
+        throw new RuntimeException("Not implemented");
+    }
+
+    public int getGlobalPhase(int classIdx) {
+        return this.phaseList.getGlobalPhase(classIdx);
+    }
+
+    public PhaseList getPhaseList() {
+        return this.phaseList;
+    }
+
+    public List<Integer> stateVector() {
+        List<Integer> outList = new ArrayList<Integer>(this.totalInQueue);
+        this.serverQueue.addTo(outList);
+        this.waiting.addTo(outList);
+        outList.addAll(this.phaseList.getArray());
+        return outList;
+    }
+
+    public int getStateVectorLength() {
+        return this.serverQueue.size() + this.waiting.size() + this.phaseList.getVectorLength();
+    }
+
+    public void writeStateVector(int[] outArr) {
+        int offset = this.waiting.writeTo(outArr, this.serverQueue.writeTo(outArr, 0));
+        this.phaseList.writeVector(outArr, offset);
+    }
+}
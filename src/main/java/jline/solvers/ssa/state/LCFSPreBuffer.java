@@ -5,6 +5,8 @@ import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 public class LCFSPreBuffer extends StateCell {
+    private static final long serialVersionUID = 1L;
+
     public Deque<Integer> deque;
     protected int nServers;
     protected int[] inQueue;
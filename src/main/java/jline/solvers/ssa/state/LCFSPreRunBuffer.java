@@ -0,0 +1,35 @@
+package jline.solvers.ssa.state;
+
+import java.util.Arrays;
+
+public class LCFSPreRunBuffer extends FCFSRunBuffer {
+    /*
+        Run-length encoded LCFSPreBuffer: arrivals go to the front and preempt the jobs in service. As in
+            LCFSPreBuffer, preempted jobs keep their phases.
+     */
+
+    public LCFSPreRunBuffer(int nClasses, int nServers, PhaseList phaseList) {
+        super(nClasses, nServers, phaseList);
+    }
+
+    public void addNToBuffer(int classIdx, int n) {
+        this.inQueue[classIdx] += n;
+        this.totalInQueue += n;
+
+        this.queue.addFirst(classIdx, n);
+
+        // the service window moved, recount it from the runs it covers
+        Arrays.fill(this.inService, 0);
+        this.queue.countRange(0, this.serviceWindow(), this.inService);
+    }
+
+    public StateCell createCopy() {
+        LCFSPreRunBuffer copyBuffer = new LCFSPreRunBuffer(this.nClasses, this.nServers, this.phaseList.createCopy());
+        this.copyInto(copyBuffer);
+        return copyBuffer;
+    }
+
+    public int incrementPhaseN(int n, int classIdx) {
+        throw new RuntimeException("Not implemented");
+    }
+}
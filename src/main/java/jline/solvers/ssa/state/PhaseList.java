@@ -1,25 +1,27 @@
 package jline.solvers.ssa.state;
 
-import jline.util.Cdf;
+import jline.util.AliasTable;
 
+import java.io.Serializable;
 import java.util.*;
 import java.util.stream.Stream;
 
-public class PhaseList {
+public class PhaseList implements Serializable {
+    private static final long serialVersionUID = 1L;
+
     protected int[] nPhases;
     protected int nClasses;
 
     protected Random random;
 
-    protected Integer[] nInPhase;
+    protected int[] nInPhase;
     protected int[] globalPhases;
     protected int[] phaseListStart;
     protected int[] totalInList;
 
     protected int phaseListOffset = 0;
 
-    protected List<Cdf<Integer>> startingPhaseProbabilities;
-    protected Set<Integer> customStartClasses;
+    protected AliasTable[] startingPhaseTables; // [class], null -> start in phase 0
 
     public PhaseList(int[] nPhases, int nClasses, Random random) {
         this.nPhases = nPhases; // number of phases per each class
@@ -41,43 +43,36 @@ public class PhaseList {
             this.totalInList[i] = 0;
         }
 
-        this.nInPhase = new Integer[cumClassPhase];
-        for (int i = 0; i < cumClassPhase; i++) {
-            this.nInPhase[i] = 0;
-        }
+        this.nInPhase = new int[cumClassPhase];
         this.phaseListOffset = 0;
 
-        this.startingPhaseProbabilities = new ArrayList<Cdf<Integer>>();
-        for (int i = 0; i < nClasses; i++) {
-            this.startingPhaseProbabilities.add(new Cdf<Integer>(this.random));
-            this.startingPhaseProbabilities.get(i).addElement(0, 1);
-            for (int j = 0; j < nPhases[i]; j++) {
-                this.startingPhaseProbabilities.get(i).addElement(j, 0);
-            }
-        }
-        this.customStartClasses = new HashSet<Integer>();
+        this.startingPhaseTables = new AliasTable[nClasses];
     }
 
     public void setPhaseStart(int classIdx, List<Double> classProbabilities) {
-        this.startingPhaseProbabilities.set(classIdx, new Cdf<Integer>(this.random));
-        for (int i = 0; i < classProbabilities.size(); i++) {
-            this.startingPhaseProbabilities.get(classIdx).addElement(i, classProbabilities.get(i));
-        }
-        this.customStartClasses.add(classIdx);
+        this.setPhaseStart(classIdx, new AliasTable(classProbabilities));
+    }
+
+    public void setPhaseStart(int classIdx, AliasTable startingPhaseTable) {
+        // tables are never modified, so they can be shared between PhaseList instances
+        this.startingPhaseTables[classIdx] = startingPhaseTable;
     }
 
     public int getPhaseStart(int classIdx) {
-        if (!this.customStartClasses.contains(classIdx)) {
+        if (this.startingPhaseTables[classIdx] == null) {
             return 0;
         }
 
-        return this.startingPhaseProbabilities.get(classIdx).generate();
+        return this.startingPhaseTables[classIdx].sample(this.random);
     }
 
     public void setPhaseVector(Integer[] nInPhase) {
         int prevOffset = this.phaseListOffset;
         this.phaseListOffset = nInPhase.length - this.nInPhase.length - this.phaseListOffset;
-        this.nInPhase = nInPhase;
+        this.nInPhase = new int[nInPhase.length];
+        for (int i = 0; i < this.phaseListOffset; i++) {
+            this.nInPhase[i] = nInPhase[i];
+        }
         for (int i = this.phaseListOffset; i < this.nInPhase.length; i++) {
             this.nInPhase[i] = 0;
         }
@@ -114,6 +109,11 @@ public class PhaseList {
     }
 
     public void addToServiceN(int classIdx, int n) {
+        if (this.startingPhaseTables[classIdx] == null) {
+            // every job starts in phase 0
+            this.addToServiceN(classIdx, 0, n);
+            return;
+        }
         for (int i = 0; i < n; i++) {
             this.addToService(classIdx);
         }
@@ -213,27 +213,39 @@ public class PhaseList {
 
     public PhaseList createCopy() {
         PhaseList outList = new PhaseList(this.nPhases, this.nClasses, this.random);
-        outList.nInPhase = new Integer[this.nInPhase.length];
-        for(int i=0;i< nInPhase.length;i++){
-            Integer temp = Integer.valueOf(this.nInPhase[i]);
-            outList.nInPhase[i]=temp;
-        }
+        outList.nInPhase = this.nInPhase.clone();
         outList.globalPhases = this.globalPhases.clone();
         outList.phaseListStart = this.phaseListStart.clone();
         outList.totalInList = this.totalInList.clone();
+        outList.startingPhaseTables = this.startingPhaseTables;
 
         return outList;
     }
 
     public Integer[] getVector() {
-        return this.nInPhase;
+        // boxed copy, for state vectors
+        Integer[] outVector = new Integer[this.nInPhase.length];
+        for (int i = 0; i < this.nInPhase.length; i++) {
+            outVector[i] = this.nInPhase[i];
+        }
+        return outVector;
     }
 
     public List<Integer> getArray() {
-        return Arrays.asList(this.nInPhase);
+        return Arrays.asList(this.getVector());
+    }
+
+    public int getVectorLength() {
+        return this.nInPhase.length;
+    }
+
+    public int writeVector(int[] outArr, int offset) {
+        // primitive getVector(), from outArr[offset]; returns the offset after it
+        System.arraycopy(this.nInPhase, 0, outArr, offset, this.nInPhase.length);
+        return offset + this.nInPhase.length;
     }
 
     public Stream<Integer> getStream() {
-        return Arrays.stream(this.nInPhase);
+        return Arrays.stream(this.nInPhase).boxed();
     }
 }
@@ -7,6 +7,8 @@ import java.util.stream.Stream;
 import static java.lang.Math.min;
 
 public class ProcessorSharingBuffer extends StateCell {
+    private static final long serialVersionUID = 1L;
+
     protected Integer[] classCounts;
     protected Random random;
     protected int nServers;
@@ -125,6 +127,17 @@ public class ProcessorSharingBuffer extends StateCell {
         return Stream.concat(Arrays.stream(this.classCounts), this.phaseList.getStream()).collect(Collectors.toList());
     }
 
+    public int getStateVectorLength() {
+        return this.classCounts.length + this.phaseList.getVectorLength();
+    }
+
+    public void writeStateVector(int[] outArr) {
+        for (int j = 0; j < this.classCounts.length; j++) {
+            outArr[j] = this.classCounts[j];
+        }
+        this.phaseList.writeVector(outArr, this.classCounts.length);
+    }
+
     public int getTotalCapacity() {
         int acc = 0;
         for (int val : this.classCounts) {
@@ -0,0 +1,228 @@
+package jline.solvers.ssa.state;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.List;
+
+public class RunLengthDeque implements Serializable {
+    /*
+        RunLengthDeque -
+            Job order of a scheduling buffer, as a ring of runs (class, number of consecutive jobs of that class) in
+            two primitive arrays. Adding n jobs of the class already at an end is a single increment, and adjacent
+            runs of the same class are always merged, so the number of runs is bounded by the number of class
+            changes along the queue rather than by the number of jobs.
+     */
+    private static final long serialVersionUID = 1L;
+
+    protected int[] runClasses;
+    protected int[] runCounts;
+    protected int head;
+    protected int nRuns;
+    protected int nJobs;
+
+    public RunLengthDeque() {
+        this(8);
+    }
+
+    public RunLengthDeque(int initialRuns) {
+        this.runClasses = new int[Math.max(initialRuns, 2)];
+        this.runCounts = new int[Math.max(initialRuns, 2)];
+        this.head = 0;
+        this.nRuns = 0;
+        this.nJobs = 0;
+    }
+
+    public RunLengthDeque(RunLengthDeque that) {
+        this.runClasses = Arrays.copyOf(that.runClasses, that.runClasses.length);
+        this.runCounts = Arrays.copyOf(that.runCounts, that.runCounts.length);
+        this.head = that.head;
+        this.nRuns = that.nRuns;
+        this.nJobs = that.nJobs;
+    }
+
+    protected int slot(int k) {
+        // ring position of the k-th run from the front
+        int s = this.head + k;
+        return (s >= this.runClasses.length) ? s - this.runClasses.length : s;
+    }
+
+    protected void grow() {
+        int capacity = this.runClasses.length;
+        int[] newClasses = new int[2*capacity];
+        int[] newCounts = new int[2*capacity];
+        for (int k = 0; k < this.nRuns; k++) {
+            newClasses[k] = this.runClasses[this.slot(k)];
+            newCounts[k] = this.runCounts[this.slot(k)];
+        }
+        this.runClasses = newClasses;
+        this.runCounts = newCounts;
+        this.head = 0;
+    }
+
+    public void addLast(int classIdx, int n) {
+        if (n <= 0) {
+            return;
+        }
+        this.nJobs += n;
+        if ((this.nRuns > 0) && (this.runClasses[this.slot(this.nRuns-1)] == classIdx)) {
+            this.runCounts[this.slot(this.nRuns-1)] += n;
+            return;
+        }
+        if (this.nRuns == this.runClasses.length) {
+            this.grow();
+        }
+        int s = this.slot(this.nRuns);
+        this.runClasses[s] = classIdx;
+        this.runCounts[s] = n;
+        this.nRuns++;
+    }
+
+    public void addFirst(int classIdx, int n) {
+        if (n <= 0) {
+            return;
+        }
+        this.nJobs += n;
+        if ((this.nRuns > 0) && (this.runClasses[this.head] == classIdx)) {
+            this.runCounts[this.head] += n;
+            return;
+        }
+        if (this.nRuns == this.runClasses.length) {
+            this.grow();
+        }
+        this.head = (this.head == 0) ? this.runClasses.length - 1 : this.head - 1;
+        this.runClasses[this.head] = classIdx;
+        this.runCounts[this.head] = n;
+        this.nRuns++;
+    }
+
+    public int size() {
+        return this.nJobs;
+    }
+
+    public boolean isEmpty() {
+        return this.nJobs == 0;
+    }
+
+    public int getNumberOfRuns() {
+        return this.nRuns;
+    }
+
+    public int getRunClass(int k) {
+        return this.runClasses[this.slot(k)];
+    }
+
+    public int getRunCount(int k) {
+        return this.runCounts[this.slot(k)];
+    }
+
+    public int removeFromRun(int k, int n) {
+        /*
+            Remove up to n jobs from the k-th run. An emptied run is dropped, shifting the shorter side of the ring,
+                and its neighbours merged if they are of the same class. Returns the number of jobs the run after
+                it moved into the run before it on a merge, 0 otherwise; callers walking the runs stay at k either
+                way, and count those jobs as passed.
+         */
+        int s = this.slot(k);
+        int removed = Math.min(n, this.runCounts[s]);
+        this.runCounts[s] -= removed;
+        this.nJobs -= removed;
+        if (this.runCounts[s] > 0) {
+            return 0;
+        }
+
+        this.dropRun(k);
+        if ((k > 0) && (k < this.nRuns) && (this.getRunClass(k-1) == this.getRunClass(k))) {
+            int merged = this.runCounts[this.slot(k)];
+            this.runCounts[this.slot(k-1)] += merged;
+            this.dropRun(k);
+            return merged;
+        }
+        return 0;
+    }
+
+    protected void dropRun(int k) {
+        if (k < this.nRuns/2) {
+            for (int m = k; m > 0; m--) {
+                this.runClasses[this.slot(m)] = this.runClasses[this.slot(m-1)];
+                this.runCounts[this.slot(m)] = this.runCounts[this.slot(m-1)];
+            }
+            this.head = this.slot(1);
+        } else {
+            for (int m = k; m < this.nRuns-1; m++) {
+                this.runClasses[this.slot(m)] = this.runClasses[this.slot(m+1)];
+                this.runCounts[this.slot(m)] = this.runCounts[this.slot(m+1)];
+            }
+        }
+        this.nRuns--;
+    }
+
+    public int removeFirstN(int classIdx, int n, int windowSize) {
+        /*
+            Remove the first n jobs of classIdx (fewer if there are not as many). Returns how many of the removed
+                jobs were among the first windowSize jobs, e.g. in service.
+         */
+        int position = 0; // in the order before the call
+        int inWindow = 0;
+        int k = 0;
+        while ((n > 0) && (k < this.nRuns)) {
+            int count = this.getRunCount(k);
+            if (this.getRunClass(k) != classIdx) {
+                position += count;
+                k++;
+                continue;
+            }
+            int removed = Math.min(n, count);
+            inWindow += Math.max(0, Math.min(position + removed, windowSize) - position);
+            position += removed;
+            n -= removed;
+            if (removed < count) {
+                this.removeFromRun(k, removed);
+                break;
+            }
+            // the next run is now at k, unless it was merged into the run before
+            position += this.removeFromRun(k, removed);
+        }
+        return inWindow;
+    }
+
+    public void countRange(int from, int to, int[] counts) {
+        // add the number of jobs of each class at positions [from, to) to counts
+        int position = 0;
+        for (int k = 0; (k < this.nRuns) && (position < to); k++) {
+            int count = this.getRunCount(k);
+            int overlap = Math.min(position + count, to) - Math.max(position, from);
+            if (overlap > 0) {
+                counts[this.getRunClass(k)] += overlap;
+            }
+            position += count;
+        }
+    }
+
+    public int removeFirst() {
+        // class of the job removed from the front
+        int classIdx = this.runClasses[this.head];
+        this.removeFromRun(0, 1);
+        return classIdx;
+    }
+
+    public void addTo(List<Integer> out) {
+        // expanded job order, one entry per job
+        for (int k = 0; k < this.nRuns; k++) {
+            int classIdx = this.getRunClass(k);
+            for (int m = this.getRunCount(k); m > 0; m--) {
+                out.add(classIdx);
+            }
+        }
+    }
+
+    public int writeTo(int[] outArr, int offset) {
+        // as addTo, from outArr[offset]; returns the offset after the last job
+        for (int k = 0; k < this.nRuns; k++) {
+            int classIdx = this.getRunClass(k);
+            for (int m = this.getRunCount(k); m > 0; m--) {
+                outArr[offset++] = classIdx;
+            }
+        }
+        return offset;
+    }
+}
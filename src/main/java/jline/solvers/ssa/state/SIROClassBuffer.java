@@ -7,6 +7,8 @@ import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 public class SIROClassBuffer extends StateCell {
+    private static final long serialVersionUID = 1L;
+
     protected int[] inWaiting;
     protected int[] inService;
     protected Integer[] inQueue;
@@ -0,0 +1,161 @@
+package jline.solvers.ssa.state;
+
+import java.util.*;
+
+public class SIRORunBuffer extends StateCell {
+    /*
+        Primitive SIROClassBuffer. Only the number waiting and in service of each class matters under random order,
+            so bulk arrivals and departures update counts, and the next job to serve is drawn straight from the
+            waiting counts instead of building a Cdf for every departure.
+     */
+    private static final long serialVersionUID = 1L;
+
+    protected int[] inWaiting;
+    protected int[] inService;
+    protected int[] inQueue;
+
+    protected int nServers;
+    protected int nClasses;
+    protected int totalInQueue;
+    protected int totalInWaiting;
+
+    protected PhaseList phaseList;
+
+    protected Random random;
+
+    public SIRORunBuffer(Random random, int nClasses, int nServers, PhaseList phaseList) {
+        this.inWaiting = new int[nClasses];
+        this.inService = new int[nClasses];
+        this.inQueue = new int[nClasses];
+
+        this.nServers = nServers;
+        this.nClasses = nClasses;
+        this.totalInQueue = 0;
+        this.totalInWaiting = 0;
+
+        this.phaseList = phaseList;
+
+        this.random = random;
+    }
+
+    private void moveToService(int n) {
+        // n waiting jobs, drawn uniformly, take the freed servers
+        for (; (n > 0) && (this.totalInWaiting > 0); n--) {
+            int selected = this.random.nextInt(this.totalInWaiting);
+            int classToAdd = 0;
+            while (selected >= this.inWaiting[classToAdd]) {
+                selected -= this.inWaiting[classToAdd];
+                classToAdd++;
+            }
+            this.inWaiting[classToAdd]--;
+            this.totalInWaiting--;
+            this.inService[classToAdd]++;
+            this.phaseList.addToService(classToAdd);
+        }
+    }
+
+    public void addToBuffer(int classIdx) {
+        this.addNToBuffer(classIdx, 1);
+    }
+
+    public void addNToBuffer(int classIdx, int n) {
+        int addToService = Math.min(Math.max(this.nServers - this.totalInQueue, 0), n);
+        int addToWaiting = n - addToService;
+        if (addToService > 0) {
+            this.inService[classIdx] += addToService;
+            this.phaseList.addToServiceN(classIdx, addToService);
+        }
+        this.inWaiting[classIdx] += addToWaiting;
+        this.totalInWaiting += addToWaiting;
+        this.totalInQueue += n;
+        this.inQueue[classIdx] += n;
+    }
+
+    public int getInService(int classIdx) {
+        return this.inService[classIdx];
+    }
+
+    public boolean isEmpty() {
+        return this.totalInQueue == 0;
+    }
+
+    public void removeFirstOfClass(int classIdx) {
+        this.removeNClass(1, classIdx);
+    }
+
+    public void removeNClass(int n, int classIdx) {
+        // jobs in service first, each freed server taking a waiting job that may itself be of classIdx
+        while ((n > 0) && (this.inService[classIdx] > 0)) {
+            int nRemoved = Math.min(n, this.inService[classIdx]);
+            this.inService[classIdx] -= nRemoved;
+            this.inQueue[classIdx] -= nRemoved;
+            this.totalInQueue -= nRemoved;
+            n -= nRemoved;
+
+            this.moveToService(nRemoved);
+        }
+
+        int nRemoved = Math.min(n, this.inWaiting[classIdx]);
+        this.inWaiting[classIdx] -= nRemoved;
+        this.totalInWaiting -= nRemoved;
+        this.inQueue[classIdx] -= nRemoved;
+        this.totalInQueue -= nRemoved;
+    }
+
+    public StateCell createCopy() {
+        SIRORunBuffer copyBuffer = new SIRORunBuffer(this.random, this.nClasses, this.nServers, this.phaseList.createCopy());
+        copyBuffer.inWaiting = Arrays.copyOf(this.inWaiting, this.nClasses);
+        copyBuffer.inService = Arrays.copyOf(this.inService, this.nClasses);
+        copyBuffer.inQueue = Arrays.copyOf(this.inQueue, this.nClasses);
+        copyBuffer.totalInQueue = this.totalInQueue;
+        copyBuffer.totalInWaiting = this.totalInWaiting;
+        return copyBuffer;
+    }
+
+    public int getInQueue(int classIdx) {
+        return this.inQueue[classIdx];
+    }
+
+    public boolean incrementPhase(int classIdx) {
+        return this.phaseList.incrementPhase(classIdx, this.getInService(classIdx));
+    }
+
+    public boolean updatePhase(int classIdx, int startingPhase, int newPhase) {
+        return this.phaseList.updatePhase(classIdx, startingPhase, newPhase);
+    }
+
+    public boolean updateGlobalPhase(int classIdx, int newPhase) {
+        this.phaseList.updateGlobalPhase(classIdx, newPhase);
+        return true;
+    }
+
+    public int incrementPhaseN(int n, int classIdx) {
+        return this.phaseList.incrementPhaseN(n, classIdx, this.getInService(classIdx));
+    }
+
+    public int getGlobalPhase(int classIdx) {
+        return this.phaseList.getGlobalPhase(classIdx);
+    }
+
+    public PhaseList getPhaseList() {
+        return this.phaseList;
+    }
+
+    public List<Integer> stateVector() {
+        List<Integer> outList = new ArrayList<Integer>();
+        for (int j = 0; j < this.nClasses; j++) {
+            outList.add(this.inQueue[j]);
+        }
+        outList.addAll(this.phaseList.getArray());
+        return outList;
+    }
+
+    public int getStateVectorLength() {
+        return this.nClasses + this.phaseList.getVectorLength();
+    }
+
+    public void writeStateVector(int[] outArr) {
+        System.arraycopy(this.inQueue, 0, outArr, 0, this.nClasses);
+        this.phaseList.writeVector(outArr, this.nClasses);
+    }
+}
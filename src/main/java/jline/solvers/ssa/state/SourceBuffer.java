@@ -6,6 +6,8 @@ import java.util.*;
 import java.util.stream.Collectors;
 
 public class SourceBuffer extends StateCell {
+    private static final long serialVersionUID = 1L;
+
     protected int nClasses;
 
     protected PhaseList phaseList;
@@ -79,4 +81,12 @@ public class SourceBuffer extends StateCell {
     public List<Integer> stateVector() {
         return Arrays.stream(this.phaseList.getVector()).collect(Collectors.toList());
     }
+
+    public int getStateVectorLength() {
+        return this.phaseList.getVectorLength();
+    }
+
+    public void writeStateVector(int[] outArr) {
+        this.phaseList.writeVector(outArr, 0);
+    }
 }
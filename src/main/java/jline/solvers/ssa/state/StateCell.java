@@ -1,8 +1,10 @@
 package jline.solvers.ssa.state;
 
+import java.io.Serializable;
 import java.util.List;
 
-public abstract class StateCell {
+public abstract class StateCell implements Serializable {
+    private static final long serialVersionUID = 1L;
 
     public StateCell() {
     }
@@ -27,4 +29,16 @@ public abstract class StateCell {
     public abstract PhaseList getPhaseList();
 
     public abstract List<Integer> stateVector();
+
+    public int getStateVectorLength() {
+        return this.stateVector().size();
+    }
+
+    public void writeStateVector(int[] outArr) {
+        // stateVector() into the first getStateVectorLength() entries of outArr; cells override both to skip boxing
+        List<Integer> vector = this.stateVector();
+        for (int k = 0; k < vector.size(); k++) {
+            outArr[k] = vector.get(k);
+        }
+    }
 }
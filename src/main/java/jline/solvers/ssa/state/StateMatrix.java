@@ -9,21 +9,25 @@ import jline.solvers.ssa.SSAStruct;
 import jline.solvers.ssa.events.Event;
 
 import jline.solvers.ssa.events.OutputEvent;
+import jline.util.PackedKeyIndex;
 import jline.util.Pair;
 import org.javatuples.Quartet;
 import org.javatuples.Triplet;
 
 
+import java.io.Serializable;
 import java.lang.reflect.Array;
 import java.util.*;
 
-public class StateMatrix {
+public class StateMatrix implements Serializable {
     /*
         In theory, this should be a one-stop point to handle all stateful information about the system.
 
         The system isn't quite there yet, e.g. some events track stateful info (e.g. JoinOutputEvent).
      */
 
+    private static final long serialVersionUID = 1L;
+
     // configuration parameters
     protected int[][] capacities; // [node][class]
     protected int[] nodeCapacity; // [node]
@@ -39,6 +43,19 @@ public class StateMatrix {
     protected int[][] stateCache;
     protected StateCell[] bufferCache;
 
+    // stations changed since the last call to clearTouched(), for incremental rate maintenance
+    protected boolean[] touched;
+    protected int[] touchedList;
+    protected int nTouched;
+
+    // same, but consumed by Timeline.record() for metric maintenance
+    protected boolean[] recordTouched;
+    protected int[] recordTouchedList;
+    protected int nRecordTouched;
+
+    // per station change counters, never cleared; lets observers (e.g. TransientRecorder) skip unchanged stations
+    protected long[] versions;
+
     // used to temporarily allow illegal states, e.g. negative jobs at a station or more jobs than capacity. - REMOVED (MS)
     //protected boolean allowIllegalStates;
     protected Random random;
@@ -59,6 +76,15 @@ public class StateMatrix {
     }
 
     public StateMatrix(SSAStruct networkStruct, Random random) {
+        this(networkStruct, random, false);
+    }
+
+    public StateMatrix(SSAStruct networkStruct, Random random, boolean runLengthBuffers) {
+        /*
+            runLengthBuffers selects the primitive, run-length encoded buffers (FCFSRunBuffer, LCFSNonPreRunBuffer,
+                LCFSPreRunBuffer, SIRORunBuffer) for FCFS, LCFS, LCFS-PR and SIRO nodes, with O(1) bulk arrivals and
+                departures of jobs of one class and O(1) counts of jobs in service.
+         */
         this.nStateful = networkStruct.nStateful;
         this.nClasses = networkStruct.nClasses;
         this.capacities = networkStruct.capacities;
@@ -74,13 +100,26 @@ public class StateMatrix {
         }
 
         this.stateCache = new int[nStateful][nClasses];
+        this.touched = new boolean[nStateful];
+        this.touchedList = new int[nStateful];
+        this.nTouched = 0;
+        this.recordTouched = new boolean[nStateful];
+        this.recordTouchedList = new int[nStateful];
+        this.nRecordTouched = 0;
+        this.versions = new long[nStateful];
 
         // build StateCell instances according to the scheduling strategy at each node.
         this.buffers = new StateCell[nStateful];
         this.bufferCache = new StateCell[nStateful];
         for (int i = 0; i < nStateful; i++) {
             PhaseList phaseList = new PhaseList(this.nPhases[i], this.nClasses, this.random);
-            if (networkStruct.startingPhaseProbabilities[i] != null) {
+            if (networkStruct.startingPhaseTables != null) {
+                for (int j = 0; j < nClasses; j++) {
+                    if (networkStruct.startingPhaseTables[i][j] != null) {
+                        phaseList.setPhaseStart(j, networkStruct.startingPhaseTables[i][j]);
+                    }
+                }
+            } else if (networkStruct.startingPhaseProbabilities[i] != null) {
                 for (int j = 0; j < nClasses; j++) {
                     if (networkStruct.startingPhaseProbabilities[i].containsKey(j)) {
                         phaseList.setPhaseStart(j, networkStruct.startingPhaseProbabilities[i].get(j));
@@ -88,19 +127,35 @@ public class StateMatrix {
                 }
             }
             if (networkStruct.schedStrategies[i] == SchedStrategy.FCFS) {
-                this.buffers[i] = new FCFSClassBuffer(nClasses, networkStruct.numberOfServers[i], phaseList);
+                if (runLengthBuffers) {
+                    this.buffers[i] = new FCFSRunBuffer(nClasses, networkStruct.numberOfServers[i], phaseList);
+                } else {
+                    this.buffers[i] = new FCFSClassBuffer(nClasses, networkStruct.numberOfServers[i], phaseList);
+                }
             } else if(networkStruct.schedStrategies[i] == SchedStrategy.INF) {
                 this.buffers[i] = new INFClassBuffer(this.random, nClasses, phaseList);
             } else if (networkStruct.schedStrategies[i] == SchedStrategy.EXT) {
                 this.buffers[i] = new SourceBuffer(nClasses, phaseList);
             } else if (networkStruct.schedStrategies[i] == SchedStrategy.LCFS) {
+                if (runLengthBuffers) {
+                    this.buffers[i] = new LCFSNonPreRunBuffer(nClasses, networkStruct.numberOfServers[i], phaseList);
+                } else {
                     this.buffers[i] = new LCFSNonPreBuffer(nClasses, networkStruct.numberOfServers[i], phaseList);
+                }
             } else if (networkStruct.schedStrategies[i] == SchedStrategy.LCFSPR) {
-                this.buffers[i] = new LCFSPreBuffer(nClasses, networkStruct.numberOfServers[i], phaseList);
+                if (runLengthBuffers) {
+                    this.buffers[i] = new LCFSPreRunBuffer(nClasses, networkStruct.numberOfServers[i], phaseList);
+                } else {
+                    this.buffers[i] = new LCFSPreBuffer(nClasses, networkStruct.numberOfServers[i], phaseList);
+                }
             } else if (networkStruct.schedStrategies[i] == SchedStrategy.PS) {
                 this.buffers[i] = new ProcessorSharingBuffer(this.random, nClasses, networkStruct.numberOfServers[i], phaseList);
             } else if (networkStruct.schedStrategies[i] == SchedStrategy.SIRO) {
-                this.buffers[i] = new SIROClassBuffer(this.random, nClasses, networkStruct.numberOfServers[i], phaseList, false);
+                if (runLengthBuffers) {
+                    this.buffers[i] = new SIRORunBuffer(this.random, nClasses, networkStruct.numberOfServers[i], phaseList);
+                } else {
+                    this.buffers[i] = new SIROClassBuffer(this.random, nClasses, networkStruct.numberOfServers[i], phaseList, false);
+                }
             /*} else if (networkStruct.schedStrategies[i] == SchedStrategy.SIROPR) {
                 this.buffers[i] = new SIROClassBuffer(this.random, nClasses, networkStruct.numberOfServers[i], phaseList, true);*/
             } else {
@@ -114,6 +169,7 @@ public class StateMatrix {
         this.nStateful = that.nStateful;
         this.nClasses = that.nClasses;
         this.capacities = that.capacities.clone();
+        this.nodeCapacity = that.nodeCapacity;
         this.state = new int[that.state.length][that.state[0].length];
         for(int i=0;i<state.length;i++){
             for (int j=0;j<state[0].length;j++){
@@ -127,13 +183,83 @@ public class StateMatrix {
         for (int i = 0 ; i < that.nStateful; i++) {
             this.buffers[i] = that.buffers[i].createCopy();
         }
+        this.touched = new boolean[that.nStateful];
+        this.touchedList = new int[that.nStateful];
+        this.nTouched = 0;
+        this.recordTouched = new boolean[that.nStateful];
+        this.recordTouchedList = new int[that.nStateful];
+        this.nRecordTouched = 0;
+        this.versions = new long[that.nStateful];
+    }
+
+    public Random getRandom() {
+        // the stream shared by every StateCell and PhaseList of this matrix
+        return this.random;
+    }
+
+    protected void touch(int nodeIdx) {
+        this.versions[nodeIdx]++;
+        if (!this.touched[nodeIdx]) {
+            this.touched[nodeIdx] = true;
+            this.touchedList[this.nTouched] = nodeIdx;
+            this.nTouched++;
+        }
+        if (!this.recordTouched[nodeIdx]) {
+            this.recordTouched[nodeIdx] = true;
+            this.recordTouchedList[this.nRecordTouched] = nodeIdx;
+            this.nRecordTouched++;
+        }
+    }
+
+    public long getVersion(int nodeIdx) {
+        return this.versions[nodeIdx];
+    }
+
+    public int getNTouched() {
+        return this.nTouched;
+    }
+
+    public int getTouched(int i) {
+        // i-th station changed since the last clearTouched()
+        return this.touchedList[i];
+    }
+
+    public void clearTouched() {
+        for (int i = 0; i < this.nTouched; i++) {
+            this.touched[this.touchedList[i]] = false;
+        }
+        this.nTouched = 0;
+    }
+
+    public int getNRecordTouched() {
+        return this.nRecordTouched;
+    }
+
+    public int getRecordTouched(int i) {
+        // i-th station changed since the last clearRecordTouched()
+        return this.recordTouchedList[i];
+    }
+
+    public void clearRecordTouched() {
+        for (int i = 0; i < this.nRecordTouched; i++) {
+            this.recordTouched[this.recordTouchedList[i]] = false;
+        }
+        this.nRecordTouched = 0;
+    }
+
+    public void touchAll() {
+        for (int i = 0; i < this.nStateful; i++) {
+            this.touch(i);
+        }
     }
 
     public void addToBuffer(int nodeIdx, int classIdx) {
+        this.touch(nodeIdx);
         this.buffers[nodeIdx].addToBuffer(classIdx);
     }
 
     public void addToBuffer(int nodeIdx, int classIdx, int count) {
+        this.touch(nodeIdx);
         this.buffers[nodeIdx].addNToBuffer(classIdx, count);
     }
 
@@ -174,6 +300,7 @@ public class StateMatrix {
             return false;
         }
 
+        this.touch(nodeIdx);
         this.buffers[nodeIdx].removeFirstOfClass(classIdx);
         this.state[nodeIdx][classIdx]--;
         return true;
@@ -185,6 +312,7 @@ public class StateMatrix {
         int curState = this.state[nodeIdx][classIdx];
         int nToApply = Math.min(curState, n);
 
+        this.touch(nodeIdx);
         this.buffers[nodeIdx].removeNClass(nToApply, classIdx);
         this.state[nodeIdx][classIdx] -= nToApply;
 
@@ -220,10 +348,12 @@ public class StateMatrix {
     }
 
     public void incrementState(int nodeIdx, int classIdx) {
+        this.touch(nodeIdx);
         this.state[nodeIdx][classIdx]++;
     }
 
     public void decrementState(int nodeIdx, int classIdx) {
+        this.touch(nodeIdx);
         this.state[nodeIdx][classIdx]--;
     }
 
@@ -233,6 +363,7 @@ public class StateMatrix {
 
     public void setState(int nodeIdx, int classIdx, int state) {
         // mostly used for debugging
+        this.touch(nodeIdx);
         this.state[nodeIdx][classIdx] = state;
     }
 
@@ -252,14 +383,17 @@ public class StateMatrix {
         /*
             Signal a class-specific phase update
          */
+        this.touch(nodeIdx);
         return this.buffers[nodeIdx].incrementPhase(classIdx);
     }
 
     public int incrementPhaseN(int n, int nodeIdx, int classIdx) {
+        this.touch(nodeIdx);
         return this.buffers[nodeIdx].incrementPhaseN(n, classIdx);
     }
 
     public boolean updatePhase (int nodeIdx, int classIdx, int startingPhase, int endingPhase) {
+        this.touch(nodeIdx);
         return this.buffers[nodeIdx].updatePhase(classIdx, startingPhase, endingPhase);
     }
 
@@ -267,6 +401,7 @@ public class StateMatrix {
         /*
             Signal a global phase update
          */
+        this.touch(nodeIdx);
         return this.buffers[nodeIdx].updateGlobalPhase(classIdx, newPhase);
     }
 
@@ -297,6 +432,7 @@ public class StateMatrix {
     public void revertToCache() {
         this.state = this.stateCache;
         this.buffers = this.bufferCache;
+        this.touchAll();
     }
 
     public List<Integer>[] getStateVectors() {
@@ -315,79 +451,38 @@ public class StateMatrix {
         return outList;
     }
 
-    public int[][] copy(){
-        return this.state.clone();
+    public List<Integer> getStateVector(int nodeIdx) {
+        return this.buffers[nodeIdx].stateVector();
     }
 
-    public boolean checkIfVisited(ArrayList<StateMatrix> stateSpace){
-        List<Integer>[] newState = getStateVectors();
-
-        boolean checkIfPresent = false;
-        for (StateMatrix stateMatrix : stateSpace) {
-            boolean ifMatches = true;
-            List<Integer>[] visitedState = stateMatrix.getStateVectors();
-            for (int j = 0; j < visitedState.length; j++) {
-                if(newState[j].size()!=visitedState[j].size()){
-                    ifMatches=false;
-                    break;
-                }
-                for (int k = 0; k < visitedState[j].size(); k++) {
-                    if (!Objects.equals(newState[j].get(k), visitedState[j].get(k))) {
-                        ifMatches = false;
-                    }
-                }
-            }
-            if (ifMatches) {
-                checkIfPresent = true;
-                break;
-            }
-        }
-        return  checkIfPresent;
+    public int getStateVectorLength(int nodeIdx) {
+        return this.buffers[nodeIdx].getStateVectorLength();
     }
 
-    public boolean checkIfVisited(ArrayList<Quartet<Event, Pair<OutputEvent,Double>,StateMatrix,StateMatrix>>  eventSpace, StateMatrix oldState, Event event, OutputEvent outputEvent){
-        List<Integer>[] newState = getStateVectors();
-        List<Integer>[] oldStateVector = oldState.getStateVectors();
+    public void writeStateVector(int nodeIdx, int[] outArr) {
+        // getStateVector(nodeIdx) into the first getStateVectorLength(nodeIdx) entries of outArr, without boxing
+        this.buffers[nodeIdx].writeStateVector(outArr);
+    }
 
-        boolean checkIfPresent = false;
+    public int[][] copy(){
+        return this.state.clone();
+    }
 
-        for (Quartet<Event, Pair<OutputEvent,Double>,StateMatrix,StateMatrix> eventMatrix : eventSpace) {
-            boolean ifMatches = true;
-            if(eventMatrix.getValue3()!=null) {
-                for (int j = 0; j < eventMatrix.getValue3().getStateVectors().length; j++) {
-                    if (newState[j].size() != eventMatrix.getValue3().getStateVectors()[j].size()) {
-                        ifMatches = false;
-                        break;
-                    }
-                    for (int k = 0; k < eventMatrix.getValue3().getStateVectors()[j].size(); k++) {
-                        if (!Objects.equals(newState[j].get(k), eventMatrix.getValue3().getStateVectors()[j].get(k))) {
-                            ifMatches = false;
-                        }
-                    }
-                }
-            }else{
-                ifMatches=false;
-            }
-            if(eventMatrix.getValue2()!=null) {
-                for (int j = 0; j < eventMatrix.getValue2().getStateVectors().length; j++) {
-                    if(oldStateVector[j].size()!=eventMatrix.getValue2().getStateVectors()[j].size()){
-                        ifMatches=false;
-                        break;
-                    }
-                    for (int k = 0; k < eventMatrix.getValue2().getStateVectors()[j].size(); k++) {
-                        if (!Objects.equals(oldStateVector[j].get(k), eventMatrix.getValue2().getStateVectors()[j].get(k))) {
-                            ifMatches = false;
-                        }
-                    }
-                }
-            }else{
-                ifMatches=false;
-            }
-            if (ifMatches && event==eventMatrix.getValue0() && outputEvent==eventMatrix.getValue1().getLeft()) {
-                checkIfPresent = true;
+    public long[] packState() {
+        // canonical packed key of the state vectors of all stations, see StateSpace
+        PackedKeyIndex.KeyBuilder keyBuilder = new PackedKeyIndex.KeyBuilder();
+        for (int i = 0; i < this.nStateful; i++) {
+            List<Integer> vector = this.buffers[i].stateVector();
+            keyBuilder.add(vector.size());
+            for (Integer value : vector) {
+                keyBuilder.add(value);
             }
         }
-        return  checkIfPresent;
+        return keyBuilder.toKey();
+    }
+
+    public boolean checkIfVisited(StateSpace stateSpace){
+        return stateSpace.contains(this);
     }
 
     public void stateChangePrint(StateMatrix that){
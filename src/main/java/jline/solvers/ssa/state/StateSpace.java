@@ -0,0 +1,112 @@
+package jline.solvers.ssa.state;
+
+import jline.solvers.ssa.events.Event;
+import jline.solvers.ssa.events.OutputEvent;
+import jline.util.GeneratorBuilder;
+import jline.util.PackedKeyIndex;
+import jline.util.Pair;
+import org.javatuples.Quartet;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class StateSpace {
+    /*
+        StateSpace -
+            Reachable states with a hash index over their packed keys (StateMatrix.packState()), so that
+            visited checks are O(1) instead of a scan of the whole list.
+
+            States are kept in discovery order, and a state's position in the list is its dense id. A breadth-first
+            search can therefore walk the list itself as its frontier (see EventStack.exploreStateSpace()).
+
+            With a GeneratorBuilder attached, every transition out of the state being expanded (setSource()) is
+            recorded as it is found through visit(), visited target or not. With an event list attached, the same
+            transitions are also listed as (event, output event and its probability, source, target), the targets
+            being the stored states themselves.
+     */
+    protected List<StateMatrix> states;
+    protected PackedKeyIndex index;
+    protected GeneratorBuilder generator;
+    protected List<Quartet<Event, Pair<OutputEvent, Double>, StateMatrix, StateMatrix>> events;
+    protected int sourceId;
+    protected Event sourceEvent;
+    protected double sourceRate;
+
+    public StateSpace() {
+        this.states = new ArrayList<StateMatrix>();
+        this.index = new PackedKeyIndex();
+        this.generator = null;
+        this.events = null;
+        this.sourceId = -1;
+        this.sourceEvent = null;
+        this.sourceRate = 0;
+    }
+
+    public void recordTransitions(GeneratorBuilder generator) {
+        this.generator = generator;
+    }
+
+    public GeneratorBuilder getGenerator() {
+        return this.generator;
+    }
+
+    public void recordEvents(List<Quartet<Event, Pair<OutputEvent, Double>, StateMatrix, StateMatrix>> events) {
+        this.events = events;
+    }
+
+    public void setSource(int sourceId, Event sourceEvent, double sourceRate) {
+        // state being expanded, the event being fired from it and its rate
+        this.sourceId = sourceId;
+        this.sourceEvent = sourceEvent;
+        this.sourceRate = sourceRate;
+    }
+
+    public boolean visit(StateMatrix stateMatrix, Pair<OutputEvent, Double> output) {
+        /*
+            Reach stateMatrix from the current source through output, taken with probability output.getRight() (of
+                the routing choice that led to it). Returns true if the state is new, in which case it is appended.
+         */
+        int nStates = this.index.size();
+        int id = this.index.add(stateMatrix.packState());
+        boolean isNew = id == nStates;
+        if (isNew) {
+            this.states.add(stateMatrix);
+        }
+        if (this.sourceId >= 0) {
+            if (this.generator != null) {
+                this.generator.add(this.sourceId, id, this.sourceRate*output.getRight());
+            }
+            if (this.events != null) {
+                this.events.add(Quartet.with(this.sourceEvent, output, this.states.get(this.sourceId),
+                        this.states.get(id)));
+            }
+        }
+        return isNew;
+    }
+
+    public boolean add(StateMatrix stateMatrix) {
+        // states already present are not added again
+        int nStates = this.index.size();
+        if (this.index.add(stateMatrix.packState()) < nStates) {
+            return false;
+        }
+        return this.states.add(stateMatrix);
+    }
+
+    public StateMatrix get(int id) {
+        return this.states.get(id);
+    }
+
+    public int size() {
+        return this.states.size();
+    }
+
+    public boolean contains(StateMatrix stateMatrix) {
+        return this.index.find(stateMatrix.packState()) != -1;
+    }
+
+    public int getId(StateMatrix stateMatrix) {
+        // dense id of the state, -1 if it has not been visited
+        return this.index.find(stateMatrix.packState());
+    }
+}
@@ -0,0 +1,7 @@
+package jline.solvers.ssa.strategies;
+
+public enum EventSelectionStrategy {
+    Linear,     // rebuild a Cdf over every event at each step
+    RateTree,   // keep rates in a RateSumTree, refresh only events at stations touched by the last firing
+    NextReaction // Gibson-Bruck: putative firing times in an IndexedMinHeap, refresh only dependent events
+}
@@ -0,0 +1,37 @@
+package jline.solvers.ssa.trace;
+
+import java.nio.file.Path;
+
+public class BinaryTraceSink extends EventTraceSink {
+    /*
+        BinaryTraceSink -
+            Fixed-size big-endian records after an 8 byte "SSATRACE" magic and an int format version:
+
+                double time, byte kind, int node, int class, int n, int count    (25 bytes)
+
+            with kind as in EventTraceSink (ARRIVAL, DEPARTURE, PHASE, OUTPUT, OTHER).
+     */
+    public static final byte[] MAGIC = {'S', 'S', 'A', 'T', 'R', 'A', 'C', 'E'};
+    public static final int VERSION = 1;
+    public static final int RECORD_SIZE = 25;
+
+    public BinaryTraceSink(Path file) {
+        this(file, DEFAULT_BUFFER_SIZE);
+    }
+
+    public BinaryTraceSink(Path file, int bufferSize) {
+        super(file, Math.max(bufferSize, MAGIC.length + 4));
+        this.buffer.put(MAGIC);
+        this.buffer.putInt(VERSION);
+    }
+
+    protected void writeRecord(double t, int kind, int nodeIdx, int classIdx, int n, int count) {
+        this.reserve(RECORD_SIZE);
+        this.buffer.putDouble(t);
+        this.buffer.put((byte) kind);
+        this.buffer.putInt(nodeIdx);
+        this.buffer.putInt(classIdx);
+        this.buffer.putInt(n);
+        this.buffer.putInt(count);
+    }
+}
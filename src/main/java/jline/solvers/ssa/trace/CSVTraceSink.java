@@ -0,0 +1,46 @@
+package jline.solvers.ssa.trace;
+
+import java.nio.file.Path;
+
+public class CSVTraceSink extends EventTraceSink {
+    /*
+        CSVTraceSink -
+            One line per traced event, under the header "time,event,node,class,n,count". The event is written by
+            name (arrival, departure, phase, output, other).
+
+            Lines are built in a reused StringBuilder and copied byte by byte into the buffer, the output is ASCII.
+     */
+    protected static final String HEADER = "time,event,node,class,n,count\n";
+
+    protected StringBuilder line;
+
+    public CSVTraceSink(Path file) {
+        this(file, DEFAULT_BUFFER_SIZE);
+    }
+
+    public CSVTraceSink(Path file, int bufferSize) {
+        // room for at least one line
+        super(file, Math.max(bufferSize, 256));
+        this.line = new StringBuilder(64);
+        this.line.append(HEADER);
+        this.writeLine();
+    }
+
+    protected void writeRecord(double t, int kind, int nodeIdx, int classIdx, int n, int count) {
+        this.line.append(t).append(',')
+                .append(kindName(kind)).append(',')
+                .append(nodeIdx).append(',')
+                .append(classIdx).append(',')
+                .append(n).append(',')
+                .append(count).append('\n');
+        this.writeLine();
+    }
+
+    private void writeLine() {
+        this.reserve(this.line.length());
+        for (int i = 0; i < this.line.length(); i++) {
+            this.buffer.put((byte) this.line.charAt(i));
+        }
+        this.line.setLength(0);
+    }
+}
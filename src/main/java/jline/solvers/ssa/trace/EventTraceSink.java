@@ -0,0 +1,144 @@
+package jline.solvers.ssa.trace;
+
+import jline.solvers.ssa.events.*;
+import jline.solvers.ssa.state.StateMatrix;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+public abstract class EventTraceSink implements AutoCloseable {
+    /*
+        EventTraceSink -
+            Streams the events fired by a trajectory to a file while it runs: time, event kind, stateful node,
+            class, repetitions (more than one under tau leaping) and the resulting job count of that class at that
+            node. Node, class and count are -1 when the event has none.
+
+            Records are encoded into one fixed direct buffer that is written to a FileChannel whenever it fills,
+            so memory stays bounded whatever the length of the run. Tracing can be thinned to one in every k events.
+
+            Subclasses only choose the encoding, see CSVTraceSink and BinaryTraceSink.
+     */
+    public static final int ARRIVAL = 0;
+    public static final int DEPARTURE = 1;
+    public static final int PHASE = 2;
+    public static final int OUTPUT = 3;
+    public static final int OTHER = 4;
+    protected static final String[] KIND_NAMES = {"arrival", "departure", "phase", "output", "other"};
+
+    protected static final int DEFAULT_BUFFER_SIZE = 1 << 16;
+
+    protected Path file;
+    protected FileChannel channel;
+    protected ByteBuffer buffer;
+    protected int everyK;
+    protected long nCalls;
+    protected long nWritten;
+
+    protected EventTraceSink(Path file, int bufferSize) {
+        this.file = file;
+        try {
+            this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+        } catch (IOException e) {
+            throw new RuntimeException("Cannot open trace file " + file, e);
+        }
+        this.buffer = ByteBuffer.allocateDirect(bufferSize);
+        this.everyK = 1;
+        this.nCalls = 0;
+        this.nWritten = 0;
+    }
+
+    public EventTraceSink sampleEvery(int k) {
+        this.everyK = Math.max(1, k);
+        return this;
+    }
+
+    public long getNumberOfRecords() {
+        return this.nWritten;
+    }
+
+    public static int eventKind(Event e) {
+        if (e instanceof ArrivalEvent) {
+            return ARRIVAL;
+        } else if (e instanceof DepartureEvent) {
+            return DEPARTURE;
+        } else if (e instanceof PhaseEvent) {
+            return PHASE;
+        } else if (e instanceof OutputEvent) {
+            return OUTPUT;
+        }
+        return OTHER;
+    }
+
+    public static String kindName(int kind) {
+        return KIND_NAMES[kind];
+    }
+
+    public void record(double t, Event e, StateMatrix stateMatrix, int n) {
+        if ((this.nCalls++ % this.everyK) != 0) {
+            return;
+        }
+
+        int nodeIdx = -1;
+        int classIdx = -1;
+        if (e instanceof NodeEvent) {
+            NodeEvent ne = (NodeEvent) e;
+            classIdx = ne.getClassIdx();
+            if (ne.isStateful()) {
+                nodeIdx = ne.getNodeStatefulIdx();
+            }
+        } else if (e instanceof OutputEvent) {
+            classIdx = ((OutputEvent) e).getClassIdx();
+        }
+        int count = ((nodeIdx >= 0) && (classIdx >= 0)) ? stateMatrix.getState(nodeIdx, classIdx) : -1;
+
+        this.writeRecord(t, eventKind(e), nodeIdx, classIdx, n, count);
+        this.nWritten++;
+    }
+
+    protected abstract void writeRecord(double t, int kind, int nodeIdx, int classIdx, int n, int count);
+
+    protected void reserve(int nBytes) {
+        // make room for nBytes in the buffer, draining it to the file if needed
+        if (this.buffer.remaining() < nBytes) {
+            this.drain();
+        }
+    }
+
+    protected void drain() {
+        this.buffer.flip();
+        try {
+            while (this.buffer.hasRemaining()) {
+                this.channel.write(this.buffer);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Cannot write to trace file " + this.file, e);
+        }
+        this.buffer.clear();
+    }
+
+    public void flush() {
+        this.drain();
+        try {
+            this.channel.force(false);
+        } catch (IOException e) {
+            throw new RuntimeException("Cannot write to trace file " + this.file, e);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (!this.channel.isOpen()) {
+            return;
+        }
+        this.drain();
+        try {
+            this.channel.close();
+        } catch (IOException e) {
+            throw new RuntimeException("Cannot close trace file " + this.file, e);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package jline.util;
+
+import java.io.Serializable;
+import java.util.List;
+import java.util.Random;
+
+public class AliasTable implements Serializable {
+    /*
+        AliasTable -
+            Walker's alias method (with Vose's construction) for a fixed categorical distribution over 0..n-1.
+            Building the table is O(n); each draw is O(1), uses a single uniform variate and does not allocate.
+
+            Use it in place of Cdf wherever the probabilities do not change between draws.
+     */
+    private static final long serialVersionUID = 1L;
+
+    protected int size;
+    protected double[] prob;
+    protected int[] alias;
+
+    public AliasTable(double[] weights) {
+        this.size = weights.length;
+        this.prob = new double[this.size];
+        this.alias = new int[this.size];
+
+        double total = 0;
+        for (double weight : weights) {
+            if (weight > 0) {
+                total += weight;
+            }
+        }
+        if ((this.size == 0) || !(total > 0)) {
+            throw new RuntimeException("AliasTable requires at least one positive weight");
+        }
+
+        // scaled probabilities, split into entries below (small) and above (large) the average
+        double[] scaled = new double[this.size];
+        int[] small = new int[this.size];
+        int[] large = new int[this.size];
+        int nSmall = 0;
+        int nLarge = 0;
+        for (int i = 0; i < this.size; i++) {
+            scaled[i] = weights[i] > 0 ? (weights[i]*this.size)/total : 0;
+            if (scaled[i] < 1.0) {
+                small[nSmall++] = i;
+            } else {
+                large[nLarge++] = i;
+            }
+        }
+
+        while ((nSmall > 0) && (nLarge > 0)) {
+            int s = small[--nSmall];
+            int l = large[--nLarge];
+            this.prob[s] = scaled[s];
+            this.alias[s] = l;
+            scaled[l] = (scaled[l] + scaled[s]) - 1.0;
+            if (scaled[l] < 1.0) {
+                small[nSmall++] = l;
+            } else {
+                large[nLarge++] = l;
+            }
+        }
+
+        // whatever is left is 1 up to rounding
+        while (nLarge > 0) {
+            int l = large[--nLarge];
+            this.prob[l] = 1.0;
+            this.alias[l] = l;
+        }
+        while (nSmall > 0) {
+            int s = small[--nSmall];
+            this.prob[s] = 1.0;
+            this.alias[s] = s;
+        }
+    }
+
+    public AliasTable(List<Double> weights) {
+        this(toArray(weights));
+    }
+
+    private static double[] toArray(List<Double> weights) {
+        double[] outArr = new double[weights.size()];
+        for (int i = 0; i < outArr.length; i++) {
+            outArr[i] = weights.get(i);
+        }
+        return outArr;
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    public int sample(double u) {
+        // u uniform in [0,1)
+        double scaledU = u*this.size;
+        int idx = (int) scaledU;
+        if (idx >= this.size) {
+            idx = this.size-1;
+        }
+        if ((scaledU - idx) < this.prob[idx]) {
+            return idx;
+        }
+        return this.alias[idx];
+    }
+
+    public int sample(Random random) {
+        return this.sample(random.nextDouble());
+    }
+}
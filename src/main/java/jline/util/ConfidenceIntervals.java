@@ -0,0 +1,52 @@
+package jline.util;
+
+public class ConfidenceIntervals {
+    /*
+        Helpers for two-sided 95% confidence intervals on the mean of n independent (or batch-mean) samples,
+            using Student's t distribution.
+     */
+    private static final double[] T_975 = {
+            12.7062, 4.3027, 3.1824, 2.7764, 2.5706, 2.4469, 2.3646, 2.3060, 2.2622, 2.2281,
+            2.2010, 2.1788, 2.1604, 2.1448, 2.1314, 2.1199, 2.1098, 2.1009, 2.0930, 2.0860,
+            2.0796, 2.0739, 2.0687, 2.0639, 2.0595, 2.0555, 2.0518, 2.0484, 2.0452, 2.0423
+    };
+
+    private static final double Z_975 = 1.959963984540054;
+
+    public static double tQuantile95(int df) {
+        // 0.975 quantile of Student's t with df degrees of freedom
+        if (df < 1) {
+            return Double.POSITIVE_INFINITY;
+        } else if (df <= T_975.length) {
+            return T_975[df-1];
+        }
+
+        // Cornish-Fisher expansion around the normal quantile, accurate to 1e-4 beyond the table
+        double z = Z_975;
+        double z3 = z*z*z;
+        double z5 = z3*z*z;
+        return z + (z3 + z)/(4.0*df) + (5*z5 + 16*z3 + 3*z)/(96.0*df*df);
+    }
+
+    public static double mean(double[] samples, int n) {
+        double acc = 0;
+        for (int i = 0; i < n; i++) {
+            acc += samples[i];
+        }
+        return acc/n;
+    }
+
+    public static double halfWidth95(double[] samples, int n) {
+        // half-width of the 95% interval for the mean of samples[0..n-1]
+        if (n < 2) {
+            return Double.POSITIVE_INFINITY;
+        }
+        double mean = mean(samples, n);
+        double acc = 0;
+        for (int i = 0; i < n; i++) {
+            acc += (samples[i]-mean)*(samples[i]-mean);
+        }
+        double variance = acc/(n-1);
+        return tQuantile95(n-1)*Math.sqrt(variance/n);
+    }
+}
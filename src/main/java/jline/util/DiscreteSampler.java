@@ -0,0 +1,198 @@
+package jline.util;
+
+import java.util.Random;
+
+public class DiscreteSampler {
+    /*
+        DiscreteSampler -
+            Allocation-free Poisson and binomial variates, exact and O(1) expected time for any mean.
+
+            Small means use inversion by sequential search. Large means use Hormann's transformed rejection with
+            squeeze: PTRS for the Poisson (1993, "The transformed rejection method for generating Poisson random
+            variables") and BTRD for the binomial (1993, "The generation of binomial random variates").
+     */
+    protected static final double INVERSION_MEAN = 10;
+    protected static final double HALF_LOG_2PI = 0.5*Math.log(2*Math.PI);
+
+    // fc(k) = log(k!) - [(k+1/2)log(k+1) - (k+1) + log(2pi)/2], Stirling correction for small k
+    protected static final double[] STIRLING_CORRECTION = {
+            0.08106146679532726, 0.04134069595540929, 0.02767792568499834, 0.02079067210376509,
+            0.01664469118982119, 0.01387612882307075, 0.01189670994589177, 0.01041126526197209,
+            0.009255462182712733, 0.008330563433362871
+    };
+
+    private DiscreteSampler() {
+    }
+
+    protected static double stirlingCorrection(int k) {
+        if (k < STIRLING_CORRECTION.length) {
+            return STIRLING_CORRECTION[k];
+        }
+        double r = 1.0/(k+1);
+        double r2 = r*r;
+        return (1.0/12 - (1.0/360 - r2/1260)*r2)*r;
+    }
+
+    public static double logFactorial(int k) {
+        return (k+0.5)*Math.log(k+1) - (k+1) + HALF_LOG_2PI + stirlingCorrection(k);
+    }
+
+    public static int poisson(double mean, Random random) {
+        if (!(mean > 0)) {
+            return 0;
+        } else if (mean < INVERSION_MEAN) {
+            return poissonInversion(mean, random);
+        }
+        return poissonPTRS(mean, random);
+    }
+
+    protected static int poissonInversion(double mean, Random random) {
+        int x = 0;
+        double p = Math.exp(-mean);
+        double s = p;
+        double u = random.nextDouble();
+        while ((u > s) && (p > 0)) {
+            x++;
+            p *= mean/x;
+            s += p;
+        }
+        return x;
+    }
+
+    protected static int poissonPTRS(double mean, Random random) {
+        double logMean = Math.log(mean);
+        double b = 0.931 + 2.53*Math.sqrt(mean);
+        double a = -0.059 + 0.02483*b;
+        double logInvAlpha = Math.log(1.1239 + 1.1328/(b-3.4));
+        double vr = 0.9277 - 3.6224/(b-2);
+
+        while (true) {
+            double u = random.nextDouble() - 0.5;
+            double v = random.nextDouble();
+            double us = 0.5 - Math.abs(u);
+            long k = (long) Math.floor((2*a/us + b)*u + mean + 0.43);
+            if ((us >= 0.07) && (v <= vr)) {
+                return (int) k;
+            }
+            if ((k < 0) || (k > Integer.MAX_VALUE) || ((us < 0.013) && (v > us))) {
+                continue;
+            }
+            if (Math.log(v) + logInvAlpha - Math.log(a/(us*us) + b) <= -mean + k*logMean - logFactorial((int) k)) {
+                return (int) k;
+            }
+        }
+    }
+
+    public static int binomial(int n, double p, Random random) {
+        if ((n <= 0) || !(p > 0)) {
+            return 0;
+        } else if (p >= 1) {
+            return n;
+        } else if (p > 0.5) {
+            return n - binomial(n, 1-p, random);
+        } else if (n*p < INVERSION_MEAN) {
+            return binomialInversion(n, p, random);
+        }
+        return binomialBTRD(n, p, random);
+    }
+
+    protected static int binomialInversion(int n, double p, Random random) {
+        // n*p < 10 and p <= 1/2, so q^n is far from underflowing
+        double q = 1-p;
+        double s = p/q;
+        double a = (n+1)*s;
+        while (true) {
+            double r = Math.pow(q, n);
+            double u = random.nextDouble();
+            int x = 0;
+            while (u > r) {
+                u -= r;
+                x++;
+                if (x > n) {
+                    break;
+                }
+                r *= a/x - s;
+            }
+            if (x <= n) {
+                return x;
+            }
+        }
+    }
+
+    protected static int binomialBTRD(int n, double p, Random random) {
+        int m = (int) Math.floor((n+1.0)*p);
+        double r = p/(1-p);
+        double nr = (n+1.0)*r;
+        double npq = n*p*(1-p);
+        double spq = Math.sqrt(npq);
+        double b = 1.15 + 2.53*spq;
+        double a = -0.0873 + 0.0248*b + 0.01*p;
+        double c = n*p + 0.5;
+        double alpha = (2.83 + 5.1/b)*spq;
+        double vr = 0.92 - 4.2/b;
+        double urvr = 0.86*vr;
+
+        while (true) {
+            double v = random.nextDouble();
+            double u;
+            if (v <= urvr) {
+                // immediate acceptance, about 80% of the draws
+                u = v/vr - 0.43;
+                return (int) Math.floor((2*a/(0.5 - Math.abs(u)) + b)*u + c);
+            }
+            if (v >= vr) {
+                u = random.nextDouble() - 0.5;
+            } else {
+                u = v/vr - 0.93;
+                u = Math.signum(u)*0.5 - u;
+                v = random.nextDouble()*vr;
+            }
+
+            double us = 0.5 - Math.abs(u);
+            double kd = Math.floor((2*a/us + b)*u + c);
+            if ((kd < 0) || (kd > n)) {
+                continue;
+            }
+            int k = (int) kd;
+            v = v*alpha/(a/(us*us) + b);
+            int km = Math.abs(k-m);
+
+            if (km <= 15) {
+                // f(k)/f(m) by recursion
+                double f = 1;
+                if (m < k) {
+                    for (int i = m+1; i <= k; i++) {
+                        f *= nr/i - r;
+                    }
+                } else if (m > k) {
+                    for (int i = k+1; i <= m; i++) {
+                        v *= nr/i - r;
+                    }
+                }
+                if (v <= f) {
+                    return k;
+                }
+                continue;
+            }
+
+            // squeeze on log f(k)
+            v = Math.log(v);
+            double rho = (km/npq)*(((km/3.0 + 0.625)*km + 1.0/6)/npq + 0.5);
+            double t = -((double) km*km)/(2*npq);
+            if (v < t - rho) {
+                return k;
+            }
+            if (v > t + rho) {
+                continue;
+            }
+
+            double nm = n - m + 1;
+            double h = (m + 0.5)*Math.log((m+1)/(r*nm)) + stirlingCorrection(m) + stirlingCorrection(n-m);
+            double nk = n - k + 1;
+            if (v <= h + (n+1)*Math.log(nm/nk) + (k+0.5)*Math.log(nk*r/(k+1))
+                    - stirlingCorrection(k) - stirlingCorrection(n-k)) {
+                return k;
+            }
+        }
+    }
+}
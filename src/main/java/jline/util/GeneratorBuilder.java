@@ -0,0 +1,133 @@
+package jline.util;
+
+import jline.lang.JLineMatrix;
+
+import java.util.Arrays;
+
+public class GeneratorBuilder {
+    /*
+        GeneratorBuilder -
+            Collects the transitions of a CTMC as (from, to, rate) triplets and assembles the infinitesimal generator
+            Q directly in compressed sparse column form, Q[from][to] = rate. Rates of duplicate transitions are
+            summed, self loops are dropped and the diagonal is set to minus the row sums.
+
+            Memory is proportional to the number of transitions, never to the square of the number of states.
+     */
+    protected int nTransitions;
+    protected int[] from;
+    protected int[] to;
+    protected double[] rates;
+
+    public GeneratorBuilder() {
+        this(1024);
+    }
+
+    public GeneratorBuilder(int expectedTransitions) {
+        int capacity = Math.max(16, expectedTransitions);
+        this.nTransitions = 0;
+        this.from = new int[capacity];
+        this.to = new int[capacity];
+        this.rates = new double[capacity];
+    }
+
+    public int getNumberOfTransitions() {
+        return this.nTransitions;
+    }
+
+    public void add(int fromState, int toState, double rate) {
+        // immediate (infinite rate) transitions are not timed and have no place in the generator
+        if ((fromState == toState) || (rate == 0) || Double.isNaN(rate) || Double.isInfinite(rate)) {
+            return;
+        }
+        if (this.nTransitions == this.from.length) {
+            int capacity = 2*this.from.length;
+            this.from = Arrays.copyOf(this.from, capacity);
+            this.to = Arrays.copyOf(this.to, capacity);
+            this.rates = Arrays.copyOf(this.rates, capacity);
+        }
+        this.from[this.nTransitions] = fromState;
+        this.to[this.nTransitions] = toState;
+        this.rates[this.nTransitions] = rate;
+        this.nTransitions++;
+    }
+
+    public JLineMatrix build(int nStates) {
+        // off-diagonal row sums, for the diagonal
+        double[] rowSums = new double[nStates];
+        for (int i = 0; i < this.nTransitions; i++) {
+            rowSums[this.from[i]] += this.rates[i];
+        }
+
+        // bucket the entries (and the diagonal) by column
+        int[] colCounts = new int[nStates+1];
+        for (int i = 0; i < this.nTransitions; i++) {
+            colCounts[this.to[i]+1]++;
+        }
+        for (int i = 0; i < nStates; i++) {
+            if (rowSums[i] != 0) {
+                colCounts[i+1]++;
+            }
+        }
+        for (int i = 0; i < nStates; i++) {
+            colCounts[i+1] += colCounts[i];
+        }
+
+        int nEntries = colCounts[nStates];
+        int[] rows = new int[nEntries];
+        double[] values = new double[nEntries];
+        int[] fill = Arrays.copyOf(colCounts, nStates);
+        for (int i = 0; i < this.nTransitions; i++) {
+            int pos = fill[this.to[i]]++;
+            rows[pos] = this.from[i];
+            values[pos] = this.rates[i];
+        }
+        for (int i = 0; i < nStates; i++) {
+            if (rowSums[i] != 0) {
+                int pos = fill[i]++;
+                rows[pos] = i;
+                values[pos] = -rowSums[i];
+            }
+        }
+
+        // sort each column by row and merge duplicates, compacting in place
+        JLineMatrix generator = new JLineMatrix(nStates, nStates, Math.max(1, nEntries));
+        int nz = 0;
+        for (int col = 0; col < nStates; col++) {
+            int start = colCounts[col];
+            int end = colCounts[col+1];
+            sortByRow(rows, values, start, end);
+            generator.col_idx[col] = nz;
+            for (int i = start; i < end; i++) {
+                if ((nz > generator.col_idx[col]) && (rows[i] == rows[nz-1])) {
+                    values[nz-1] += values[i];
+                } else {
+                    rows[nz] = rows[i];
+                    values[nz] = values[i];
+                    nz++;
+                }
+            }
+        }
+        generator.col_idx[nStates] = nz;
+        System.arraycopy(rows, 0, generator.nz_rows, 0, nz);
+        System.arraycopy(values, 0, generator.nz_values, 0, nz);
+        generator.nz_length = nz;
+        generator.indicesSorted = true;
+        return generator;
+    }
+
+    private static void sortByRow(int[] rows, double[] values, int start, int end) {
+        // insertion sort, columns of a generator are short
+        for (int i = start+1; i < end; i++) {
+            int row = rows[i];
+            double value = values[i];
+            int j = i-1;
+            while ((j >= start) && (rows[j] > row)) {
+                rows[j+1] = rows[j];
+                values[j+1] = values[j];
+                j--;
+            }
+            rows[j+1] = row;
+            values[j+1] = value;
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package jline.util;
+
+import java.io.Serializable;
+
+public class IndexedMinHeap implements Serializable {
+    /*
+        IndexedMinHeap -
+            Binary min-heap over a fixed set of entries 0..n-1, keyed by a double. Each entry always sits somewhere
+            in the heap, so its key can be changed in place in O(log n) and the minimum read in O(1).
+            Used for the putative firing times of the next reaction method.
+     */
+    protected int size;
+    protected int[] heap; // heap position -> entry
+    protected int[] pos;  // entry -> heap position
+    protected double[] keys; // entry -> key
+
+    public IndexedMinHeap(int size) {
+        this.size = size;
+        this.heap = new int[size];
+        this.pos = new int[size];
+        this.keys = new double[size];
+        for (int i = 0; i < size; i++) {
+            this.heap[i] = i;
+            this.pos[i] = i;
+            this.keys[i] = Double.POSITIVE_INFINITY;
+        }
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    public int peek() {
+        // entry with the smallest key, or -1 if empty
+        if (this.size == 0) {
+            return -1;
+        }
+        return this.heap[0];
+    }
+
+    public double peekKey() {
+        if (this.size == 0) {
+            return Double.POSITIVE_INFINITY;
+        }
+        return this.keys[this.heap[0]];
+    }
+
+    public double getKey(int idx) {
+        return this.keys[idx];
+    }
+
+    public void update(int idx, double key) {
+        double oldKey = this.keys[idx];
+        this.keys[idx] = key;
+        if (key < oldKey) {
+            this.siftUp(this.pos[idx]);
+        } else if (key > oldKey) {
+            this.siftDown(this.pos[idx]);
+        }
+    }
+
+    protected void siftUp(int p) {
+        int entry = this.heap[p];
+        double key = this.keys[entry];
+        while (p > 0) {
+            int parent = (p-1) >> 1;
+            int parentEntry = this.heap[parent];
+            if (this.keys[parentEntry] <= key) {
+                break;
+            }
+            this.heap[p] = parentEntry;
+            this.pos[parentEntry] = p;
+            p = parent;
+        }
+        this.heap[p] = entry;
+        this.pos[entry] = p;
+    }
+
+    protected void siftDown(int p) {
+        int entry = this.heap[p];
+        double key = this.keys[entry];
+        while (true) {
+            int child = 2*p+1;
+            if (child >= this.size) {
+                break;
+            }
+            if ((child+1 < this.size) && (this.keys[this.heap[child+1]] < this.keys[this.heap[child]])) {
+                child++;
+            }
+            int childEntry = this.heap[child];
+            if (this.keys[childEntry] >= key) {
+                break;
+            }
+            this.heap[p] = childEntry;
+            this.pos[childEntry] = p;
+            p = child;
+        }
+        this.heap[p] = entry;
+        this.pos[entry] = p;
+    }
+}
@@ -0,0 +1,167 @@
+package jline.util;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+public class PackedKeyIndex implements Serializable {
+    /*
+        PackedKeyIndex -
+            Open-addressing (linear probing) hash index from variable-length long[] keys to dense ids 0..size-1,
+            in insertion order. Keys are copied into one flat pool, so an index of millions of keys is a handful of
+            primitive arrays rather than millions of objects.
+     */
+    protected int size;
+    protected int[] slots;     // id+1, 0 if empty
+    protected int[] hashes;    // id -> hash
+    protected int[] keyStart;  // id -> start in pool, keyStart[size] is the end of the pool
+    protected long[] pool;
+
+    public PackedKeyIndex() {
+        this(1024);
+    }
+
+    public PackedKeyIndex(int expectedSize) {
+        int capacity = 16;
+        while (capacity < 2*expectedSize) {
+            capacity <<= 1;
+        }
+        this.size = 0;
+        this.slots = new int[capacity];
+        this.hashes = new int[Math.max(16, expectedSize)];
+        this.keyStart = new int[Math.max(16, expectedSize)+1];
+        this.pool = new long[4*Math.max(16, expectedSize)];
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    protected static int hash(long[] key) {
+        int h = Arrays.hashCode(key);
+        return h ^ (h >>> 16);
+    }
+
+    public int find(long[] key) {
+        // id of key, or -1 if absent
+        int mask = this.slots.length-1;
+        int h = hash(key);
+        int slot = h & mask;
+        while (this.slots[slot] != 0) {
+            int id = this.slots[slot]-1;
+            if ((this.hashes[id] == h) && this.keyEquals(id, key)) {
+                return id;
+            }
+            slot = (slot+1) & mask;
+        }
+        return -1;
+    }
+
+    public int add(long[] key) {
+        /*
+            Id of key, inserting it if absent. New keys get the next dense id, so the caller can tell a new key
+                from an old one by comparing the result with size() before the call.
+         */
+        int mask = this.slots.length-1;
+        int h = hash(key);
+        int slot = h & mask;
+        while (this.slots[slot] != 0) {
+            int id = this.slots[slot]-1;
+            if ((this.hashes[id] == h) && this.keyEquals(id, key)) {
+                return id;
+            }
+            slot = (slot+1) & mask;
+        }
+
+        int id = this.size;
+        if (id >= this.hashes.length) {
+            this.hashes = Arrays.copyOf(this.hashes, 2*this.hashes.length);
+        }
+        if (id+1 >= this.keyStart.length) {
+            this.keyStart = Arrays.copyOf(this.keyStart, 2*this.keyStart.length);
+        }
+        int start = this.keyStart[id];
+        if (start + key.length > this.pool.length) {
+            this.pool = Arrays.copyOf(this.pool, Math.max(2*this.pool.length, start + key.length));
+        }
+        System.arraycopy(key, 0, this.pool, start, key.length);
+        this.keyStart[id+1] = start + key.length;
+        this.hashes[id] = h;
+        this.slots[slot] = id+1;
+        this.size++;
+
+        if (2*this.size > this.slots.length) {
+            this.rehash();
+        }
+        return id;
+    }
+
+    public long[] getKey(int id) {
+        return Arrays.copyOfRange(this.pool, this.keyStart[id], this.keyStart[id+1]);
+    }
+
+    protected boolean keyEquals(int id, long[] key) {
+        int start = this.keyStart[id];
+        if (this.keyStart[id+1] - start != key.length) {
+            return false;
+        }
+        for (int i = 0; i < key.length; i++) {
+            if (this.pool[start+i] != key[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    protected void rehash() {
+        this.slots = new int[2*this.slots.length];
+        int mask = this.slots.length-1;
+        for (int id = 0; id < this.size; id++) {
+            int slot = this.hashes[id] & mask;
+            while (this.slots[slot] != 0) {
+                slot = (slot+1) & mask;
+            }
+            this.slots[slot] = id+1;
+        }
+    }
+
+    public static class KeyBuilder {
+        /*
+            Builds a canonical packed key from a sequence of ints: each value is zigzag encoded as a varint
+                (7 bits per byte, small values take one byte) and the bytes are packed eight to a long. The rest of
+                the last long is padded with 0x80, which can never end a varint, so no key is a prefix of another.
+         */
+        protected long[] words;
+        protected int nBytes;
+
+        public KeyBuilder() {
+            this.words = new long[4];
+            this.nBytes = 0;
+        }
+
+        public KeyBuilder add(int value) {
+            long zigzag = ((long) ((value << 1) ^ (value >> 31))) & 0xFFFFFFFFL;
+            do {
+                int b = (int) (zigzag & 0x7F);
+                zigzag >>>= 7;
+                if (zigzag != 0) {
+                    b |= 0x80;
+                }
+                int word = this.nBytes >>> 3;
+                if (word >= this.words.length) {
+                    this.words = Arrays.copyOf(this.words, 2*this.words.length);
+                }
+                this.words[word] |= ((long) b) << ((this.nBytes & 7)*8);
+                this.nBytes++;
+            } while (zigzag != 0);
+            return this;
+        }
+
+        public long[] toKey() {
+            long[] key = Arrays.copyOf(this.words, (this.nBytes+7) >>> 3);
+            for (int i = this.nBytes; i < 8*key.length; i++) {
+                key[i >>> 3] |= 0x80L << ((i & 7)*8);
+            }
+            return key;
+        }
+    }
+}
@@ -3,6 +3,8 @@ package jline.util;
 import java.io.Serializable;
 
 public class Pair<T, U> implements Comparable<Pair<T,U>>, Serializable {
+    private static final long serialVersionUID = 1L;
+
     private T left;
     private U right;
 
@@ -0,0 +1,90 @@
+package jline.util;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+public class RateSumTree implements Serializable {
+    /*
+        RateSumTree -
+            Complete binary tree of partial rate sums over a fixed set of entries, stored in a flat primitive array.
+            Leaves hold the individual rates, every internal node holds the sum of its two children.
+
+            Updating one rate and drawing an entry proportionally to its rate are both O(log n), and neither
+            allocates. Internal sums are recomputed from the children on every update rather than adjusted by a
+            delta, so rounding errors do not accumulate over long runs.
+     */
+    protected int size;
+    protected int nLeaves; // power of two >= size
+    protected double[] tree; // [1] is the root, leaves start at [nLeaves]
+
+    public RateSumTree(int size) {
+        this.size = size;
+        this.nLeaves = 1;
+        while (this.nLeaves < size) {
+            this.nLeaves <<= 1;
+        }
+        this.tree = new double[2*this.nLeaves];
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    public double getRate(int idx) {
+        return this.tree[this.nLeaves + idx];
+    }
+
+    public double getTotal() {
+        return this.tree[1];
+    }
+
+    public void update(int idx, double rate) {
+        int pos = this.nLeaves + idx;
+        if (this.tree[pos] == rate) {
+            return;
+        }
+        this.tree[pos] = rate;
+        pos >>= 1;
+        while (pos > 0) {
+            this.tree[pos] = this.tree[2*pos] + this.tree[2*pos+1];
+            pos >>= 1;
+        }
+    }
+
+    public void clear() {
+        Arrays.fill(this.tree, 0);
+    }
+
+    public int sample(double u) {
+        /*
+            Return the entry selected by a uniform variate u in [0,1), i.e. the first entry whose cumulative rate
+                exceeds u*total. Returns -1 if the total rate is zero.
+         */
+        if (this.tree[1] <= 0) {
+            return -1;
+        }
+
+        double target = u*this.tree[1];
+        int pos = 1;
+        while (pos < this.nLeaves) {
+            double leftSum = this.tree[2*pos];
+            if ((target < leftSum) || (this.tree[2*pos+1] <= 0)) {
+                pos = 2*pos;
+            } else {
+                target -= leftSum;
+                pos = 2*pos+1;
+            }
+        }
+
+        int idx = pos - this.nLeaves;
+        if ((this.tree[pos] <= 0) || (idx >= this.size)) {
+            // rounding pushed the search onto an empty leaf; fall back to the last entry with a positive rate
+            for (idx = this.size-1; idx >= 0; idx--) {
+                if (this.tree[this.nLeaves + idx] > 0) {
+                    return idx;
+                }
+            }
+        }
+        return idx;
+    }
+}
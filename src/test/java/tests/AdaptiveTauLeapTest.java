@@ -0,0 +1,123 @@
+package tests;
+
+import org.junit.jupiter.api.Test;
+
+import jline.lang.ClosedClass;
+import jline.lang.Network;
+import jline.lang.constant.SchedStrategy;
+import jline.lang.distributions.Exp;
+import jline.lang.nodes.Delay;
+import jline.lang.nodes.Queue;
+import jline.solvers.ssa.SSAData;
+import jline.solvers.ssa.TauLeapingType;
+import jline.solvers.ssa.TauLeapingVarType;
+import jline.solvers.ssa.Timeline;
+import jline.solvers.ssa.state.StateMatrix;
+import jline.solvers.ssa.strategies.EventSelectionStrategy;
+import jline.solvers.ssa.strategies.TauLeapingOrderStrategy;
+import jline.solvers.ssa.strategies.TauLeapingStateStrategy;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdaptiveTauLeapTest {
+    private static SSAData cycle(int nJobs) {
+        // nJobs thinking at rate 1 each, served at rate nJobs/2 by one FCFS server
+        Network model = new Network("Adaptive cycle");
+        Delay delay = new Delay(model, "Think");
+        Queue queue = new Queue(model, "Queue", SchedStrategy.FCFS);
+        ClosedClass closedClass = new ClosedClass(model, "Jobs", nJobs, delay);
+        delay.setService(closedClass, new Exp(1));
+        queue.setService(closedClass, new Exp(nJobs/2.0));
+        model.link(model.serialRouting(delay, queue));
+        return new SSAData(model);
+    }
+
+    private static StateMatrix placeJobs(SSAData ssaData, int nJobs, Random random) {
+        StateMatrix stateMatrix = new StateMatrix(ssaData.simStruct, random);
+        stateMatrix.setState(0, 0, nJobs);
+        for (int i = 0; i < nJobs; i++) {
+            stateMatrix.addToBuffer(0, 0);
+        }
+        return stateMatrix;
+    }
+
+    private static TauLeapingType adaptive() {
+        return new TauLeapingType(TauLeapingVarType.Poisson, TauLeapingOrderStrategy.InOrder,
+                TauLeapingStateStrategy.Cutoff, 0.1).adaptive(0.03);
+    }
+
+    @Test
+    void leapsLargePopulations() {
+        // the same number of steps covers much more simulated time than exact SSA, with almost no illegal leaps
+        int nJobs = 1000;
+        int nSteps = 2000;
+        SSAData leaping = cycle(nJobs);
+        leaping.eventStack.configureTauLeap(adaptive());
+        Random random = new Random(1);
+        StateMatrix stateMatrix = placeJobs(leaping, nJobs, random);
+        Timeline timeline = new Timeline(leaping.simStruct);
+        double tLeaping = 0;
+        for (int step = 0; step < nSteps; step++) {
+            tLeaping = leaping.eventStack.tauLeapUpdate(stateMatrix, timeline, tLeaping, random);
+            assertEquals(nJobs, stateMatrix.getState(0, 0) + stateMatrix.getState(1, 0));
+        }
+
+        SSAData exact = cycle(nJobs);
+        random = new Random(1);
+        StateMatrix exactState = placeJobs(exact, nJobs, random);
+        Timeline exactTimeline = new Timeline(exact.simStruct);
+        double tExact = 0;
+        for (int step = 0; step < nSteps; step++) {
+            tExact = exact.eventStack.updateState(exactState, exactTimeline, tExact, random);
+        }
+
+        assertTrue(tLeaping > 5*tExact);
+        assertTrue(leaping.eventStack.getIllegalTauLeapPercentage() < 0.01);
+    }
+
+    @Test
+    void smallPopulationsStepOneEventAtATime() {
+        // too few jobs to leap: every call fires a single event, so callers can stop at their horizon and budget
+        int nJobs = 3;
+        SSAData ssaData = cycle(nJobs);
+        ssaData.eventStack.configureTauLeap(adaptive());
+        Random random = new Random(2);
+        StateMatrix stateMatrix = placeJobs(ssaData, nJobs, random);
+        Timeline timeline = new Timeline(ssaData.simStruct);
+        double t = 0;
+        for (int step = 0; step < 500; step++) {
+            int before = stateMatrix.getState(0, 0);
+            double nextT = ssaData.eventStack.tauLeapUpdate(stateMatrix, timeline, t, random);
+            assertTrue(nextT > t);
+            assertTrue(Math.abs(stateMatrix.getState(0, 0) - before) <= 1);
+            assertEquals(nJobs, stateMatrix.getState(0, 0) + stateMatrix.getState(1, 0));
+            t = nextT;
+        }
+    }
+
+    @Test
+    void mixesLeapsAndExactStepsUnderEverySelectionStrategy() {
+        // enough jobs to leap while the delay is full, few enough that the queue often steps exactly; exact steps
+        //   must not select from rates, or firing times, from before the last leap
+        int nJobs = 50;
+        for (EventSelectionStrategy selectionStrategy : EventSelectionStrategy.values()) {
+            SSAData ssaData = cycle(nJobs);
+            ssaData.eventStack.configureSelection(selectionStrategy);
+            ssaData.eventStack.configureTauLeap(adaptive());
+            Random random = new Random(3);
+            StateMatrix stateMatrix = placeJobs(ssaData, nJobs, random);
+            Timeline timeline = new Timeline(ssaData.simStruct);
+            double t = 0;
+            for (int step = 0; step < 5000; step++) {
+                double nextT = ssaData.eventStack.tauLeapUpdate(stateMatrix, timeline, t, random);
+                assertTrue(nextT >= t, selectionStrategy.name());
+                assertTrue(stateMatrix.getState(0, 0) >= 0, selectionStrategy.name());
+                assertTrue(stateMatrix.getState(1, 0) >= 0, selectionStrategy.name());
+                assertEquals(nJobs, stateMatrix.getState(0, 0) + stateMatrix.getState(1, 0));
+                t = nextT;
+            }
+        }
+    }
+}
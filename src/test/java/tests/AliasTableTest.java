@@ -0,0 +1,46 @@
+package tests;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import jline.util.AliasTable;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AliasTableTest {
+    Random random;
+
+    @BeforeEach
+    void setUp() {
+        random = new Random(1);
+    }
+
+    @Test
+    void singleElement() {
+        AliasTable table = new AliasTable(new double[]{0.0, 2.0, 0.0});
+        for (int i = 0; i < 100; i++) {
+            assertEquals(1, table.sample(random));
+        }
+    }
+
+    @Test
+    void zeroWeights() {
+        assertThrows(RuntimeException.class, () -> new AliasTable(new double[]{0.0, 0.0}));
+    }
+
+    @Test
+    void generateProportional() {
+        double[] weights = new double[]{0.1, 0.2, 0.3, 0.4};
+        AliasTable table = new AliasTable(weights);
+        int[] counts = new int[4];
+        for (int i = 0; i < 10000; i++) {
+            counts[table.sample(random)]++;
+        }
+
+        for (int i = 0; i < 4; i++) {
+            assertEquals(weights[i], counts[i]/10000.0, 0.02);
+        }
+    }
+}
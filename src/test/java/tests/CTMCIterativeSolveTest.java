@@ -0,0 +1,49 @@
+package tests;
+
+import org.junit.jupiter.api.Test;
+
+import jline.api.CTMC;
+import jline.lang.JLineMatrix;
+import jline.lang.constant.SolverType;
+import jline.solvers.SolverOptions;
+import jline.util.GeneratorBuilder;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CTMCIterativeSolveTest {
+    // M/M/1/K queue, pi_i proportional to rho^i
+    private static JLineMatrix birthDeath(int capacity, double lambda, double mu) {
+        GeneratorBuilder builder = new GeneratorBuilder();
+        for (int i = 0; i < capacity; i++) {
+            builder.add(i, i+1, lambda);
+            builder.add(i+1, i, mu);
+        }
+        return builder.build(capacity+1);
+    }
+
+    @Test
+    void iterativeMethodsMatchClosedForm() {
+        int capacity = 50;
+        double rho = 0.7;
+        JLineMatrix Q = birthDeath(capacity, rho, 1.0);
+        double norm = (1 - Math.pow(rho, capacity+1))/(1 - rho);
+
+        for (String method : new String[]{"power", "gs", "sor", "bicgstab"}) {
+            SolverOptions options = new SolverOptions(SolverType.CTMC);
+            options.method = method;
+            JLineMatrix p = CTMC.ctmc_solve(Q, options);
+            for (int i = 0; i <= capacity; i += 10) {
+                assertEquals(Math.pow(rho, i)/norm, p.get(0, i), 1e-8, method);
+            }
+        }
+    }
+
+    @Test
+    void defaultUsesIterativeAboveThreshold() {
+        int capacity = CTMC.ITERATIVE_SIZE_THRESHOLD + 500;
+        JLineMatrix Q = birthDeath(capacity, 0.5, 1.0);
+        JLineMatrix p = CTMC.ctmc_solve(Q, new SolverOptions(SolverType.CTMC));
+        assertEquals(0.5, p.get(0, 0), 1e-8);
+        assertEquals(0.25, p.get(0, 1), 1e-8);
+    }
+}
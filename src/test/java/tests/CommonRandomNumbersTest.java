@@ -0,0 +1,94 @@
+package tests;
+
+import org.junit.jupiter.api.Test;
+
+import jline.lang.Network;
+import jline.lang.OpenClass;
+import jline.lang.RoutingMatrix;
+import jline.lang.constant.SchedStrategy;
+import jline.lang.distributions.Exp;
+import jline.lang.nodes.Queue;
+import jline.lang.nodes.Router;
+import jline.lang.nodes.Sink;
+import jline.lang.nodes.Source;
+import jline.solvers.ssa.ReplicationSummary;
+import jline.solvers.ssa.SolverSSA;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CommonRandomNumbersTest {
+    private static Network routedQueues(double serviceRate) {
+        // Source -> Router -> two queues -> Sink; the first queue serves at serviceRate
+        Network model = new Network("Routed queues");
+        OpenClass openClass = new OpenClass(model, "Open");
+        Source source = new Source(model, "Source");
+        source.setArrival(openClass, new Exp(1));
+        Router router = new Router(model, "Router");
+        Queue queue1 = new Queue(model, "Queue1", SchedStrategy.FCFS);
+        queue1.setService(openClass, new Exp(serviceRate));
+        Queue queue2 = new Queue(model, "Queue2", SchedStrategy.FCFS);
+        queue2.setService(openClass, new Exp(1.5));
+        Sink sink = new Sink(model, "Sink");
+
+        RoutingMatrix routingMatrix = new RoutingMatrix(model, Arrays.asList(openClass),
+                Arrays.asList(source, router, queue1, queue2, sink));
+        routingMatrix.addConnection(source, router);
+        routingMatrix.addConnection(router, queue1, openClass, 0.5);
+        routingMatrix.addConnection(router, queue2, openClass, 0.5);
+        routingMatrix.addConnection(queue1, sink);
+        routingMatrix.addConnection(queue2, sink);
+        model.link(routingMatrix);
+        return model;
+    }
+
+    private static ReplicationSummary replications(double serviceRate, int seed, boolean commonRandomNumbers,
+                                                   boolean antitheticPairs, int nReplications) {
+        SolverSSA solverSSA = new SolverSSA();
+        solverSSA.compile(routedQueues(serviceRate));
+        solverSSA.setOptions().samples(20000).seed(seed).replications(nReplications).recordMetricTimeline(false)
+                .disableTransientState().commonRandomNumbers(commonRandomNumbers).antitheticPairs(antitheticPairs);
+        return solverSSA.solveReplications();
+    }
+
+    private static int queue1() {
+        Network model = routedQueues(1);
+        return model.getStatefulNodeIndex(model.getNodeByName("Queue1"));
+    }
+
+    @Test
+    void pairedDifferenceIsNarrower() {
+        // queue length at Queue1, service rate 1 against 1.1; the router is resolved on the event streams
+        int queueIdx = queue1();
+        ReplicationSummary base = replications(1.0, 11, true, false, 20);
+        ReplicationSummary paired = replications(1.1, 11, true, false, 20);
+        ReplicationSummary unpaired = replications(1.1, 12, false, false, 20);
+
+        double pairedHalfWidth = base.getDifferenceHalfWidth(paired, queueIdx, 0, 0);
+        double unpairedHalfWidth = Math.sqrt(Math.pow(base.getHalfWidth(queueIdx, 0, 0), 2) +
+                Math.pow(unpaired.getHalfWidth(queueIdx, 0, 0), 2));
+        assertTrue(pairedHalfWidth < 0.5*unpairedHalfWidth);
+
+        // a faster server holds fewer jobs
+        assertTrue(base.getDifference(paired, queueIdx, 0, 0) > 0);
+        assertEquals(base.getMean(queueIdx, 0, 0) - paired.getMean(queueIdx, 0, 0),
+                base.getDifference(paired, queueIdx, 0, 0), 1e-9);
+    }
+
+    @Test
+    void antitheticPairsRoundUp() {
+        // 5 replications run as 3 antithetic pairs, and paired summaries compare pair means
+        int queueIdx = queue1();
+        ReplicationSummary base = replications(1.0, 21, true, true, 5);
+        ReplicationSummary faster = replications(1.1, 21, true, true, 5);
+        assertEquals(6, base.getNumberOfReplications());
+        assertEquals(6, faster.getNumberOfReplications());
+        assertTrue(base.getDifference(faster, queueIdx, 0, 0) > 0);
+        assertTrue(base.getDifferenceHalfWidth(faster, queueIdx, 0, 0) > 0);
+
+        // the two members of a pair are not the same run
+        assertNotEquals(base.getTimelines().get(0).getMetricValue(queueIdx, 0, 0),
+                base.getTimelines().get(1).getMetricValue(queueIdx, 0, 0));
+    }
+}
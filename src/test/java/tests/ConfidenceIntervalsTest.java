@@ -0,0 +1,27 @@
+package tests;
+
+import org.junit.jupiter.api.Test;
+
+import jline.util.ConfidenceIntervals;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConfidenceIntervalsTest {
+    @Test
+    void tQuantiles() {
+        assertEquals(12.7062, ConfidenceIntervals.tQuantile95(1), 1e-4);
+        assertEquals(2.0423, ConfidenceIntervals.tQuantile95(30), 1e-4);
+        assertEquals(2.0211, ConfidenceIntervals.tQuantile95(40), 1e-3);
+        assertEquals(1.9840, ConfidenceIntervals.tQuantile95(100), 1e-3);
+        assertEquals(Double.POSITIVE_INFINITY, ConfidenceIntervals.tQuantile95(0));
+    }
+
+    @Test
+    void halfWidth() {
+        double[] samples = {1.0, 2.0, 3.0, 4.0, 5.0, -1.0};
+        assertEquals(3.0, ConfidenceIntervals.mean(samples, 5), 1e-12);
+        // s = sqrt(2.5), t_4 = 2.7764
+        assertEquals(2.7764*Math.sqrt(2.5/5), ConfidenceIntervals.halfWidth95(samples, 5), 1e-4);
+        assertEquals(Double.POSITIVE_INFINITY, ConfidenceIntervals.halfWidth95(samples, 1));
+    }
+}
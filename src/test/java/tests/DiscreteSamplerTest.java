@@ -0,0 +1,69 @@
+package tests;
+
+import org.junit.jupiter.api.Test;
+
+import jline.util.DiscreteSampler;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DiscreteSamplerTest {
+    private static final int N = 200000;
+
+    @Test
+    void logFactorial() {
+        double exact = 0;
+        for (int k = 1; k < 100; k++) {
+            exact += Math.log(k);
+            assertEquals(exact, DiscreteSampler.logFactorial(k), 1e-9);
+        }
+        assertEquals(0.0, DiscreteSampler.logFactorial(0), 1e-12);
+    }
+
+    @Test
+    void poissonMoments() {
+        Random random = new Random(1);
+        for (double mean : new double[]{0.3, 4.0, 25.0, 1e5}) {
+            double sum = 0;
+            double sumSq = 0;
+            for (int i = 0; i < N; i++) {
+                int x = DiscreteSampler.poisson(mean, random);
+                assertTrue(x >= 0);
+                sum += x;
+                sumSq += (double) x*x;
+            }
+            double m = sum/N;
+            double var = sumSq/N - m*m;
+            assertEquals(mean, m, 5*Math.sqrt(mean/N));
+            assertEquals(mean, var, 0.02*mean);
+        }
+        assertEquals(0, DiscreteSampler.poisson(0.0, random));
+    }
+
+    @Test
+    void binomialMoments() {
+        Random random = new Random(1);
+        int[] ns = {20, 100, 5000, 1000000};
+        double[] ps = {0.3, 0.8, 0.5, 0.001};
+        for (int c = 0; c < ns.length; c++) {
+            int n = ns[c];
+            double p = ps[c];
+            double sum = 0;
+            double sumSq = 0;
+            for (int i = 0; i < N; i++) {
+                int x = DiscreteSampler.binomial(n, p, random);
+                assertTrue((x >= 0) && (x <= n));
+                sum += x;
+                sumSq += (double) x*x;
+            }
+            double m = sum/N;
+            double var = sumSq/N - m*m;
+            double npq = n*p*(1-p);
+            assertEquals(n*p, m, 5*Math.sqrt(npq/N));
+            assertEquals(npq, var, 0.02*npq);
+        }
+        assertEquals(7, DiscreteSampler.binomial(7, 1.0, random));
+        assertEquals(0, DiscreteSampler.binomial(7, 0.0, random));
+    }
+}
@@ -0,0 +1,60 @@
+package tests;
+
+import org.junit.jupiter.api.Test;
+
+import jline.lang.Network;
+import jline.lang.OpenClass;
+import jline.lang.constant.SchedStrategy;
+import jline.lang.distributions.Exp;
+import jline.lang.nodes.Queue;
+import jline.lang.nodes.Sink;
+import jline.lang.nodes.Source;
+import jline.solvers.ssa.ReplicationSummary;
+import jline.solvers.ssa.SolverSSA;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DistributedReplicationTest {
+    private static SolverSSA mm1Solver() {
+        Network model = new Network("M/M/1");
+        OpenClass openClass = new OpenClass(model, "MyClass");
+        Source source = new Source(model, "mySource");
+        source.setArrival(openClass, new Exp(1));
+        Queue queue = new Queue(model, "MM1Queue", SchedStrategy.FCFS);
+        queue.setService(openClass, new Exp(2));
+        Sink sink = new Sink(model, "mySink");
+        model.link(model.serialRouting(source, queue, sink));
+
+        SolverSSA solverSSA = new SolverSSA();
+        solverSSA.compile(model);
+        solverSSA.setOptions().samples(20000).seed(5).replications(6).recordMetricTimeline(false)
+                .disableTransientState();
+        return solverSSA;
+    }
+
+    @Test
+    void workersMatchLocalReplications() {
+        // replication r gets the same streams wherever it runs
+        ReplicationSummary local = mm1Solver().solveReplications();
+        SolverSSA solverSSA = mm1Solver();
+        solverSSA.setOptions().localWorkers(2);
+        ReplicationSummary distributed = solverSSA.solveDistributed();
+
+        assertEquals(6, distributed.getNumberOfReplications());
+        for (int k = 0; k < 5; k++) {
+            assertEquals(local.getMean(1, 0, k), distributed.getMean(1, 0, k));
+            assertEquals(local.getHalfWidth(1, 0, k), distributed.getHalfWidth(1, 0, k));
+        }
+        assertEquals(1.0, distributed.getMean(1, 0, 0), 0.3);
+    }
+
+    @Test
+    void remoteWorkersNeedAToken() {
+        SolverSSA solverSSA = mm1Solver();
+        solverSSA.setOptions().coordinator("0.0.0.0", 0, null);
+        assertThrows(RuntimeException.class, solverSSA::solveDistributed);
+
+        SolverSSA noWorkers = mm1Solver();
+        assertThrows(RuntimeException.class, noWorkers::solveDistributed);
+    }
+}
@@ -0,0 +1,68 @@
+package tests;
+
+import org.junit.jupiter.api.Test;
+
+import jline.solvers.ssa.trace.BinaryTraceSink;
+import jline.solvers.ssa.trace.CSVTraceSink;
+import jline.solvers.ssa.trace.EventTraceSink;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EventTraceSinkTest {
+    @Test
+    void binaryRecords() throws IOException {
+        Path file = Files.createTempFile("ssa-trace", ".bin");
+        try {
+            // a tiny buffer, so the records cross several drains
+            try (BinaryTraceSink sink = new BinaryTraceSink(file, 32)) {
+                for (int i = 0; i < 100; i++) {
+                    sink.record(0.5*i, new DummyEvent(null, 0, 0, 1), null, i);
+                }
+                assertEquals(100, sink.getNumberOfRecords());
+            }
+
+            ByteBuffer bytes = ByteBuffer.wrap(Files.readAllBytes(file));
+            assertEquals(BinaryTraceSink.MAGIC.length + 4 + 100*BinaryTraceSink.RECORD_SIZE, bytes.limit());
+            byte[] magic = new byte[BinaryTraceSink.MAGIC.length];
+            bytes.get(magic);
+            assertArrayEquals(BinaryTraceSink.MAGIC, magic);
+            assertEquals(BinaryTraceSink.VERSION, bytes.getInt());
+            for (int i = 0; i < 100; i++) {
+                assertEquals(0.5*i, bytes.getDouble());
+                assertEquals(EventTraceSink.OTHER, bytes.get());
+                assertEquals(-1, bytes.getInt());
+                assertEquals(-1, bytes.getInt());
+                assertEquals(i, bytes.getInt());
+                assertEquals(-1, bytes.getInt());
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    void sampledCSV() throws IOException {
+        Path file = Files.createTempFile("ssa-trace", ".csv");
+        try {
+            try (EventTraceSink sink = new CSVTraceSink(file).sampleEvery(3)) {
+                for (int i = 0; i < 10; i++) {
+                    sink.record(i, new DummyEvent(null, 0, 0, 1), null, 1);
+                }
+            }
+
+            List<String> lines = Files.readAllLines(file);
+            assertEquals("time,event,node,class,n,count", lines.get(0));
+            assertEquals(5, lines.size());
+            assertEquals("0.0,other,-1,-1,1,-1", lines.get(1));
+            assertEquals("9.0,other,-1,-1,1,-1", lines.get(4));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package tests;
+
+import org.junit.jupiter.api.Test;
+
+import jline.lang.JLineMatrix;
+import jline.util.GeneratorBuilder;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GeneratorBuilderTest {
+    @Test
+    void sumsDuplicatesAndSetsDiagonal() {
+        GeneratorBuilder builder = new GeneratorBuilder();
+        builder.add(0, 1, 1.0);
+        builder.add(0, 1, 2.0);
+        builder.add(1, 0, 4.0);
+        builder.add(1, 2, 0.5);
+        builder.add(2, 2, 9.0);
+        builder.add(2, 0, 1.0);
+        JLineMatrix q = builder.build(3);
+
+        double[][] expected = {{-3.0, 3.0, 0.0}, {4.0, -4.5, 0.5}, {1.0, 0.0, -1.0}};
+        for (int i = 0; i < 3; i++) {
+            for (int j = 0; j < 3; j++) {
+                assertEquals(expected[i][j], q.get(i, j), 1e-12);
+            }
+        }
+        assertEquals(7, q.nz_length);
+    }
+
+    @Test
+    void rowsSortedWithinColumns() {
+        GeneratorBuilder builder = new GeneratorBuilder(4);
+        for (int i = 9; i > 0; i--) {
+            builder.add(i, 0, i);
+            builder.add(0, i, 1.0);
+        }
+        JLineMatrix q = builder.build(10);
+        for (int col = 0; col < 10; col++) {
+            for (int k = q.col_idx[col]+1; k < q.col_idx[col+1]; k++) {
+                assertTrue(q.nz_rows[k-1] < q.nz_rows[k]);
+            }
+        }
+        assertEquals(-9.0, q.get(0, 0), 1e-12);
+        assertEquals(-5.0, q.get(5, 5), 1e-12);
+    }
+}
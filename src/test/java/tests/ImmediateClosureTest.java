@@ -0,0 +1,170 @@
+package tests;
+
+import org.junit.jupiter.api.Test;
+
+import jline.lang.ClosedClass;
+import jline.lang.JobClass;
+import jline.lang.Network;
+import jline.lang.OpenClass;
+import jline.lang.RoutingMatrix;
+import jline.lang.constant.SchedStrategy;
+import jline.lang.distributions.Exp;
+import jline.lang.nodes.Delay;
+import jline.lang.nodes.Node;
+import jline.lang.nodes.Queue;
+import jline.lang.nodes.Router;
+import jline.lang.nodes.Sink;
+import jline.lang.nodes.Source;
+import jline.solvers.ssa.SSAData;
+import jline.solvers.ssa.SSAInstrumentation;
+import jline.solvers.ssa.Timeline;
+import jline.solvers.ssa.events.ImmediateClosure;
+import jline.solvers.ssa.state.StateMatrix;
+import jline.solvers.ssa.strategies.EventSelectionStrategy;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ImmediateClosureTest {
+    private static Network routerSplit() {
+        // Source -> Router -> three queues -> Sink
+        Network model = new Network("Router split");
+        OpenClass openClass = new OpenClass(model, "Open");
+        Source source = new Source(model, "Source");
+        source.setArrival(openClass, new Exp(1));
+        Router router = new Router(model, "Router");
+        Queue[] queues = new Queue[3];
+        for (int k = 0; k < 3; k++) {
+            queues[k] = new Queue(model, "Queue" + k, SchedStrategy.FCFS);
+            queues[k].setService(openClass, new Exp(2));
+        }
+        Sink sink = new Sink(model, "Sink");
+
+        RoutingMatrix routingMatrix = new RoutingMatrix(model, Arrays.asList(openClass),
+                Arrays.asList(source, router, queues[0], queues[1], queues[2], sink));
+        routingMatrix.addConnection(source, router);
+        routingMatrix.addConnection(router, queues[0], openClass, 0.2);
+        routingMatrix.addConnection(router, queues[1], openClass, 0.3);
+        routingMatrix.addConnection(router, queues[2], openClass, 0.5);
+        for (int k = 0; k < 3; k++) {
+            routingMatrix.addConnection(queues[k], sink);
+        }
+        model.link(routingMatrix);
+        return model;
+    }
+
+    private static void assertRoutersEmpty(Network model, EventSelectionStrategy selectionStrategy) {
+        // after every step the jobs have moved on from the eliminated routers
+        SSAData ssaData = new SSAData(model);
+        ImmediateClosure closure = ssaData.eventStack.getImmediateClosure();
+        assertNotNull(closure);
+        SSAInstrumentation instrumentation = new SSAInstrumentation();
+        ssaData.eventStack.setInstrumentation(instrumentation);
+        ssaData.eventStack.configureSelection(selectionStrategy);
+
+        Random random = new Random(1);
+        StateMatrix stateMatrix = new StateMatrix(ssaData.simStruct, random);
+        for (JobClass jobClass : model.getClasses()) {
+            if (jobClass instanceof ClosedClass) {
+                int classIdx = model.getJobClassIndex(jobClass);
+                int stationIdx = model.getStatefulNodeIndex(((ClosedClass) jobClass).getRefstat());
+                stateMatrix.setState(stationIdx, classIdx, (int) ((ClosedClass) jobClass).getPopulation());
+                for (int i = 0; i < ((ClosedClass) jobClass).getPopulation(); i++) {
+                    stateMatrix.addToBuffer(stationIdx, classIdx);
+                }
+            }
+        }
+        Timeline timeline = new Timeline(ssaData.simStruct);
+        double t = 0;
+        for (int step = 0; step < 5000; step++) {
+            double nextT = ssaData.eventStack.updateState(stateMatrix, timeline, t, random);
+            assertTrue(nextT > t);
+            t = nextT;
+            for (int k = 0; k < closure.size(); k++) {
+                assertEquals(0, stateMatrix.getState(closure.getStation(k), closure.getClassIdx(k)));
+            }
+        }
+        assertTrue(instrumentation.getImmediateFirings() > 0);
+    }
+
+    @Test
+    void eliminatesOnlyTheRouter() {
+        Network model = routerSplit();
+        SSAData ssaData = new SSAData(model);
+        ImmediateClosure closure = ssaData.eventStack.getImmediateClosure();
+        assertNotNull(closure);
+
+        int routerIdx = model.getStatefulNodeIndex(model.getNodeByName("Router"));
+        assertEquals(1, closure.size());
+        assertTrue(closure.isEliminated(routerIdx, 0));
+        assertTrue(closure.isEliminatedStation(routerIdx));
+        for (int k = 0; k < 3; k++) {
+            int queueIdx = model.getStatefulNodeIndex(model.getNodeByName("Queue" + k));
+            assertFalse(closure.isEliminatedStation(queueIdx));
+        }
+    }
+
+    @Test
+    void routerChainWithClassSwitch() {
+        // Delay -> Router1 -> Router2 -(A to B)-> Queue -> Delay
+        Network model = new Network("Router chain");
+        Delay delay = new Delay(model, "Think");
+        Router router1 = new Router(model, "Router1");
+        Router router2 = new Router(model, "Router2");
+        Queue queue = new Queue(model, "Queue", SchedStrategy.PS);
+        ClosedClass classA = new ClosedClass(model, "A", 5, delay);
+        ClosedClass classB = new ClosedClass(model, "B", 0, delay);
+        for (JobClass jobClass : model.getClasses()) {
+            delay.setService(jobClass, new Exp(1));
+            queue.setService(jobClass, new Exp(4));
+        }
+
+        RoutingMatrix routingMatrix = new RoutingMatrix(model, Arrays.asList((JobClass) classA, classB),
+                Arrays.asList((Node) delay, router1, router2, queue));
+        routingMatrix.addConnection(delay, router1, classA, 1.0);
+        routingMatrix.addConnection(router1, router2, classA, 1.0);
+        routingMatrix.addConnection(router2, queue, classA, classB, 1.0);
+        routingMatrix.addConnection(queue, delay, classB, classA, 1.0);
+        model.link(routingMatrix);
+
+        SSAData ssaData = new SSAData(model);
+        ImmediateClosure closure = ssaData.eventStack.getImmediateClosure();
+        assertNotNull(closure);
+        assertTrue(closure.isEliminated(model.getStatefulNodeIndex(router1), 0));
+        assertTrue(closure.isEliminated(model.getStatefulNodeIndex(router2), 0));
+
+        for (EventSelectionStrategy selectionStrategy : EventSelectionStrategy.values()) {
+            assertRoutersEmpty(model, selectionStrategy);
+        }
+    }
+
+    @Test
+    void eliminatedInEveryStrategy() {
+        for (EventSelectionStrategy selectionStrategy : EventSelectionStrategy.values()) {
+            assertRoutersEmpty(routerSplit(), selectionStrategy);
+        }
+    }
+
+    @Test
+    void closedImmediateCycleIsKept() {
+        // jobs entering the two routers never leave them, so neither is eliminated
+        Network model = new Network("Immediate cycle");
+        Delay delay = new Delay(model, "Think");
+        Router routerA = new Router(model, "RouterA");
+        Router routerB = new Router(model, "RouterB");
+        ClosedClass closedClass = new ClosedClass(model, "C", 2, delay);
+        delay.setService(closedClass, new Exp(1));
+
+        RoutingMatrix routingMatrix = new RoutingMatrix(model, Arrays.asList((JobClass) closedClass),
+                Arrays.asList((Node) delay, routerA, routerB));
+        routingMatrix.addConnection(delay, routerA);
+        routingMatrix.addConnection(routerA, routerB);
+        routingMatrix.addConnection(routerB, routerA);
+        model.link(routingMatrix);
+
+        SSAData ssaData = new SSAData(model);
+        assertNull(ssaData.eventStack.getImmediateClosure());
+    }
+}
@@ -0,0 +1,181 @@
+package tests;
+
+import org.junit.jupiter.api.Test;
+
+import jline.lang.Network;
+import jline.lang.OpenClass;
+import jline.lang.RoutingMatrix;
+import jline.lang.constant.SchedStrategy;
+import jline.lang.distributions.Exp;
+import jline.lang.nodes.Queue;
+import jline.lang.nodes.Sink;
+import jline.lang.nodes.Source;
+import jline.solvers.ssa.ImportanceFunction;
+import jline.solvers.ssa.ImportanceSplitting;
+import jline.solvers.ssa.SSASnapshot;
+import jline.solvers.ssa.SSAStruct;
+import jline.solvers.ssa.SolverSSA;
+import jline.solvers.ssa.Timeline;
+import jline.solvers.ssa.events.EventStack;
+import jline.solvers.ssa.state.StateMatrix;
+import jline.solvers.ssa.strategies.EventSelectionStrategy;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ImportanceSplittingTest {
+    private static SSAStruct networkStruct() {
+        // the queue of the MM1 event stack below
+        return TestNetworkStructs.networkStruct(1, 1000, SchedStrategy.FCFS);
+    }
+
+    private static class MM1 extends EventStack {
+        // M/M/1 queue length at station 0, arrival rate 1 and service rate 3
+        public double updateState(StateMatrix stateMatrix, Timeline timeline, double t, Random random) {
+            int queueLength = stateMatrix.getState(0, 0);
+            double rate = 1 + ((queueLength > 0) ? 3 : 0);
+            t += -Math.log(random.nextDouble())/rate;
+            if (random.nextDouble()*rate < 1) {
+                stateMatrix.setState(0, 0, queueLength + 1);
+            } else {
+                stateMatrix.setState(0, 0, queueLength - 1);
+            }
+            return t;
+        }
+    }
+
+    private static class Absorbed extends EventStack {
+        // no event is enabled: updateState leaves the time where it was
+        public double updateState(StateMatrix stateMatrix, Timeline timeline, double t, Random random) {
+            return t;
+        }
+    }
+
+    private static Network mm1k(int capacity) {
+        // M/M/1/K queue, arrival rate 1 and service rate 2
+        Network model = new Network("M/M/1/K");
+        OpenClass openClass = new OpenClass(model, "Open");
+        Source source = new Source(model, "Source");
+        source.setArrival(openClass, new Exp(1));
+        Queue queue = new Queue(model, "Queue", SchedStrategy.FCFS);
+        queue.setService(openClass, new Exp(2));
+        queue.setCap(capacity);
+        Sink sink = new Sink(model, "Sink");
+
+        RoutingMatrix routingMatrix = new RoutingMatrix(model, Arrays.asList(openClass),
+                Arrays.asList(source, queue, sink));
+        routingMatrix.addConnection(source, queue);
+        routingMatrix.addConnection(queue, sink);
+        model.link(routingMatrix);
+        return model;
+    }
+
+    private static double blockingProbability(double rho, int capacity) {
+        // closed form M/M/1/K blocking probability
+        return (1 - rho)*Math.pow(rho, capacity)/(1 - Math.pow(rho, capacity + 1));
+    }
+
+    private static ImportanceSplitting overflow(int nLevels, int effort, double horizon, double returnLevel,
+                                                long seed) {
+        // probability that the queue, started with one job, reaches 1+nLevels jobs
+        SSAStruct networkStruct = networkStruct();
+        Random random = new Random(seed);
+        StateMatrix stateMatrix = new StateMatrix(networkStruct, random);
+        stateMatrix.setState(0, 0, 1);
+        double[] levels = new double[nLevels];
+        for (int k = 0; k < nLevels; k++) {
+            levels[k] = k + 2;
+        }
+        ImportanceSplitting splitting = new ImportanceSplitting(ImportanceFunction.jobsAt(0), levels, effort,
+                horizon, returnLevel);
+        splitting.run(new MM1(), new Timeline(networkStruct), stateMatrix, 0, random);
+        return splitting;
+    }
+
+    @Test
+    void overflowBeforeEmptying() {
+        // gambler's ruin: from 1 job, reaching N before 0 has probability 2/(3^N-1)
+        ImportanceSplitting splitting = overflow(11, 2000, Double.POSITIVE_INFINITY, 0, 1);
+        double exact = 2/(Math.pow(3, 12) - 1);
+        assertEquals(11, splitting.getNumberOfLevels());
+        assertEquals(0.25, splitting.getLevelProbability(0), 0.05);
+        assertEquals(exact, splitting.getProbability(), 0.3*exact);
+        assertTrue(splitting.getRelativeHalfWidth() < 0.3);
+        assertEquals(11*2000, splitting.getNumberOfTrajectories());
+    }
+
+    @Test
+    void horizonLimitsTheEstimate() {
+        ImportanceSplitting shortRun = overflow(4, 1000, 1.0, Double.NEGATIVE_INFINITY, 2);
+        ImportanceSplitting longRun = overflow(4, 1000, 100.0, Double.NEGATIVE_INFINITY, 2);
+        assertTrue(shortRun.getProbability() > 0);
+        assertTrue(longRun.getProbability() > shortRun.getProbability());
+    }
+
+    @Test
+    void stopsAtAStageWithoutHits() {
+        ImportanceSplitting splitting = overflow(30, 10, 0.01, Double.NEGATIVE_INFINITY, 3);
+        assertEquals(0.0, splitting.getProbability());
+        assertEquals(Double.POSITIVE_INFINITY, splitting.getRelativeHalfWidth());
+        assertTrue(splitting.getNumberOfTrajectories() < 30*10);
+    }
+
+    @Test
+    void rejectsBadLevels() {
+        assertThrows(RuntimeException.class, () -> new ImportanceSplitting(ImportanceFunction.jobsAt(0),
+                new double[]{3, 2}, 10, 1.0, Double.NEGATIVE_INFINITY));
+        assertThrows(RuntimeException.class, () -> new ImportanceSplitting(ImportanceFunction.jobsAt(0),
+                new double[]{2, 3}, 10, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY));
+    }
+
+    @Test
+    void failsAStalledTrajectoryAtOnce() {
+        SSAStruct networkStruct = networkStruct();
+        StateMatrix stateMatrix = new StateMatrix(networkStruct, new Random(4));
+        stateMatrix.setState(0, 0, 1);
+        ImportanceSplitting splitting = new ImportanceSplitting(ImportanceFunction.jobsAt(0), new double[]{2},
+                10, 1.0, Double.NEGATIVE_INFINITY);
+        splitting.run(new Absorbed(), new Timeline(networkStruct), stateMatrix, 0, new Random(4));
+        assertEquals(0.0, splitting.getProbability());
+        assertEquals(10, splitting.getNumberOfEvents());
+    }
+
+    @Test
+    void solverMatchesTheMM1KBlockingProbability() {
+        /*
+            Busy periods of an M/M/1/K queue started by a warm start snapshot with one job. One fills the K places
+                before emptying with probability (1-rho)*rho^(K-1)/(1-rho^K) (gambler's ruin), which is the
+                blocking probability of the same queue with K-1 places.
+         */
+        int capacity = 8;
+        double exact = blockingProbability(0.5, capacity - 1);
+        for (EventSelectionStrategy selectionStrategy : new EventSelectionStrategy[]{EventSelectionStrategy.Linear,
+                EventSelectionStrategy.NextReaction}) {
+            Network model = mm1k(capacity);
+            int queueIdx = model.getStatefulNodeIndex(model.getNodeByName("Queue"));
+            SolverSSA solverSSA = new SolverSSA();
+            solverSSA.compile(model);
+
+            // the first event is an arrival, the snapshot holds one job at the queue
+            solverSSA.setOptions().samples(1).seed(5).checkpointTime(1e-12).disableTransientState()
+                    .recordMetricTimeline(false);
+            solverSSA.solve();
+            SSASnapshot snapshot = solverSSA.getCheckpoint();
+            assertEquals(1, snapshot.getStateMatrix().totalStateAtNode(queueIdx));
+            solverSSA.warmStart(snapshot);
+
+            double[] levels = new double[capacity - 1];
+            for (int k = 0; k < levels.length; k++) {
+                levels[k] = k + 2;
+            }
+            // every trajectory runs on its own copy of an entrance state, so the next reaction heap is rebuilt
+            solverSSA.setOptions().seed(6).splitting(levels, 2000).splittingReturnLevel(0)
+                    .eventSelection(selectionStrategy);
+            ImportanceSplitting splitting = solverSSA.solveSplitting(ImportanceFunction.jobsAt(queueIdx));
+            assertEquals(capacity - 1, splitting.getNumberOfLevels());
+            assertEquals(exact, splitting.getProbability(), 0.25*exact);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package tests;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import jline.util.IndexedMinHeap;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IndexedMinHeapTest {
+    IndexedMinHeap heap;
+
+    @BeforeEach
+    void setUp() {
+        heap = new IndexedMinHeap(6);
+    }
+
+    @Test
+    void emptyKeysAreInfinite() {
+        assertEquals(Double.POSITIVE_INFINITY, heap.peekKey());
+    }
+
+    @Test
+    void updateMovesMinimum() {
+        heap.update(3, 2.0);
+        heap.update(5, 1.0);
+        assertEquals(5, heap.peek());
+
+        heap.update(5, 4.0);
+        assertEquals(3, heap.peek());
+        assertEquals(2.0, heap.peekKey());
+
+        heap.update(0, 0.5);
+        assertEquals(0, heap.peek());
+        assertEquals(4.0, heap.getKey(5));
+    }
+
+    @Test
+    void matchesLinearScan() {
+        Random random = new Random(1);
+        double[] keys = new double[6];
+        for (int i = 0; i < 6; i++) {
+            keys[i] = Double.POSITIVE_INFINITY;
+        }
+
+        for (int i = 0; i < 500; i++) {
+            int idx = random.nextInt(6);
+            keys[idx] = random.nextDouble();
+            heap.update(idx, keys[idx]);
+
+            double minKey = Double.POSITIVE_INFINITY;
+            for (double key : keys) {
+                minKey = Math.min(minKey, key);
+            }
+            assertEquals(minKey, heap.peekKey());
+        }
+    }
+}
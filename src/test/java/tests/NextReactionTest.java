@@ -0,0 +1,117 @@
+package tests;
+
+import org.junit.jupiter.api.Test;
+
+import jline.lang.ClosedClass;
+import jline.lang.JobClass;
+import jline.lang.Network;
+import jline.lang.OpenClass;
+import jline.lang.RoutingMatrix;
+import jline.lang.constant.SchedStrategy;
+import jline.lang.distributions.Exp;
+import jline.lang.nodes.Queue;
+import jline.lang.nodes.Router;
+import jline.lang.nodes.Sink;
+import jline.lang.nodes.Source;
+import jline.solvers.ssa.ReplicationSummary;
+import jline.solvers.ssa.SolverSSA;
+import jline.solvers.ssa.strategies.EventSelectionStrategy;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NextReactionTest {
+    private static Network mm1() {
+        // arrival rate 1, service rate 2: mean queue length 1
+        Network model = new Network("M/M/1");
+        OpenClass openClass = new OpenClass(model, "Open");
+        Source source = new Source(model, "Source");
+        source.setArrival(openClass, new Exp(1));
+        Queue queue = new Queue(model, "Queue", SchedStrategy.FCFS);
+        queue.setService(openClass, new Exp(2));
+        Sink sink = new Sink(model, "Sink");
+
+        RoutingMatrix routingMatrix = new RoutingMatrix(model, Arrays.asList(openClass),
+                Arrays.asList(source, queue, sink));
+        routingMatrix.addConnection(source, queue);
+        routingMatrix.addConnection(queue, sink);
+        model.link(routingMatrix);
+        return model;
+    }
+
+    private static Network closedTandem() {
+        // Queue1 -> Router -> Queue2 -> Queue1, class A jobs switch to B at the router and B jobs back on return
+        Network model = new Network("Closed tandem");
+        Queue queue1 = new Queue(model, "Queue1", SchedStrategy.FCFS);
+        Router router = new Router(model, "Router");
+        Queue queue2 = new Queue(model, "Queue2", SchedStrategy.PS);
+        ClosedClass classA = new ClosedClass(model, "A", 3, queue1);
+        ClosedClass classB = new ClosedClass(model, "B", 2, queue1);
+        queue1.setService(classA, new Exp(3));
+        queue1.setService(classB, new Exp(2));
+        queue2.setService(classA, new Exp(2.5));
+        queue2.setService(classB, new Exp(1.5));
+
+        RoutingMatrix routingMatrix = new RoutingMatrix(model, Arrays.<JobClass>asList(classA, classB),
+                Arrays.asList(queue1, router, queue2));
+        routingMatrix.addConnection(queue1, router, classA);
+        routingMatrix.addConnection(queue1, router, classB);
+        routingMatrix.addConnection(router, queue2, classA, classA, 0.7);
+        routingMatrix.addConnection(router, queue2, classA, classB, 0.3);
+        routingMatrix.addConnection(router, queue2, classB, classB, 1.0);
+        routingMatrix.addConnection(queue2, queue1, classA, classA, 1.0);
+        routingMatrix.addConnection(queue2, queue1, classB, classA, 0.4);
+        routingMatrix.addConnection(queue2, queue1, classB, classB, 0.6);
+        model.link(routingMatrix);
+        return model;
+    }
+
+    private static ReplicationSummary replications(Network model, EventSelectionStrategy selectionStrategy,
+                                                   int seed) {
+        SolverSSA solverSSA = new SolverSSA();
+        solverSSA.compile(model);
+        solverSSA.setOptions().samples(20000).seed(seed).replications(20).recordMetricTimeline(false)
+                .disableTransientState().eventSelection(selectionStrategy);
+        return solverSSA.solveReplications();
+    }
+
+    private static void assertSameQueueLengths(ReplicationSummary linear, ReplicationSummary nextReaction,
+                                               int nodeIdx, int nClasses) {
+        // independent runs, so the half-width of the difference is that of the two summaries combined
+        for (int classIdx = 0; classIdx < nClasses; classIdx++) {
+            double halfWidth = Math.sqrt(Math.pow(linear.getHalfWidth(nodeIdx, classIdx, 0), 2) +
+                    Math.pow(nextReaction.getHalfWidth(nodeIdx, classIdx, 0), 2));
+            assertEquals(linear.getMean(nodeIdx, classIdx, 0), nextReaction.getMean(nodeIdx, classIdx, 0),
+                    2*halfWidth);
+        }
+    }
+
+    @Test
+    void matchesTheDirectMethodOnMM1() {
+        Network model = mm1();
+        int queueIdx = model.getStatefulNodeIndex(model.getNodeByName("Queue"));
+        ReplicationSummary linear = replications(mm1(), EventSelectionStrategy.Linear, 1);
+        ReplicationSummary nextReaction = replications(mm1(), EventSelectionStrategy.NextReaction, 2);
+        assertSameQueueLengths(linear, nextReaction, queueIdx, 1);
+        assertEquals(1.0, nextReaction.getMean(queueIdx, 0, 0), 0.15);
+    }
+
+    @Test
+    void matchesTheDirectMethodOnAClosedTandemWithClassSwitching() {
+        Network model = closedTandem();
+        int queue1Idx = model.getStatefulNodeIndex(model.getNodeByName("Queue1"));
+        int queue2Idx = model.getStatefulNodeIndex(model.getNodeByName("Queue2"));
+        ReplicationSummary linear = replications(closedTandem(), EventSelectionStrategy.Linear, 3);
+        ReplicationSummary nextReaction = replications(closedTandem(), EventSelectionStrategy.NextReaction, 4);
+        assertSameQueueLengths(linear, nextReaction, queue1Idx, 2);
+        assertSameQueueLengths(linear, nextReaction, queue2Idx, 2);
+
+        // the population of the chain is kept: 5 jobs between the two queues
+        double total = 0;
+        for (int classIdx = 0; classIdx < 2; classIdx++) {
+            total += nextReaction.getMean(queue1Idx, classIdx, 0) + nextReaction.getMean(queue2Idx, classIdx, 0);
+        }
+        assertEquals(5.0, total, 1e-3);
+    }
+}
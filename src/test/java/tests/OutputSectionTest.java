@@ -0,0 +1,90 @@
+package tests;
+
+import org.junit.jupiter.api.Test;
+
+import jline.lang.Network;
+import jline.lang.OpenClass;
+import jline.lang.RoutingMatrix;
+import jline.lang.constant.SchedStrategy;
+import jline.lang.distributions.Exp;
+import jline.lang.nodes.Queue;
+import jline.lang.nodes.Router;
+import jline.lang.nodes.Sink;
+import jline.lang.nodes.Source;
+import jline.lang.sections.OutputSection;
+import jline.solvers.ssa.SolverSSA;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OutputSectionTest {
+    private static RoutingMatrix routing(Network model, double toQueue1) {
+        // Source -> Router -> Queue1 with probability toQueue1, else Queue2 -> Sink
+        OpenClass openClass = (OpenClass) model.getClasses().get(0);
+        Source source = (Source) model.getNodeByName("Source");
+        Router router = (Router) model.getNodeByName("Router");
+        Queue queue1 = (Queue) model.getNodeByName("Queue1");
+        Queue queue2 = (Queue) model.getNodeByName("Queue2");
+        Sink sink = (Sink) model.getNodeByName("Sink");
+        RoutingMatrix routingMatrix = new RoutingMatrix(model, Arrays.asList(openClass),
+                Arrays.asList(source, router, queue1, queue2, sink));
+        routingMatrix.addConnection(source, router);
+        routingMatrix.addConnection(router, queue1, openClass, toQueue1);
+        routingMatrix.addConnection(router, queue2, openClass, 1 - toQueue1);
+        routingMatrix.addConnection(queue1, sink);
+        routingMatrix.addConnection(queue2, sink);
+        return routingMatrix;
+    }
+
+    private static Network routedQueues() {
+        Network model = new Network("Routed queues");
+        OpenClass openClass = new OpenClass(model, "Open");
+        Source source = new Source(model, "Source");
+        source.setArrival(openClass, new Exp(1));
+        new Router(model, "Router");
+        Queue queue1 = new Queue(model, "Queue1", SchedStrategy.FCFS);
+        queue1.setService(openClass, new Exp(2));
+        Queue queue2 = new Queue(model, "Queue2", SchedStrategy.FCFS);
+        queue2.setService(openClass, new Exp(2));
+        new Sink(model, "Sink");
+        model.link(routing(model, 0.5));
+        return model;
+    }
+
+    private static double fractionToQueue1(Network model, int nDraws) {
+        OutputSection output = model.getNodeByName("Router").getOutput();
+        Random random = new Random(1);
+        int toQueue1 = 0;
+        for (int n = 0; n < nDraws; n++) {
+            if (output.getOutputEvent(model.getClasses().get(0), random).node == model.getNodeByName("Queue1")) {
+                toQueue1++;
+            }
+        }
+        return ((double) toQueue1)/nDraws;
+    }
+
+    @Test
+    void relinkDropsTheCompiledTables() {
+        Network model = routedQueues();
+        OutputSection output = model.getNodeByName("Router").getOutput();
+        assertFalse(output.isRoutingCompiled());
+
+        new SolverSSA().compile(model);
+        assertTrue(output.isRoutingCompiled());
+        assertEquals(0.5, fractionToQueue1(model, 20000), 0.02);
+
+        // a solver compiled later sees the new routing, and until then draws follow it from the probabilities
+        model.link(routing(model, 0.9));
+        assertFalse(output.isRoutingCompiled());
+        assertEquals(0.9, fractionToQueue1(model, 20000), 0.02);
+
+        new SolverSSA().compile(model);
+        assertTrue(output.isRoutingCompiled());
+        assertEquals(0.9, fractionToQueue1(model, 20000), 0.02);
+
+        model.unLink();
+        assertFalse(output.isRoutingCompiled());
+    }
+}
@@ -0,0 +1,55 @@
+package tests;
+
+import org.junit.jupiter.api.Test;
+
+import jline.util.PackedKeyIndex;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PackedKeyIndexTest {
+    private static long[] key(int... values) {
+        PackedKeyIndex.KeyBuilder keyBuilder = new PackedKeyIndex.KeyBuilder();
+        for (int value : values) {
+            keyBuilder.add(value);
+        }
+        return keyBuilder.toKey();
+    }
+
+    @Test
+    void denseIds() {
+        PackedKeyIndex index = new PackedKeyIndex(4);
+        assertEquals(0, index.add(key(1, 2, 3)));
+        assertEquals(1, index.add(key(3, 2, 1)));
+        assertEquals(0, index.add(key(1, 2, 3)));
+        assertEquals(2, index.size());
+        assertEquals(1, index.find(key(3, 2, 1)));
+        assertEquals(-1, index.find(key(1, 2)));
+        assertArrayEquals(key(3, 2, 1), index.getKey(1));
+    }
+
+    @Test
+    void canonicalKeys() {
+        // different sequences must not collide into the same packed key
+        assertFalse(java.util.Arrays.equals(key(1, 0), key(1)));
+        assertFalse(java.util.Arrays.equals(key(128), key(0, 1)));
+        assertFalse(java.util.Arrays.equals(key(-1), key(1)));
+        assertArrayEquals(key(300, -7, 0), key(300, -7, 0));
+    }
+
+    @Test
+    void manyKeys() {
+        PackedKeyIndex index = new PackedKeyIndex();
+        Random random = new Random(1);
+        int n = 200000;
+        for (int i = 0; i < n; i++) {
+            assertEquals(i, index.add(key(i, random.nextInt(10))));
+        }
+        assertEquals(n, index.size());
+        random = new Random(1);
+        for (int i = 0; i < n; i++) {
+            assertEquals(i, index.find(key(i, random.nextInt(10))));
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package tests;
+
+import org.junit.jupiter.api.Test;
+
+import jline.lang.distributions.Erlang;
+import jline.lang.distributions.Exp;
+import jline.lang.distributions.PhaseTypeSampler;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PhaseTypeSamplerTest {
+    private static final int N = 200000;
+
+    private static double mean(double[] samples) {
+        double sum = 0;
+        for (double sample : samples) {
+            sum += sample;
+        }
+        return sum/samples.length;
+    }
+
+    private static double variance(double[] samples) {
+        double m = mean(samples);
+        double sum = 0;
+        for (double sample : samples) {
+            sum += (sample-m)*(sample-m);
+        }
+        return sum/samples.length;
+    }
+
+    @Test
+    void hypoexponential() {
+        // Exp(2) then Exp(3)
+        PhaseTypeSampler sampler = new PhaseTypeSampler(new double[]{1, 0}, new double[][]{{-2, 2}, {0, -3}});
+        double[] samples = new double[N];
+        sampler.sample(samples, 0, N, new Random(1));
+        assertEquals(1/2.0 + 1/3.0, mean(samples), 0.01);
+        assertEquals(1/4.0 + 1/9.0, variance(samples), 0.01);
+    }
+
+    @Test
+    void poissonProcessAsMAP() {
+        // two phases, both emitting at rate 4: inter-event times are Exp(4) whatever the phase
+        PhaseTypeSampler sampler = new PhaseTypeSampler(new double[][]{{-5, 1}, {2, -6}},
+                new double[][]{{2, 2}, {4, 0}}, 0);
+        double[] samples = new double[N];
+        sampler.sample(samples, 0, N, new Random(1));
+        assertEquals(0.25, mean(samples), 0.005);
+        assertEquals(0.0625, variance(samples), 0.005);
+    }
+
+    @Test
+    void bulkSamples() {
+        double[] samples = new double[N];
+        new Exp(2.0).sample(samples, new Random(1));
+        assertEquals(0.5, mean(samples), 0.01);
+
+        new Erlang(2.0, 5).sample(samples, new Random(1));
+        assertEquals(2.5, mean(samples), 0.01);
+        assertEquals(1.25, variance(samples), 0.05);
+
+        new Erlang(2.0, 40).sample(samples, new Random(1));
+        assertEquals(20.0, mean(samples), 0.05);
+        assertEquals(10.0, variance(samples), 0.3);
+    }
+}
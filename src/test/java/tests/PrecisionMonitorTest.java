@@ -0,0 +1,82 @@
+package tests;
+
+import org.junit.jupiter.api.Test;
+
+import jline.lang.constant.SchedStrategy;
+import jline.solvers.ssa.PrecisionMonitor;
+import jline.solvers.ssa.SSAStruct;
+import jline.solvers.ssa.state.StateMatrix;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PrecisionMonitorTest {
+    private static SSAStruct networkStruct() {
+        // the M/M/1 station and one that is never visited
+        return TestNetworkStructs.networkStruct(1, 1000, SchedStrategy.FCFS, SchedStrategy.FCFS);
+    }
+
+    private static int runMM1(PrecisionMonitor monitor, StateMatrix stateMatrix, Random random, int checkEvery,
+                              int maxEvents) {
+        // M/M/1 at station 0 with arrival rate 0.5 and service rate 1, station 1 is never visited
+        double t = 0;
+        monitor.start(t, stateMatrix);
+        for (int n = 1; n <= maxEvents; n++) {
+            int queueLength = stateMatrix.getState(0, 0);
+            double rate = 0.5 + ((queueLength > 0) ? 1.0 : 0.0);
+            t += -Math.log(random.nextDouble())/rate;
+            if (random.nextDouble()*rate < 0.5) {
+                stateMatrix.stateArrival(0, 0);
+            } else {
+                stateMatrix.stateDeparture(0, 0);
+                monitor.departure(t, 0, 1);
+            }
+            monitor.level(t, 0, stateMatrix);
+            if (((n % checkEvery) == 0) && monitor.check()) {
+                return n;
+            }
+        }
+        return maxEvents;
+    }
+
+    @Test
+    void stopsAtTargetPrecision() {
+        SSAStruct networkStruct = networkStruct();
+        PrecisionMonitor monitor = new PrecisionMonitor(networkStruct, 0.05, 30, true, true);
+        StateMatrix stateMatrix = new StateMatrix(networkStruct, new Random(1));
+        int nEvents = runMM1(monitor, stateMatrix, new Random(2), 1000, 10000000);
+
+        assertTrue(monitor.isConverged());
+        assertTrue(nEvents < 10000000);
+        assertTrue(monitor.getPrecision() <= 0.05);
+        // rho/(1-rho) = 1 and lambda = 0.5, within a few half-widths
+        assertEquals(1.0, monitor.getQueueLength(0), 4*monitor.getQueueLengthHalfWidth(0));
+        assertEquals(0.5, monitor.getThroughput(0), 4*monitor.getThroughputHalfWidth(0));
+        assertTrue(monitor.getQueueLengthHalfWidth(0) <= 0.05*monitor.getQueueLength(0));
+        assertEquals(0.0, monitor.getQueueLength(1));
+    }
+
+    @Test
+    void tighterTargetsRunLonger() {
+        int[] nEvents = new int[2];
+        double[] targets = {0.1, 0.02};
+        for (int k = 0; k < 2; k++) {
+            SSAStruct networkStruct = networkStruct();
+            PrecisionMonitor monitor = new PrecisionMonitor(networkStruct, targets[k], 30, true, false);
+            StateMatrix stateMatrix = new StateMatrix(networkStruct, new Random(1));
+            nEvents[k] = runMM1(monitor, stateMatrix, new Random(2), 1000, 10000000);
+            assertTrue(monitor.isConverged());
+        }
+        assertTrue(nEvents[1] > nEvents[0]);
+    }
+
+    @Test
+    void notConvergedBeforeAnyObservation() {
+        SSAStruct networkStruct = networkStruct();
+        PrecisionMonitor monitor = new PrecisionMonitor(networkStruct, 0.5, 30, true, true);
+        monitor.start(0, new StateMatrix(networkStruct, new Random(1)));
+        assertFalse(monitor.check());
+        assertEquals(Double.POSITIVE_INFINITY, monitor.getPrecision());
+    }
+}
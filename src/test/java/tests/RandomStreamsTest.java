@@ -0,0 +1,90 @@
+package tests;
+
+import org.junit.jupiter.api.Test;
+
+import jline.solvers.ssa.RandomStreams;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RandomStreamsTest {
+    private static double meanWait(RandomStreams randomStreams, double serviceRate, int nCustomers) {
+        // M/M/1 with arrival rate 1, by Lindley's recursion; arrivals and services on their own streams
+        Random arrivals = randomStreams.stream("arrival:Queue");
+        Random services = randomStreams.stream("service:Queue");
+        double wait = 0;
+        double acc = 0;
+        for (int n = 0; n < nCustomers; n++) {
+            double service = -Math.log(1 - services.nextDouble())/serviceRate;
+            double interArrival = -Math.log(1 - arrivals.nextDouble());
+            wait = Math.max(0, wait + service - interArrival);
+            acc += wait;
+        }
+        return acc/nCustomers;
+    }
+
+    private static double variance(double[] samples) {
+        double mean = 0;
+        for (double sample : samples) {
+            mean += sample/samples.length;
+        }
+        double acc = 0;
+        for (double sample : samples) {
+            acc += (sample - mean)*(sample - mean);
+        }
+        return acc/(samples.length - 1);
+    }
+
+    @Test
+    void streamsDependOnlyOnSeedAndName() {
+        RandomStreams first = new RandomStreams(7, false);
+        RandomStreams second = new RandomStreams(7, false);
+        // consumed in a different order, and with an extra stream in between
+        double a = first.stream("service:Queue1").nextDouble();
+        double b = first.stream("routing:Queue1").nextDouble();
+        second.stream("service:Queue2").nextDouble();
+        assertEquals(b, second.stream("routing:Queue1").nextDouble());
+        assertEquals(a, second.stream("service:Queue1").nextDouble());
+        assertNotEquals(first.stream("service:Queue1").nextDouble(), first.stream("routing:Queue1").nextDouble());
+        assertNotEquals(new RandomStreams(8, false).stream("service:Queue1").nextDouble(), a);
+
+        // the main stream is the one plain runs always used
+        assertEquals(new Random(7).nextLong(), new RandomStreams(7, false).main().nextLong());
+    }
+
+    @Test
+    void antitheticComplements() {
+        Random plain = new RandomStreams(3, false).stream("service:Queue");
+        Random antithetic = new RandomStreams(3, true).stream("service:Queue");
+        for (int n = 0; n < 1000; n++) {
+            assertEquals(1.0, plain.nextDouble() + antithetic.nextDouble(), 1e-12);
+            assertEquals(7, plain.nextInt(8) + antithetic.nextInt(8));
+        }
+        assertTrue(new RandomStreams(3, true).isAntithetic());
+    }
+
+    @Test
+    void pairedComparisonsNeedFewerRuns() {
+        // difference of mean waits between service rates 2 and 2.2, over 40 replications
+        int nReplications = 40;
+        double[] common = new double[nReplications];
+        double[] independent = new double[nReplications];
+        double[] antitheticPairs = new double[nReplications/2];
+        double[] plainPairs = new double[nReplications/2];
+        for (int r = 0; r < nReplications; r++) {
+            double base = meanWait(new RandomStreams(r, false), 2.0, 2000);
+            common[r] = base - meanWait(new RandomStreams(r, false), 2.2, 2000);
+            independent[r] = base - meanWait(new RandomStreams(1000 + r, false), 2.2, 2000);
+        }
+        for (int r = 0; r < nReplications/2; r++) {
+            antitheticPairs[r] = (meanWait(new RandomStreams(r, false), 2.0, 2000) +
+                    meanWait(new RandomStreams(r, true), 2.0, 2000))/2;
+            plainPairs[r] = (meanWait(new RandomStreams(r, false), 2.0, 2000) +
+                    meanWait(new RandomStreams(1000 + r, false), 2.0, 2000))/2;
+        }
+
+        assertTrue(variance(common) < 0.1*variance(independent));
+        assertTrue(variance(antitheticPairs) < variance(plainPairs));
+    }
+}
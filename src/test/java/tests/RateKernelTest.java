@@ -0,0 +1,153 @@
+package tests;
+
+import org.junit.jupiter.api.Test;
+
+import jline.examples.GettingStarted;
+import jline.lang.ClosedClass;
+import jline.lang.JobClass;
+import jline.lang.Network;
+import jline.lang.constant.SchedStrategy;
+import jline.lang.distributions.Erlang;
+import jline.lang.distributions.Exp;
+import jline.lang.nodes.Delay;
+import jline.lang.nodes.Queue;
+import jline.solvers.ssa.SSAData;
+import jline.solvers.ssa.TauLeapingType;
+import jline.solvers.ssa.TauLeapingVarType;
+import jline.solvers.ssa.Timeline;
+import jline.solvers.ssa.events.RateKernel;
+import jline.solvers.ssa.state.StateMatrix;
+import jline.solvers.ssa.strategies.EventSelectionStrategy;
+import jline.solvers.ssa.strategies.TauLeapingOrderStrategy;
+import jline.solvers.ssa.strategies.TauLeapingStateStrategy;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RateKernelTest {
+    private static Network twoClassCycle() {
+        // INF, multi-class FCFS with 2 servers and PS, Exp and Erlang service
+        Network model = new Network("Two class cycle");
+        Delay delay = new Delay(model, "Think");
+        Queue fcfs = new Queue(model, "FCFS", SchedStrategy.FCFS);
+        fcfs.setNumberOfServers(2);
+        Queue ps = new Queue(model, "PS", SchedStrategy.PS);
+        ps.setNumberOfServers(2);
+        ClosedClass classA = new ClosedClass(model, "A", 4, delay);
+        ClosedClass classB = new ClosedClass(model, "B", 3, delay);
+        delay.setService(classA, new Exp(1));
+        delay.setService(classB, new Erlang(2, 2));
+        fcfs.setService(classA, new Exp(3));
+        fcfs.setService(classB, new Exp(2));
+        ps.setService(classA, new Erlang(4, 2));
+        ps.setService(classB, new Exp(5));
+        model.link(model.serialRouting(delay, fcfs, ps));
+        return model;
+    }
+
+    private static void checkAlongTrajectory(Network model, int nSteps) {
+        // step with the object rates, and compare every compiled rate with its event along the way
+        SSAData ssaData = new SSAData(model);
+        RateKernel kernel = ssaData.eventStack.getRateKernel();
+        assertNotNull(kernel);
+        assertTrue(kernel.getNCompiled() > 0);
+        ssaData.eventStack.setRateKernel(null);
+
+        Random random = new Random(1);
+        StateMatrix stateMatrix = new StateMatrix(ssaData.simStruct, random);
+        for (JobClass jobClass : model.getClasses()) {
+            if (jobClass instanceof ClosedClass) {
+                int classIdx = model.getJobClassIndex(jobClass);
+                int stationIdx = model.getStatefulNodeIndex(((ClosedClass) jobClass).getRefstat());
+                stateMatrix.setState(stationIdx, classIdx, (int) ((ClosedClass) jobClass).getPopulation());
+                for (int i = 0; i < ((ClosedClass) jobClass).getPopulation(); i++) {
+                    stateMatrix.addToBuffer(stationIdx, classIdx);
+                }
+            }
+        }
+        Timeline timeline = new Timeline(ssaData.simStruct);
+
+        double t = 0;
+        for (int step = 0; step < nSteps; step++) {
+            for (int i = 0; i < kernel.size(); i++) {
+                assertEquals(kernel.getEvent(i).getRate(stateMatrix), kernel.getRate(i, stateMatrix), 1e-12);
+            }
+            t = ssaData.eventStack.updateState(stateMatrix, timeline, t, random);
+        }
+    }
+
+    private static void assertSameTrajectory(SSAData compiled, SSAData objects) {
+        StateMatrix[] stateMatrices = new StateMatrix[2];
+        Random[] randoms = {new Random(7), new Random(7)};
+        SSAData[] data = {compiled, objects};
+        for (int k = 0; k < 2; k++) {
+            stateMatrices[k] = new StateMatrix(data[k].simStruct, randoms[k]);
+            stateMatrices[k].setState(0, 0, 4);
+            stateMatrices[k].setState(0, 1, 3);
+            for (int i = 0; i < 4; i++) {
+                stateMatrices[k].addToBuffer(0, 0);
+            }
+            for (int i = 0; i < 3; i++) {
+                stateMatrices[k].addToBuffer(0, 1);
+            }
+        }
+        Timeline[] timelines = {new Timeline(compiled.simStruct), new Timeline(objects.simStruct)};
+
+        double[] t = new double[2];
+        for (int step = 0; step < 2000; step++) {
+            for (int k = 0; k < 2; k++) {
+                t[k] = data[k].eventStack.updateState(stateMatrices[k], timelines[k], t[k], randoms[k]);
+            }
+            assertEquals(t[1], t[0]);
+            for (int i = 0; i < compiled.simStruct.nStateful; i++) {
+                assertEquals(stateMatrices[1].getStateVector(i), stateMatrices[0].getStateVector(i));
+            }
+        }
+    }
+
+    @Test
+    void closedMultiClass() {
+        checkAlongTrajectory(twoClassCycle(), 2000);
+    }
+
+    @Test
+    void openSeries() {
+        // Source and single class FCFS stations
+        checkAlongTrajectory(GettingStarted.ex3(), 2000);
+    }
+
+    @Test
+    void sameTrajectory() {
+        // the kernel draws the same random numbers as the Cdf selection
+        SSAData compiled = new SSAData(twoClassCycle());
+        SSAData objects = new SSAData(twoClassCycle());
+        objects.eventStack.setRateKernel(null);
+        assertSameTrajectory(compiled, objects);
+    }
+
+    @Test
+    void keptAcrossTauLeapingRuns() {
+        // a tau leaping run that reorders the events must not cost later exact runs on the same stack the kernel
+        SSAData compiled = new SSAData(twoClassCycle());
+        Random random = new Random(3);
+        StateMatrix stateMatrix = new StateMatrix(compiled.simStruct, random);
+        stateMatrix.setState(0, 0, 4);
+        for (int i = 0; i < 4; i++) {
+            stateMatrix.addToBuffer(0, 0);
+        }
+        compiled.eventStack.configureTauLeap(new TauLeapingType(TauLeapingVarType.Poisson,
+                TauLeapingOrderStrategy.RandomEvent, TauLeapingStateStrategy.Cutoff, 0.1));
+        Timeline timeline = new Timeline(compiled.simStruct);
+        double t = 0;
+        for (int step = 0; step < 50; step++) {
+            t = compiled.eventStack.tauLeapUpdate(stateMatrix, timeline, t, random);
+        }
+
+        compiled.eventStack.configureSelection(EventSelectionStrategy.Linear);
+        assertNotNull(compiled.eventStack.getRateKernel());
+        SSAData objects = new SSAData(twoClassCycle());
+        objects.eventStack.setRateKernel(null);
+        assertSameTrajectory(compiled, objects);
+    }
+}
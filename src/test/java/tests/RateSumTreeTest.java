@@ -0,0 +1,64 @@
+package tests;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import jline.util.RateSumTree;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RateSumTreeTest {
+    RateSumTree tree;
+    Random random;
+
+    @BeforeEach
+    void setUp() {
+        tree = new RateSumTree(5);
+        random = new Random(1);
+    }
+
+    @Test
+    void updateTotal() {
+        tree.update(0, 1.0);
+        tree.update(3, 2.5);
+        tree.update(4, 0.5);
+        assertEquals(4.0, tree.getTotal(), 1e-12);
+
+        tree.update(3, 0.0);
+        assertEquals(1.5, tree.getTotal(), 1e-12);
+        assertEquals(0.5, tree.getRate(4), 1e-12);
+    }
+
+    @Test
+    void sampleEmpty() {
+        assertEquals(-1, tree.sample(0.5));
+    }
+
+    @Test
+    void sampleSkipsZeroRates() {
+        tree.update(2, 3.0);
+        for (int i = 0; i < 100; i++) {
+            assertEquals(2, tree.sample(random.nextDouble()));
+        }
+        assertEquals(2, tree.sample(0.0));
+        assertEquals(2, tree.sample(Math.nextDown(1.0)));
+    }
+
+    @Test
+    void sampleProportional() {
+        tree.update(1, 1.0);
+        tree.update(4, 3.0);
+
+        int timesFour = 0;
+        for (int i = 0; i < 4000; i++) {
+            if (tree.sample(random.nextDouble()) == 4) {
+                timesFour++;
+            }
+        }
+
+        assertTrue(timesFour > 2800);
+        assertTrue(timesFour < 3200);
+    }
+}
@@ -0,0 +1,161 @@
+package tests;
+
+import org.junit.jupiter.api.Test;
+
+import jline.solvers.ssa.state.FCFSClassBuffer;
+import jline.solvers.ssa.state.FCFSRunBuffer;
+import jline.solvers.ssa.state.LCFSNonPreBuffer;
+import jline.solvers.ssa.state.LCFSNonPreRunBuffer;
+import jline.solvers.ssa.state.LCFSPreBuffer;
+import jline.solvers.ssa.state.LCFSPreRunBuffer;
+import jline.solvers.ssa.state.PhaseList;
+import jline.solvers.ssa.state.RunLengthDeque;
+import jline.solvers.ssa.state.SIRORunBuffer;
+import jline.solvers.ssa.state.StateCell;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RunLengthBufferTest {
+    private static final int N_CLASSES = 3;
+    private static final int N_SERVERS = 2;
+
+    private static PhaseList phaseList(int nPhases) {
+        int[] phases = new int[N_CLASSES];
+        for (int j = 0; j < N_CLASSES; j++) {
+            phases[j] = nPhases;
+        }
+        return new PhaseList(phases, N_CLASSES, new Random(1));
+    }
+
+    private static void assertSameState(StateCell expected, StateCell actual) {
+        for (int j = 0; j < N_CLASSES; j++) {
+            assertEquals(expected.getInQueue(j), actual.getInQueue(j));
+            assertEquals(expected.getInService(j), actual.getInService(j));
+        }
+        assertEquals(expected.isEmpty(), actual.isEmpty());
+        assertEquals(expected.stateVector(), actual.stateVector());
+    }
+
+    private static void replay(StateCell expected, StateCell actual, long seed) {
+        // the same single job arrivals and departures on both buffers
+        Random random = new Random(seed);
+        int nJobs = 0;
+        for (int step = 0; step < 5000; step++) {
+            int classIdx = random.nextInt(N_CLASSES);
+            if ((nJobs == 0) || (random.nextDouble() < 0.55)) {
+                expected.addToBuffer(classIdx);
+                actual.addToBuffer(classIdx);
+                nJobs++;
+            } else if (expected.getInQueue(classIdx) > 0) {
+                expected.removeFirstOfClass(classIdx);
+                actual.removeFirstOfClass(classIdx);
+                nJobs--;
+            }
+            assertSameState(expected, actual);
+        }
+    }
+
+    @Test
+    void matchesDequeBuffers() {
+        // without phases the state vectors are the job orders
+        replay(new FCFSClassBuffer(N_CLASSES, N_SERVERS, phaseList(0)),
+                new FCFSRunBuffer(N_CLASSES, N_SERVERS, phaseList(0)), 1);
+        replay(new LCFSPreBuffer(N_CLASSES, N_SERVERS, phaseList(0)),
+                new LCFSPreRunBuffer(N_CLASSES, N_SERVERS, phaseList(0)), 2);
+        replay(new LCFSNonPreBuffer(N_CLASSES, N_SERVERS, phaseList(0)),
+                new LCFSNonPreRunBuffer(N_CLASSES, N_SERVERS, phaseList(0)), 3);
+    }
+
+    @Test
+    void bulkMovesMatchSingleMoves() {
+        // without phases: a job passing through service within one bulk departure is never given a phase
+        StateCell[] single = {new FCFSRunBuffer(N_CLASSES, N_SERVERS, phaseList(0)),
+                new LCFSPreRunBuffer(N_CLASSES, N_SERVERS, phaseList(0)),
+                new LCFSNonPreRunBuffer(N_CLASSES, N_SERVERS, phaseList(0))};
+        StateCell[] bulk = {new FCFSRunBuffer(N_CLASSES, N_SERVERS, phaseList(0)),
+                new LCFSPreRunBuffer(N_CLASSES, N_SERVERS, phaseList(0)),
+                new LCFSNonPreRunBuffer(N_CLASSES, N_SERVERS, phaseList(0))};
+        for (int b = 0; b < single.length; b++) {
+            Random random = new Random(b);
+            for (int step = 0; step < 2000; step++) {
+                int classIdx = random.nextInt(N_CLASSES);
+                int n = 1 + random.nextInt(20);
+                if (random.nextDouble() < 0.5) {
+                    for (int i = 0; i < n; i++) {
+                        single[b].addToBuffer(classIdx);
+                    }
+                    bulk[b].addNToBuffer(classIdx, n);
+                } else {
+                    n = Math.min(n, single[b].getInQueue(classIdx));
+                    for (int i = 0; i < n; i++) {
+                        single[b].removeFirstOfClass(classIdx);
+                    }
+                    bulk[b].removeNClass(n, classIdx);
+                }
+                assertSameState(single[b], bulk[b]);
+            }
+        }
+    }
+
+    @Test
+    void largePopulationInOneRun() {
+        FCFSRunBuffer buffer = new FCFSRunBuffer(N_CLASSES, 4, phaseList(1));
+        buffer.addNToBuffer(0, 1000000);
+        buffer.addNToBuffer(1, 3);
+        assertEquals(4, buffer.getInService(0));
+        assertEquals(4, buffer.getPhaseList().getNInClass(0));
+
+        buffer.removeNClass(999998, 0);
+        assertEquals(2, buffer.getInQueue(0));
+        assertEquals(2, buffer.getInService(0));
+        assertEquals(2, buffer.getInService(1));
+        // the four freed servers took the two class 0 and two class 1 jobs at the front
+        assertEquals(6, buffer.getPhaseList().getNInClass(0));
+        assertEquals(2, buffer.getPhaseList().getNInClass(1));
+
+        StateCell copy = buffer.createCopy();
+        buffer.removeNClass(2, 0);
+        assertEquals(3, buffer.getInService(1));
+        assertEquals(2, copy.getInService(0));
+    }
+
+    @Test
+    void runsMergeAndWrap() {
+        RunLengthDeque deque = new RunLengthDeque(2);
+        deque.addLast(0, 5);
+        deque.addLast(1, 1);
+        deque.addLast(0, 5);
+        deque.addFirst(2, 3);
+        assertEquals(4, deque.getNumberOfRuns());
+        assertEquals(14, deque.size());
+
+        // removing the only class 1 job joins the two class 0 runs
+        assertEquals(0, deque.removeFirstN(1, 1, 3));
+        assertEquals(2, deque.getNumberOfRuns());
+        assertEquals(10, deque.getRunCount(1));
+        assertEquals(2, deque.removeFirstN(2, 2, 2));
+        assertEquals(2, deque.removeFirst());
+        assertEquals(1, deque.getNumberOfRuns());
+        assertEquals(10, deque.size());
+    }
+
+    @Test
+    void siroCounts() {
+        SIRORunBuffer buffer = new SIRORunBuffer(new Random(1), N_CLASSES, N_SERVERS, phaseList(1));
+        buffer.addNToBuffer(0, 1);
+        buffer.addNToBuffer(1, 100);
+        assertEquals(1, buffer.getInService(0));
+        assertEquals(1, buffer.getInService(1));
+
+        // the freed server always takes a class 1 job, the only ones waiting
+        buffer.removeNClass(1, 0);
+        assertEquals(0, buffer.getInQueue(0));
+        assertEquals(2, buffer.getInService(1));
+        buffer.removeNClass(99, 1);
+        assertEquals(1, buffer.getInQueue(1));
+        assertEquals(1, buffer.getInService(1));
+        assertFalse(buffer.isEmpty());
+    }
+}
@@ -0,0 +1,61 @@
+package tests;
+
+import org.junit.jupiter.api.Test;
+
+import jline.solvers.ssa.SSAInstrumentation;
+
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SSAInstrumentationTest {
+    @Test
+    void countsAndReports() {
+        int[] nReports = new int[1];
+        SSAInstrumentation instrumentation = new SSAInstrumentation()
+                .timerSampleEvery(4)
+                .reportEvery(10)
+                .addListener((inst, t) -> nReports[0]++);
+
+        instrumentation.startRun(0);
+        int nTimed = 0;
+        for (int i = 0; i < 100; i++) {
+            if (instrumentation.isTiming()) {
+                nTimed++;
+                instrumentation.addRecordNanos(10);
+            }
+            instrumentation.countEvent(new DummyEvent(null, 0, 0, 1), 2);
+            instrumentation.step(i);
+        }
+        instrumentation.countImmediate();
+        instrumentation.countNoEvent();
+        instrumentation.finishRun(100);
+
+        assertEquals(100, instrumentation.getSteps());
+        assertEquals(200, instrumentation.getEvents());
+        assertEquals(200, instrumentation.getOtherEvents());
+        assertEquals(0, instrumentation.getArrivals());
+        assertEquals(1, instrumentation.getImmediateFirings());
+        assertEquals(1, instrumentation.getNoEventSteps());
+        assertEquals(100.0, instrumentation.getSimulatedTime());
+        assertEquals(24, nTimed);
+        assertEquals(10.0, instrumentation.getRecordNanosPerStep(), 1e-12);
+        // every 10 steps, and once at the end
+        assertEquals(11, nReports[0]);
+        assertTrue(instrumentation.getEventsPerSecond() > 0);
+    }
+
+    @Test
+    void jmxExport() throws Exception {
+        SSAInstrumentation instrumentation = new SSAInstrumentation();
+        instrumentation.step(1.0);
+        instrumentation.registerMBean("test");
+        try {
+            ObjectName name = new ObjectName("jline.solvers.ssa:type=SSAInstrumentation,name=" + ObjectName.quote("test"));
+            assertEquals(1L, ManagementFactory.getPlatformMBeanServer().getAttribute(name, "Steps"));
+        } finally {
+            instrumentation.unregisterMBean();
+        }
+    }
+}
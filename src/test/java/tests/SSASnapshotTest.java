@@ -0,0 +1,140 @@
+package tests;
+
+import org.junit.jupiter.api.Test;
+
+import jline.lang.constant.SchedStrategy;
+import jline.solvers.ssa.SSASnapshot;
+import jline.solvers.ssa.SSAStruct;
+import jline.solvers.ssa.Timeline;
+import jline.solvers.ssa.metrics.QueueLengthMetric;
+import jline.solvers.ssa.state.StateMatrix;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Random;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SSASnapshotTest {
+    private static SSAStruct networkStruct() {
+        // two servers at the PS station, and two phases for class 1 at the FCFS one
+        SSAStruct networkStruct = TestNetworkStructs.networkStruct(2, 10, SchedStrategy.FCFS, SchedStrategy.PS);
+        networkStruct.numberOfServers[1] = 2;
+        networkStruct.nPhases[0][1] = 2;
+        return networkStruct;
+    }
+
+    @Test
+    void roundTrip() throws IOException {
+        SSAStruct networkStruct = networkStruct();
+        StateMatrix stateMatrix = new StateMatrix(networkStruct, new Random(1));
+        stateMatrix.stateArrival(0, 0);
+        stateMatrix.stateArrival(0, 1);
+        stateMatrix.stateArrival(0, 0);
+        stateMatrix.stateArrival(1, 1);
+        Timeline timeline = new Timeline(networkStruct);
+
+        SSASnapshot snapshot = SSASnapshot.capture(5.0, 42, stateMatrix, timeline);
+        Path file = Files.createTempFile("ssa-snapshot", ".bin");
+        try {
+            snapshot.save(file);
+            SSASnapshot loaded = SSASnapshot.load(file);
+            assertEquals(5.0, loaded.getTime());
+            assertEquals(42, loaded.getSamplesCollected());
+
+            StateMatrix restored = loaded.getStateMatrix();
+            for (int i = 0; i < 2; i++) {
+                assertEquals(stateMatrix.getStateVector(i), restored.getStateVector(i));
+                for (int j = 0; j < 2; j++) {
+                    assertEquals(stateMatrix.getState(i, j), restored.getState(i, j));
+                }
+            }
+
+            // the restored stream continues where the captured one stopped
+            for (int k = 0; k < 10; k++) {
+                assertEquals(stateMatrix.getRandom().nextLong(), restored.getRandom().nextLong());
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    void copiesAreIndependent() {
+        SSAStruct networkStruct = networkStruct();
+        StateMatrix stateMatrix = new StateMatrix(networkStruct, new Random(1));
+        stateMatrix.stateArrival(0, 0);
+        SSASnapshot snapshot = SSASnapshot.capture(1.0, 1, stateMatrix, new Timeline(networkStruct));
+
+        stateMatrix.stateArrival(0, 0);
+        assertEquals(2, stateMatrix.getState(0, 0));
+        StateMatrix restored = snapshot.getStateMatrix();
+        assertEquals(1, restored.getState(0, 0));
+        restored.stateArrival(0, 1);
+        assertEquals(0, snapshot.getStateMatrix().getState(0, 1));
+    }
+
+    @Test
+    void loadRejectsForeignFiles() throws IOException {
+        Path file = Files.createTempFile("ssa-snapshot", ".bin");
+        try {
+            // a plain serialized object, without the snapshot header
+            try (ObjectOutputStream out = new ObjectOutputStream(new GZIPOutputStream(Files.newOutputStream(file)))) {
+                out.writeObject(new HashMap<String, String>());
+            }
+            assertThrows(RuntimeException.class, () -> SSASnapshot.load(file));
+
+            // a valid header, followed by a class that is no part of a snapshot
+            try (DataOutputStream out = new DataOutputStream(new GZIPOutputStream(Files.newOutputStream(file)))) {
+                out.writeInt(0x53534153);
+                out.writeInt(1);
+                out.writeInt(2);
+                out.writeInt(2);
+                out.writeDouble(0.0);
+                out.writeInt(0);
+                ObjectOutputStream objectOut = new ObjectOutputStream(out);
+                objectOut.writeObject(new HashMap<String, String>());
+                objectOut.flush();
+            }
+            RuntimeException e = assertThrows(RuntimeException.class, () -> SSASnapshot.load(file));
+            assertTrue(e.getCause() instanceof InvalidClassException);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    void recordedTimeAveragesContinueAfterARoundTrip() throws IOException, ClassNotFoundException {
+        StateMatrix stateMatrix = new StateMatrix(networkStruct(), new Random(1));
+        QueueLengthMetric metric = new QueueLengthMetric(0, 0, 1, true);
+        stateMatrix.stateArrival(0, 0);
+        metric.fromStateMatrix(1.0, stateMatrix);
+        stateMatrix.stateArrival(0, 0);
+        metric.fromStateMatrix(3.0, stateMatrix);
+
+        // the copy carries the folded timeline only
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(metric);
+        }
+        QueueLengthMetric copy;
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            copy = (QueueLengthMetric) in.readObject();
+        }
+
+        metric.taper(5.0);
+        copy.taper(5.0);
+        assertEquals(1.2, copy.getMetric(), 1e-12);
+        assertEquals(metric.getMetric(), copy.getMetric(), 1e-12);
+
+        stateMatrix.stateArrival(0, 0);
+        metric.fromStateMatrix(6.0, stateMatrix);
+        copy.fromStateMatrix(6.0, stateMatrix);
+        metric.taper(8.0);
+        copy.taper(8.0);
+        assertEquals(metric.getMetric(), copy.getMetric(), 1e-12);
+    }
+}
@@ -0,0 +1,71 @@
+package tests;
+
+import org.junit.jupiter.api.Test;
+
+import jline.lang.ClosedClass;
+import jline.lang.JLineMatrix;
+import jline.lang.Network;
+import jline.lang.RoutingMatrix;
+import jline.lang.constant.SchedStrategy;
+import jline.lang.distributions.Exp;
+import jline.lang.nodes.Queue;
+import jline.solvers.ctmc.SolverCTMC;
+import jline.solvers.ssa.events.Event;
+import jline.solvers.ssa.events.OutputEvent;
+import jline.solvers.ssa.state.StateMatrix;
+import jline.solvers.ssa.state.StateSpace;
+import jline.util.Pair;
+import org.javatuples.Quartet;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SolverCTMCTest {
+    private static Network closedTandem() {
+        // 3 jobs between Queue1 (rate 1) and Queue2 (rate 2): pi(n1) proportional to 2^n1
+        Network model = new Network("Closed tandem");
+        Queue queue1 = new Queue(model, "Queue1", SchedStrategy.FCFS);
+        Queue queue2 = new Queue(model, "Queue2", SchedStrategy.FCFS);
+        ClosedClass closedClass = new ClosedClass(model, "Closed", 3, queue1);
+        queue1.setService(closedClass, new Exp(1));
+        queue2.setService(closedClass, new Exp(2));
+
+        RoutingMatrix routingMatrix = new RoutingMatrix(model, Arrays.asList(closedClass),
+                Arrays.asList(queue1, queue2));
+        routingMatrix.addConnection(queue1, queue2);
+        routingMatrix.addConnection(queue2, queue1);
+        model.link(routingMatrix);
+        return model;
+    }
+
+    @Test
+    void eventsAndGeneratorComeFromTheSameExploration() {
+        Network model = closedTandem();
+        SolverCTMC solverCTMC = new SolverCTMC();
+        solverCTMC.compile(model);
+        ArrayList<Quartet<Event, Pair<OutputEvent, Double>, StateMatrix, StateMatrix>> eventSpace =
+                solverCTMC.getAllEvents();
+        StateSpace stateSpace = solverCTMC.getExploredStateSpace();
+        assertEquals(4, stateSpace.size());
+
+        // one departure from each queue in every state where it has a job
+        assertEquals(6, eventSpace.size());
+        JLineMatrix generator = solverCTMC.getGenerator();
+        for (Quartet<Event, Pair<OutputEvent, Double>, StateMatrix, StateMatrix> quartet : eventSpace) {
+            int sourceId = stateSpace.getId(quartet.getValue2());
+            int targetId = stateSpace.getId(quartet.getValue3());
+            assertNotEquals(sourceId, targetId);
+            double rate = quartet.getValue0().getRate(quartet.getValue2())*quartet.getValue1().getRight();
+            assertEquals(generator.get(sourceId, targetId), rate, 1e-12);
+        }
+
+        int queue1Idx = model.getStatefulNodeIndex(model.getNodeByName("Queue1"));
+        int queue2Idx = model.getStatefulNodeIndex(model.getNodeByName("Queue2"));
+        assertEquals(34.0/15, solverCTMC.getQueueLength()[queue1Idx], 1e-9);
+        assertEquals(11.0/15, solverCTMC.getQueueLength()[queue2Idx], 1e-9);
+        assertEquals(14.0/15, solverCTMC.getUtilization()[queue1Idx], 1e-9);
+        assertEquals(7.0/15, solverCTMC.getUtilization()[queue2Idx], 1e-9);
+    }
+}
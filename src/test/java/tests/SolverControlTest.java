@@ -0,0 +1,84 @@
+package tests;
+
+import org.junit.jupiter.api.Test;
+
+import jline.solvers.SolverControl;
+import jline.solvers.SolverProgress;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SolverControlTest {
+    private static long poll(SolverControl control, CountDownLatch started) {
+        // a solver loop that only stops when control says so
+        long steps = 0;
+        started.countDown();
+        while (!control.shouldStop()) {
+            steps++;
+            if (control.progressDue()) {
+                control.report("Test", steps, steps, null);
+            }
+        }
+        return steps;
+    }
+
+    @Test
+    void cancelStopsTheRun() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            SolverControl control = new SolverControl();
+            CountDownLatch started = new CountDownLatch(1);
+            CompletableFuture<Long> future = control.submit(() -> poll(control, started), executor);
+            assertTrue(started.await(10, TimeUnit.SECONDS));
+            assertTrue(future.cancel(true));
+            assertTrue(control.isCancelled());
+            assertThrows(CancellationException.class, future::join);
+            assertThrows(CancellationException.class, control::checkpoint);
+
+            // the worker is free again once the loop has seen the cancellation
+            CompletableFuture<Integer> next = new SolverControl().submit(() -> 1, executor);
+            assertEquals(1, (int) next.get(10, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void deadlineAndProgress() throws Exception {
+        List<SolverProgress> reports = new ArrayList<SolverProgress>();
+        SolverControl control = new SolverControl()
+                .deadline(200, TimeUnit.MILLISECONDS)
+                .progressInterval(20, TimeUnit.MILLISECONDS)
+                .onProgress(reports::add);
+        CompletableFuture<Long> future = control.submit(() -> poll(control, new CountDownLatch(1)),
+                SolverControl.defaultExecutor());
+
+        long steps = future.get(10, TimeUnit.SECONDS);
+        assertTrue(steps > 0);
+        assertTrue(control.isExpired());
+        assertFalse(control.isCancelled());
+        assertTrue(reports.size() >= 2);
+        assertEquals("Test", reports.get(0).solver);
+        assertTrue(reports.get(reports.size()-1).steps <= steps);
+        assertTrue(reports.get(reports.size()-1).elapsedSeconds < 10);
+    }
+
+    @Test
+    void failuresCompleteExceptionally() {
+        SolverControl control = new SolverControl();
+        CompletableFuture<Object> future = control.submit(() -> {
+            throw new RuntimeException("Solver failed");
+        }, Runnable::run);
+        ExecutionException e = assertThrows(ExecutionException.class, future::get);
+        assertEquals("Solver failed", e.getCause().getMessage());
+    }
+}
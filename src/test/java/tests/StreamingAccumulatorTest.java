@@ -0,0 +1,52 @@
+package tests;
+
+import org.junit.jupiter.api.Test;
+
+import jline.solvers.ssa.metrics.StreamingAccumulator;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StreamingAccumulatorTest {
+    @Test
+    void timeWeightedMean() {
+        StreamingAccumulator acc = new StreamingAccumulator(true);
+        acc.level(0.0, 2.0);
+        acc.level(1.0, 4.0);
+        acc.level(4.0, 0.0);
+        acc.taper(5.0);
+        // 2 for 1, 4 for 3, 0 for 1
+        assertEquals(14.0/5.0, acc.getMean(), 1e-12);
+        double mean = 14.0/5.0;
+        double variance = (1*Math.pow(2-mean, 2) + 3*Math.pow(4-mean, 2) + 1*Math.pow(0-mean, 2))/5.0;
+        assertEquals(variance, acc.getVariance(), 1e-12);
+    }
+
+    @Test
+    void boundedBatches() {
+        StreamingAccumulator acc = new StreamingAccumulator(false);
+        Random random = new Random(1);
+        for (int i = 0; i < 1000000; i++) {
+            acc.sample(random.nextDouble());
+        }
+        assertTrue(acc.getNumberOfBatches() <= 1024);
+        assertEquals(1000000, acc.getNumberOfObservations());
+        assertEquals(0.5, acc.getMean(), 1e-2);
+    }
+
+    @Test
+    void truncatesWarmup() {
+        StreamingAccumulator acc = new StreamingAccumulator(false);
+        Random random = new Random(1);
+        for (int i = 0; i < 2000; i++) {
+            acc.sample(100.0 + random.nextDouble());
+        }
+        for (int i = 0; i < 20000; i++) {
+            acc.sample(random.nextDouble());
+        }
+        assertTrue(acc.getMSERCutoff() >= 2000);
+        assertEquals(0.5, acc.getTruncatedMean(), 1e-2);
+        assertTrue(acc.getMean() > 5.0);
+    }
+}
@@ -0,0 +1,34 @@
+package tests;
+
+import jline.lang.constant.SchedStrategy;
+import jline.solvers.ssa.SSAStruct;
+
+import java.util.Map;
+
+public class TestNetworkStructs {
+    // hand-built SSAStructs for tests that drive StateMatrix directly, without compiling a Network
+
+    public static SSAStruct networkStruct(int nClasses, int classCapacity, SchedStrategy... schedStrategies) {
+        // one station per scheduling strategy: single server, exponential (one phase) service, no delays
+        int nStateful = schedStrategies.length;
+        SSAStruct networkStruct = new SSAStruct();
+        networkStruct.nStateful = nStateful;
+        networkStruct.nClasses = nClasses;
+        networkStruct.schedStrategies = schedStrategies.clone();
+        networkStruct.capacities = new int[nStateful][nClasses];
+        networkStruct.nodeCapacity = new int[nStateful];
+        networkStruct.numberOfServers = new int[nStateful];
+        networkStruct.isDelay = new boolean[nStateful];
+        networkStruct.nPhases = new int[nStateful][nClasses];
+        for (int i = 0; i < nStateful; i++) {
+            networkStruct.nodeCapacity[i] = nClasses*classCapacity;
+            networkStruct.numberOfServers[i] = 1;
+            for (int j = 0; j < nClasses; j++) {
+                networkStruct.capacities[i][j] = classCapacity;
+                networkStruct.nPhases[i][j] = 1;
+            }
+        }
+        networkStruct.startingPhaseProbabilities = new Map[nStateful];
+        return networkStruct;
+    }
+}
@@ -0,0 +1,108 @@
+package tests;
+
+import org.junit.jupiter.api.Test;
+
+import jline.lang.constant.SchedStrategy;
+import jline.solvers.ssa.SSAStruct;
+import jline.solvers.ssa.TransientRecorder;
+import jline.solvers.ssa.state.StateMatrix;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransientRecorderTest {
+    private static SSAStruct networkStruct() {
+        // an FCFS, a PS and a two-server SIRO station, two classes
+        SSAStruct networkStruct = TestNetworkStructs.networkStruct(2, 1000, SchedStrategy.FCFS, SchedStrategy.PS,
+                SchedStrategy.SIRO);
+        networkStruct.numberOfServers[2] = 2;
+        return networkStruct;
+    }
+
+    private static void record(TransientRecorder[] recorders, int nSteps, long seed) {
+        // the same random walk of arrivals and departures, recorded by every recorder
+        StateMatrix stateMatrix = new StateMatrix(networkStruct(), new Random(seed), true);
+        Random random = new Random(seed);
+        double t = 0;
+        for (int step = 0; step < nSteps; step++) {
+            int station = random.nextInt(3);
+            int classIdx = random.nextInt(2);
+            if (random.nextBoolean() || !stateMatrix.stateDeparture(station, classIdx)) {
+                stateMatrix.stateArrival(station, classIdx);
+            }
+            t += random.nextDouble();
+            for (TransientRecorder recorder : recorders) {
+                if (recorder.sample(t)) {
+                    recorder.recordState(stateMatrix);
+                }
+            }
+        }
+    }
+
+    @Test
+    void storesTheStateVectors() {
+        StateMatrix stateMatrix = new StateMatrix(networkStruct(), new Random(1), true);
+        TransientRecorder recorder = new TransientRecorder(3);
+        Random random = new Random(1);
+        List<List<Integer>[]> expected = new ArrayList<List<Integer>[]>();
+        for (int step = 0; step < 2000; step++) {
+            int station = random.nextInt(3);
+            int classIdx = random.nextInt(2);
+            if (random.nextBoolean() || !stateMatrix.stateDeparture(station, classIdx)) {
+                stateMatrix.stateArrival(station, classIdx);
+            }
+            recorder.sample(step);
+            recorder.recordState(stateMatrix);
+            expected.add(stateMatrix.getStateVectors());
+        }
+
+        List<List<Integer>[]> transientState = recorder.getTransientState();
+        assertEquals(expected.size(), transientState.size());
+        for (int row = 0; row < expected.size(); row++) {
+            assertArrayEquals(expected.get(row), transientState.get(row));
+        }
+    }
+
+    @Test
+    void spilledMatchesInMemory() throws Exception {
+        // enough rows to fill several chunks of every column and more than one mapped region
+        TransientRecorder inMemory = new TransientRecorder(3);
+        TransientRecorder spilled = new TransientRecorder(3);
+        Path file = Files.createTempFile("ssa-transient-test", ".bin");
+        try {
+            spilled.spillTo(file);
+            record(new TransientRecorder[]{inMemory, spilled}, 300000, 2);
+
+            assertEquals(inMemory.getT(), spilled.getT());
+            List<List<Integer>[]> expected = inMemory.getTransientState();
+            List<List<Integer>[]> actual = spilled.getTransientState();
+            assertEquals(expected.size(), actual.size());
+            for (int row = 0; row < expected.size(); row++) {
+                assertArrayEquals(expected.get(row), actual.get(row));
+            }
+            int lastRow = inMemory.getNumberOfStates()-1;
+            assertTrue(Arrays.equals(inMemory.getStateVector(lastRow, 0), spilled.getStateVector(lastRow, 0)));
+        } finally {
+            spilled.close();
+            Files.deleteIfExists(file);
+        }
+        assertEquals(0, spilled.getNumberOfStates());
+    }
+
+    @Test
+    void closeDeletesTheTemporarySpillFile() {
+        TransientRecorder recorder = new TransientRecorder(3);
+        recorder.spillToTempFile();
+        record(new TransientRecorder[]{recorder}, 50000, 3);
+        assertTrue(recorder.getNumberOfStates() > 0);
+        recorder.close();
+        assertEquals(0, recorder.getNumberOfStates());
+        assertEquals(0, recorder.getNumberOfTimes());
+    }
+}